@@ -0,0 +1,291 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.grizzly.connector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+
+import org.glassfish.jersey.client.spi.AsyncEntityStream;
+
+/**
+ * Response entity input stream fed with the response body parts as they are received.
+ * <p>
+ * The stream buffers at most the configured number of bytes. Once the limit is reached,
+ * the thread {@link #offer(byte[]) offering} new body parts is blocked until the consumer
+ * reads enough data from the stream or {@link #close() closes} the stream. The thread is blocked
+ * at most for the configured timeout; if the consumer does not make room in the buffer in time,
+ * the stream fails and the reception of the response body is aborted. The bytes buffered so far
+ * can still be read, further reads fail with an {@link IOException}.
+ * </p>
+ * <p>
+ * Once {@link #push(AsyncEntityStream.Receiver) switched into the push mode}, the body parts are not buffered
+ * anymore; instead they are passed directly to the receiver by the thread offering them.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+final class BodyPartInputStream extends InputStream implements AsyncEntityStream {
+
+    private final int bufferLimit;
+    private final long timeout;
+    private final LinkedList<byte[]> parts = new LinkedList<byte[]>();
+
+    private int buffered;
+    private byte[] current;
+    private int position;
+
+    private boolean completed;
+    private boolean closed;
+    private Throwable failure;
+
+    private Receiver receiver;
+    private boolean draining;
+
+    /**
+     * Create new body part input stream.
+     *
+     * @param bufferLimit maximal number of buffered bytes.
+     * @param timeout     maximal time in milliseconds the thread offering a body part waits
+     *                    for the consumer to make room in the buffer.
+     */
+    BodyPartInputStream(final int bufferLimit, final long timeout) {
+        this.bufferLimit = bufferLimit;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Offer a new body part to the stream, blocking while the buffer limit is exceeded.
+     *
+     * @param part received body part.
+     * @return {@code true} if the body part was accepted, {@code false} if the stream has been closed
+     *         by the consumer, the stream failed or the consumer did not read the buffered data within
+     *         the timeout and no more data should be received.
+     * @throws InterruptedException in case the waiting thread has been interrupted.
+     */
+    boolean offer(final byte[] part) throws InterruptedException {
+        final Receiver pushReceiver;
+        synchronized (this) {
+            final long deadline = System.currentTimeMillis() + timeout;
+            // a single part is always accepted into an empty buffer, even if larger than the limit
+            while (!closed && failure == null && receiver == null
+                    && buffered > 0 && buffered + part.length > bufferLimit) {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    // the consumer neither reads nor closes the stream - do not block the I/O thread any longer
+                    if (!completed) {
+                        failure = new IOException(String.format(
+                                "Response entity not read within %d ms, %d bytes buffered - reception aborted.",
+                                timeout, buffered));
+                    }
+                    notifyAll();
+                    return false;
+                }
+                wait(remaining);
+            }
+            if (closed || failure != null) {
+                return false;
+            }
+            if (receiver == null || draining) {
+                if (part.length > 0) {
+                    parts.add(part);
+                    buffered += part.length;
+                    notifyAll();
+                }
+                return true;
+            }
+            pushReceiver = receiver;
+        }
+
+        // push mode - deliver the part directly, outside of the lock
+        if (part.length > 0) {
+            pushReceiver.onData(part, 0, part.length);
+        }
+        synchronized (this) {
+            return !closed;
+        }
+    }
+
+    /**
+     * Signal that all the body parts have been received.
+     */
+    void complete() {
+        final Receiver pushReceiver;
+        synchronized (this) {
+            completed = true;
+            notifyAll();
+            if (receiver == null || draining || closed) {
+                return;
+            }
+            pushReceiver = receiver;
+        }
+        pushReceiver.onComplete();
+    }
+
+    /**
+     * Signal that the response body could not be received.
+     *
+     * @param failure failure cause.
+     */
+    void fail(final Throwable failure) {
+        final Receiver pushReceiver;
+        synchronized (this) {
+            if (!completed && this.failure == null) {
+                this.failure = failure;
+            }
+            notifyAll();
+            if (completed || receiver == null || draining || closed) {
+                return;
+            }
+            pushReceiver = receiver;
+        }
+        pushReceiver.onError(failure);
+    }
+
+    @Override
+    public boolean push(final Receiver receiver) {
+        synchronized (this) {
+            if (closed || this.receiver != null || current != null) {
+                // already (partially) read from
+                return false;
+            }
+            this.receiver = receiver;
+            this.draining = true;
+            notifyAll();
+        }
+
+        // deliver the already buffered parts; parts offered concurrently are queued until the draining is finished
+        while (true) {
+            final byte[][] pending;
+            final boolean done;
+            final Throwable error;
+            synchronized (this) {
+                if (parts.isEmpty() || closed) {
+                    draining = false;
+                    parts.clear();
+                    buffered = 0;
+                    if (closed) {
+                        return true;
+                    }
+                    done = completed;
+                    error = failure;
+                    pending = null;
+                } else {
+                    pending = parts.toArray(new byte[parts.size()][]);
+                    parts.clear();
+                    buffered = 0;
+                    done = false;
+                    error = null;
+                }
+            }
+            if (pending == null) {
+                if (done) {
+                    receiver.onComplete();
+                } else if (error != null) {
+                    receiver.onError(error);
+                }
+                return true;
+            }
+            for (byte[] part : pending) {
+                receiver.onData(part, 0, part.length);
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        final int read = read(b, 0, 1);
+        return read == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        while (current == null || position == current.length) {
+            if (receiver != null) {
+                throw new IOException("The stream has been switched into the push mode.");
+            }
+            if (closed) {
+                throw new IOException("The stream has been closed.");
+            }
+            if (!parts.isEmpty()) {
+                current = parts.removeFirst();
+                position = 0;
+                buffered -= current.length;
+                notifyAll();
+            } else if (failure != null) {
+                throw failure instanceof IOException ? (IOException) failure : new IOException(failure);
+            } else if (completed) {
+                return -1;
+            } else {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        final int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public synchronized int available() throws IOException {
+        return (current == null ? 0 : current.length - position) + buffered;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        parts.clear();
+        buffered = 0;
+        current = null;
+        notifyAll();
+    }
+}
@@ -40,6 +40,7 @@
 package org.glassfish.jersey.grizzly.connector;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.List;
@@ -48,8 +49,6 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 import javax.ws.rs.client.ClientException;
 import javax.ws.rs.client.Configuration;
@@ -67,22 +66,49 @@ import org.glassfish.jersey.internal.util.PropertiesHelper;
 import org.glassfish.grizzly.http.client.Version;
 
 import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
-import com.ning.http.client.AsyncCompletionHandler;
+import com.ning.http.client.AsyncHandler;
 import com.ning.http.client.AsyncHttpClient;
 import com.ning.http.client.AsyncHttpClientConfig;
+import com.ning.http.client.HttpResponseBodyPart;
+import com.ning.http.client.HttpResponseHeaders;
+import com.ning.http.client.HttpResponseStatus;
 import com.ning.http.client.Request;
 import com.ning.http.client.RequestBuilder;
 import com.ning.http.client.providers.grizzly.GrizzlyAsyncHttpProvider;
 
 /**
  * The transport using the AsyncHttpClient.
+ * <p>
+ * Both synchronous and asynchronous invocations are completed as soon as the response headers
+ * are received. The response entity is streamed: the received body parts are buffered up to a limit
+ * and the connector stops receiving further data until the response entity stream is read (or closed).
+ * If the buffered entity data is not read within the {@link ClientProperties#READ_TIMEOUT read timeout}
+ * (10 seconds if no read timeout is set), the response reception is aborted and reading the rest
+ * of the response entity fails.
+ * </p>
  *
  * @author Stepan Kopriva (stepan.kopriva at oracle.com)
  */
 public class GrizzlyConnector extends RequestWriter implements Connector {
 
+    /**
+     * Maximal number of response entity bytes buffered before the connector stops receiving
+     * further response body parts.
+     */
+    private static final int ENTITY_BUFFER_LIMIT = 64 * 1024;
+
+    /**
+     * Default maximal time in milliseconds the connector waits for the full response entity buffer to be read
+     * before the response reception is aborted. Used unless {@link ClientProperties#READ_TIMEOUT} is set.
+     */
+    private static final int DEFAULT_ENTITY_BUFFER_TIMEOUT = 10 * 1000;
+
     private AsyncHttpClient client;
+    private final long entityBufferTimeout;
+    private final ExecutorService callbackExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("jersey-grizzly-connector-callback-%d").setDaemon(true).build());
 
     /**
      * Create the new Grizzly async client connector.
@@ -107,11 +133,14 @@ public class GrizzlyConnector extends RequestWriter implements Connector {
             builder.setConnectionTimeoutInMs(PropertiesHelper.getValue(configuration.getProperties(),
                     ClientProperties.CONNECT_TIMEOUT, 0));
 
-            builder.setRequestTimeoutInMs(PropertiesHelper.getValue(configuration.getProperties(),
-                    ClientProperties.READ_TIMEOUT, 0));
+            final int readTimeout = PropertiesHelper.getValue(configuration.getProperties(),
+                    ClientProperties.READ_TIMEOUT, 0);
+            builder.setRequestTimeoutInMs(readTimeout);
+            entityBufferTimeout = readTimeout > 0 ? readTimeout : DEFAULT_ENTITY_BUFFER_TIMEOUT;
         } else {
             executorService = Executors.newCachedThreadPool();
             builder.setExecutorService(executorService);
+            entityBufferTimeout = DEFAULT_ENTITY_BUFFER_TIMEOUT;
         }
 
         AsyncHttpClientConfig config = builder.setAllowPoolingConnection(true).build();
@@ -120,15 +149,16 @@ public class GrizzlyConnector extends RequestWriter implements Connector {
 
     /*
      * Sends the {@link javax.ws.rs.core.Request} via Grizzly transport and returns the {@link javax.ws.rs.core.Response}.
+     * The response is returned as soon as the response headers are received, the response entity is streamed.
      */
     @Override
     public ClientResponse apply(ClientRequest requestContext) {
-        com.ning.http.client.Response connectorResponse;
+        final ResponseHandler handler = new ResponseHandler(requestContext, entityBufferTimeout);
 
         try {
             com.ning.http.client.Request connectorRequest = translate(requestContext);
-            Future<com.ning.http.client.Response> respFuture = client.executeRequest(connectorRequest);
-            connectorResponse = respFuture.get();
+            client.executeRequest(connectorRequest, handler);
+            return handler.responseFuture.get();
         } catch (ExecutionException ex) {
             Throwable e = ex.getCause() == null ? ex : ex.getCause();
             throw new ClientException(e.getMessage(), e);
@@ -137,39 +167,41 @@ public class GrizzlyConnector extends RequestWriter implements Connector {
         } catch (IOException ex) {
             throw new ClientException(ex.getMessage(), ex);
         }
-
-        return translate(requestContext, connectorResponse);
     }
 
     @Override
     public Future<?> apply(final ClientRequest request, final AsyncConnectorCallback callback) {
         final Request connectorRequest = translate(request);
+        final ResponseHandler handler = new ResponseHandler(request, entityBufferTimeout);
 
-        Throwable failure;
-        try {
-            return client.executeRequest(connectorRequest, new AsyncCompletionHandler<ClientResponse>() {
-                @Override
-                public ClientResponse onCompleted(com.ning.http.client.Response connectorResponse) throws Exception {
-                    final ClientResponse response = translate(request, connectorResponse);
-                    try {
-                        return response;
-                    } finally {
-                        callback.response(response);
-                    }
+        // the callback may read the response entity and must not block the I/O thread delivering the body parts
+        handler.responseFuture.addListener(new Runnable() {
+            @Override
+            public void run() {
+                final ClientResponse response;
+                try {
+                    response = handler.responseFuture.get();
+                } catch (ExecutionException ex) {
+                    Throwable t = ex.getCause() == null ? ex : ex.getCause();
+                    callback.failure(t instanceof IOException ? new ClientException(t.getMessage(), t) : t);
+                    return;
+                } catch (InterruptedException ex) {
+                    callback.failure(ex);
+                    return;
                 }
+                callback.response(response);
+            }
+        }, callbackExecutor);
 
-                @Override
-                public void onThrowable(Throwable t) {
-                    t = t instanceof IOException ? new ClientException(t.getMessage(), t) : t;
-                    callback.failure(t);
-                }
-            });
+        Throwable failure;
+        try {
+            return client.executeRequest(connectorRequest, handler);
         } catch (IOException ex) {
             failure = ex;
-            callback.failure(new ClientException(ex.getMessage(), ex.getCause()));
+            handler.onThrowable(ex);
         } catch (Throwable t) {
             failure = t;
-            callback.failure(t);
+            handler.onThrowable(t);
         }
 
         final SettableFuture<Object> errorFuture = SettableFuture.create();
@@ -179,40 +211,96 @@ public class GrizzlyConnector extends RequestWriter implements Connector {
 
     @Override
     public void close() {
-        client.close();
+        try {
+            client.close();
+        } finally {
+            callbackExecutor.shutdown();
+        }
     }
 
-    private ClientResponse translate(ClientRequest requestContext, final com.ning.http.client.Response original) {
+    /**
+     * Asynchronous response handler that completes the {@link #responseFuture response future} as soon as
+     * the response headers are received and streams the response body parts into the response entity stream.
+     */
+    private static class ResponseHandler implements AsyncHandler<Void> {
+        private final ClientRequest request;
+        private final SettableFuture<ClientResponse> responseFuture = SettableFuture.create();
+        private final BodyPartInputStream entityStream;
+        private volatile HttpResponseStatus status;
+
+        ResponseHandler(final ClientRequest request, final long entityBufferTimeout) {
+            this.request = request;
+            this.entityStream = new BodyPartInputStream(ENTITY_BUFFER_LIMIT, entityBufferTimeout);
+        }
+
+        @Override
+        public STATE onStatusReceived(final HttpResponseStatus responseStatus) throws Exception {
+            this.status = responseStatus;
+            return STATE.CONTINUE;
+        }
+
+        @Override
+        public STATE onHeadersReceived(final HttpResponseHeaders headers) throws Exception {
+            if (!responseFuture.isDone()) {
+                // ignore trailing headers
+                responseFuture.set(translate(request, status, headers, entityStream));
+            }
+            return STATE.CONTINUE;
+        }
+
+        @Override
+        public STATE onBodyPartReceived(final HttpResponseBodyPart bodyPart) throws Exception {
+            // blocks (at most for the entity buffer timeout) while the consumer is not reading fast enough;
+            // stops receiving once the stream is closed or the timeout expires
+            return entityStream.offer(bodyPart.getBodyPartBytes()) ? STATE.CONTINUE : STATE.ABORT;
+        }
+
+        @Override
+        public Void onCompleted() throws Exception {
+            entityStream.complete();
+            if (!responseFuture.isDone()) {
+                responseFuture.setException(new IOException("No response headers received."));
+            }
+            return null;
+        }
+
+        @Override
+        public void onThrowable(final Throwable t) {
+            entityStream.fail(t);
+            responseFuture.setException(t);
+        }
+    }
+
+    private static ClientResponse translate(final ClientRequest requestContext,
+                                            final HttpResponseStatus status,
+                                            final HttpResponseHeaders headers,
+                                            final InputStream entityStream) {
 
         final ClientResponse responseContext = new ClientResponse(new Response.StatusType() {
             @Override
             public int getStatusCode() {
-                return original.getStatusCode();
+                return status.getStatusCode();
             }
 
             @Override
             public Response.Status.Family getFamily() {
-                return Response.Status.Family.familyOf(original.getStatusCode());
+                return Response.Status.Family.familyOf(status.getStatusCode());
             }
 
             @Override
             public String getReasonPhrase() {
-                return original.getStatusText();
+                return status.getStatusText();
             }
         }, requestContext);
 
-        for (Map.Entry<String, List<String>> entry : original.getHeaders().entrySet()) {
+        for (Map.Entry<String, List<String>> entry : headers.getHeaders().entrySet()) {
             for (String value : entry.getValue()) {
                 // TODO value.toString?
                 responseContext.getHeaders().add(entry.getKey(), value);
             }
         }
 
-        try {
-            responseContext.setEntityStream(original.getResponseBodyAsStream());
-        } catch (IOException e) {
-            Logger.getLogger(GrizzlyConnector.class.getName()).log(Level.SEVERE, null, e);
-        }
+        responseContext.setEntityStream(entityStream);
 
         return responseContext;
     }
@@ -0,0 +1,148 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.grizzly.connector;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the back-pressure of the {@link BodyPartInputStream}.
+ *
+ * @author agent (agent at local)
+ */
+public class BodyPartInputStreamTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private Future<Boolean> offerAsync(final BodyPartInputStream stream, final byte[] part) {
+        return executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return stream.offer(part);
+            }
+        });
+    }
+
+    @Test
+    public void testOfferBlockedUntilRead() throws Exception {
+        final BodyPartInputStream stream = new BodyPartInputStream(4, 10000);
+        assertTrue(stream.offer("abc".getBytes()));
+
+        final Future<Boolean> blocked = offerAsync(stream, "def".getBytes());
+        Thread.sleep(200);
+        assertFalse(blocked.isDone());
+
+        final byte[] buffer = new byte[3];
+        assertEquals(3, stream.read(buffer));
+        assertEquals("abc", new String(buffer));
+
+        assertTrue(blocked.get(5, TimeUnit.SECONDS));
+        assertEquals(3, stream.read(buffer));
+        assertEquals("def", new String(buffer));
+    }
+
+    @Test
+    public void testOfferAbortedAfterTimeout() throws Exception {
+        final BodyPartInputStream stream = new BodyPartInputStream(4, 200);
+        assertTrue(stream.offer("abc".getBytes()));
+
+        final long start = System.currentTimeMillis();
+        assertFalse(offerAsync(stream, "def".getBytes()).get(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 150);
+
+        // further parts are refused without waiting
+        assertFalse(stream.offer("ghi".getBytes()));
+
+        // the data buffered before the abort can still be read
+        final byte[] buffer = new byte[3];
+        assertEquals(3, stream.read(buffer));
+        assertEquals("abc", new String(buffer));
+        try {
+            stream.read(buffer);
+            fail("Reading past the aborted data must fail.");
+        } catch (IOException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void testOfferReleasedOnClose() throws Exception {
+        final BodyPartInputStream stream = new BodyPartInputStream(4, 10000);
+        assertTrue(stream.offer("abc".getBytes()));
+
+        final Future<Boolean> blocked = offerAsync(stream, "def".getBytes());
+        Thread.sleep(200);
+        stream.close();
+        assertFalse(blocked.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testOfferReleasedOnFailure() throws Exception {
+        final BodyPartInputStream stream = new BodyPartInputStream(4, 10000);
+        assertTrue(stream.offer("abc".getBytes()));
+
+        final Future<Boolean> blocked = offerAsync(stream, "def".getBytes());
+        Thread.sleep(200);
+        stream.fail(new IOException("Connection reset."));
+        assertFalse(blocked.get(5, TimeUnit.SECONDS));
+    }
+}
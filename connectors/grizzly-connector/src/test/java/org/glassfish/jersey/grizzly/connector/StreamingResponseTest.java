@@ -0,0 +1,216 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.grizzly.connector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientFactory;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.server.ChunkedOutput;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests streaming of response entities by the {@link GrizzlyConnector}.
+ *
+ * @author agent (agent at local)
+ */
+public class StreamingResponseTest extends JerseyTest {
+
+    private static final Logger LOGGER = Logger.getLogger(StreamingResponseTest.class.getName());
+
+    private static final int LARGE_ENTITY_SIZE = 1024 * 1024;
+
+    private static volatile CountDownLatch proceed;
+
+    @Path("/test")
+    public static class StreamingResource {
+
+        @GET
+        public ChunkedOutput<String> get() {
+            final ChunkedOutput<String> output = new ChunkedOutput<String>(String.class);
+
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        output.write("first");
+                        // the rest of the response is not sent until the client has received the first chunk
+                        proceed.await(10, TimeUnit.SECONDS);
+                        output.write("second");
+                        output.close();
+                    } catch (Exception e) {
+                        LOGGER.log(Level.FINE, "Writing the chunked response failed.", e);
+                    }
+                }
+            }.start();
+
+            return output;
+        }
+
+        @GET
+        @Path("large")
+        public StreamingOutput getLarge() {
+            return new StreamingOutput() {
+                @Override
+                public void write(final OutputStream output) throws IOException, WebApplicationException {
+                    final byte[] buffer = new byte[1024];
+                    for (int i = 0; i < LARGE_ENTITY_SIZE / buffer.length; i++) {
+                        output.write(buffer);
+                    }
+                }
+            };
+        }
+
+        @GET
+        @Path("small")
+        public String getSmall() {
+            return "small";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(StreamingResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig clientConfig) {
+        clientConfig.connector(new GrizzlyConnector(clientConfig));
+    }
+
+    private static String read(final InputStream in, final int length) throws IOException {
+        final byte[] buffer = new byte[length];
+        int read = 0;
+        while (read < length) {
+            final int count = in.read(buffer, read, length - read);
+            if (count == -1) {
+                break;
+            }
+            read += count;
+        }
+        return new String(buffer, 0, read, "UTF-8");
+    }
+
+    private static String readAll(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toString("UTF-8");
+    }
+
+    private void assertStreamed(final Response response) throws IOException {
+        assertEquals(200, response.getStatus());
+        final InputStream entity = response.readEntity(InputStream.class);
+        try {
+            assertEquals("first", read(entity, 5));
+            proceed.countDown();
+            assertEquals("second", readAll(entity));
+        } finally {
+            entity.close();
+        }
+    }
+
+    @Test
+    public void testSyncStreaming() throws Exception {
+        proceed = new CountDownLatch(1);
+        assertStreamed(target("test").request().get());
+    }
+
+    @Test
+    public void testAsyncStreaming() throws Exception {
+        proceed = new CountDownLatch(1);
+        final Future<Response> future = target("test").request().async().get();
+        assertStreamed(future.get(10, TimeUnit.SECONDS));
+        assertTrue(future.isDone());
+    }
+
+    @Test
+    public void testUnreadEntityAborted() throws Exception {
+        final ClientConfig config = new ClientConfig().setProperty(ClientProperties.READ_TIMEOUT, 1000);
+        final Client client = ClientFactory.newClient(config.connector(new GrizzlyConnector(config)));
+        try {
+            final Response large = client.target(getBaseUri()).path("test/large").request().get();
+            assertEquals(200, large.getStatus());
+
+            // the entity is not read, the connector must not wait for the consumer longer than the read timeout
+            Thread.sleep(2000);
+            assertEquals("small", client.target(getBaseUri()).path("test/small").request().async().get(String.class)
+                    .get(10, TimeUnit.SECONDS));
+
+            final InputStream entity = large.readEntity(InputStream.class);
+            try {
+                readAll(entity);
+                fail("Reading the aborted response entity must fail.");
+            } catch (IOException expected) {
+                // ok
+            } finally {
+                entity.close();
+            }
+        } finally {
+            client.close();
+        }
+    }
+}
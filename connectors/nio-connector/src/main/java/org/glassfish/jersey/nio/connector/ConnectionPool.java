@@ -0,0 +1,323 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.nio.connector;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Pool of {@link HttpConnection HTTP connections} with per-route and total connection limits.
+ * <p>
+ * Idle connections are kept per route and reused in the LIFO order so that the least recently
+ * used connections expire first. If the total limit is reached while there is an idle connection
+ * for a different route, that connection is closed to make room for the new one.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+final class ConnectionPool {
+
+    private static class RouteConnections {
+
+        private final Deque<HttpConnection> idle = new ArrayDeque<HttpConnection>();
+        private int leased;
+    }
+
+    private final int maxPerRoute;
+    private final int maxTotal;
+    private final int connectTimeout;
+    private final long idleTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Map<String, RouteConnections> routes = new HashMap<String, RouteConnections>();
+    private final ScheduledExecutorService evictor;
+
+    private int leased;
+    private int idle;
+    private int pending;
+    private boolean closed;
+
+    /**
+     * Create new connection pool.
+     *
+     * @param maxPerRoute    maximal number of connections per route.
+     * @param maxTotal       maximal total number of connections.
+     * @param idleTimeout    idle connection timeout in milliseconds, {@code 0} means idle connections never expire.
+     * @param connectTimeout connect timeout in milliseconds, {@code 0} means infinity.
+     */
+    ConnectionPool(final int maxPerRoute, final int maxTotal, final int idleTimeout, final int connectTimeout) {
+        this.maxPerRoute = maxPerRoute;
+        this.maxTotal = maxTotal;
+        this.connectTimeout = connectTimeout;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+
+        if (idleTimeout > 0) {
+            this.evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("jersey-nio-connector-evictor-%d")
+                    .setDaemon(true)
+                    .build());
+            final long period = Math.max(idleTimeout / 2, 1);
+            evictor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    evictIdle();
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.evictor = null;
+        }
+    }
+
+    /**
+     * Lease a connection for the route. An idle connection is reused if available, otherwise a new
+     * connection is opened if the connection limits permit it. If not, the method blocks until
+     * a connection becomes available or the lease timeout expires.
+     *
+     * @param route        connection route.
+     * @param address      remote address of the route.
+     * @param leaseTimeout lease timeout in milliseconds, {@code 0} means infinity.
+     * @return leased connection.
+     * @throws IOException          in case a new connection cannot be opened.
+     * @throws TimeoutException     in case the lease timeout has expired.
+     * @throws InterruptedException in case the waiting thread has been interrupted.
+     */
+    HttpConnection lease(final String route, final InetSocketAddress address, final long leaseTimeout)
+            throws IOException, TimeoutException, InterruptedException {
+        final RouteConnections connections;
+
+        lock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(leaseTimeout);
+            pending++;
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new IllegalStateException("Connection pool has been closed.");
+                    }
+
+                    final RouteConnections candidate = getRouteConnections(route);
+                    HttpConnection connection;
+                    while ((connection = candidate.idle.pollFirst()) != null) {
+                        idle--;
+                        if (connection.isStale()) {
+                            connection.close();
+                            continue;
+                        }
+                        candidate.leased++;
+                        leased++;
+                        return connection;
+                    }
+
+                    if (candidate.leased < maxPerRoute && (leased + idle < maxTotal || closeIdleOfOtherRoute(route))) {
+                        // reserve the connection slot; the connection itself is opened outside of the lock
+                        candidate.leased++;
+                        leased++;
+                        connections = candidate;
+                        break;
+                    }
+
+                    if (leaseTimeout <= 0) {
+                        available.await();
+                    } else {
+                        if (remaining <= 0) {
+                            throw new TimeoutException("Timed out waiting for a connection to " + route + ".");
+                        }
+                        remaining = available.awaitNanos(remaining);
+                    }
+                }
+            } finally {
+                pending--;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            return HttpConnection.open(route, address, connectTimeout);
+        } catch (IOException e) {
+            releaseSlot(connections);
+            throw e;
+        } catch (RuntimeException e) {
+            releaseSlot(connections);
+            throw e;
+        }
+    }
+
+    /**
+     * Return a leased connection to the pool.
+     *
+     * @param connection leased connection.
+     * @param reusable   {@code true} if the connection can be reused by subsequent requests,
+     *                   {@code false} if the connection must be closed.
+     */
+    void release(final HttpConnection connection, final boolean reusable) {
+        boolean close = !reusable;
+        lock.lock();
+        try {
+            final RouteConnections connections = getRouteConnections(connection.getRoute());
+            connections.leased--;
+            leased--;
+            if (reusable && !closed) {
+                connection.idle();
+                connections.idle.addFirst(connection);
+                idle++;
+            } else {
+                close = true;
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (close) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Get the current connection pool statistics.
+     *
+     * @return connection pool statistics snapshot.
+     */
+    ConnectionPoolStats getStats() {
+        lock.lock();
+        try {
+            return new ConnectionPoolStats(leased, idle, pending, maxTotal);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close all idle connections that have been idle for longer than the idle timeout.
+     */
+    void evictIdle() {
+        final long now = System.nanoTime();
+        lock.lock();
+        try {
+            for (RouteConnections connections : routes.values()) {
+                // the oldest idle connections are at the end of the deque
+                final Iterator<HttpConnection> iterator = connections.idle.descendingIterator();
+                while (iterator.hasNext()) {
+                    final HttpConnection connection = iterator.next();
+                    if (now - connection.getIdleSince() < idleTimeoutNanos) {
+                        break;
+                    }
+                    iterator.remove();
+                    idle--;
+                    connection.close();
+                }
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the pool and all idle connections. Leased connections are closed once released.
+     */
+    void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        lock.lock();
+        try {
+            closed = true;
+            for (RouteConnections connections : routes.values()) {
+                for (HttpConnection connection : connections.idle) {
+                    connection.close();
+                }
+                idle -= connections.idle.size();
+                connections.idle.clear();
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RouteConnections getRouteConnections(final String route) {
+        RouteConnections connections = routes.get(route);
+        if (connections == null) {
+            connections = new RouteConnections();
+            routes.put(route, connections);
+        }
+        return connections;
+    }
+
+    private boolean closeIdleOfOtherRoute(final String route) {
+        for (Map.Entry<String, RouteConnections> entry : routes.entrySet()) {
+            if (!entry.getKey().equals(route)) {
+                final HttpConnection connection = entry.getValue().idle.pollLast();
+                if (connection != null) {
+                    idle--;
+                    connection.close();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void releaseSlot(final RouteConnections connections) {
+        lock.lock();
+        try {
+            connections.leased--;
+            leased--;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.nio.connector;
+
+/**
+ * Immutable snapshot of the {@link NioConnector} connection pool statistics.
+ *
+ * @author agent (agent at local)
+ */
+public final class ConnectionPoolStats {
+
+    private final int leased;
+    private final int idle;
+    private final int pending;
+    private final int maxTotal;
+
+    /**
+     * Create new connection pool statistics snapshot.
+     *
+     * @param leased   number of connections currently leased by requests.
+     * @param idle     number of idle connections kept in the pool.
+     * @param pending  number of requests waiting for a connection.
+     * @param maxTotal maximal total number of connections.
+     */
+    ConnectionPoolStats(final int leased, final int idle, final int pending, final int maxTotal) {
+        this.leased = leased;
+        this.idle = idle;
+        this.pending = pending;
+        this.maxTotal = maxTotal;
+    }
+
+    /**
+     * Get the number of connections currently leased by requests.
+     *
+     * @return number of leased connections.
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * Get the number of idle connections kept in the pool.
+     *
+     * @return number of idle connections.
+     */
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * Get the number of requests waiting for a connection to become available.
+     *
+     * @return number of pending requests.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * Get the total number of open connections, i.e. the sum of leased and idle connections.
+     *
+     * @return total number of connections.
+     */
+    public int getTotal() {
+        return leased + idle;
+    }
+
+    /**
+     * Get the maximal total number of connections the pool may open.
+     *
+     * @return maximal total number of connections.
+     */
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolStats{leased=" + leased + ", idle=" + idle + ", pending=" + pending
+                + ", maxTotal=" + maxTotal + '}';
+    }
+}
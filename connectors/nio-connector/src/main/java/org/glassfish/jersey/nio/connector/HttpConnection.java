@@ -0,0 +1,341 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.nio.connector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * HTTP connection backed by a non-blocking {@link SocketChannel socket channel}.
+ * <p>
+ * Each connection uses its own {@link Selector selector} to wait for the channel readiness,
+ * which allows enforcing the connect, read and write timeouts on the channel operations.
+ * The connection is not thread-safe; at any time it is leased by at most a single request.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+final class HttpConnection {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String route;
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private final InputStream inputStream = new ConnectionInputStream();
+    private final OutputStream outputStream = new ConnectionOutputStream();
+
+    private volatile int readTimeout;
+    private volatile long idleSince;
+    private volatile boolean reused;
+
+    private HttpConnection(final String route, final SocketChannel channel, final Selector selector) {
+        this.route = route;
+        this.channel = channel;
+        this.selector = selector;
+        this.readBuffer.flip();
+    }
+
+    /**
+     * Open a new connection to the given address.
+     *
+     * @param route          route the connection belongs to.
+     * @param address        remote address.
+     * @param connectTimeout connect timeout in milliseconds, {@code 0} means infinity.
+     * @return open connection.
+     * @throws IOException in case the connection cannot be established.
+     */
+    static HttpConnection open(final String route, final InetSocketAddress address, final int connectTimeout)
+            throws IOException {
+        final SocketChannel channel = SocketChannel.open();
+        Selector selector = null;
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().setKeepAlive(true);
+            selector = Selector.open();
+
+            final HttpConnection connection = new HttpConnection(route, channel, selector);
+            if (!channel.connect(address)) {
+                do {
+                    connection.await(SelectionKey.OP_CONNECT, connectTimeout, "Connect timed out");
+                } while (!channel.finishConnect());
+            }
+            return connection;
+        } catch (IOException e) {
+            if (selector != null) {
+                selector.close();
+            }
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the route the connection belongs to.
+     *
+     * @return connection route.
+     */
+    String getRoute() {
+        return route;
+    }
+
+    /**
+     * Set the read timeout applied to subsequent read (and write) operations.
+     *
+     * @param readTimeout read timeout in milliseconds, {@code 0} means infinity.
+     */
+    void setReadTimeout(final int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Get the time the connection has been returned to the pool.
+     *
+     * @return {@link System#nanoTime()} based time-stamp of the connection release.
+     */
+    long getIdleSince() {
+        return idleSince;
+    }
+
+    /**
+     * Mark the connection as idle.
+     */
+    void idle() {
+        idleSince = System.nanoTime();
+        reused = true;
+    }
+
+    /**
+     * Check whether the connection has already been used by a previous request.
+     *
+     * @return {@code true} if the connection is being reused.
+     */
+    boolean isReused() {
+        return reused;
+    }
+
+    /**
+     * Check whether an idle connection is no longer usable, i.e. the connection has been
+     * closed by the server or there is unexpected data pending on the connection.
+     *
+     * @return {@code true} if the connection must not be reused.
+     */
+    boolean isStale() {
+        if (!channel.isOpen() || readBuffer.hasRemaining()) {
+            return true;
+        }
+        try {
+            readBuffer.clear();
+            final int read = channel.read(readBuffer);
+            readBuffer.flip();
+            return read != 0;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Get the connection input stream. Closing the stream has no effect on the connection.
+     *
+     * @return connection input stream.
+     */
+    InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Get the buffered connection output stream. Closing the stream flushes the buffered data,
+     * it has no other effect on the connection.
+     *
+     * @return connection output stream.
+     */
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Close the connection.
+     */
+    void close() {
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private void await(final int operation, final int timeout, final String timeoutMessage) throws IOException {
+        channel.register(selector, operation);
+        final long deadline = timeout > 0 ? System.nanoTime() + timeout * 1000000L : 0;
+        while (true) {
+            long remaining = 0;
+            if (timeout > 0) {
+                final long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    throw new SocketTimeoutException(timeoutMessage);
+                }
+                // never pass 0 to select(...) for a finite timeout - it would block indefinitely
+                remaining = Math.max(1, remainingNanos / 1000000L);
+            }
+            final int selected = selector.select(remaining);
+            selector.selectedKeys().clear();
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException();
+            }
+            if (selected > 0) {
+                return;
+            }
+        }
+    }
+
+    private int fill() throws IOException {
+        readBuffer.clear();
+        try {
+            while (true) {
+                final int read = channel.read(readBuffer);
+                if (read != 0) {
+                    return read;
+                }
+                await(SelectionKey.OP_READ, readTimeout, "Read timed out");
+            }
+        } finally {
+            readBuffer.flip();
+        }
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        try {
+            while (writeBuffer.hasRemaining()) {
+                if (channel.write(writeBuffer) == 0) {
+                    await(SelectionKey.OP_WRITE, readTimeout, "Write timed out");
+                }
+            }
+        } finally {
+            writeBuffer.clear();
+        }
+    }
+
+    private class ConnectionInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            if (!readBuffer.hasRemaining() && fill() == -1) {
+                return -1;
+            }
+            return readBuffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!readBuffer.hasRemaining() && fill() == -1) {
+                return -1;
+            }
+            final int count = Math.min(len, readBuffer.remaining());
+            readBuffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return readBuffer.remaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the connection life-cycle is managed by the connection pool
+        }
+    }
+
+    private class ConnectionOutputStream extends OutputStream {
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (!writeBuffer.hasRemaining()) {
+                flushWriteBuffer();
+            }
+            writeBuffer.put((byte) b);
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!writeBuffer.hasRemaining()) {
+                    flushWriteBuffer();
+                }
+                final int count = Math.min(len, writeBuffer.remaining());
+                writeBuffer.put(b, off, count);
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushWriteBuffer();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the connection life-cycle is managed by the connection pool
+            flush();
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.nio.connector;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.ClientException;
+import javax.ws.rs.client.Configuration;
+import javax.ws.rs.core.HttpHeaders;
+
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.HttpUrlConnector;
+import org.glassfish.jersey.client.RequestWriter;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+import org.glassfish.jersey.internal.util.PropertiesHelper;
+import org.glassfish.jersey.message.internal.OutboundMessageContext;
+import org.glassfish.jersey.message.internal.Statuses;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Client transport connector using {@link java.nio.channels.SocketChannel NIO socket channels}
+ * with a persistent (keep-alive) connection pool.
+ * <p>
+ * Connections are pooled per route (distinct host and port combination). The number of connections
+ * per route as well as the total number of connections is limited (see {@link NioConnectorProperties}).
+ * Requests exceeding the limits wait for a connection to be released to the pool. A connection is returned
+ * to the pool as soon as the response entity has been fully read; closing the response entity stream
+ * before reaching its end closes the connection. The request head and entity are buffered and written to
+ * the channel together, which saves a network round-trip for small requests.
+ * </p>
+ * <p>
+ * Only the {@code http} scheme is supported. The connector honors the {@link ClientProperties#CONNECT_TIMEOUT}
+ * and {@link ClientProperties#READ_TIMEOUT} properties. Asynchronous requests are executed using a fixed thread
+ * pool (see {@link ClientProperties#ASYNC_THREADPOOL_SIZE}).
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+public class NioConnector extends RequestWriter implements Connector {
+
+    /**
+     * Default maximal number of connections per route.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 8;
+    /**
+     * Default maximal total number of connections.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 64;
+    /**
+     * Default idle connection timeout in milliseconds.
+     */
+    public static final int DEFAULT_IDLE_TIMEOUT = 60000;
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<String>(Arrays.asList(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE, "TRACE"));
+
+    private final ConnectionPool pool;
+    private final int readTimeout;
+    private final int leaseTimeout;
+    private final ExecutorService executor;
+
+    /**
+     * Create new NIO client connector.
+     *
+     * @param configuration client configuration.
+     */
+    public NioConnector(final Configuration configuration) {
+        final Map<String, Object> properties = configuration.getProperties();
+
+        final int maxPerRoute = PropertiesHelper.getValue(properties,
+                NioConnectorProperties.MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+        final int maxTotal = PropertiesHelper.getValue(properties,
+                NioConnectorProperties.MAX_CONNECTIONS_TOTAL, DEFAULT_MAX_CONNECTIONS_TOTAL);
+        final int idleTimeout = PropertiesHelper.getValue(properties,
+                NioConnectorProperties.IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT);
+        final int connectTimeout = PropertiesHelper.getValue(properties, ClientProperties.CONNECT_TIMEOUT, 0);
+
+        this.pool = new ConnectionPool(
+                maxPerRoute > 0 ? maxPerRoute : DEFAULT_MAX_CONNECTIONS_PER_ROUTE,
+                maxTotal > 0 ? maxTotal : DEFAULT_MAX_CONNECTIONS_TOTAL,
+                Math.max(idleTimeout, 0),
+                Math.max(connectTimeout, 0));
+        this.readTimeout = Math.max(PropertiesHelper.getValue(properties, ClientProperties.READ_TIMEOUT, 0), 0);
+        this.leaseTimeout = Math.max(PropertiesHelper.getValue(properties, NioConnectorProperties.LEASE_TIMEOUT, 0), 0);
+
+        final int poolSize = PropertiesHelper.getValue(properties,
+                ClientProperties.ASYNC_THREADPOOL_SIZE, HttpUrlConnector.DEFAULT_ASYNC_THREADPOOL_SIZE);
+        this.executor = Executors.newFixedThreadPool(poolSize > 0 ? poolSize : HttpUrlConnector.DEFAULT_ASYNC_THREADPOOL_SIZE,
+                new ThreadFactoryBuilder().setNameFormat("jersey-nio-connector-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Get the current statistics of the connector connection pool.
+     *
+     * @return connection pool statistics snapshot.
+     */
+    public ConnectionPoolStats getPoolStats() {
+        return pool.getStats();
+    }
+
+    @Override
+    public ClientResponse apply(final ClientRequest request) {
+        try {
+            return _apply(request);
+        } catch (IOException ex) {
+            throw new ClientException(ex.getMessage(), ex);
+        } catch (TimeoutException ex) {
+            throw new ClientException(ex.getMessage(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ClientException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public Future<?> apply(final ClientRequest request, final AsyncConnectorCallback callback) {
+        try {
+            return executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    final ClientResponse response;
+                    try {
+                        response = apply(request);
+                    } catch (Throwable t) {
+                        callback.failure(t);
+                        return;
+                    }
+                    callback.response(response);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            final ClientException failure = new ClientException(ex.getMessage(), ex);
+            callback.failure(failure);
+
+            final SettableFuture<Object> errorFuture = SettableFuture.create();
+            errorFuture.setException(failure);
+            return errorFuture;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            pool.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Jersey NIO Connector " + System.getProperty("java.version");
+    }
+
+    private ClientResponse _apply(final ClientRequest request)
+            throws IOException, TimeoutException, InterruptedException {
+        final URI uri = request.getUri();
+        if (!"http".equalsIgnoreCase(uri.getScheme())) {
+            throw new ClientException("URI scheme not supported by the NIO connector: " + uri.getScheme());
+        }
+
+        final String host = uri.getHost();
+        final int port = uri.getPort() == -1 ? 80 : uri.getPort();
+        final String route = host + ':' + port;
+        final InetSocketAddress address = new InetSocketAddress(host, port);
+
+        // a stale pooled connection may have been closed by the server in the meantime - retry once
+        // on a different connection if the request is safe to be repeated
+        boolean retry = !request.hasEntity() && IDEMPOTENT_METHODS.contains(request.getMethod());
+        while (true) {
+            final HttpConnection connection = pool.lease(route, address, leaseTimeout);
+            try {
+                connection.setReadTimeout(readTimeout);
+                writeRequest(request, connection, port == 80 ? host : route);
+                return readResponse(request, connection);
+            } catch (IOException e) {
+                pool.release(connection, false);
+                if (retry && connection.isReused()) {
+                    retry = false;
+                    continue;
+                }
+                throw e;
+            } catch (RuntimeException e) {
+                pool.release(connection, false);
+                throw e;
+            }
+        }
+    }
+
+    private void writeRequest(final ClientRequest request, final HttpConnection connection, final String host)
+            throws IOException {
+        final OutputStream out = connection.getOutputStream();
+
+        if (request.hasEntity()) {
+            writeRequestEntity(request, new RequestEntityWriterListener() {
+                private long size = -1;
+
+                @Override
+                public void onRequestEntitySize(final long size) {
+                    this.size = size;
+                }
+
+                @Override
+                public OutboundMessageContext.StreamProvider onGetStreamProvider() throws IOException {
+                    return new OutboundMessageContext.StreamProvider() {
+                        @Override
+                        public OutputStream getOutputStream() throws IOException {
+                            return new EntityOutputStream(out, size < 0);
+                        }
+
+                        @Override
+                        public void commit() throws IOException {
+                            writeHead(out, request, host, size);
+                        }
+                    };
+                }
+            });
+        } else {
+            final String method = request.getMethod();
+            writeHead(out, request, host,
+                    HttpMethod.POST.equals(method) || HttpMethod.PUT.equals(method) ? 0 : -2);
+        }
+        out.flush();
+    }
+
+    /**
+     * Write the request line and headers.
+     *
+     * @param size entity size, {@code -1} for a chunked entity, {@code -2} if there is no entity.
+     */
+    private static void writeHead(final OutputStream out, final ClientRequest request, final String host, final long size)
+            throws IOException {
+        final URI uri = request.getUri();
+        final StringBuilder head = new StringBuilder(256);
+
+        final String path = uri.getRawPath();
+        head.append(request.getMethod()).append(' ').append(path == null || path.isEmpty() ? "/" : path);
+        if (uri.getRawQuery() != null) {
+            head.append('?').append(uri.getRawQuery());
+        }
+        head.append(" HTTP/1.1\r\n");
+        head.append("Host: ").append(host).append("\r\n");
+
+        for (Map.Entry<String, List<String>> header : request.getStringHeaders().entrySet()) {
+            final String name = header.getKey();
+            if (HttpHeaders.HOST.equalsIgnoreCase(name)
+                    || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                    || "Transfer-Encoding".equalsIgnoreCase(name)) {
+                continue;
+            }
+            head.append(name).append(": ");
+            boolean first = true;
+            for (String value : header.getValue()) {
+                if (!first) {
+                    head.append(',');
+                }
+                head.append(value);
+                first = false;
+            }
+            head.append("\r\n");
+        }
+
+        if (size >= 0) {
+            head.append("Content-Length: ").append(size).append("\r\n");
+        } else if (size == -1) {
+            head.append("Transfer-Encoding: chunked\r\n");
+        }
+        head.append("\r\n");
+
+        out.write(head.toString().getBytes(ISO_8859_1));
+    }
+
+    private ClientResponse readResponse(final ClientRequest request, final HttpConnection connection) throws IOException {
+        final InputStream in = connection.getInputStream();
+
+        String version;
+        int status;
+        String reason;
+        do {
+            final String statusLine = ResponseEntityStream.readLine(in);
+            if (statusLine == null) {
+                throw new IOException("Connection closed by the server before the response was received.");
+            }
+            final String[] parts = statusLine.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                throw new IOException("Invalid HTTP response status line: " + statusLine);
+            }
+            version = parts[0];
+            try {
+                status = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid HTTP response status line: " + statusLine, e);
+            }
+            reason = parts.length > 2 ? parts[2] : "";
+
+            if (status >= 100 && status < 200) {
+                // skip the interim response headers
+                String line;
+                do {
+                    line = ResponseEntityStream.readLine(in);
+                } while (line != null && !line.isEmpty());
+            }
+        } while (status >= 100 && status < 200);
+
+        final ClientResponse response = new ClientResponse(Statuses.from(status, reason), request);
+
+        boolean keepAlive = "HTTP/1.1".equals(version);
+        boolean chunked = false;
+        long contentLength = ResponseEntityStream.UNTIL_CLOSE;
+
+        String line;
+        while ((line = ResponseEntityStream.readLine(in)) != null && !line.isEmpty()) {
+            final int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            final String name = line.substring(0, colon).trim();
+            final String value = line.substring(colon + 1).trim();
+            response.getHeaders().add(name, value);
+
+            if ("Connection".equalsIgnoreCase(name)) {
+                if ("close".equalsIgnoreCase(value)) {
+                    keepAlive = false;
+                } else if ("keep-alive".equalsIgnoreCase(value)) {
+                    keepAlive = true;
+                }
+            } else if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+                chunked = value.toLowerCase().endsWith("chunked");
+            } else if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                try {
+                    contentLength = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid Content-Length response header: " + value, e);
+                }
+            }
+        }
+        if (line == null) {
+            throw new IOException("Connection closed by the server before the response headers were received.");
+        }
+
+        if (HttpMethod.HEAD.equals(request.getMethod()) || status == 204 || status == 304) {
+            contentLength = 0;
+        } else if (chunked) {
+            contentLength = ResponseEntityStream.CHUNKED;
+        }
+
+        final ResponseEntityStream entityStream = new ResponseEntityStream(connection, pool, contentLength, keepAlive);
+        response.setEntityStream(contentLength == 0 ? new ByteArrayInputStream(new byte[0]) : entityStream);
+        return response;
+    }
+}
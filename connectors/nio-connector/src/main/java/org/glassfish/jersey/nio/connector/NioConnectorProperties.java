@@ -0,0 +1,105 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.nio.connector;
+
+/**
+ * Configuration properties of the {@link NioConnector}.
+ *
+ * @author agent (agent at local)
+ */
+public final class NioConnectorProperties {
+
+    /**
+     * Maximal number of connections per route, i.e. per distinct host and port combination.
+     * <p />
+     * The value MUST be an instance convertible to {@link java.lang.Integer}.
+     * <p />
+     * The default value is {@value NioConnector#DEFAULT_MAX_CONNECTIONS_PER_ROUTE}.
+     * <p />
+     * The name of the configuration property is <code>{@value}</code>.
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String MAX_CONNECTIONS_PER_ROUTE = "jersey.config.client.nio.maxConnectionsPerRoute";
+
+    /**
+     * Maximal total number of connections in the connection pool.
+     * <p />
+     * The value MUST be an instance convertible to {@link java.lang.Integer}.
+     * <p />
+     * The default value is {@value NioConnector#DEFAULT_MAX_CONNECTIONS_TOTAL}.
+     * <p />
+     * The name of the configuration property is <code>{@value}</code>.
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String MAX_CONNECTIONS_TOTAL = "jersey.config.client.nio.maxConnectionsTotal";
+
+    /**
+     * Idle connection timeout, in milliseconds. Connections kept idle in the pool for longer
+     * than the timeout are closed and evicted from the pool.
+     * <p />
+     * The value MUST be an instance convertible to {@link java.lang.Integer}.
+     * A value of zero (0) declares that idle connections are never evicted.
+     * <p />
+     * The default value is {@value NioConnector#DEFAULT_IDLE_TIMEOUT}.
+     * <p />
+     * The name of the configuration property is <code>{@value}</code>.
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String IDLE_TIMEOUT = "jersey.config.client.nio.idleTimeout";
+
+    /**
+     * Connection lease timeout, in milliseconds. Maximal time a request waits for a connection
+     * to become available in the connection pool. Requests that time out fail with a
+     * {@link javax.ws.rs.client.ClientException} caused by a {@link java.util.concurrent.TimeoutException}.
+     * <p />
+     * The value MUST be an instance convertible to {@link java.lang.Integer}.
+     * A value of zero (0) is equivalent to an interval of infinity.
+     * <p />
+     * The default value is infinity (0).
+     * <p />
+     * The name of the configuration property is <code>{@value}</code>.
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String LEASE_TIMEOUT = "jersey.config.client.nio.leaseTimeout";
+
+    private NioConnectorProperties() {
+        // prevents instantiation
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.nio.connector;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Response entity input stream reading a fixed-length, chunked or connection-delimited
+ * response entity from a pooled {@link HttpConnection connection}.
+ * <p>
+ * Once the entity has been fully read, the connection is returned to the pool for reuse
+ * (unless the connection cannot be kept alive). Closing the stream before the entity has been fully
+ * read closes the connection.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+final class ResponseEntityStream extends InputStream {
+
+    /**
+     * Entity length constant denoting an entity encoded using the chunked transfer coding.
+     */
+    static final long CHUNKED = -1;
+    /**
+     * Entity length constant denoting an entity delimited by the connection close.
+     */
+    static final long UNTIL_CLOSE = -2;
+
+    private final HttpConnection connection;
+    private final ConnectionPool pool;
+    private final InputStream in;
+    private final long length;
+    private final boolean keepAlive;
+
+    private long remaining;
+    private boolean eof;
+    private boolean released;
+
+    /**
+     * Create new response entity stream.
+     *
+     * @param connection connection the entity is read from.
+     * @param pool       pool the connection is released to.
+     * @param length     entity length, {@link #CHUNKED} or {@link #UNTIL_CLOSE}.
+     * @param keepAlive  {@code true} if the connection can be reused once the entity has been read.
+     */
+    ResponseEntityStream(final HttpConnection connection, final ConnectionPool pool, final long length,
+                         final boolean keepAlive) {
+        this.connection = connection;
+        this.pool = pool;
+        this.in = connection.getInputStream();
+        this.length = length;
+        this.keepAlive = keepAlive && length != UNTIL_CLOSE;
+        this.remaining = length == UNTIL_CLOSE ? Long.MAX_VALUE : Math.max(length, 0);
+
+        if (length == 0) {
+            finish();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        final int read = read(b, 0, 1);
+        return read == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (eof) {
+            return -1;
+        }
+        if (released) {
+            throw new IOException("Response entity stream has been closed.");
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        try {
+            if (length == CHUNKED && remaining == 0) {
+                remaining = readChunkSize();
+                if (remaining == 0) {
+                    // last chunk - skip the trailer
+                    String line;
+                    do {
+                        line = readLine(in);
+                    } while (line != null && !line.isEmpty());
+                    finish();
+                    return -1;
+                }
+            }
+
+            final int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1) {
+                if (length == UNTIL_CLOSE) {
+                    finish();
+                    return -1;
+                }
+                throw new EOFException("Premature end of the response entity stream.");
+            }
+
+            if (length != UNTIL_CLOSE) {
+                remaining -= read;
+                if (remaining == 0) {
+                    if (length == CHUNKED) {
+                        // chunk data CRLF
+                        readLine(in);
+                    } else {
+                        finish();
+                    }
+                }
+            }
+            return read;
+        } catch (IOException e) {
+            release(false);
+            throw e;
+        } catch (RuntimeException e) {
+            release(false);
+            throw e;
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (eof || released) {
+            return 0;
+        }
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the connection state is unknown if the entity has not been fully read
+        release(false);
+    }
+
+    private long readChunkSize() throws IOException {
+        final String line = readLine(in);
+        if (line == null) {
+            throw new EOFException("Premature end of the chunked response entity stream.");
+        }
+        final int extension = line.indexOf(';');
+        final String size = (extension < 0 ? line : line.substring(0, extension)).trim();
+        try {
+            return Long.parseLong(size, 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid chunk size: " + line, e);
+        }
+    }
+
+    private void finish() {
+        eof = true;
+        release(keepAlive);
+    }
+
+    private void release(final boolean reusable) {
+        if (!released) {
+            released = true;
+            pool.release(connection, reusable);
+        }
+    }
+
+    /**
+     * Read a single CRLF (or LF) terminated ISO-8859-1 line from the input stream.
+     *
+     * @param in input stream.
+     * @return line without the line terminator or {@code null} if the end of the stream has been reached
+     *         before any character has been read.
+     * @throws IOException in case of an I/O error.
+     */
+    static String readLine(final InputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder(64);
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                final int last = line.length() - 1;
+                if (last >= 0 && line.charAt(last) == '\r') {
+                    line.setLength(last);
+                }
+                return line.toString();
+            }
+            line.append((char) c);
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.nio.connector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.ClientException;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the {@link NioConnector} connection pool limits and idle connection eviction.
+ *
+ * @author agent (agent at local)
+ */
+public class ConnectionPoolTest extends JerseyTest {
+
+    private static final AtomicInteger concurrent = new AtomicInteger();
+    private static final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    private NioConnector connector;
+
+    @Path("/pool")
+    public static class PoolResource {
+
+        @GET
+        public String get() {
+            return "pool";
+        }
+
+        @GET
+        @Path("slow")
+        public String slow() throws InterruptedException {
+            final int current = concurrent.incrementAndGet();
+            int max;
+            while (current > (max = maxConcurrent.get()) && !maxConcurrent.compareAndSet(max, current)) {
+                // retry
+            }
+            try {
+                Thread.sleep(50);
+            } finally {
+                concurrent.decrementAndGet();
+            }
+            return "slow";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(PoolResource.class);
+    }
+
+    @Override
+    protected void configureClient(final ClientConfig clientConfig) {
+        clientConfig.setProperty(NioConnectorProperties.MAX_CONNECTIONS_PER_ROUTE, 1);
+        clientConfig.setProperty(NioConnectorProperties.LEASE_TIMEOUT, 1000);
+        clientConfig.setProperty(NioConnectorProperties.IDLE_TIMEOUT, 200);
+        connector = new NioConnector(clientConfig);
+        clientConfig.connector(connector);
+    }
+
+    @Test
+    public void testPerRouteLimit() throws Exception {
+        maxConcurrent.set(0);
+
+        final List<Future<Response>> futures = new ArrayList<Future<Response>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(target("pool/slow").request().async().get());
+        }
+        for (Future<Response> future : futures) {
+            final Response response = future.get(10, TimeUnit.SECONDS);
+            assertEquals(200, response.getStatus());
+            assertEquals("slow", response.readEntity(String.class));
+        }
+
+        assertEquals(1, maxConcurrent.get());
+        assertEquals(1, connector.getPoolStats().getTotal());
+    }
+
+    @Test
+    public void testLeaseTimeout() {
+        // the connection stays leased until the response entity is read
+        final Response leased = target("pool").request().get();
+        try {
+            target("pool").request().get(String.class);
+            fail("ClientException expected.");
+        } catch (ClientException expected) {
+            assertTrue(expected.getCause() instanceof TimeoutException);
+        }
+
+        assertEquals("pool", leased.readEntity(String.class));
+        assertEquals("pool", target("pool").request().get(String.class));
+    }
+
+    @Test
+    public void testIdleConnectionEviction() throws Exception {
+        assertEquals("pool", target("pool").request().get(String.class));
+        assertEquals(1, connector.getPoolStats().getIdle());
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (connector.getPoolStats().getTotal() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, connector.getPoolStats().getTotal());
+
+        assertEquals("pool", target("pool").request().get(String.class));
+    }
+}
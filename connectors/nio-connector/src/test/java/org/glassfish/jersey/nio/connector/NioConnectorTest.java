@@ -0,0 +1,163 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.nio.connector;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests the {@link NioConnector} request processing and connection reuse.
+ *
+ * @author agent (agent at local)
+ */
+public class NioConnectorTest extends JerseyTest {
+
+    private NioConnector connector;
+
+    @Path("/test")
+    public static class TestResource {
+
+        @GET
+        public String get() {
+            return "GET";
+        }
+
+        @HEAD
+        public Response head() {
+            return Response.ok().header("X-Test", "head").build();
+        }
+
+        @POST
+        public String post(final String entity, @Context final HttpHeaders headers) {
+            return entity + ":" + (headers.getRequestHeaders().containsKey("Transfer-Encoding") ? "chunked" : "fixed");
+        }
+
+        @DELETE
+        public void delete() {
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(TestResource.class);
+    }
+
+    @Override
+    protected void configureClient(ClientConfig clientConfig) {
+        connector = new NioConnector(clientConfig);
+        clientConfig.connector(connector);
+    }
+
+    @Test
+    public void testGet() {
+        assertEquals("GET", target("test").request().get(String.class));
+    }
+
+    @Test
+    public void testHead() {
+        final Response response = target("test").request().head();
+        assertEquals(200, response.getStatus());
+        assertEquals("head", response.getHeaderString("X-Test"));
+        assertFalse(response.hasEntity());
+    }
+
+    @Test
+    public void testDelete() {
+        assertEquals(204, target("test").request().delete().getStatus());
+    }
+
+    @Test
+    public void testPostFixedLength() {
+        assertEquals("hello:fixed", target("test").request().post(Entity.text("hello"), String.class));
+    }
+
+    @Test
+    public void testPostChunked() {
+        // the size of a buffered stream is unknown before the entity is written
+        final InputStream entity = new BufferedInputStream(new ByteArrayInputStream("hello".getBytes()));
+        assertEquals("hello:chunked", target("test").request()
+                .post(Entity.entity(entity, MediaType.TEXT_PLAIN_TYPE), String.class));
+    }
+
+    @Test
+    public void testConnectionReuse() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals("GET", target("test").request().get(String.class));
+            assertEquals("hello:fixed", target("test").request().post(Entity.text("hello"), String.class));
+        }
+
+        final ConnectionPoolStats stats = connector.getPoolStats();
+        assertEquals(0, stats.getLeased());
+        assertEquals(1, stats.getIdle());
+        assertEquals(1, stats.getTotal());
+    }
+
+    @Test
+    public void testUnreadEntityClosesConnection() {
+        final Response response = target("test").request().get();
+        assertEquals(200, response.getStatus());
+        assertEquals(1, connector.getPoolStats().getLeased());
+
+        response.close();
+        assertEquals(0, connector.getPoolStats().getTotal());
+        assertEquals("GET", target("test").request().get(String.class));
+    }
+}
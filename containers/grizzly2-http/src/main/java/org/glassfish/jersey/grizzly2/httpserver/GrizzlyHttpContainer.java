@@ -41,19 +41,19 @@ package org.glassfish.jersey.grizzly2.httpserver;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.reflect.Type;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.security.Principal;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.ws.rs.core.SecurityContext;
-import javax.ws.rs.core.UriBuilder;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -62,17 +62,20 @@ import org.glassfish.jersey.internal.inject.AbstractBinder;
 import org.glassfish.jersey.internal.inject.ReferencingFactory;
 import org.glassfish.jersey.internal.util.ExtendedLogger;
 import org.glassfish.jersey.internal.util.collection.Ref;
+import org.glassfish.jersey.process.VirtualThreadExecutorsProvider;
 import org.glassfish.jersey.process.internal.RequestScoped;
 import org.glassfish.jersey.server.ApplicationHandler;
 import org.glassfish.jersey.server.ContainerException;
 import org.glassfish.jersey.server.ContainerRequest;
 import org.glassfish.jersey.server.ContainerResponse;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.ServerProperties;
 import org.glassfish.jersey.server.internal.ConfigHelper;
 import org.glassfish.jersey.server.spi.Container;
 import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
 import org.glassfish.jersey.server.spi.ContainerResponseWriter;
 import org.glassfish.jersey.server.spi.RequestScopedInitializer;
+import org.glassfish.jersey.uri.UriComponent;
 
 import org.glassfish.hk2.api.PerLookup;
 import org.glassfish.hk2.api.ServiceLocator;
@@ -83,6 +86,9 @@ import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.http.server.HttpHandler;
 import org.glassfish.grizzly.http.server.Request;
 import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.threadpool.GrizzlyExecutorService;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.grizzly.threadpool.Threads;
 import org.glassfish.grizzly.utils.Charsets;
 
 /**
@@ -95,6 +101,13 @@ public final class GrizzlyHttpContainer extends HttpHandler implements Container
     private static final ExtendedLogger logger =
             new ExtendedLogger(Logger.getLogger(GrizzlyHttpContainer.class.getName()), Level.FINEST);
 
+    private static final TypeLiteral<Ref<Request>> REQUEST_REF_TYPE = new TypeLiteral<Ref<Request>>() {
+    };
+    private static final TypeLiteral<Ref<Response>> RESPONSE_REF_TYPE = new TypeLiteral<Ref<Response>>() {
+    };
+    private static final Type REQUEST_REF = REQUEST_REF_TYPE.getType();
+    private static final Type RESPONSE_REF = RESPONSE_REF_TYPE.getType();
+
     /**
      * Referencing factory for Grizzly request.
      */
@@ -124,12 +137,10 @@ public final class GrizzlyHttpContainer extends HttpHandler implements Container
         @Override
         protected void configure() {
             bindFactory(GrizzlyRequestReferencingFactory.class).to(Request.class).in(PerLookup.class);
-            bindFactory(ReferencingFactory.<Request>referenceFactory()).to(new TypeLiteral<Ref<Request>>() {
-            }).in(RequestScoped.class);
+            bindFactory(ReferencingFactory.<Request>referenceFactory()).to(REQUEST_REF_TYPE).in(RequestScoped.class);
 
             bindFactory(GrizzlyResponseReferencingFactory.class).to(Response.class).in(PerLookup.class);
-            bindFactory(ReferencingFactory.<Response>referenceFactory()).to(new TypeLiteral<Ref<Response>>() {
-            }).in(RequestScoped.class);
+            bindFactory(ReferencingFactory.<Response>referenceFactory()).to(RESPONSE_REF_TYPE).in(RequestScoped.class);
         }
     }
 
@@ -259,6 +270,16 @@ public final class GrizzlyHttpContainer extends HttpHandler implements Container
 
     private volatile ApplicationHandler appHandler;
     private final ContainerLifecycleListener containerListener;
+    /**
+     * Executor for blocking resource method invocations in the selector thread execution mode
+     * (backed by virtual threads if the virtual thread execution is enabled), {@code null} otherwise.
+     */
+    private final ExecutorService blockingExecutor;
+    /**
+     * Virtual thread executor replacing the Grizzly worker thread pool if the virtual thread execution
+     * is enabled (and selector thread execution disabled), {@code null} otherwise.
+     */
+    private final ExecutorService workerExecutor;
 
     /**
      * Creates a new Grizzly container.
@@ -269,6 +290,20 @@ public final class GrizzlyHttpContainer extends HttpHandler implements Container
         this.appHandler = application;
         this.containerListener = ConfigHelper.getContainerLifecycleListener(application);
 
+        final ResourceConfig configuration = application.getConfiguration();
+        final ExecutorService virtualThreadExecutor = configuration.isProperty(ServerProperties.VIRTUAL_THREAD_EXECUTION)
+                ? VirtualThreadExecutorsProvider.newExecutorService("jersey-grizzly2-virtual-thread-") : null;
+
+        if (configuration.isProperty(GrizzlyHttpServerProperties.SELECTOR_THREAD_EXECUTION)) {
+            this.blockingExecutor = (virtualThreadExecutor != null) ? virtualThreadExecutor
+                    : GrizzlyExecutorService.createInstance(
+                    ThreadPoolConfig.defaultConfig().copy().setPoolName("jersey-grizzly2-blocking-executor"));
+            this.workerExecutor = null;
+        } else {
+            this.blockingExecutor = null;
+            this.workerExecutor = virtualThreadExecutor;
+        }
+
         this.appHandler.registerAdditionalBinders(new HashSet<Binder>() {{
             add(new GrizzlyBinder());
         }});
@@ -285,22 +320,25 @@ public final class GrizzlyHttpContainer extends HttpHandler implements Container
         final ResponseWriter responseWriter = new ResponseWriter(response);
         try {
             logger.debugLog("GrizzlyHttpContaner.service(...) started");
-            URI baseUri = getBaseUri(request);
-            ContainerRequest requestContext = new ContainerRequest(baseUri,
-                    getRequestUri(baseUri, request), request.getMethod().getMethodString(),
-                    getSecurityContext(request), new GrizzlyRequestPropertiesDelegate(request));
+            final String serverAddress = getServerAddress(request);
+            ContainerRequest requestContext = new ContainerRequest(
+                    URI.create(serverAddress + getBasePath(request)),
+                    getRequestUri(serverAddress, request),
+                    request.getMethod().getMethodString(),
+                    getSecurityContext(request),
+                    new GrizzlyRequestPropertiesDelegate(request),
+                    new GrizzlyRequestHeaders(request.getRequest().getHeaders()));
             requestContext.setEntityStream(request.getInputStream());
-            for (String headerName : request.getHeaderNames()) {
-                requestContext.headers(headerName, request.getHeaders(headerName));
-            }
             requestContext.setWriter(responseWriter);
+            if (blockingExecutor != null && Threads.isService()) {
+                // running on a selector thread - hand off blocking resource method invocations
+                requestContext.setBlockingExecutor(blockingExecutor);
+            }
             requestContext.setRequestScopedInitializer(new RequestScopedInitializer() {
                 @Override
                 public void initialize(ServiceLocator locator) {
-                    locator.<Ref<Request>>getService((new TypeLiteral<Ref<Request>>() {
-                    }).getType()).set(request);
-                    locator.<Ref<Response>>getService((new TypeLiteral<Ref<Response>>() {
-                    }).getType()).set(response);
+                    locator.<Ref<Request>>getService(REQUEST_REF).set(request);
+                    locator.<Ref<Response>>getService(RESPONSE_REF).set(response);
                 }
             });
             appHandler.handle(requestContext);
@@ -329,7 +367,35 @@ public final class GrizzlyHttpContainer extends HttpHandler implements Container
     @Override
     public void destroy() {
         super.destroy();
-        containerListener.onShutdown(this);
+        try {
+            containerListener.onShutdown(this);
+        } finally {
+            if (blockingExecutor != null) {
+                blockingExecutor.shutdown();
+            }
+            if (workerExecutor != null) {
+                workerExecutor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Check whether the container is configured to process requests on the selector threads.
+     *
+     * @return {@code true} if the selector thread execution mode is enabled, {@code false} otherwise.
+     * @see GrizzlyHttpServerProperties#SELECTOR_THREAD_EXECUTION
+     */
+    boolean isSelectorThreadExecution() {
+        return blockingExecutor != null;
+    }
+
+    /**
+     * Get the executor that should replace the worker thread pool of the Grizzly transport.
+     *
+     * @return worker executor or {@code null} if the default Grizzly worker thread pool should be used.
+     */
+    ExecutorService getWorkerExecutor() {
+        return workerExecutor;
     }
 
     private SecurityContext getSecurityContext(final Request request) {
@@ -357,39 +423,71 @@ public final class GrizzlyHttpContainer extends HttpHandler implements Container
         };
     }
 
-    private URI getBaseUri(final Request request) {
-        try {
-            return new URI(request.getScheme(), null, request.getServerName(),
-                    request.getServerPort(), getBasePath(request), null, null);
-        } catch (final URISyntaxException ex) {
-            throw new IllegalArgumentException(ex);
+    /**
+     * Get the {@code scheme://host[:port]} prefix shared by the base and request URIs.
+     *
+     * @param request Grizzly request.
+     * @return server address URI prefix.
+     */
+    private String getServerAddress(final Request request) {
+        final String host = request.getServerName();
+        final int port = request.getServerPort();
+
+        final StringBuilder sb = new StringBuilder(64).append(request.getScheme()).append("://");
+        if (host.indexOf(':') >= 0 && host.charAt(0) != '[') {
+            // IPv6 literal
+            sb.append('[').append(host).append(']');
+        } else {
+            sb.append(host);
+        }
+        if (port != -1) {
+            sb.append(':').append(port);
         }
+        return sb.toString();
     }
 
     private String getBasePath(final Request request) {
-        final String contextPath = request.getContextPath();
+        String contextPath = request.getContextPath();
 
         if (contextPath == null || contextPath.length() == 0) {
             return "/";
-        } else if (contextPath.charAt(contextPath.length() - 1) != '/') {
+        }
+
+        contextPath = UriComponent.contextualEncode(contextPath, UriComponent.Type.PATH);
+        if (contextPath.charAt(contextPath.length() - 1) != '/') {
             return contextPath + "/";
         } else {
             return contextPath;
         }
     }
 
-    private URI getRequestUri(URI baseUri, Request grizzlyRequest) {
-        // TODO: this is terrible, there must be a way to obtain the original request URI!
-        String originalUri = UriBuilder
-                .fromPath(
-                        grizzlyRequest.getRequest().getRequestURIRef().getOriginalRequestURIBC()
-                                .toString(Charsets.DEFAULT_CHARSET)).build().toString();
+    /**
+     * Get the request URI from the original request URI bytes, as sent by the client.
+     *
+     * Only characters that are not legal in an URI are percent-encoded, which is
+     * a no-op for most requests, so no URI template processing is involved.
+     *
+     * @param serverAddress  {@code scheme://host[:port]} prefix of the request URI.
+     * @param grizzlyRequest Grizzly request.
+     * @return request URI.
+     */
+    private URI getRequestUri(final String serverAddress, final Request grizzlyRequest) {
+        final String originalPath = UriComponent.contextualEncode(
+                grizzlyRequest.getRequest().getRequestURIRef().getOriginalRequestURIBC()
+                        .toString(Charsets.DEFAULT_CHARSET), UriComponent.Type.PATH);
+
+        final StringBuilder sb = new StringBuilder(serverAddress.length() + originalPath.length() + 32);
+        sb.append(serverAddress);
+        if (originalPath.length() == 0 || originalPath.charAt(0) != '/') {
+            sb.append('/');
+        }
+        sb.append(originalPath);
 
-        String queryString = grizzlyRequest.getQueryString();
+        final String queryString = grizzlyRequest.getQueryString();
         if (queryString != null) {
-            originalUri = originalUri + "?" + queryString;
+            sb.append('?').append(UriComponent.contextualEncode(queryString, UriComponent.Type.QUERY));
         }
 
-        return baseUri.resolve(originalUri);
+        return URI.create(sb.toString());
     }
 }
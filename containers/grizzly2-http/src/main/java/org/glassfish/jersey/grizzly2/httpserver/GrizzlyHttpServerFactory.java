@@ -52,6 +52,7 @@ import org.glassfish.grizzly.http.server.HttpServer;
 import org.glassfish.grizzly.http.server.NetworkListener;
 import org.glassfish.grizzly.http.server.ServerConfiguration;
 import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
+import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
 
 /**
  * Factory for creating Grizzly Http Server.
@@ -62,6 +63,15 @@ import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
  * To obtain such an instance, use one of the bellow factory methods with {@code start}
  * parameter set to false. When the {@code start} parameter is not present,
  * the factory method returns an already started instance.
+ * <p>
+ * If the {@link GrizzlyHttpServerProperties#SELECTOR_THREAD_EXECUTION selector thread execution}
+ * is enabled in the application configuration, the created server is configured to process
+ * the requests directly on the selector threads. If the
+ * {@link org.glassfish.jersey.server.ServerProperties#VIRTUAL_THREAD_EXECUTION virtual thread execution}
+ * is enabled and supported by the Java runtime, each request is dispatched to a new virtual thread
+ * instead of a pooled worker thread (or, in the selector thread execution mode, blocking resource method
+ * invocations are handed off to new virtual threads).
+ * </p>
  *
  * @author Jakub Podlesak (jakub.podlesak at oracle.com)
  * @author Pavel Bucek (pavel.bucek at oracle.com)
@@ -243,6 +253,14 @@ public class GrizzlyHttpServerFactory {
             listener.setSSLEngineConfig(sslEngineConfigurator);
         }
 
+        if (handler != null && handler.isSelectorThreadExecution()) {
+            // requests are routed on the selector threads, blocking invocations are handed off by the container
+            listener.getTransport().setIOStrategy(SameThreadIOStrategy.getInstance());
+        } else if (handler != null && handler.getWorkerExecutor() != null) {
+            // requests are dispatched to virtual threads instead of the pooled worker threads
+            listener.getTransport().setWorkerThreadPool(handler.getWorkerExecutor());
+        }
+
         server.addListener(listener);
 
         // Map the path to the processor.
@@ -0,0 +1,75 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.grizzly2.httpserver;
+
+/**
+ * Jersey Grizzly 2 HTTP container configuration properties.
+ *
+ * @author agent (agent at local)
+ */
+public final class GrizzlyHttpServerProperties {
+
+    /**
+     * If set to {@code true}, the Grizzly HTTP server created by the {@link GrizzlyHttpServerFactory}
+     * processes requests directly on the selector threads, using the
+     * {@link org.glassfish.grizzly.strategies.SameThreadIOStrategy same-thread I/O strategy}.
+     * <p></p>
+     * Requests are routed on the selector thread. Resource methods annotated with
+     * {@link org.glassfish.jersey.server.NonBlocking &#64;NonBlocking} are then invoked
+     * (and their responses written) on the selector thread, avoiding the hand-off to a worker
+     * thread. Invocations of all other resource methods are handed off to a worker thread pool
+     * managed by the {@link GrizzlyHttpContainer}, before any request entity is read.
+     * <p></p>
+     * Note that request filters and pre-matching request filters are executed on the selector
+     * thread in this mode and therefore must not block.
+     * <p></p>
+     * The type of this property must be a {@code Boolean} or a {@code String}.
+     * <p></p>
+     * The default value is {@code false}.
+     * <p></p>
+     * The name of the configuration property is <code>{@value}</code>.
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String SELECTOR_THREAD_EXECUTION = "jersey.config.grizzly2.server.selectorThreadExecution";
+
+    private GrizzlyHttpServerProperties() {
+        // prevents instantiation
+    }
+}
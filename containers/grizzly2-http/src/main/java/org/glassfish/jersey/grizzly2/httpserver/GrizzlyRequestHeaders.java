@@ -0,0 +1,234 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.grizzly2.httpserver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.glassfish.jersey.message.internal.HeadersFactory;
+
+import org.glassfish.grizzly.http.util.MimeHeaders;
+
+/**
+ * Lazy, case-insensitive view of the Grizzly request headers.
+ *
+ * Header look-ups are served directly from the Grizzly {@link MimeHeaders} without
+ * copying each header name and value into a separate map. The first modification
+ * (or a full iteration) of the headers materializes a mutable copy, which is then
+ * used for all subsequent operations. Lists returned by {@link #get(Object)} before
+ * the view has been materialized are read-only snapshots; modifications must be
+ * done using the map methods.
+ *
+ * @author agent (agent at local)
+ */
+final class GrizzlyRequestHeaders implements MultivaluedMap<String, String> {
+
+    private final MimeHeaders mimeHeaders;
+    private MultivaluedMap<String, String> copy;
+
+    /**
+     * Create new lazy headers view.
+     *
+     * @param mimeHeaders Grizzly request headers.
+     */
+    GrizzlyRequestHeaders(final MimeHeaders mimeHeaders) {
+        this.mimeHeaders = mimeHeaders;
+    }
+
+    /**
+     * Get the mutable copy of the headers, creating it on the first invocation.
+     *
+     * @return mutable copy of the Grizzly request headers.
+     */
+    private MultivaluedMap<String, String> materialize() {
+        if (copy == null) {
+            final MultivaluedMap<String, String> headers = HeadersFactory.createInbound();
+            for (final String name : mimeHeaders.names()) {
+                // MimeHeaders contains one entry per header line
+                if (!headers.containsKey(name)) {
+                    for (final String value : mimeHeaders.values(name)) {
+                        headers.add(name, value);
+                    }
+                }
+            }
+            copy = headers;
+        }
+        return copy;
+    }
+
+    @Override
+    public List<String> get(final Object key) {
+        if (copy != null) {
+            return copy.get(key);
+        }
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        List<String> values = null;
+        for (final String value : mimeHeaders.values((String) key)) {
+            if (values == null) {
+                values = new ArrayList<String>(1);
+            }
+            values.add(value);
+        }
+        return values == null ? null : Collections.unmodifiableList(values);
+    }
+
+    @Override
+    public String getFirst(final String key) {
+        if (copy != null) {
+            return copy.getFirst(key);
+        }
+        return mimeHeaders.getHeader(key);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        if (copy != null) {
+            return copy.containsKey(key);
+        }
+        return key instanceof String && mimeHeaders.getHeader((String) key) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (copy != null) {
+            return copy.isEmpty();
+        }
+        return mimeHeaders.size() == 0;
+    }
+
+    @Override
+    public int size() {
+        return materialize().size();
+    }
+
+    @Override
+    public boolean containsValue(final Object value) {
+        return materialize().containsValue(value);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return materialize().keySet();
+    }
+
+    @Override
+    public Collection<List<String>> values() {
+        return materialize().values();
+    }
+
+    @Override
+    public Set<Entry<String, List<String>>> entrySet() {
+        return materialize().entrySet();
+    }
+
+    @Override
+    public void putSingle(final String key, final String value) {
+        materialize().putSingle(key, value);
+    }
+
+    @Override
+    public void add(final String key, final String value) {
+        materialize().add(key, value);
+    }
+
+    @Override
+    public void addAll(final String key, final String... newValues) {
+        materialize().addAll(key, newValues);
+    }
+
+    @Override
+    public void addAll(final String key, final List<String> valueList) {
+        materialize().addAll(key, valueList);
+    }
+
+    @Override
+    public void addFirst(final String key, final String value) {
+        materialize().addFirst(key, value);
+    }
+
+    @Override
+    public boolean equalsIgnoreValueOrder(final MultivaluedMap<String, String> otherMap) {
+        return materialize().equalsIgnoreValueOrder(otherMap);
+    }
+
+    @Override
+    public List<String> put(final String key, final List<String> value) {
+        return materialize().put(key, value);
+    }
+
+    @Override
+    public List<String> remove(final Object key) {
+        return materialize().remove(key);
+    }
+
+    @Override
+    public void putAll(final Map<? extends String, ? extends List<String>> m) {
+        materialize().putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        materialize().clear();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return materialize().equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return materialize().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return materialize().toString();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.grizzly2.httpserver;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.glassfish.grizzly.http.util.MimeHeaders;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the lazy {@link GrizzlyRequestHeaders} view.
+ *
+ * @author agent (agent at local)
+ */
+public class GrizzlyRequestHeadersTest {
+
+    private MimeHeaders mimeHeaders;
+    private GrizzlyRequestHeaders headers;
+
+    @Before
+    public void setUp() {
+        mimeHeaders = new MimeHeaders();
+        mimeHeaders.addValue("Content-Type").setString("text/plain");
+        mimeHeaders.addValue("Accept").setString("text/html");
+        mimeHeaders.addValue("accept").setString("application/xml");
+        headers = new GrizzlyRequestHeaders(mimeHeaders);
+    }
+
+    @Test
+    public void testCaseInsensitiveLookup() {
+        assertEquals("text/plain", headers.getFirst("content-type"));
+        assertEquals("text/plain", headers.getFirst("CONTENT-TYPE"));
+        assertTrue(headers.containsKey("Content-type"));
+        assertFalse(headers.containsKey("X-Missing"));
+        assertNull(headers.get("X-Missing"));
+        assertNull(headers.getFirst("X-Missing"));
+        assertFalse(headers.isEmpty());
+    }
+
+    @Test
+    public void testMultiValuedHeader() {
+        assertEquals(Arrays.asList("text/html", "application/xml"), headers.get("ACCEPT"));
+        assertEquals("text/html", headers.getFirst("accept"));
+
+        // one key per header name regardless of the header line case
+        assertEquals(2, headers.size());
+        assertEquals(Arrays.asList("text/html", "application/xml"), headers.get("Accept"));
+    }
+
+    @Test
+    public void testUnmaterializedListIsReadOnly() {
+        final List<String> values = headers.get("Accept");
+        try {
+            values.add("text/plain");
+            fail("List returned before the headers are materialized must be read-only.");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+        assertEquals(2, headers.get("Accept").size());
+    }
+
+    @Test
+    public void testMutation() {
+        headers.add("x-custom", "a");
+        headers.add("X-Custom", "b");
+        assertEquals(Arrays.asList("a", "b"), headers.get("X-CUSTOM"));
+
+        headers.putSingle("accept", "*/*");
+        assertEquals(Arrays.asList("*/*"), headers.get("Accept"));
+
+        headers.remove("CONTENT-TYPE");
+        assertFalse(headers.containsKey("Content-Type"));
+        assertNull(headers.getFirst("content-type"));
+
+        // mutations do not leak into the underlying Grizzly headers
+        assertEquals("text/plain", mimeHeaders.getHeader("Content-Type"));
+        assertNull(mimeHeaders.getHeader("X-Custom"));
+
+        headers.clear();
+        assertTrue(headers.isEmpty());
+        assertFalse(mimeHeaders.size() == 0);
+    }
+
+    @Test
+    public void testEmptyHeaders() {
+        final GrizzlyRequestHeaders empty = new GrizzlyRequestHeaders(new MimeHeaders());
+        assertTrue(empty.isEmpty());
+        assertEquals(0, empty.size());
+        assertTrue(empty.keySet().isEmpty());
+    }
+}
@@ -42,13 +42,16 @@ package org.glassfish.jersey.jdkhttp;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import org.glassfish.jersey.internal.ProcessingException;
 import org.glassfish.jersey.jdkhttp.internal.LocalizationMessages;
+import org.glassfish.jersey.process.VirtualThreadExecutorsProvider;
 import org.glassfish.jersey.server.ApplicationHandler;
 import org.glassfish.jersey.server.ContainerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.ServerProperties;
 import org.glassfish.jersey.server.internal.ConfigHelper;
 import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
 
@@ -58,6 +61,11 @@ import com.sun.net.httpserver.HttpsServer;
 /**
  * Factory for creating {@link HttpServer JDK HttpServer} instances adapted to
  * the {@link ApplicationHandler}.
+ * <p>
+ * Requests are processed on threads of a cached thread pool. If the
+ * {@link ServerProperties#VIRTUAL_THREAD_EXECUTION virtual thread execution} is enabled and supported by
+ * the Java runtime, each request is processed on a new virtual thread instead.
+ * </p>
  *
  * @author Miroslav Fuksa (miroslav.fuksa at oracle.com)
  */
@@ -126,7 +134,11 @@ public class JdkHttpServerFactory {
             throw new ProcessingException(LocalizationMessages.ERROR_CONTAINER_EXCEPTION_IO(), ioe);
         }
 
-        server.setExecutor(Executors.newCachedThreadPool());
+        ExecutorService executor = null;
+        if (handler.getConfiguration().isProperty(ServerProperties.VIRTUAL_THREAD_EXECUTION)) {
+            executor = VirtualThreadExecutorsProvider.newExecutorService("jersey-jdk-http-virtual-thread-");
+        }
+        server.setExecutor(executor != null ? executor : Executors.newCachedThreadPool());
         server.createContext(path, handler);
         server.start();
 
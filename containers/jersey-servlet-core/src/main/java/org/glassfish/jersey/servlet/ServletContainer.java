@@ -499,11 +499,12 @@ public class ServletContainer extends HttpServlet implements Filter, Container {
                 replaceQuery(queryString).
                 build();
 
-        final int status = service(baseUri, requestUri, request, response).get();
+        final Value<Integer> status = service(baseUri, requestUri, request, response);
 
         // If forwarding is configured and response is a 404 with no entity
         // body then call the next filter in the chain
-        if (webComponent.forwardOn404 && status == 404 && !response.isCommitted()) {
+        // (the status is retrieved lazily so that the thread is not blocked by a suspended request otherwise)
+        if (webComponent.forwardOn404 && status.get() == 404 && !response.isCommitted()) {
             // lets clear the response to OK before we forward to the next in the chain
             // as OK is the default set by servlet containers before filters/servlets do any wor
             // so lets hide our footsteps and pretend we were never in the chain at all and let the
@@ -149,6 +149,43 @@ public final class ServletProperties {
     @SuppressWarnings("HtmlTagCanBeJavadocTag")
     public static final String PROVIDER_WEB_APP = "jersey.config.servlet.provider.webapp";
 
+    /**
+     * If set to {@code true}, the entity chunks of {@link org.glassfish.jersey.server.ChunkedOutput chunked
+     * responses} (including server-sent events) are written asynchronously on Servlet 3.x containers.
+     * <p></p>
+     * Threads writing the chunks (e.g. broadcasting threads) only hand the serialized chunk bytes over
+     * to a per-response buffer and never block on a slow client. The buffered bytes are written to
+     * the servlet output stream by the container, using a {@code javax.servlet.WriteListener}
+     * where the Servlet API in use supports non-blocking I/O (Servlet 3.1), or a container-managed
+     * thread started via {@code javax.servlet.AsyncContext#start(Runnable)} otherwise. The asynchronous
+     * context is completed once all the buffered bytes have been written. If the amount of buffered
+     * bytes exceeds the {@link #RESPONSE_ASYNC_WRITE_BUFFER_LIMIT limit}, the chunk write fails and
+     * the chunked response is closed.
+     * <p></p>
+     * The property is ignored on Servlet 2.x containers.
+     * <p></p>
+     * The type of this property must be a {@code Boolean} or a {@code String}.
+     * <p></p>
+     * The default value is {@code false}.
+     * <p></p>
+     * The name of the configuration property is <code>{@value}</code>.
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String RESPONSE_ASYNC_WRITE = "jersey.config.servlet.response.asyncWrite";
+
+    /**
+     * Maximum number of bytes buffered per response in the {@link #RESPONSE_ASYNC_WRITE asynchronous
+     * write} mode, that have not been written to the client yet.
+     * <p></p>
+     * The type of this property must be an {@code Integer} or a {@code String}.
+     * <p></p>
+     * The default value is {@code 1048576} (1 MiB).
+     * <p></p>
+     * The name of the configuration property is <code>{@value}</code>.
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String RESPONSE_ASYNC_WRITE_BUFFER_LIMIT = "jersey.config.servlet.response.asyncWriteBufferLimit";
+
     private ServletProperties() {
         // prevents instantiation
     }
@@ -40,6 +40,7 @@
 package org.glassfish.jersey.servlet;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.security.Principal;
 import java.util.Arrays;
@@ -69,6 +70,7 @@ import org.glassfish.jersey.internal.ServiceFinderBinder;
 import org.glassfish.jersey.internal.inject.AbstractBinder;
 import org.glassfish.jersey.internal.inject.Providers;
 import org.glassfish.jersey.internal.inject.ReferencingFactory;
+import org.glassfish.jersey.internal.util.PropertiesHelper;
 import org.glassfish.jersey.internal.util.ReflectionHelper;
 import org.glassfish.jersey.internal.util.collection.Ref;
 import org.glassfish.jersey.internal.util.collection.Value;
@@ -105,6 +107,8 @@ public class WebComponent {
 
     private static final Logger LOGGER = Logger.getLogger(WebComponent.class.getName());
 
+    private static final Integer DEFAULT_ASYNC_WRITE_BUFFER_LIMIT = 1024 * 1024;
+
     private static final AsyncContextDelegate DefaultAsyncDELEGATE = new AsyncContextDelegate() {
 
         @Override
@@ -122,6 +126,10 @@ public class WebComponent {
         public void complete() {
         }
 
+        @Override
+        public OutputStream createAsyncOutputStream(final int bufferLimit) {
+            return null;
+        }
     };
 
     private AsyncContextDelegateProvider getAsyncExtensionDelegate() {
@@ -236,6 +244,11 @@ public class WebComponent {
      * Asynchronous context delegate provider.
      */
     private final AsyncContextDelegateProvider asyncExtensionDelegate;
+    /**
+     * Maximum number of buffered bytes of an asynchronously written chunked response,
+     * or {@code -1} if the asynchronous write is disabled.
+     */
+    private final int asyncWriteBufferLimit;
 
     /**
      * Create and initialize new web component instance.
@@ -255,6 +268,10 @@ public class WebComponent {
         this.asyncExtensionDelegate = getAsyncExtensionDelegate();
         this.forwardOn404 = webConfig.getConfigType().equals(WebConfig.ConfigType.FilterConfig) &&
                 resourceConfig.isProperty(ServletProperties.FILTER_FORWARD_ON_404);
+        this.asyncWriteBufferLimit = resourceConfig.isProperty(ServletProperties.RESPONSE_ASYNC_WRITE)
+                ? PropertiesHelper.getValue(resourceConfig.getProperties(),
+                        ServletProperties.RESPONSE_ASYNC_WRITE_BUFFER_LIMIT, DEFAULT_ASYNC_WRITE_BUFFER_LIMIT)
+                : -1;
     }
 
     /**
@@ -293,7 +310,7 @@ public class WebComponent {
 
         try {
             final ResponseWriter responseWriter = new ResponseWriter(forwardOn404, servletResponse,
-                    asyncExtensionDelegate.createDelegate(servletRequest, servletResponse));
+                    asyncExtensionDelegate.createDelegate(servletRequest, servletResponse), asyncWriteBufferLimit);
 
             requestContext.setRequestScopedInitializer(new RequestScopedInitializer() {
                 @Override
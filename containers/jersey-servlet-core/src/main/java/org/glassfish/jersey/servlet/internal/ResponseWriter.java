@@ -76,6 +76,8 @@ public class ResponseWriter implements ContainerResponseWriter {
     private final boolean useSetStatusOn404;
     private final SettableFuture<ContainerResponse> responseContext;
     private final AsyncContextDelegate asyncExt;
+    private final int asyncWriteBufferLimit;
+    private volatile boolean suspended;
 
     /**
      * Creates a new instance to write a single Jersey response.
@@ -85,9 +87,26 @@ public class ResponseWriter implements ContainerResponseWriter {
      * @param asyncExt          delegate to use for async features implementation
      */
     public ResponseWriter(final boolean useSetStatusOn404, final HttpServletResponse response, AsyncContextDelegate asyncExt) {
+        this(useSetStatusOn404, response, asyncExt, -1);
+    }
+
+    /**
+     * Creates a new instance to write a single Jersey response.
+     *
+     * @param useSetStatusOn404     true if status should be written explicitly when 404 is returned
+     * @param response              original HttpResponseRequest
+     * @param asyncExt              delegate to use for async features implementation
+     * @param asyncWriteBufferLimit maximum number of buffered bytes of an asynchronously written chunked
+     *                              response or {@code -1} if chunked responses should be written synchronously.
+     */
+    public ResponseWriter(final boolean useSetStatusOn404,
+                          final HttpServletResponse response,
+                          final AsyncContextDelegate asyncExt,
+                          final int asyncWriteBufferLimit) {
         this.useSetStatusOn404 = useSetStatusOn404;
         this.response = response;
         this.asyncExt = asyncExt;
+        this.asyncWriteBufferLimit = asyncWriteBufferLimit;
         this.responseContext = SettableFuture.create();
     }
 
@@ -95,6 +114,7 @@ public class ResponseWriter implements ContainerResponseWriter {
     public boolean suspend(final long timeOut, final TimeUnit timeUnit, final TimeoutHandler timeoutHandler) {
         try {
             asyncExt.suspend(this, timeOut, timeUnit, timeoutHandler);
+            suspended = true;
             return true;
         } catch (IllegalStateException ex) {
             return false;
@@ -130,6 +150,12 @@ public class ResponseWriter implements ContainerResponseWriter {
             return null;
         } else {
             try {
+                if (asyncWriteBufferLimit >= 0 && responseContext.isChunked()) {
+                    final OutputStream asyncOutput = asyncExt.createAsyncOutputStream(asyncWriteBufferLimit);
+                    if (asyncOutput != null) {
+                        return asyncOutput;
+                    }
+                }
                 return response.getOutputStream();
             } catch (IOException e) {
                 throw new ContainerException(e);
@@ -180,11 +206,17 @@ public class ResponseWriter implements ContainerResponseWriter {
 
     /**
      * Provides response status captured when {@link #writeResponseStatusAndHeaders(long, org.glassfish.jersey.server.ContainerResponse)} has been invoked.
-     * The method will block if the write method has not been called yet.
+     * The method will block if the write method has not been called yet, unless the response processing
+     * has been suspended, in which case {@code -1} is returned to release the container request thread
+     * immediately.
      *
-     * @return response status
+     * @return response status or {@code -1} if the response processing has been suspended and the status
+     *         is not known yet.
      */
     public int getResponseStatus() {
+        if (suspended && !responseContext.isDone()) {
+            return -1;
+        }
         return getResponseContext().getStatus();
     }
 
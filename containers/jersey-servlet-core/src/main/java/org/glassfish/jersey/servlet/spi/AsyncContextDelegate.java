@@ -39,6 +39,8 @@
  */
 package org.glassfish.jersey.servlet.spi;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.concurrent.TimeUnit;
 
 import org.glassfish.jersey.server.spi.ContainerResponseWriter;
@@ -83,6 +85,27 @@ public interface AsyncContextDelegate {
 
     /**
      * Invoked upon a response writing completion when the response write is either committed or canceled.
+     * <p>
+     * If an {@link #createAsyncOutputStream(int) asynchronous output stream} has been created, the
+     * implementation must not complete the asynchronous processing before all the bytes written
+     * to the stream have been written to the client.
+     * </p>
      */
     public void complete();
+
+    /**
+     * Invoked by the superior {@link ContainerResponseWriter} responsible for writing the response
+     * to create an output stream for writing the entity chunks of a chunked response asynchronously.
+     * <p>
+     * Writes to the returned stream must not block. The bytes written are buffered and written
+     * to the client by the container once the processing has been suspended. An implementation
+     * returns {@code null} if the asynchronous write is not supported, in which case the servlet
+     * response output stream is used directly.
+     * </p>
+     *
+     * @param bufferLimit maximum number of buffered bytes not yet written to the client.
+     * @return asynchronous output stream or {@code null} if not supported.
+     * @throws IOException in case the servlet response output stream cannot be obtained.
+     */
+    public OutputStream createAsyncOutputStream(int bufferLimit) throws IOException;
 }
@@ -40,6 +40,7 @@
 package org.glassfish.jersey.servlet.async;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -73,6 +74,7 @@ public class AsyncContextDelegateProviderImpl implements AsyncContextDelegatePro
         private final HttpServletRequest request;
         private final HttpServletResponse response;
         private final AtomicReference<AsyncContext> asyncContextRef;
+        private volatile AsyncOutputStream asyncOutput;
 
         private ExtensionImpl(final HttpServletRequest request, final HttpServletResponse response) {
             this.request = request;
@@ -122,10 +124,32 @@ public class AsyncContextDelegateProviderImpl implements AsyncContextDelegatePro
 
         @Override
         public void complete() {
+            final AsyncOutputStream output = asyncOutput;
+            if (output == null) {
+                completeAsyncContext();
+            } else {
+                // complete once all the buffered chunks have been written
+                output.onDrained(new Runnable() {
+                    @Override
+                    public void run() {
+                        completeAsyncContext();
+                    }
+                });
+            }
+        }
+
+        private void completeAsyncContext() {
             final AsyncContext asyncContext = asyncContextRef.getAndSet(null);
             if (asyncContext != null) {
                 asyncContext.complete();
             }
         }
+
+        @Override
+        public OutputStream createAsyncOutputStream(final int bufferLimit) throws IOException {
+            final AsyncOutputStream output = new AsyncOutputStream(response.getOutputStream(), asyncContextRef, bufferLimit);
+            asyncOutput = output;
+            return output;
+        }
     }
 }
@@ -0,0 +1,401 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.servlet.async;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+
+/**
+ * Output stream used to write the entity chunks of a suspended chunked response asynchronously.
+ * <p>
+ * Writes to the stream never block: the written bytes are queued and the queue is drained
+ * to the servlet output stream by the container. On Servlet 3.1 containers the queue is drained
+ * in a non-blocking way, driven by a {@code javax.servlet.WriteListener} registered via reflection
+ * (the module is compiled against Servlet 3.0 API). On Servlet 3.0 containers the (blocking) writes
+ * are performed on a container-managed thread started via {@link AsyncContext#start(Runnable)}.
+ * Until the request processing is suspended, the queue is drained directly by the writing
+ * (container request) thread.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+final class AsyncOutputStream extends OutputStream {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncOutputStream.class.getName());
+
+    private static final Class<?> WRITE_LISTENER_CLASS;
+    private static final Method SET_WRITE_LISTENER_METHOD;
+    private static final Method IS_READY_METHOD;
+
+    static {
+        Class<?> listenerClass = null;
+        Method setListener = null;
+        Method isReady = null;
+        try {
+            listenerClass = Class.forName("javax.servlet.WriteListener", false, ServletOutputStream.class.getClassLoader());
+            setListener = ServletOutputStream.class.getMethod("setWriteListener", listenerClass);
+            isReady = ServletOutputStream.class.getMethod("isReady");
+        } catch (Exception ex) {
+            // Servlet 3.0 - non-blocking I/O not supported
+            listenerClass = null;
+            setListener = null;
+            isReady = null;
+        }
+        WRITE_LISTENER_CLASS = listenerClass;
+        SET_WRITE_LISTENER_METHOD = setListener;
+        IS_READY_METHOD = isReady;
+    }
+
+    private final OutputStream out;
+    private final AtomicReference<AsyncContext> asyncContextRef;
+    private final int bufferLimit;
+    private final Class<?> writeListenerClass;
+    private final Method setWriteListenerMethod;
+    private final Method isReadyMethod;
+
+    private final Queue<byte[]> queue = new ConcurrentLinkedQueue<byte[]>();
+    private final AtomicInteger bufferedBytes = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean listenerRegistered = new AtomicBoolean();
+    private final AtomicReference<Runnable> completionCallback = new AtomicReference<Runnable>();
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    private volatile boolean nonBlocking;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * Create new asynchronous output stream.
+     *
+     * @param out             servlet response output stream.
+     * @param asyncContextRef reference to the servlet asynchronous context, set once the request
+     *                        processing is suspended.
+     * @param bufferLimit     maximum number of queued bytes not yet written to the servlet output stream.
+     */
+    AsyncOutputStream(final ServletOutputStream out,
+                      final AtomicReference<AsyncContext> asyncContextRef,
+                      final int bufferLimit) {
+        this(out, asyncContextRef, bufferLimit, WRITE_LISTENER_CLASS, SET_WRITE_LISTENER_METHOD, IS_READY_METHOD);
+    }
+
+    /**
+     * Create new asynchronous output stream using the given non-blocking I/O methods of the output stream.
+     *
+     * @param out                    output stream the queued bytes are written to.
+     * @param asyncContextRef        reference to the servlet asynchronous context, set once the request
+     *                               processing is suspended.
+     * @param bufferLimit            maximum number of queued bytes not yet written to the output stream.
+     * @param writeListenerClass     write listener interface, {@code null} if non-blocking I/O is not supported.
+     * @param setWriteListenerMethod method registering the write listener on the output stream,
+     *                               {@code null} if non-blocking I/O is not supported.
+     * @param isReadyMethod          method checking whether the output stream is ready to accept more bytes,
+     *                               {@code null} if non-blocking I/O is not supported.
+     */
+    AsyncOutputStream(final OutputStream out,
+                      final AtomicReference<AsyncContext> asyncContextRef,
+                      final int bufferLimit,
+                      final Class<?> writeListenerClass,
+                      final Method setWriteListenerMethod,
+                      final Method isReadyMethod) {
+        this.out = out;
+        this.asyncContextRef = asyncContextRef;
+        this.bufferLimit = bufferLimit;
+        this.writeListenerClass = writeListenerClass;
+        this.setWriteListenerMethod = setWriteListenerMethod;
+        this.isReadyMethod = isReadyMethod;
+        this.nonBlocking = setWriteListenerMethod != null;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IOException("Stream closed.");
+        }
+        if (len == 0) {
+            return;
+        }
+
+        if (bufferedBytes.addAndGet(len) > bufferLimit) {
+            final IOException ex = new IOException(String.format(
+                    "Asynchronous write buffer limit of %d bytes exceeded - the client does not read the response fast enough.",
+                    bufferLimit));
+            fail(ex);
+            throw ex;
+        }
+        queue.add(Arrays.copyOfRange(b, off, off + len));
+
+        drain();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        // queued bytes are flushed as soon as the queue is drained
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the servlet output stream is closed by the container upon the async context completion
+        closed = true;
+    }
+
+    /**
+     * Register a callback to be invoked once all the queued bytes have been written
+     * (or the stream failed). No more bytes can be written to the stream afterwards.
+     *
+     * @param callback completion callback.
+     */
+    void onDrained(final Runnable callback) {
+        closed = true;
+        if (completionCallback.compareAndSet(null, callback)) {
+            if (failure != null) {
+                runCompletionCallback();
+            } else {
+                drain();
+            }
+        }
+    }
+
+    private void drain() {
+        final AsyncContext asyncContext = asyncContextRef.get();
+        if (asyncContext == null) {
+            // not suspended (yet) - running on the container request thread
+            drainLoop(false, null);
+        } else if (nonBlocking) {
+            if (listenerRegistered.compareAndSet(false, true)) {
+                // the container invokes onWritePossible() that starts draining the queue
+                registerWriteListener(asyncContext);
+            } else {
+                drainLoop(true, null);
+            }
+        } else {
+            drainLoop(false, asyncContext);
+        }
+    }
+
+    private boolean hasWork() {
+        return !queue.isEmpty() || (completionCallback.get() != null && !completed.get());
+    }
+
+    /**
+     * Drain the queue unless it is already being drained by another thread.
+     *
+     * @param nonBlocking  if {@code true}, bytes are written only while the servlet output stream is ready.
+     * @param asyncContext if not {@code null}, the queue is drained on a container thread started
+     *                     using the context.
+     */
+    private void drainLoop(final boolean nonBlocking, final AsyncContext asyncContext) {
+        while (hasWork() && draining.compareAndSet(false, true)) {
+            if (asyncContext != null) {
+                try {
+                    asyncContext.start(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                drainQueue(false);
+                            } finally {
+                                draining.set(false);
+                            }
+                            // pick up bytes queued in the meantime
+                            drainLoop(false, asyncContext);
+                        }
+                    });
+                } catch (IllegalStateException ex) {
+                    draining.set(false);
+                    fail(new IOException(ex));
+                }
+                return;
+            }
+
+            final boolean drained;
+            try {
+                drained = drainQueue(nonBlocking);
+            } finally {
+                draining.set(false);
+            }
+            if (!drained && !isReadyAfterDrain()) {
+                // output stream not ready - the container calls onWritePossible() later
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write the queued bytes to the servlet output stream. Must be invoked by the thread that
+     * has set the {@code draining} flag.
+     *
+     * @param nonBlocking if {@code true}, bytes are written only while the servlet output stream is ready.
+     * @return {@code true} if the queue has been drained, {@code false} if the servlet output stream
+     *         is not ready to accept more bytes.
+     */
+    private boolean drainQueue(final boolean nonBlocking) {
+        try {
+            byte[] chunk;
+            while (true) {
+                if (nonBlocking && !isReady()) {
+                    return false;
+                }
+                chunk = queue.poll();
+                if (chunk == null) {
+                    break;
+                }
+                out.write(chunk);
+                bufferedBytes.addAndGet(-chunk.length);
+            }
+            if (nonBlocking && !isReady()) {
+                return false;
+            }
+            out.flush();
+        } catch (IOException ex) {
+            fail(ex);
+            return true;
+        }
+
+        if (queue.isEmpty() && completionCallback.get() != null) {
+            runCompletionCallback();
+        }
+        return true;
+    }
+
+    private void fail(final Throwable throwable) {
+        if (failure == null) {
+            failure = throwable instanceof IOException ? (IOException) throwable : new IOException(throwable);
+        }
+        queue.clear();
+        bufferedBytes.set(0);
+        if (completionCallback.get() != null) {
+            runCompletionCallback();
+        }
+    }
+
+    private void runCompletionCallback() {
+        if (completed.compareAndSet(false, true)) {
+            completionCallback.get().run();
+        }
+    }
+
+    /**
+     * Check whether the output stream became ready after the draining flag has been cleared.
+     * <p>
+     * The container may invoke {@code onWritePossible()} while the draining flag is still set,
+     * in which case the invocation returns without writing anything. Re-checking the readiness
+     * once the flag is cleared makes sure such wake-up is not lost: either the stream is ready
+     * now and the queue is drained by the current thread, or the check has armed another
+     * {@code onWritePossible()} invocation.
+     * </p>
+     *
+     * @return {@code true} if the output stream is ready to accept more bytes.
+     */
+    private boolean isReadyAfterDrain() {
+        try {
+            return isReady();
+        } catch (IOException ex) {
+            fail(ex);
+            return false;
+        }
+    }
+
+    private boolean isReady() throws IOException {
+        try {
+            return (Boolean) isReadyMethod.invoke(out);
+        } catch (IllegalAccessException ex) {
+            throw new IOException(ex);
+        } catch (InvocationTargetException ex) {
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    private void registerWriteListener(final AsyncContext asyncContext) {
+        final Object listener = Proxy.newProxyInstance(writeListenerClass.getClassLoader(),
+                new Class<?>[]{writeListenerClass}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                final String name = method.getName();
+                if ("onWritePossible".equals(name)) {
+                    drainLoop(true, null);
+                    return null;
+                } else if ("onError".equals(name)) {
+                    fail((Throwable) args[0]);
+                    return null;
+                } else if ("equals".equals(name)) {
+                    return proxy == args[0];
+                } else if ("hashCode".equals(name)) {
+                    return System.identityHashCode(proxy);
+                } else if ("toString".equals(name)) {
+                    return "WriteListener[" + AsyncOutputStream.this + "]";
+                }
+                return null;
+            }
+        });
+
+        try {
+            setWriteListenerMethod.invoke(out, listener);
+        } catch (Exception ex) {
+            LOGGER.log(Level.FINE, "Unable to register servlet write listener, falling back to blocking writes.", ex);
+            nonBlocking = false;
+            drainLoop(false, asyncContext);
+        }
+    }
+}
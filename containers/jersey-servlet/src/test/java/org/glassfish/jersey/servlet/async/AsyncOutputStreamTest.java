@@ -0,0 +1,280 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.servlet.async;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.AsyncContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the {@link AsyncOutputStream} draining the queued bytes in the blocking
+ * and the non-blocking mode.
+ *
+ * @author agent (agent at local)
+ */
+public class AsyncOutputStreamTest {
+
+    /**
+     * Stand-in for the Servlet 3.1 {@code javax.servlet.WriteListener}.
+     */
+    public static interface TestWriteListener {
+
+        public void onWritePossible() throws IOException;
+
+        public void onError(Throwable t);
+    }
+
+    /**
+     * Output stream with the Servlet 3.1 non-blocking I/O methods.
+     */
+    public static class TestOutputStream extends ByteArrayOutputStream {
+
+        private volatile boolean ready;
+        private volatile TestWriteListener listener;
+        private volatile Runnable onNotReady;
+
+        public boolean isReady() {
+            final boolean result = ready;
+            final Runnable callback = onNotReady;
+            if (!result && callback != null) {
+                onNotReady = null;
+                callback.run();
+            }
+            return result;
+        }
+
+        public void setWriteListener(final TestWriteListener listener) {
+            this.listener = listener;
+        }
+    }
+
+    private ExecutorService executor;
+    private AtomicReference<AsyncContext> asyncContextRef;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        asyncContextRef = new AtomicReference<AsyncContext>(createAsyncContext(executor));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static AsyncContext createAsyncContext(final ExecutorService executor) {
+        return (AsyncContext) Proxy.newProxyInstance(AsyncContext.class.getClassLoader(),
+                new Class<?>[]{AsyncContext.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                if ("start".equals(method.getName())) {
+                    executor.submit((Runnable) args[0]);
+                }
+                return null;
+            }
+        });
+    }
+
+    private static AsyncOutputStream createNonBlocking(final TestOutputStream out,
+                                                       final AtomicReference<AsyncContext> asyncContextRef)
+            throws NoSuchMethodException {
+        return new AsyncOutputStream(out, asyncContextRef, 1024,
+                TestWriteListener.class,
+                TestOutputStream.class.getMethod("setWriteListener", TestWriteListener.class),
+                TestOutputStream.class.getMethod("isReady"));
+    }
+
+    private static Runnable countDown(final CountDownLatch latch) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    @Test
+    public void testWriteBeforeSuspend() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AsyncOutputStream stream = new AsyncOutputStream(out, new AtomicReference<AsyncContext>(), 1024,
+                null, null, null);
+
+        stream.write("hello".getBytes());
+        assertEquals("hello", out.toString());
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        stream.onDrained(countDown(completed));
+        assertEquals(0, completed.getCount());
+    }
+
+    @Test
+    public void testBlockingWritesOnContainerThread() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AsyncOutputStream stream = new AsyncOutputStream(out, asyncContextRef, 1024, null, null, null);
+
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            stream.write(("chunk-" + i + ";").getBytes());
+            expected.append("chunk-").append(i).append(';');
+        }
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        stream.onDrained(countDown(completed));
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    public void testQueuedWritesAcrossReadyTransitions() throws Exception {
+        final TestOutputStream out = new TestOutputStream();
+        final AsyncOutputStream stream = createNonBlocking(out, asyncContextRef);
+
+        // the first write registers the listener, nothing is written until the container calls it
+        stream.write("a".getBytes());
+        assertNotNull(out.listener);
+        assertEquals("", out.toString());
+
+        out.ready = true;
+        out.listener.onWritePossible();
+        assertEquals("a", out.toString());
+
+        out.ready = false;
+        stream.write("b".getBytes());
+        stream.write("c".getBytes());
+        assertEquals("a", out.toString());
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        stream.onDrained(countDown(completed));
+        assertEquals(1, completed.getCount());
+
+        out.ready = true;
+        out.listener.onWritePossible();
+        assertEquals("abc", out.toString());
+        assertEquals(0, completed.getCount());
+
+        try {
+            stream.write("d".getBytes());
+            fail("Write to a drained stream must fail.");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWritePossibleWhileDraining() throws Exception {
+        final TestOutputStream out = new TestOutputStream();
+        final AsyncOutputStream stream = createNonBlocking(out, asyncContextRef);
+
+        stream.write("a".getBytes());
+        out.ready = true;
+        out.listener.onWritePossible();
+        out.ready = false;
+
+        // the container calls onWritePossible() while the writing thread still drains the queue
+        final AtomicInteger wakeUps = new AtomicInteger();
+        out.onNotReady = new Runnable() {
+            @Override
+            public void run() {
+                out.ready = true;
+                try {
+                    wakeUps.incrementAndGet();
+                    out.listener.onWritePossible();
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        };
+        stream.write("b".getBytes());
+
+        assertEquals(1, wakeUps.get());
+        assertEquals("ab", out.toString());
+    }
+
+    @Test
+    public void testCompletionCallbackOnError() throws Exception {
+        final TestOutputStream out = new TestOutputStream();
+        final AsyncOutputStream stream = createNonBlocking(out, asyncContextRef);
+
+        stream.write("a".getBytes());
+        final CountDownLatch completed = new CountDownLatch(1);
+        stream.onDrained(countDown(completed));
+        assertEquals(1, completed.getCount());
+
+        out.listener.onError(new IOException("Connection reset."));
+        assertEquals(0, completed.getCount());
+        assertEquals("", out.toString());
+    }
+
+    @Test
+    public void testBufferLimitExceeded() throws Exception {
+        final TestOutputStream out = new TestOutputStream();
+        final AsyncOutputStream stream = createNonBlocking(out, asyncContextRef);
+
+        stream.write(new byte[1000]);
+        try {
+            stream.write(new byte[100]);
+            fail("Exceeding the buffer limit must fail the write.");
+        } catch (IOException expected) {
+            // expected
+        }
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        stream.onDrained(countDown(completed));
+        assertEquals(0, completed.getCount());
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Future of a batch of invocations submitted by a {@link BatchInvoker batch invoker}.
+ * <p>
+ * The future completes once all the invocations of the batch have completed. The aggregated result
+ * contains the invocation results in the order of the submitted invocations. The individual results
+ * can also be consumed in the order of their completion using the {@link #next()} method.
+ * </p>
+ * <p>
+ * Cancelling the future cancels all the pending and in-flight invocations of the batch.
+ * </p>
+ *
+ * @param <T> response type.
+ * @author agent (agent at local)
+ */
+public final class BatchFuture<T> implements Future<List<BatchResult<T>>> {
+
+    /**
+     * Scheduler of the per-invocation time-outs, shared by all batches.
+     */
+    private static final ScheduledExecutorService TIMEOUT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jersey-client-batch-timeout-%d").setDaemon(true).build());
+
+    /**
+     * Strategy submitting a single invocation of the batch.
+     *
+     * @param <T> response type.
+     */
+    static interface Submitter<T> {
+
+        /**
+         * Submit the invocation.
+         *
+         * @param invocation invocation to be submitted.
+         * @return listenable response future.
+         */
+        ListenableFuture<T> submit(JerseyInvocation invocation);
+    }
+
+    private final List<JerseyInvocation> invocations;
+    private final Submitter<T> submitter;
+    private final int maxParallelism;
+    private final long timeoutNanos;
+    private final boolean failFast;
+
+    private final int size;
+    private final AtomicReferenceArray<BatchResult<T>> results;
+    private final AtomicReferenceArray<Future<T>> futures;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger consumed = new AtomicInteger();
+    private final AtomicBoolean terminated = new AtomicBoolean();
+    private final BlockingQueue<BatchResult<T>> completionQueue = new LinkedBlockingQueue<BatchResult<T>>();
+    private final SettableFuture<List<BatchResult<T>>> aggregate = SettableFuture.create();
+
+    /**
+     * Create new batch future.
+     *
+     * @param invocations    invocations of the batch.
+     * @param submitter      invocation submitter.
+     * @param maxParallelism maximal number of in-flight invocations.
+     * @param timeoutNanos   per-invocation timeout in nanoseconds, {@code 0} means no timeout.
+     * @param failFast       fail-fast mode flag.
+     */
+    BatchFuture(final List<JerseyInvocation> invocations, final Submitter<T> submitter, final int maxParallelism,
+                final long timeoutNanos, final boolean failFast) {
+        this.invocations = invocations;
+        this.submitter = submitter;
+        this.maxParallelism = maxParallelism;
+        this.timeoutNanos = timeoutNanos;
+        this.failFast = failFast;
+
+        this.size = invocations.size();
+        this.results = new AtomicReferenceArray<BatchResult<T>>(size);
+        this.futures = new AtomicReferenceArray<Future<T>>(size);
+    }
+
+    /**
+     * Start the batch execution.
+     */
+    void start() {
+        if (size == 0) {
+            aggregate.set(Collections.<BatchResult<T>>emptyList());
+            return;
+        }
+        for (int i = 0; i < Math.min(maxParallelism, size); i++) {
+            startNext();
+        }
+    }
+
+    /**
+     * Get the next invocation result in the order of the invocation completion, waiting if necessary
+     * for an invocation to complete.
+     *
+     * @return next completed invocation result or {@code null} if all the results have already been consumed.
+     * @throws InterruptedException in case the waiting thread has been interrupted.
+     */
+    public BatchResult<T> next() throws InterruptedException {
+        if (!claimNext()) {
+            return null;
+        }
+        return completionQueue.take();
+    }
+
+    /**
+     * Get the next invocation result in the order of the invocation completion, waiting up to the specified
+     * time if necessary for an invocation to complete.
+     *
+     * @param timeout maximal time to wait.
+     * @param unit    time unit of the timeout argument.
+     * @return next completed invocation result or {@code null} if all the results have already been consumed.
+     * @throws InterruptedException in case the waiting thread has been interrupted.
+     * @throws TimeoutException     in case no invocation has completed within the timeout.
+     */
+    public BatchResult<T> next(final long timeout, final TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!claimNext()) {
+            return null;
+        }
+        final BatchResult<T> result = completionQueue.poll(timeout, unit);
+        if (result == null) {
+            consumed.decrementAndGet();
+            throw new TimeoutException();
+        }
+        return result;
+    }
+
+    private boolean claimNext() {
+        int current;
+        do {
+            current = consumed.get();
+            if (current >= size) {
+                return false;
+            }
+        } while (!consumed.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        if (aggregate.cancel(false)) {
+            terminate();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return aggregate.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return aggregate.isDone();
+    }
+
+    @Override
+    public List<BatchResult<T>> get() throws InterruptedException, ExecutionException {
+        return aggregate.get();
+    }
+
+    @Override
+    public List<BatchResult<T>> get(final long timeout, final TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return aggregate.get(timeout, unit);
+    }
+
+    private void startNext() {
+        final int index = nextIndex.getAndIncrement();
+        if (index >= size) {
+            return;
+        }
+        if (terminated.get()) {
+            complete(index, null, new CancellationException());
+            return;
+        }
+
+        final ListenableFuture<T> future;
+        try {
+            future = submitter.submit(invocations.get(index));
+        } catch (Throwable t) {
+            complete(index, null, t);
+            return;
+        }
+        futures.set(index, future);
+
+        final ScheduledFuture<?> timeoutTask;
+        if (timeoutNanos > 0) {
+            timeoutTask = TIMEOUT_SCHEDULER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (complete(index, null, new TimeoutException("Batch invocation #" + index + " has timed out."))) {
+                        future.cancel(true);
+                    }
+                }
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+        } else {
+            timeoutTask = null;
+        }
+
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (timeoutTask != null) {
+                    timeoutTask.cancel(false);
+                }
+                try {
+                    complete(index, future.get(), null);
+                } catch (ExecutionException ex) {
+                    complete(index, null, ex.getCause() != null ? ex.getCause() : ex);
+                } catch (CancellationException ex) {
+                    complete(index, null, ex);
+                } catch (InterruptedException ex) {
+                    // cannot happen - the future is done
+                    Thread.currentThread().interrupt();
+                    complete(index, null, ex);
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+
+        if (terminated.get()) {
+            // the batch has been terminated while the invocation was being submitted
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Record the invocation result.
+     *
+     * @return {@code true} if the result has been recorded, {@code false} if a result has already been recorded
+     *         for the invocation before (e.g. the invocation has timed out before it completed).
+     */
+    private boolean complete(final int index, final T value, final Throwable failure) {
+        final BatchResult<T> result = new BatchResult<T>(index, invocations.get(index), value, failure);
+        if (!results.compareAndSet(index, null, result)) {
+            return false;
+        }
+        completionQueue.add(result);
+
+        if (failure != null && failFast && aggregate.setException(failure)) {
+            terminate();
+        }
+
+        if (completed.incrementAndGet() == size) {
+            final List<BatchResult<T>> all = new ArrayList<BatchResult<T>>(size);
+            for (int i = 0; i < size; i++) {
+                all.add(results.get(i));
+            }
+            aggregate.set(Collections.unmodifiableList(all));
+        } else if (!terminated.get()) {
+            // an invocation slot has been released
+            startNext();
+        }
+        return true;
+    }
+
+    /**
+     * Terminate the batch - cancel all pending and in-flight invocations.
+     */
+    private void terminate() {
+        if (!terminated.compareAndSet(false, true)) {
+            return;
+        }
+        // claim and cancel the invocations that have not been started yet
+        int index;
+        while ((index = nextIndex.getAndIncrement()) < size) {
+            complete(index, null, new CancellationException());
+        }
+        // cancel the in-flight invocations
+        for (int i = 0; i < size; i++) {
+            final Future<T> future = futures.get(i);
+            if (future != null && results.get(i) == null) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.GenericType;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Invoker of a batch of independent client invocations (scatter-gather).
+ * <p>
+ * The invocations are submitted to the asynchronous client processing pipeline with a bounded
+ * parallelism - at most {@link #maxParallelism(int) max parallelism} invocations are in flight at
+ * any time, the next invocation is submitted as soon as one of the in-flight invocations completes.
+ * Connections are reused among the invocations as far as the client connector supports it.
+ * </p>
+ * <p>
+ * Example:
+ * <pre>
+ * BatchFuture&lt;String&gt; batch = client.batch()
+ *         .maxParallelism(16)
+ *         .timeout(2, TimeUnit.SECONDS)
+ *         .invoke(invocations, String.class);
+ *
+ * BatchResult&lt;String&gt; result;
+ * while ((result = batch.next()) != null) {
+ *     // results are returned in the completion order
+ * }
+ * </pre>
+ * </p>
+ * <p>
+ * The invoker is not thread-safe. A single invoker may be used to submit multiple batches.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+public final class BatchInvoker {
+
+    /**
+     * Default maximal number of invocations of a batch executed in parallel.
+     */
+    public static final int DEFAULT_MAX_PARALLELISM = 10;
+
+    private int maxParallelism = DEFAULT_MAX_PARALLELISM;
+    private long timeoutNanos = 0;
+    private boolean failFast = false;
+
+    /**
+     * Create new batch invoker.
+     */
+    BatchInvoker() {
+    }
+
+    /**
+     * Set the maximal number of batch invocations executed in parallel.
+     *
+     * @param maxParallelism maximal number of in-flight invocations, must be positive.
+     * @return updated batch invoker.
+     */
+    public BatchInvoker maxParallelism(final int maxParallelism) {
+        checkArgument(maxParallelism > 0, "Maximal parallelism must be positive.");
+        this.maxParallelism = maxParallelism;
+        return this;
+    }
+
+    /**
+     * Set the timeout of each single invocation of the batch. An invocation that does not complete
+     * within the timeout is cancelled and its result fails with a {@link java.util.concurrent.TimeoutException}.
+     *
+     * @param timeout timeout value, {@code 0} means no timeout.
+     * @param unit    timeout unit.
+     * @return updated batch invoker.
+     */
+    public BatchInvoker timeout(final long timeout, final TimeUnit unit) {
+        checkArgument(timeout >= 0, "Timeout must not be negative.");
+        this.timeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * Set the batch failure semantics.
+     * <p>
+     * In the fail-fast mode, the first invocation failure (including a time-out) terminates the batch:
+     * the aggregated {@link BatchFuture batch future} fails with the invocation failure and all the pending
+     * and in-flight invocations are cancelled. Otherwise (default), results of all the invocations are collected
+     * and the aggregated future completes successfully even if some of the invocations have failed.
+     * </p>
+     *
+     * @param failFast {@code true} to enable the fail-fast mode.
+     * @return updated batch invoker.
+     */
+    public BatchInvoker failFast(final boolean failFast) {
+        this.failFast = failFast;
+        return this;
+    }
+
+    /**
+     * Submit the invocations of the batch.
+     *
+     * @param <T>          response type.
+     * @param invocations  invocations to be submitted. The invocations must have been created by a Jersey client.
+     * @param responseType Java type the responses should be converted into.
+     * @return batch future.
+     */
+    public <T> BatchFuture<T> invoke(final Collection<? extends Invocation> invocations, final Class<T> responseType) {
+        checkNotNull(responseType, "Response type must not be 'null'.");
+        return submit(invocations, new BatchFuture.Submitter<T>() {
+            @Override
+            public ListenableFuture<T> submit(final JerseyInvocation invocation) {
+                return invocation.submitListenable(responseType);
+            }
+        });
+    }
+
+    /**
+     * Submit the invocations of the batch.
+     *
+     * @param <T>          generic response type.
+     * @param invocations  invocations to be submitted. The invocations must have been created by a Jersey client.
+     * @param responseType type literal representing a generic Java type the responses should be converted into.
+     * @return batch future.
+     */
+    public <T> BatchFuture<T> invoke(final Collection<? extends Invocation> invocations,
+                                     final GenericType<T> responseType) {
+        checkNotNull(responseType, "Response type must not be 'null'.");
+        return submit(invocations, new BatchFuture.Submitter<T>() {
+            @Override
+            public ListenableFuture<T> submit(final JerseyInvocation invocation) {
+                return invocation.submitListenable(responseType);
+            }
+        });
+    }
+
+    private <T> BatchFuture<T> submit(final Collection<? extends Invocation> invocations,
+                                      final BatchFuture.Submitter<T> submitter) {
+        checkNotNull(invocations, "Invocations must not be 'null'.");
+        final List<JerseyInvocation> jerseyInvocations = new ArrayList<JerseyInvocation>(invocations.size());
+        for (Invocation invocation : invocations) {
+            checkArgument(invocation instanceof JerseyInvocation,
+                    "Batch invocations must be created by a Jersey client: %s", invocation);
+            jerseyInvocations.add((JerseyInvocation) invocation);
+        }
+
+        final BatchFuture<T> batch = new BatchFuture<T>(jerseyInvocations, submitter, maxParallelism, timeoutNanos, failFast);
+        batch.start();
+        return batch;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client;
+
+import javax.ws.rs.client.Invocation;
+
+/**
+ * Result of a single invocation executed as part of a {@link BatchInvoker batch}.
+ *
+ * @param <T> response type.
+ * @author agent (agent at local)
+ */
+public final class BatchResult<T> {
+
+    private final int index;
+    private final Invocation invocation;
+    private final T value;
+    private final Throwable failure;
+
+    /**
+     * Create new batch invocation result.
+     *
+     * @param index      index of the invocation in the batch.
+     * @param invocation the invocation.
+     * @param value      invocation response, {@code null} in case of a failure.
+     * @param failure    invocation failure, {@code null} in case the invocation has succeeded.
+     */
+    BatchResult(final int index, final Invocation invocation, final T value, final Throwable failure) {
+        this.index = index;
+        this.invocation = invocation;
+        this.value = value;
+        this.failure = failure;
+    }
+
+    /**
+     * Get the index of the invocation in the submitted batch.
+     *
+     * @return index of the invocation.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the invocation this result belongs to.
+     *
+     * @return the invocation.
+     */
+    public Invocation getInvocation() {
+        return invocation;
+    }
+
+    /**
+     * Check whether the invocation has succeeded.
+     *
+     * @return {@code true} if the invocation has completed successfully, {@code false} otherwise.
+     */
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * Get the invocation response.
+     *
+     * @return invocation response or {@code null} if the invocation has failed.
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * Get the invocation failure. An invocation that timed out fails with a
+     * {@link java.util.concurrent.TimeoutException}, an invocation that has been cancelled
+     * (or has never been started due to a fail-fast batch termination) fails with a
+     * {@link java.util.concurrent.CancellationException}.
+     *
+     * @return invocation failure or {@code null} if the invocation has succeeded.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{index=" + index + (failure == null ? ", value=" + value : ", failure=" + failure) + '}';
+    }
+}
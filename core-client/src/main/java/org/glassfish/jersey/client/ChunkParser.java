@@ -60,6 +60,13 @@ import java.io.InputStream;
  * {@link javax.ws.rs.ext.MessageBodyReader} implementation is selected for de-serialization
  * of the chunk data.
  * </p>
+ * <p>
+ * For efficiency, chunk parsers may read the response entity input stream in blocks and retain
+ * the data read past the end of the returned chunk for the subsequent {@link #readChunk(java.io.InputStream)}
+ * invocation on the same input stream. Such chunk parsers are stateful and a single parser instance
+ * must therefore not be shared by multiple {@link org.glassfish.jersey.client.ChunkedInput chunked inputs}
+ * (e.g. by storing it in a static field); a new parser instance should be created for each chunked input.
+ * </p>
  *
  * @author Marek Potociar (marek.potociar at oracle.com)
  */
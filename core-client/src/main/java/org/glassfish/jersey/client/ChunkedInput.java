@@ -41,14 +41,18 @@
 package org.glassfish.jersey.client;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -57,9 +61,12 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 
 import org.glassfish.jersey.client.internal.LocalizationMessages;
+import org.glassfish.jersey.client.spi.AsyncEntityStream;
 import org.glassfish.jersey.internal.PropertiesDelegate;
 import org.glassfish.jersey.message.MessageBodyWorkers;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Response entity type used for receiving messages in "typed" chunks.
  *
@@ -72,7 +79,15 @@ import org.glassfish.jersey.message.MessageBodyWorkers;
 public class ChunkedInput<T> extends GenericType<T> implements Closeable {
     private static final Logger LOGGER = Logger.getLogger(ChunkedInput.class.getName());
 
+    /**
+     * Thread pool used to read the chunks for the chunk listeners in case the response entity stream
+     * does not support {@link AsyncEntityStream asynchronous data delivery}.
+     */
+    private static final ExecutorService LISTENER_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("jersey-chunked-input-%d").setDaemon(true).build());
+
     private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicBoolean listening = new AtomicBoolean(false);
     private ChunkParser parser = createParser("\r\n");
     private MediaType mediaType;
 
@@ -85,6 +100,12 @@ public class ChunkedInput<T> extends GenericType<T> implements Closeable {
     /**
      * Create new chunk parser that will split the response entity input stream
      * based on a fixed boundary string.
+     * <p>
+     * The returned parser is stateful &ndash; it retains the data read past the end of the returned chunk
+     * as well as a pooled read buffer between the {@link ChunkParser#readChunk(java.io.InputStream)} invocations.
+     * The parser instance must therefore not be shared by multiple chunked inputs (e.g. by storing it
+     * in a static field); a new parser should be created for each chunked input instead.
+     * </p>
      *
      * @param boundary chunk boundary.
      * @return new fixed boundary string-based chunk parser.
@@ -96,6 +117,12 @@ public class ChunkedInput<T> extends GenericType<T> implements Closeable {
     /**
      * Create new chunk parser that will split the response entity input stream
      * based on a fixed boundary sequence of bytes.
+     * <p>
+     * The returned parser is stateful &ndash; it retains the data read past the end of the returned chunk
+     * as well as a pooled read buffer between the {@link ChunkParser#readChunk(java.io.InputStream)} invocations.
+     * The parser instance must therefore not be shared by multiple chunked inputs (e.g. by storing it
+     * in a static field); a new parser should be created for each chunked input instead.
+     * </p>
      *
      * @param boundary chunk boundary.
      * @return new fixed boundary sequence-based chunk parser.
@@ -104,41 +131,235 @@ public class ChunkedInput<T> extends GenericType<T> implements Closeable {
         return new FixedBoundaryParser(boundary);
     }
 
+    /**
+     * Chunk parser splitting the input stream on a fixed boundary.
+     * <p>
+     * The parser reads the input stream in blocks and keeps any data read past the boundary of the returned
+     * chunk for the next {@link #readChunk(java.io.InputStream)} invocation; as such a parser instance must
+     * not be shared by multiple chunked inputs. The boundary is searched for using the Boyer-Moore-Horspool
+     * algorithm with a precomputed skip table.
+     * </p>
+     * <p>
+     * Apart from reading the input stream, the parser can also be {@link #append(byte[], int, int) fed} with
+     * the data pushed to it by an {@link AsyncEntityStream asynchronous entity stream}.
+     * </p>
+     */
     private static class FixedBoundaryParser implements ChunkParser {
         private final byte[] delimiter;
+        private final int[] skipTable;
+
+        private InputStream source;
+        private byte[] buffer;
+        private int start;
+        private int end;
+        private int scanned;
 
         public FixedBoundaryParser(byte[] boundary) {
+            if (boundary.length == 0) {
+                throw new IllegalArgumentException("Chunk boundary must not be empty.");
+            }
             delimiter = Arrays.copyOf(boundary, boundary.length);
+
+            skipTable = new int[256];
+            Arrays.fill(skipTable, delimiter.length);
+            for (int i = 0; i < delimiter.length - 1; i++) {
+                skipTable[delimiter[i] & 0xFF] = delimiter.length - 1 - i;
+            }
         }
 
+        private boolean busy;
+        private boolean releaseRequested;
+
         @Override
         public byte[] readChunk(InputStream in) throws IOException {
-            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            final byte[] delimiterBuffer = new byte[delimiter.length];
-
-            int data;
-            do {
-                int dPos = 0;
-                while ((data = in.read()) != -1) {
-                    final byte b = (byte) data;
-                    if (b == delimiter[dPos]) {
-                        delimiterBuffer[dPos++] = b;
-                        if (dPos == delimiter.length) {
-                            // found chunk delimiter
-                            break;
-                        }
-                    } else if (dPos > 0) {
-                        buffer.write(delimiterBuffer, 0, dPos - 1);
-                        dPos = 0;
+            enter();
+            try {
+                return doReadChunk(in);
+            } finally {
+                exit();
+            }
+        }
+
+        private byte[] doReadChunk(InputStream in) throws IOException {
+            if (in != source) {
+                // new input stream - discard any data carried over from the previous stream
+                source = in;
+                reset();
+            }
+
+            byte[] chunk;
+            while ((chunk = nextChunk()) == null) {
+                ensureCapacity(1);
+                final int read = in.read(buffer, end, buffer.length - end);
+                if (read == -1) {
+                    return drain();
+                }
+                end += read;
+            }
+            return chunk;
+        }
+
+        /**
+         * Append data to the parser buffer.
+         *
+         * @param data   data buffer.
+         * @param offset data offset.
+         * @param length data length.
+         */
+        void append(final byte[] data, final int offset, final int length) {
+            ensureCapacity(length);
+            System.arraycopy(data, offset, buffer, end, length);
+            end += length;
+        }
+
+        /**
+         * Get the next complete non-empty chunk from the buffered data.
+         *
+         * @return next chunk or {@code null} if no complete chunk is buffered.
+         */
+        byte[] nextChunk() {
+            if (buffer == null) {
+                return null;
+            }
+            while (true) {
+                final int index = indexOf(Math.max(start, scanned), end);
+                if (index < 0) {
+                    // the delimiter may still start in the last (delimiter.length - 1) bytes
+                    scanned = Math.max(start, end - delimiter.length + 1);
+                    return null;
+                }
+                final int chunkStart = start;
+                start = scanned = index + delimiter.length;
+                if (index > chunkStart) {
+                    return Arrays.copyOfRange(buffer, chunkStart, index);
+                }
+                // skip empty chunk
+            }
+        }
+
+        /**
+         * Get the remaining buffered data as the last chunk and release the parser buffer.
+         *
+         * @return remaining data or {@code null} if no data are buffered.
+         */
+        byte[] drain() {
+            final byte[] chunk = (buffer != null && end > start) ? Arrays.copyOfRange(buffer, start, end) : null;
+            reset();
+            return chunk;
+        }
+
+        /**
+         * Mark the parser as being used by the current thread.
+         * <p>
+         * Must be followed by the {@link #exit()} invocation once the parser operation completes.
+         * </p>
+         */
+        synchronized void enter() {
+            busy = true;
+        }
+
+        /**
+         * Mark the end of the current parser operation and release the parser buffer if the
+         * {@link #release() release} has been requested in the meantime.
+         */
+        synchronized void exit() {
+            busy = false;
+            if (releaseRequested) {
+                releaseRequested = false;
+                reset();
+            }
+        }
+
+        /**
+         * Discard any buffered data and return the parser buffer to the pool.
+         * <p>
+         * If a parser operation is currently in progress, the buffer is released once the operation completes.
+         * </p>
+         */
+        synchronized void release() {
+            if (busy) {
+                releaseRequested = true;
+            } else {
+                reset();
+            }
+        }
+
+        private void reset() {
+            start = end = scanned = 0;
+            if (buffer != null) {
+                BlockPool.release(buffer);
+                buffer = null;
+            }
+        }
+
+        private void ensureCapacity(final int length) {
+            if (buffer == null) {
+                buffer = BlockPool.acquire();
+            }
+            if (buffer.length - end >= length) {
+                return;
+            }
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                scanned -= start;
+                start = 0;
+            }
+            if (buffer.length - end < length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, end + length));
+            }
+        }
+
+        /**
+         * Find the delimiter in the buffered data.
+         *
+         * @param from search start index (inclusive).
+         * @param to   search end index (exclusive).
+         * @return index of the delimiter start or {@code -1} if not found.
+         */
+        private int indexOf(final int from, final int to) {
+            final int last = delimiter.length - 1;
+            int i = from;
+            while (i <= to - delimiter.length) {
+                int j = last;
+                while (buffer[i + j] == delimiter[j]) {
+                    if (j == 0) {
+                        return i;
                     }
-                    buffer.write(b);
+                    j--;
                 }
-            } while (data != -1 && buffer.size() == 0);
+                i += skipTable[buffer[i + last] & 0xFF];
+            }
+            return -1;
+        }
+    }
 
-            if (buffer.size() > 0) {
-                return buffer.toByteArray();
+    /**
+     * Pool of the block buffers used by the chunk parsers.
+     */
+    private static final class BlockPool {
+        private static final int BLOCK_SIZE = 8192;
+        private static final int MAX_POOLED_BLOCKS = 64;
+
+        private static final Queue<byte[]> BLOCKS = new ConcurrentLinkedQueue<byte[]>();
+        private static final AtomicInteger POOLED = new AtomicInteger();
+
+        static byte[] acquire() {
+            final byte[] block = BLOCKS.poll();
+            if (block == null) {
+                return new byte[BLOCK_SIZE];
+            }
+            POOLED.decrementAndGet();
+            return block;
+        }
+
+        static void release(final byte[] block) {
+            // grown buffers are not pooled
+            if (block.length == BLOCK_SIZE && POOLED.incrementAndGet() <= MAX_POOLED_BLOCKS) {
+                BLOCKS.offer(block);
+            } else if (block.length == BLOCK_SIZE) {
+                POOLED.decrementAndGet();
             }
-            return null;
         }
     }
 
@@ -187,6 +408,10 @@ public class ChunkedInput<T> extends GenericType<T> implements Closeable {
     /**
      * Set new chunk parser.
      * <p>
+     * Chunk parsers may read ahead of the returned chunk; setting a new parser after some chunks have already
+     * been read may therefore cause the data read ahead by the previous parser to be lost.
+     * </p>
+     * <p>
      * Note: Access to internal chunk parser is not a thread-safe operation and has to be explicitly synchronized
      * in case the chunked input is used from multiple threads.
      * </p>
@@ -261,7 +486,7 @@ public class ChunkedInput<T> extends GenericType<T> implements Closeable {
 
     @Override
     public void close() {
-        if (!closed.compareAndSet(false, true)) {
+        if (closed.compareAndSet(false, true)) {
             if (inputStream != null) {
                 try {
                     inputStream.close();
@@ -269,6 +494,11 @@ public class ChunkedInput<T> extends GenericType<T> implements Closeable {
                     LOGGER.log(Level.FINE, LocalizationMessages.CHUNKED_INPUT_STREAM_CLOSING_ERROR(), e);
                 }
             }
+            final ChunkParser currentParser = parser;
+            if (currentParser instanceof FixedBoundaryParser) {
+                // return the read buffer to the pool in case the input has been closed before reaching the EOF
+                ((FixedBoundaryParser) currentParser).release();
+            }
         }
     }
 
@@ -293,30 +523,24 @@ public class ChunkedInput<T> extends GenericType<T> implements Closeable {
      *
      * @return next streamed chunk or {@code null} if the underlying entity input stream
      *         has been closed while reading next chunk data.
-     * @throws IllegalStateException in case this chunked input has been closed.
+     * @throws IllegalStateException in case this chunked input has been closed or is
+     *                               {@link #listen(ChunkListener) consumed by a chunk listener}.
      */
     @SuppressWarnings("HtmlTagCanBeJavadocTag")
     public T read() throws IllegalStateException {
         if (closed.get()) {
             throw new IllegalStateException(LocalizationMessages.CHUNKED_INPUT_CLOSED());
         }
+        if (listening.get()) {
+            throw new IllegalStateException(LocalizationMessages.CHUNKED_INPUT_LISTENER_REGISTERED());
+        }
 
         try {
             final byte[] chunk = parser.readChunk(inputStream);
             if (chunk == null) {
                 close();
             } else {
-                ByteArrayInputStream chunkStream = new ByteArrayInputStream(chunk);
-                //noinspection unchecked
-                return (T) messageBodyWorkers.readFrom(
-                        getRawType(),
-                        getType(),
-                        annotations,
-                        mediaType,
-                        headers,
-                        propertiesDelegate,
-                        chunkStream,
-                        false);
+                return toChunk(chunk);
             }
         } catch (IOException e) {
             Logger.getLogger(this.getClass().getName()).log(Level.FINE, e.getMessage(), e);
@@ -324,4 +548,170 @@ public class ChunkedInput<T> extends GenericType<T> implements Closeable {
         }
         return null;
     }
+
+    /**
+     * Consume the chunked input by a chunk listener instead of {@link #read() reading} the chunks.
+     * <p>
+     * If the response entity stream is provided by a connector that receives the response entity
+     * asynchronously (i.e. the stream is an {@link AsyncEntityStream}) and the {@link #getParser() chunk
+     * parser} is one of the parsers {@link #createParser(String) created} by this class, the chunks are parsed
+     * and converted directly on the connector I/O callbacks and no thread is dedicated to the chunked input.
+     * In such case the listener is invoked by the connector I/O thread and must not block; the connector does
+     * not receive more data for the response until the listener returns, which provides a natural back-pressure.
+     * Otherwise the chunks are read by a thread from a shared thread pool.
+     * </p>
+     * <p>
+     * The listener is notified about the chunks serially. The chunked input is closed before the listener
+     * is {@link ChunkListener#onComplete() notified about the completion} or a {@link ChunkListener#onError(Throwable)
+     * failure}. Closing the chunked input stops the chunk delivery without notifying the listener.
+     * </p>
+     *
+     * @param listener chunk listener.
+     * @throws IllegalStateException in case this chunked input has been closed or is already
+     *                               consumed by a chunk listener.
+     */
+    public void listen(final ChunkListener<? super T> listener) throws IllegalStateException {
+        if (closed.get()) {
+            throw new IllegalStateException(LocalizationMessages.CHUNKED_INPUT_CLOSED());
+        }
+        if (!listening.compareAndSet(false, true)) {
+            throw new IllegalStateException(LocalizationMessages.CHUNKED_INPUT_LISTENER_REGISTERED());
+        }
+
+        final ChunkParser currentParser = parser;
+        if (currentParser instanceof FixedBoundaryParser && inputStream instanceof AsyncEntityStream) {
+            if (((AsyncEntityStream) inputStream).push(new PushReceiver((FixedBoundaryParser) currentParser, listener))) {
+                return;
+            }
+        }
+
+        LISTENER_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Delivery delivery = new Delivery(listener);
+                try {
+                    byte[] chunk;
+                    while (!closed.get() && (chunk = currentParser.readChunk(inputStream)) != null) {
+                        if (!delivery.deliver(chunk)) {
+                            return;
+                        }
+                    }
+                    delivery.complete();
+                } catch (IOException e) {
+                    delivery.fail(e);
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private T toChunk(final byte[] chunk) throws IOException {
+        return (T) messageBodyWorkers.readFrom(
+                getRawType(),
+                getType(),
+                annotations,
+                mediaType,
+                headers,
+                propertiesDelegate,
+                new ByteArrayInputStream(chunk),
+                false);
+    }
+
+    /**
+     * Chunk delivery to a chunk listener ensuring that the listener is notified about the termination
+     * of the chunked input at most once.
+     */
+    private final class Delivery {
+        private final ChunkListener<? super T> listener;
+        private final AtomicBoolean terminated = new AtomicBoolean(false);
+
+        Delivery(final ChunkListener<? super T> listener) {
+            this.listener = listener;
+        }
+
+        boolean deliver(final byte[] chunk) {
+            if (closed.get() || terminated.get()) {
+                return false;
+            }
+            try {
+                listener.onChunk(toChunk(chunk));
+                return true;
+            } catch (Throwable t) {
+                fail(t);
+                return false;
+            }
+        }
+
+        void complete() {
+            if (terminated.compareAndSet(false, true) && !closed.get()) {
+                close();
+                listener.onComplete();
+            }
+        }
+
+        void fail(final Throwable failure) {
+            if (terminated.compareAndSet(false, true) && !closed.get()) {
+                close();
+                listener.onError(failure);
+            }
+        }
+    }
+
+    /**
+     * Receiver parsing the data pushed by an asynchronous entity stream into chunks.
+     */
+    private final class PushReceiver implements AsyncEntityStream.Receiver {
+        private final FixedBoundaryParser chunkParser;
+        private final Delivery delivery;
+
+        PushReceiver(final FixedBoundaryParser chunkParser, final ChunkListener<? super T> listener) {
+            this.chunkParser = chunkParser;
+            this.delivery = new Delivery(listener);
+        }
+
+        @Override
+        public void onData(final byte[] data, final int offset, final int length) {
+            if (closed.get()) {
+                return;
+            }
+            chunkParser.enter();
+            try {
+                chunkParser.append(data, offset, length);
+                byte[] chunk;
+                while ((chunk = chunkParser.nextChunk()) != null) {
+                    if (!delivery.deliver(chunk)) {
+                        chunkParser.drain();
+                        return;
+                    }
+                }
+            } finally {
+                chunkParser.exit();
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            final byte[] chunk;
+            chunkParser.enter();
+            try {
+                chunk = chunkParser.drain();
+            } finally {
+                chunkParser.exit();
+            }
+            if (chunk == null || delivery.deliver(chunk)) {
+                delivery.complete();
+            }
+        }
+
+        @Override
+        public void onError(final Throwable failure) {
+            chunkParser.enter();
+            try {
+                chunkParser.drain();
+            } finally {
+                chunkParser.exit();
+            }
+            delivery.fail(failure);
+        }
+    }
 }
@@ -39,14 +39,23 @@
  */
 package org.glassfish.jersey.client;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.inject.Inject;
+import javax.inject.Provider;
+
 import javax.ws.rs.ConstrainedTo;
 import javax.ws.rs.client.Configuration;
 import javax.ws.rs.core.Configurable;
@@ -58,6 +67,7 @@ import org.glassfish.jersey.internal.inject.AbstractBinder;
 import org.glassfish.jersey.internal.inject.Injections;
 import org.glassfish.jersey.internal.inject.ProviderBinder;
 import org.glassfish.jersey.internal.inject.Providers;
+import org.glassfish.jersey.internal.util.collection.Ref;
 import org.glassfish.jersey.internal.util.collection.Value;
 import org.glassfish.jersey.internal.util.collection.Values;
 
@@ -83,6 +93,227 @@ public class ClientConfig implements Configuration, Config, Configurable {
      */
     private State state;
 
+    /**
+     * Cache of client runtimes shared by all configuration states bound to the same parent
+     * Jersey client.
+     * <p>
+     * Runtimes are keyed by the provider set of the configuration state (provider classes and instances,
+     * custom binders and connector). Configuration states that differ in properties only (e.g. web targets
+     * derived from the same client or invocation builders of a target with a property overlay) thus share
+     * a single runtime; the {@link RuntimeConfiguration configuration injected} into the runtime providers
+     * resolves the properties against the configuration of the request being processed.
+     * </p>
+     * <p>
+     * The cache keeps at most {@value #MAX_RUNTIMES} runtimes. The least recently used runtime is evicted
+     * once the limit is exceeded; it remains usable by the configuration states that already reference it
+     * and its service locator is destroyed as soon as the runtime is not referenced anymore, or once the
+     * parent client is closed at the latest.
+     * </p>
+     */
+    private static final class RuntimeCache implements JerseyClient.LifecycleListener {
+
+        /**
+         * Maximum number of cached runtimes.
+         */
+        private static final int MAX_RUNTIMES = 16;
+
+        private final Map<RuntimeKey, ClientRuntime> runtimes =
+                new LinkedHashMap<RuntimeKey, ClientRuntime>(MAX_RUNTIMES, 0.75f, true);
+        private final Set<EvictedRuntime> evicted = new HashSet<EvictedRuntime>();
+        private final ReferenceQueue<ClientRuntime> released = new ReferenceQueue<ClientRuntime>();
+        private boolean registered = false;
+
+        /**
+         * Get the runtime for the configuration state, creating a new runtime if no runtime has been
+         * created for the same provider set yet.
+         *
+         * @param state configuration state.
+         * @return client runtime for the configuration state.
+         */
+        synchronized ClientRuntime get(final State state) {
+            destroyReleased();
+
+            final RuntimeKey key = new RuntimeKey(state);
+            ClientRuntime runtime = runtimes.get(key);
+            if (runtime == null) {
+                if (!registered) {
+                    state.getClient().addListener(this);
+                    registered = true;
+                }
+                runtime = state.createRuntime();
+                runtimes.put(key, runtime);
+                if (runtimes.size() > MAX_RUNTIMES) {
+                    final Iterator<ClientRuntime> eldest = runtimes.values().iterator();
+                    evicted.add(new EvictedRuntime(eldest.next(), released));
+                    eldest.remove();
+                }
+            }
+            return runtime;
+        }
+
+        /**
+         * Destroy the service locators of the evicted runtimes that are not referenced anymore.
+         */
+        private void destroyReleased() {
+            Reference<? extends ClientRuntime> reference;
+            while ((reference = released.poll()) != null) {
+                if (evicted.remove(reference)) {
+                    ServiceLocatorFactory.getInstance().destroy(((EvictedRuntime) reference).locatorName);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void onClose() {
+            for (ClientRuntime runtime : runtimes.values()) {
+                try {
+                    runtime.close();
+                } finally {
+                    ServiceLocatorFactory.getInstance().destroy(runtime.getServiceLocator().getName());
+                }
+            }
+            for (EvictedRuntime runtime : evicted) {
+                try {
+                    runtime.connector.close();
+                } finally {
+                    ServiceLocatorFactory.getInstance().destroy(runtime.locatorName);
+                }
+            }
+            runtimes.clear();
+            evicted.clear();
+        }
+    }
+
+    /**
+     * Weak reference to a runtime evicted from the {@link RuntimeCache runtime cache} keeping the resources
+     * to be released once the runtime is not referenced anymore.
+     */
+    private static final class EvictedRuntime extends WeakReference<ClientRuntime> {
+
+        private final String locatorName;
+        private final Connector connector;
+
+        EvictedRuntime(final ClientRuntime runtime, final ReferenceQueue<ClientRuntime> queue) {
+            super(runtime, queue);
+            this.locatorName = runtime.getServiceLocator().getName();
+            this.connector = runtime.getConnector();
+        }
+    }
+
+    /**
+     * Provider set of the configuration state used as a {@link RuntimeCache runtime cache} key.
+     */
+    private static final class RuntimeKey {
+
+        private final List<Class<?>> providerClasses;
+        private final List<Object> providerInstances;
+        private final List<Binder> binders;
+        private final Connector connector;
+        private final int hash;
+
+        RuntimeKey(final State state) {
+            // provider registration order is significant
+            this.providerClasses = new ArrayList<Class<?>>(state.providerClasses);
+            this.providerInstances = new ArrayList<Object>(state.providerInstances);
+            this.binders = new ArrayList<Binder>(state.binders);
+            this.connector = state.connector;
+
+            int h = providerClasses.hashCode();
+            h = 31 * h + providerInstances.hashCode();
+            h = 31 * h + binders.hashCode();
+            h = 31 * h + (connector != null ? connector.hashCode() : 0);
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RuntimeKey)) {
+                return false;
+            }
+            final RuntimeKey other = (RuntimeKey) obj;
+            return hash == other.hash
+                    && connector == other.connector
+                    && providerClasses.equals(other.providerClasses)
+                    && providerInstances.equals(other.providerInstances)
+                    && binders.equals(other.binders);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Configuration injected into the providers of a shared client runtime.
+     * <p>
+     * The view delegates to the configuration of the client request currently being processed in the request
+     * scope, so that the providers see the properties of the web target or invocation builder the request
+     * has been created from. Outside of a request processing (e.g. while the runtime providers are being
+     * initialized) the view delegates to the configuration state the runtime has been created for.
+     * </p>
+     */
+    private static final class RuntimeConfiguration implements Configuration, Config {
+
+        private final State state;
+
+        @Inject
+        private Provider<Ref<ClientRequest>> requestRef;
+
+        RuntimeConfiguration(final State state) {
+            this.state = state;
+        }
+
+        private State current() {
+            final Ref<ClientRequest> ref;
+            try {
+                ref = requestRef.get();
+            } catch (RuntimeException e) {
+                // not running in a request scope
+                return state;
+            }
+            final ClientRequest request = ref.get();
+            return request == null ? state : request.getConfiguration().state;
+        }
+
+        @Override
+        public Map<String, Object> getProperties() {
+            return current().getProperties();
+        }
+
+        @Override
+        public Object getProperty(final String name) {
+            return current().getProperty(name);
+        }
+
+        @Override
+        public boolean isProperty(final String name) {
+            return current().isProperty(name);
+        }
+
+        @Override
+        public Set<Feature> getFeatures() {
+            return current().getFeatures();
+        }
+
+        public boolean isEnabled(final Class<? extends Feature> featureClass) {
+            return current().isEnabled(featureClass);
+        }
+
+        @Override
+        public Set<Class<?>> getProviderClasses() {
+            return current().getProviderClasses();
+        }
+
+        @Override
+        public Set<Object> getProviderInstances() {
+            return current().getProviderInstances();
+        }
+    }
+
     /**
      * Default encapsulation of the internal configuration state.
      */
@@ -123,6 +354,7 @@ public class ClientConfig implements Configuration, Config, Configurable {
         private final List<Binder> binders;
 
         private final JerseyClient client;
+        private final RuntimeCache runtimeCache;
         private Connector connector;
 
         private Value<ClientRuntime> runtime = Values.lazy(new Value<ClientRuntime>() {
@@ -156,6 +388,7 @@ public class ClientConfig implements Configuration, Config, Configurable {
          */
         State(JerseyClient client) {
             this.client = client;
+            this.runtimeCache = new RuntimeCache();
             this.strategy = IDENTITY;
 
             this.properties = new HashMap<String, Object>();
@@ -181,6 +414,8 @@ public class ClientConfig implements Configuration, Config, Configurable {
          */
         private State(JerseyClient client, State original) {
             this.client = client;
+            // runtimes can only be shared within the scope of the same parent client
+            this.runtimeCache = client == original.client ? original.runtimeCache : new RuntimeCache();
             this.strategy = IDENTITY;
 
             this.properties = new HashMap<String, Object>(original.properties);
@@ -381,7 +616,11 @@ public class ClientConfig implements Configuration, Config, Configurable {
         }
 
         /**
-         * Initialize the newly constructed client instance.
+         * Initialize the runtime of the configuration state.
+         * <p>
+         * A runtime already created for a configuration state with the same provider set within the scope
+         * of the parent client is reused.
+         * </p>
          */
         private ClientRuntime initRuntime() {
             /**
@@ -390,10 +629,20 @@ public class ClientConfig implements Configuration, Config, Configurable {
              */
             markAsShared();
 
+            return runtimeCache.get(this);
+        }
+
+        /**
+         * Create a new runtime for the configuration state.
+         *
+         * @return new client runtime.
+         */
+        private ClientRuntime createRuntime() {
+            final RuntimeConfiguration configuration = new RuntimeConfiguration(this);
             final AbstractBinder configBinder = new AbstractBinder() {
                 @Override
                 protected void configure() {
-                    bind(State.this).to(Configuration.class).to(Config.class);
+                    bind(configuration).to(Configuration.class).to(Config.class);
                 }
             };
             final ServiceLocator locator;
@@ -406,6 +655,7 @@ public class ClientConfig implements Configuration, Config, Configurable {
                 allBinders.addAll(binders);
                 locator = Injections.createLocator(allBinders.toArray(new Binder[allBinders.size()]));
             }
+            locator.inject(configuration);
 
             final ProviderBinder providerBinder = new ProviderBinder(locator);
 
@@ -413,19 +663,7 @@ public class ClientConfig implements Configuration, Config, Configurable {
             providerBinder.bindInstances(Providers.filterInstancesByConstraint(getProviderInstances(),
                     ConstrainedTo.Type.CLIENT, null));
 
-            final ClientRuntime runtime = new ClientRuntime(connector, locator);
-            client.addListener(new JerseyClient.LifecycleListener() {
-                @Override
-                public void onClose() {
-                    try {
-                        runtime.close();
-                    } finally {
-                        ServiceLocatorFactory.getInstance().destroy(locator.getName());
-                    }
-                }
-            });
-
-            return runtime;
+            return new ClientRuntime(connector, locator);
         }
 
         @Override
@@ -510,13 +748,12 @@ public class ClientConfig implements Configuration, Config, Configurable {
         if (that instanceof ClientConfig) {
             state = ((ClientConfig) that).state.copy(parent);
             if (state.getConnector() == null) {
-                state.setConnector(new HttpUrlConnector());
+                state.setConnector(new HttpUrlConnector(state));
             }
         } else {
             state = new State(parent);
-            state.setConnector(new HttpUrlConnector());
-
             state = state.setProperties(that.getProperties());
+            state.setConnector(new HttpUrlConnector(state));
 
             for (Object provider : that.getProviderInstances()) {
                 state = state.register(provider);
@@ -49,14 +49,16 @@ import javax.ws.rs.client.ClientResponseFilter;
 import javax.ws.rs.core.Response;
 
 import org.glassfish.jersey.internal.inject.Providers;
-import org.glassfish.jersey.process.internal.AbstractChainableStage;
-import org.glassfish.jersey.process.internal.ChainableStage;
 import org.glassfish.jersey.process.internal.PriorityComparator;
 
 import org.glassfish.hk2.api.ServiceLocator;
 
 /**
  * Client filtering stage factory.
+ * <p>
+ * The filters are resolved from the service locator once per {@link ClientRuntime client runtime} and
+ * kept in plain arrays that are then iterated directly by the runtime for each processed request and response.
+ * </p>
  *
  * @author Marek Potociar (marek.potociar at oracle.com)
  */
@@ -67,80 +69,69 @@ class ClientFilteringStages {
     }
 
     /**
-     * Create client request filtering stage using the service locator. May return {@code null}.
+     * Get all {@link ClientRequestFilter client request filters} registered in the service locator
+     * in the order of their execution.
      *
      * @param locator HK2 service locator to be used.
-     * @return configured request filtering stage, or {@code null} in case there are no
-     *         {@link ClientRequestFilter client request filters} registered in the service
-     *         locator.
+     * @return client request filters, an empty array in case there are no request filters registered.
      */
-    static ChainableStage<ClientRequest> createRequestFilteringStage(ServiceLocator locator) {
+    static ClientRequestFilter[] getRequestFilters(ServiceLocator locator) {
         final List<ClientRequestFilter> requestFilters = Providers.getAllProviders(locator, ClientRequestFilter.class,
                 new PriorityComparator<ClientRequestFilter>(PriorityComparator.Order.ASCENDING));
 
-        return !requestFilters.isEmpty() ? new RequestFilteringStage(requestFilters) : null;
+        return requestFilters.toArray(new ClientRequestFilter[requestFilters.size()]);
     }
 
     /**
-     * Create client response filtering stage using the service locator. May return {@code null}.
+     * Get all {@link ClientResponseFilter client response filters} registered in the service locator
+     * in the order of their execution.
      *
      * @param locator HK2 service locator to be used.
-     * @return configured response filtering stage, or {@code null} in case there are no
-     *         {@link ClientResponseFilter client response filters} registered in the service
-     *         locator.
+     * @return client response filters, an empty array in case there are no response filters registered.
      */
-    static ChainableStage<ClientResponse> createResponseFilteringStage(ServiceLocator locator) {
+    static ClientResponseFilter[] getResponseFilters(ServiceLocator locator) {
         final List<ClientResponseFilter> responseFilters = Providers.getAllProviders(
                 locator,
                 ClientResponseFilter.class,
                 new PriorityComparator<ClientResponseFilter>(PriorityComparator.Order.DESCENDING));
 
-        return !responseFilters.isEmpty() ? new ResponseFilterStage(responseFilters) : null;
+        return responseFilters.toArray(new ClientResponseFilter[responseFilters.size()]);
     }
 
-    private static final class RequestFilteringStage extends AbstractChainableStage<ClientRequest> {
-        private final List<ClientRequestFilter> requestFilters;
-
-        private RequestFilteringStage(final List<ClientRequestFilter> requestFilters) {
-            this.requestFilters = requestFilters;
-        }
-
-
-        @Override
-        public Continuation<ClientRequest> apply(ClientRequest requestContext) {
-            for (ClientRequestFilter filter : requestFilters) {
-                try {
-                    filter.filter(requestContext);
-                    final Response abortResponse = requestContext.getAbortResponse();
-                    if (abortResponse != null) {
-                        throw new AbortException(new ClientResponse(requestContext, abortResponse));
-                    }
-                } catch (IOException ex) {
-                    throw new ClientException(ex);
-                }
-            }
-            return Continuation.of(requestContext, getDefaultNext());
-        }
-    }
-
-    private static class ResponseFilterStage extends AbstractChainableStage<ClientResponse> {
-        private final List<ClientResponseFilter> filters;
-
-        private ResponseFilterStage(List<ClientResponseFilter> filters) {
-            this.filters = filters;
-        }
-
-        @Override
-        public Continuation<ClientResponse> apply(ClientResponse responseContext) {
+    /**
+     * Apply the request filters to the client request.
+     *
+     * @param requestContext client request to be filtered.
+     * @param requestFilters request filters.
+     * @throws AbortException in case a filter has aborted the request processing.
+     */
+    static void filterRequest(final ClientRequest requestContext, final ClientRequestFilter[] requestFilters) {
+        for (ClientRequestFilter filter : requestFilters) {
             try {
-                for (ClientResponseFilter filter : filters) {
-                    filter.filter(responseContext.getRequestContext(), responseContext);
+                filter.filter(requestContext);
+                final Response abortResponse = requestContext.getAbortResponse();
+                if (abortResponse != null) {
+                    throw new AbortException(new ClientResponse(requestContext, abortResponse));
                 }
             } catch (IOException ex) {
                 throw new ClientException(ex);
             }
+        }
+    }
 
-            return Continuation.of(responseContext, getDefaultNext());
+    /**
+     * Apply the response filters to the client response.
+     *
+     * @param responseContext client response to be filtered.
+     * @param responseFilters response filters.
+     */
+    static void filterResponse(final ClientResponse responseContext, final ClientResponseFilter[] responseFilters) {
+        try {
+            for (ClientResponseFilter filter : responseFilters) {
+                filter.filter(responseContext.getRequestContext(), responseContext);
+            }
+        } catch (IOException ex) {
+            throw new ClientException(ex);
         }
     }
 }
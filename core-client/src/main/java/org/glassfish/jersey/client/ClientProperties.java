@@ -94,16 +94,19 @@ public final class ClientProperties {
      *
      * The value MUST be an instance convertible to {@link java.lang.Integer}.
      * <p />
-     * If the property is absent then chunked encoding will not be used.
+     * If the property is absent then chunked encoding will not be used, unless
+     * the {@link #HTTP_URL_CONNECTION_STREAMING request entity streaming} is enabled.
      * A value &lt= 0 declares that chunked encoding will be used with
      * the default chunk size. A value &gt 0 declares that chunked encoding
      * will be used with the value as the declared chunk size.
      * <p />
+     * Chunked encoding is used only for request entities which size cannot
+     * be determined before serialization.
+     * <p />
      * A default value is not set.
      * <p />
      * The name of the configuration property is <code>{@value}</code>.
      */
-    // TODO add support (ported from Jersey 1.x).
     @SuppressWarnings("HtmlTagCanBeJavadocTag")
     public static final String CHUNKED_ENCODING_SIZE =
             "jersey.config.client.chunkedEncodingSize";
@@ -137,15 +140,41 @@ public final class ClientProperties {
      * a value &gt; 0 is provided, the created cached thread pool limited to that
      * number of threads will be utilized.
      * <p />
+     * The default {@link HttpUrlConnector} always uses a bounded pool of I/O threads to execute
+     * asynchronous requests. If the property is absent, the pool size defaults to
+     * {@value HttpUrlConnector#DEFAULT_ASYNC_THREADPOOL_SIZE} threads. The connector reads the property
+     * once, when it is created (see {@link HttpUrlConnector#HttpUrlConnector(javax.ws.rs.client.Configuration)}).
+     * <p />
      * A default value is not set.
      * <p />
      * The name of the configuration property is <code>{@value}</code>.
      */
-    // TODO add support (ported from Jersey 1.x).
     @SuppressWarnings("HtmlTagCanBeJavadocTag")
     public static final String ASYNC_THREADPOOL_SIZE =
             "jersey.config.client.async.threadPoolSize";
 
+    /**
+     * Maximal number of concurrently executed asynchronous requests per host (i.e. per
+     * distinct scheme, host and port combination).
+     *
+     * The value MUST be an instance convertible to {@link java.lang.Integer}.
+     * <p />
+     * Asynchronous requests to a host that has reached the limit are queued and executed
+     * in the order of submission once the previous requests to the same host complete.
+     * A value &lt;= 0 declares that the number of concurrent requests per host is limited
+     * only by the {@link #ASYNC_THREADPOOL_SIZE asynchronous thread pool size}.
+     * <p />
+     * The property is currently supported by the default {@link HttpUrlConnector}, which reads
+     * it once, when the connector is created.
+     * <p />
+     * The default value is {@code 0}.
+     * <p />
+     * The name of the configuration property is <code>{@value}</code>.
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String ASYNC_MAX_CONNECTIONS_PER_HOST =
+            "jersey.config.client.async.maxConnectionsPerHost";
+
     /**
      * Support for specifying SSL configuration for HTTPS connections. Used only when making HTTPS requests.
      *
@@ -186,6 +215,100 @@ public final class ClientProperties {
     public static final String HTTP_URL_CONNECTION_SET_METHOD_WORKAROUND =
             "jersey.config.client.httpUrlConnection.setMethodWorkaround";
 
+    /**
+     * A value of {@code true} declares that the default {@link HttpUrlConnector} will stream request
+     * entities directly to the underlying {@link java.net.HttpURLConnection} instead of letting the connection
+     * buffer each request entity fully in memory before it is sent.
+     * <p>
+     * If the size of the request entity is known before serialization, the fixed-length streaming mode
+     * is used. Otherwise chunked transfer encoding is used, with the chunk size set by
+     * {@link #CHUNKED_ENCODING_SIZE}.
+     * </p>
+     * <p>
+     * NOTE: A streamed request cannot be transparently re-sent by {@link java.net.HttpURLConnection}
+     * in case the server has closed a persistent (keep-alive) connection that is about to be reused.
+     * The request fails with an {@link java.io.IOException} instead. Similarly, redirects and authentication
+     * challenges cannot be handled automatically by the connection for streamed requests.
+     * </p>
+     * <p>The value MUST be an instance convertible to {@link java.lang.Boolean}.</p>
+     * <p>The default value is {@code false}.</p>
+     * <p>The name of the configuration property is <code>{@value}</code>.</p>
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String HTTP_URL_CONNECTION_STREAMING =
+            "jersey.config.client.httpUrlConnection.streaming";
+
+    /**
+     * Hedging delay, in milliseconds. A positive value enables hedged requests: if no response to an
+     * asynchronous safe request without an entity ({@code GET}, {@code HEAD}, {@code OPTIONS}) is received
+     * within the delay, a duplicate (hedged) request is sent and whichever response arrives first is used.
+     * The other request is cancelled. Hedging of {@code DELETE} requests must be enabled explicitly
+     * using {@link #HEDGING_DELETE}.
+     * <p />
+     * The number of hedged requests is limited by the {@link #HEDGING_BUDGET hedging budget}.
+     * <p />
+     * The value MUST be an instance convertible to {@link java.lang.Integer}.
+     * <p />
+     * The default value is {@code 0} (hedging disabled).
+     * <p />
+     * The name of the configuration property is <code>{@value}</code>.
+     *
+     * @see HedgingFeature
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String HEDGING_DELAY =
+            "jersey.config.client.hedging.delay";
+
+    /**
+     * Latency percentile used to compute the hedging delay. If set to a value in the range
+     * {@code (0, 100)}, the hedging delay adapts to the given percentile of the recently observed
+     * response latencies. The {@link #HEDGING_DELAY fixed hedging delay} is used until enough latency
+     * samples have been observed.
+     * <p />
+     * The value MUST be an instance convertible to {@link java.lang.Double}.
+     * <p />
+     * The default value is {@code 0} (fixed hedging delay).
+     * <p />
+     * The name of the configuration property is <code>{@value}</code>.
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String HEDGING_PERCENTILE =
+            "jersey.config.client.hedging.percentile";
+
+    /**
+     * Hedging budget - maximal number of hedged requests expressed as a ratio of the number of
+     * the hedging-eligible requests. For example, a value of {@code 0.05} limits the extra load caused
+     * by hedging to 5% so that hedging cannot amplify an outage of a slow backend.
+     * <p />
+     * The value MUST be an instance convertible to {@link java.lang.Double}.
+     * <p />
+     * The default value is {@code 0.05}.
+     * <p />
+     * The name of the configuration property is <code>{@value}</code>.
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String HEDGING_BUDGET =
+            "jersey.config.client.hedging.budget";
+
+    /**
+     * A value of {@code true} declares that {@code DELETE} requests without an entity are hedged too.
+     * <p />
+     * Although idempotent, {@code DELETE} requests have side effects: a hedged duplicate is processed
+     * by the server concurrently with the original request and may trigger the server-side deletion
+     * hooks (e.g. auditing) twice. Enable only if the server handles duplicate deletions gracefully.
+     * <p />
+     * The value MUST be an instance convertible to {@link java.lang.Boolean}.
+     * <p />
+     * The default value is {@code false}.
+     * <p />
+     * The name of the configuration property is <code>{@value}</code>.
+     *
+     * @see #HEDGING_DELAY
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String HEDGING_DELETE =
+            "jersey.config.client.hedging.delete";
+
     private ClientProperties() {
         // prevents instantiation
     }
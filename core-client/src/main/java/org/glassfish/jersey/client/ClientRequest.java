@@ -41,8 +41,12 @@ package org.glassfish.jersey.client;
 
 import java.net.URI;
 import java.util.Enumeration;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.ws.rs.client.ClientRequestContext;
 import javax.ws.rs.core.CacheControl;
@@ -63,6 +67,9 @@ import org.glassfish.jersey.message.internal.OutboundMessageContext;
  * @author Marek Potociar (marek.potociar at oracle.com)
  */
 public class ClientRequest extends OutboundMessageContext implements ClientRequestContext {
+
+    private static final Logger LOGGER = Logger.getLogger(ClientRequest.class.getName());
+
     // Request-scoped configuration instance
     private final ClientConfig configuration;
     // Request-scoped properties delegate
@@ -77,6 +84,8 @@ public class ClientRequest extends OutboundMessageContext implements ClientReque
     private MessageBodyWorkers workers;
     // Flag indicating whether the request is asynchronous
     private boolean asynchronous;
+    // Callbacks invoked if the request processing fails
+    private List<Runnable> failureCallbacks;
 
     /**
      * Create new Jersey client request context.
@@ -353,4 +362,47 @@ public class ClientRequest extends OutboundMessageContext implements ClientReque
     void setAsynchronous(boolean async) {
         asynchronous = async;
     }
+
+    /**
+     * Register a callback to be invoked if the processing of this request fails, i.e. if the request
+     * cannot be sent, no response is received or the response processing fails. The callback is not
+     * invoked if the request processing completes successfully.
+     * <p>
+     * The callback lets a {@link javax.ws.rs.client.ClientRequestFilter request filter} release resources
+     * that are otherwise released by a {@link javax.ws.rs.client.ClientResponseFilter response filter},
+     * which is not invoked in case of a failure. Callbacks registered with a request are not copied
+     * to the {@link #ClientRequest(ClientRequest) request copies}.
+     * </p>
+     *
+     * @param callback failure callback.
+     */
+    public void addFailureCallback(final Runnable callback) {
+        synchronized (this) {
+            if (failureCallbacks == null) {
+                failureCallbacks = new LinkedList<Runnable>();
+            }
+            failureCallbacks.add(callback);
+        }
+    }
+
+    /**
+     * Invoke the registered {@link #addFailureCallback(Runnable) failure callbacks}. Each callback is invoked
+     * at most once.
+     */
+    void notifyFailure() {
+        final List<Runnable> callbacks;
+        synchronized (this) {
+            callbacks = failureCallbacks;
+            failureCallbacks = null;
+        }
+        if (callbacks != null) {
+            for (Runnable callback : callbacks) {
+                try {
+                    callback.run();
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, "Request failure callback invocation failed.", ex);
+                }
+            }
+        }
+    }
 }
@@ -40,33 +40,39 @@
 
 package org.glassfish.jersey.client;
 
-import java.util.Arrays;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 import javax.ws.rs.client.ClientException;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseFilter;
 import javax.ws.rs.core.HttpHeaders;
 
 import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
 import org.glassfish.jersey.client.spi.Connector;
 import org.glassfish.jersey.internal.Version;
-import org.glassfish.jersey.process.internal.ChainableStage;
 import org.glassfish.jersey.process.internal.RequestScope;
-import org.glassfish.jersey.process.internal.Stage;
-import org.glassfish.jersey.process.internal.Stages;
 
 import org.glassfish.hk2.api.ServiceLocator;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
 /**
  * Client-side request processing runtime.
  *
  * @author Marek Potociar (marek.potociar at oracle.com)
  */
 class ClientRuntime {
-    private final Stage<ClientRequest> requestProcessingRoot;
-    private final Stage<ClientResponse> responseProcessingRoot;
+    private final RequestProcessingInitializationStage requestInitializer;
+    private final ClientRequestFilter[] requestFilters;
+    private final ClientResponseFilter[] responseFilters;
 
     private final Connector connector;
+    private final ServiceLocator locator;
+    private final HedgingInvoker hedgingInvoker;
+    private final String userAgent;
 
     private final RequestScope requestScope;
     private final ClientAsyncExecutorsFactory asyncExecutorsFactory;
@@ -78,19 +84,15 @@ class ClientRuntime {
      * @param locator   HK2 service locator.
      */
     public ClientRuntime(final Connector connector, final ServiceLocator locator) {
-        final Stage.Builder<ClientRequest> requestingChainBuilder = Stages
-                .chain(locator.createAndInitialize(RequestProcessingInitializationStage.class));
-        final ChainableStage<ClientRequest> requestFilteringStage =
-                ClientFilteringStages.createRequestFilteringStage(locator);
-        this.requestProcessingRoot = requestFilteringStage != null ?
-                requestingChainBuilder.build(requestFilteringStage) : requestingChainBuilder.build();
-
-        final ChainableStage<ClientResponse> responseFilteringStage =
-                ClientFilteringStages.createResponseFilteringStage(locator);
-        this.responseProcessingRoot = responseFilteringStage != null ?
-                responseFilteringStage : Stages.<ClientResponse>identity();
+        // the processing pipeline is resolved once and then executed directly for each request
+        this.requestInitializer = locator.createAndInitialize(RequestProcessingInitializationStage.class);
+        this.requestFilters = ClientFilteringStages.getRequestFilters(locator);
+        this.responseFilters = ClientFilteringStages.getResponseFilters(locator);
 
         this.connector = connector;
+        this.locator = locator;
+        this.hedgingInvoker = new HedgingInvoker();
+        this.userAgent = createUserAgent(connector.getName());
 
         this.requestScope = locator.getService(RequestScope.class);
         this.asyncExecutorsFactory = new ClientAsyncExecutorsFactory(locator);
@@ -107,6 +109,26 @@ class ClientRuntime {
      * @param callback asynchronous response callback.
      */
     public void submit(final ClientRequest request, final ResponseCallback callback) {
+        submit(request, callback, null);
+    }
+
+    /**
+     * Submit a {@link ClientRequest client request} for asynchronous processing.
+     * <p>
+     * Both, the request processing as well as response callback invocation will be executed
+     * in a context of an active {@link RequestScope.Instance request scope instance}.
+     * </p>
+     * <p>
+     * If the supplied response future gets cancelled, the cancellation is propagated to the
+     * {@link Connector#apply(ClientRequest, AsyncConnectorCallback) asynchronous connector invocation}.
+     * </p>
+     *
+     * @param request        client request to be sent.
+     * @param callback       asynchronous response callback.
+     * @param responseFuture future of the response returned to the client code, may be {@code null}.
+     */
+    public void submit(final ClientRequest request, final ResponseCallback callback,
+                       final ListenableFuture<?> responseFuture) {
         submit(asyncExecutorsFactory.getRequestingExecutor(request), new Runnable() {
 
             @Override
@@ -121,7 +143,7 @@ class ClientRuntime {
                             public void run() {
                                 final ClientResponse processedResponse;
                                 try {
-                                    processedResponse = Stages.process(response, responseProcessingRoot);
+                                    processedResponse = processResponse(response);
                                 } catch (Throwable throwable) {
                                     failure(throwable);
                                     return;
@@ -138,6 +160,7 @@ class ClientRuntime {
                     @Override
                     public void failure(Throwable failure) {
                         try {
+                            request.notifyFailure();
                             callback.failed(failure instanceof ClientException ?
                                     (ClientException) failure : new ClientException(failure));
                         } finally {
@@ -146,7 +169,25 @@ class ClientRuntime {
                     }
                 };
                 try {
-                    connector.apply(addUserAgent(Stages.process(request, requestProcessingRoot), connector.getName()), connectorCallback);
+                    if (responseFuture != null && responseFuture.isCancelled()) {
+                        connectorCallback.failure(new CancellationException());
+                        return;
+                    }
+                    final ClientRequest processedRequest = processRequest(request);
+                    final Connector requestConnector = getConnector(processedRequest);
+                    final Future<?> connectorFuture = hedgingInvoker.isHedged(processedRequest)
+                            ? hedgingInvoker.apply(requestConnector, processedRequest, connectorCallback)
+                            : requestConnector.apply(processedRequest, connectorCallback);
+                    if (responseFuture != null && connectorFuture != null) {
+                        responseFuture.addListener(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (responseFuture.isCancelled()) {
+                                    connectorFuture.cancel(true);
+                                }
+                            }
+                        }, MoreExecutors.sameThreadExecutor());
+                    }
                 } catch (AbortException aborted) {
                     connectorCallback.response(aborted.getAbortResponse());
                 } catch (Throwable throwable) {
@@ -174,17 +215,39 @@ class ClientRuntime {
         });
     }
 
-    private ClientRequest addUserAgent(ClientRequest clientRequest, String connectorName) {
-        if(!clientRequest.getHeaders().containsKey(HttpHeaders.USER_AGENT)) {
-            if(connectorName != null && !connectorName.equals("")) {
-                clientRequest.getHeaders().put(HttpHeaders.USER_AGENT, Arrays.<Object>asList(String.format("Jersey/%s (%s)",
-                        Version.getVersion(), connectorName)));
-            } else {
-                clientRequest.getHeaders().put(HttpHeaders.USER_AGENT, Arrays.<Object>asList(String.format("Jersey/%s",
-                        Version.getVersion())));
-            }
+    private static String createUserAgent(final String connectorName) {
+        if (connectorName != null && !connectorName.equals("")) {
+            return String.format("Jersey/%s (%s)", Version.getVersion(), connectorName);
+        } else {
+            return String.format("Jersey/%s", Version.getVersion());
         }
-        return clientRequest;
+    }
+
+    private ClientRequest processRequest(final ClientRequest request) {
+        requestInitializer.apply(request);
+        if (requestFilters.length > 0) {
+            ClientFilteringStages.filterRequest(request, requestFilters);
+        }
+        if (!request.getHeaders().containsKey(HttpHeaders.USER_AGENT)) {
+            request.getHeaders().putSingle(HttpHeaders.USER_AGENT, userAgent);
+        }
+        return request;
+    }
+
+    /**
+     * Get the connector to be used for the request, taking the {@link LoadBalancingFeature load balancing}
+     * configured for the request into account.
+     */
+    private Connector getConnector(final ClientRequest request) {
+        final LoadBalancer balancer = LoadBalancer.get(request.getConfiguration());
+        return balancer == null ? connector : balancer.getConnector(connector);
+    }
+
+    private ClientResponse processResponse(final ClientResponse response) {
+        if (responseFilters.length > 0) {
+            ClientFilteringStages.filterResponse(response, responseFilters);
+        }
+        return response;
     }
 
     /**
@@ -205,15 +268,18 @@ class ClientRuntime {
         ClientResponse response;
         try {
             try {
-                response = connector.apply(addUserAgent(Stages.process(request, requestProcessingRoot), connector.getName()));
+                final ClientRequest processedRequest = processRequest(request);
+                response = getConnector(processedRequest).apply(processedRequest);
             } catch (AbortException aborted) {
                 response = aborted.getAbortResponse();
             }
 
-            return Stages.process(response, responseProcessingRoot);
+            return processResponse(response);
         } catch (ClientException ex) {
+            request.notifyFailure();
             throw ex;
         } catch (Throwable t) {
+            request.notifyFailure();
             throw new ClientException(t.getMessage(), t);
         }
     }
@@ -227,6 +293,24 @@ class ClientRuntime {
         return requestScope;
     }
 
+    /**
+     * Get the HK2 service locator of the runtime.
+     *
+     * @return runtime service locator.
+     */
+    ServiceLocator getServiceLocator() {
+        return locator;
+    }
+
+    /**
+     * Get the client transport connector of the runtime.
+     *
+     * @return runtime transport connector.
+     */
+    Connector getConnector() {
+        return connector;
+    }
+
     /**
      * Close the client runtime and release the underlying transport connector.
      */
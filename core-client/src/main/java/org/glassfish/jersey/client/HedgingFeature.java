@@ -0,0 +1,116 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client;
+
+import javax.ws.rs.core.Configurable;
+import javax.ws.rs.core.Feature;
+
+/**
+ * Feature that enables hedged asynchronous requests on the client side.
+ * <p>
+ * If no response to an asynchronous safe request ({@code GET}, {@code HEAD}, {@code OPTIONS}) is received
+ * within the hedging delay, a duplicate request is sent and the response that arrives first is used, while
+ * the other request is cancelled. Hedging of {@code DELETE} requests is enabled by
+ * {@link ClientProperties#HEDGING_DELETE}.
+ * The extra load caused by the hedged requests is limited by the hedging budget.
+ * See {@link ClientProperties#HEDGING_DELAY}, {@link ClientProperties#HEDGING_PERCENTILE} and
+ * {@link ClientProperties#HEDGING_BUDGET} for more details. Unless already set in the client configuration
+ * at the time when this feature gets enabled, the property values provided to the feature constructor are used.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+public class HedgingFeature implements Feature {
+
+    /**
+     * Default hedging budget.
+     */
+    public static final double DEFAULT_BUDGET = 0.05;
+
+    private final int delay;
+    private final double percentile;
+    private final double budget;
+
+    /**
+     * Create a new hedging feature with a fixed hedging delay and the {@link #DEFAULT_BUDGET default budget}.
+     *
+     * @param delay hedging delay in milliseconds.
+     */
+    public HedgingFeature(final int delay) {
+        this(delay, 0, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Create a new hedging feature.
+     *
+     * @param delay      (initial) hedging delay in milliseconds.
+     * @param percentile latency percentile the hedging delay adapts to, {@code 0} for a fixed hedging delay.
+     * @param budget     maximal ratio of the hedged requests.
+     */
+    public HedgingFeature(final int delay, final double percentile, final double budget) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("Hedging delay must be positive.");
+        }
+        if (percentile < 0 || percentile >= 100) {
+            throw new IllegalArgumentException("Hedging latency percentile must be in the range [0, 100).");
+        }
+        if (budget < 0) {
+            throw new IllegalArgumentException("Hedging budget must not be negative.");
+        }
+        this.delay = delay;
+        this.percentile = percentile;
+        this.budget = budget;
+    }
+
+    @Override
+    public boolean configure(final Configurable configuration) {
+        // properties take precedence over the constructor values
+        setIfAbsent(configuration, ClientProperties.HEDGING_DELAY, delay);
+        setIfAbsent(configuration, ClientProperties.HEDGING_PERCENTILE, percentile);
+        setIfAbsent(configuration, ClientProperties.HEDGING_BUDGET, budget);
+        return true;
+    }
+
+    private static void setIfAbsent(final Configurable configuration, final String name, final Object value) {
+        if (!configuration.getProperties().containsKey(name)) {
+            configuration.setProperty(name, value);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.ws.rs.HttpMethod;
+
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+import org.glassfish.jersey.internal.util.PropertiesHelper;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Asynchronous connector invoker sending hedged requests.
+ * <p>
+ * If no response to a request is received within the hedging delay, a duplicate request is sent using
+ * the same connector. The first response wins, the other request is cancelled via its connector future
+ * (a late losing response is closed). The number of hedged requests is limited by a lock-free budget
+ * replenished by each hedging-eligible request.
+ * </p>
+ *
+ * @author agent (agent at local)
+ * @see HedgingFeature
+ */
+final class HedgingInvoker {
+
+    /**
+     * Safe methods that are hedged by default. {@code DELETE} is hedged only if enabled
+     * via {@link ClientProperties#HEDGING_DELETE}.
+     */
+    private static final Set<String> HEDGED_METHODS = new HashSet<String>(Arrays.asList(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS));
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jersey-client-hedging-%d").setDaemon(true).build());
+
+    private final Budget budget = new Budget();
+    private final LatencyTracker latencies = new LatencyTracker();
+    private final AtomicLong hedgedRequests = new AtomicLong();
+
+    /**
+     * Check whether the request should be hedged.
+     *
+     * @param request client request.
+     * @return {@code true} if hedging is enabled and the request is eligible for hedging.
+     */
+    boolean isHedged(final ClientRequest request) {
+        final Map<String, Object> properties = request.getConfiguration().getProperties();
+        return getDelay(properties) > 0
+                && isHedgedMethod(request.getMethod(), properties)
+                && !request.hasEntity();
+    }
+
+    private static boolean isHedgedMethod(final String method, final Map<String, Object> properties) {
+        return HEDGED_METHODS.contains(method)
+                || (HttpMethod.DELETE.equals(method)
+                && PropertiesHelper.getValue(properties, ClientProperties.HEDGING_DELETE, Boolean.FALSE));
+    }
+
+    /**
+     * Get the total number of hedged requests sent by the invoker.
+     *
+     * @return number of hedged requests.
+     */
+    long getHedgedRequests() {
+        return hedgedRequests.get();
+    }
+
+    /**
+     * Asynchronously process the request, sending a hedged request if the response is not received within
+     * the hedging delay.
+     *
+     * @param connector client transport connector.
+     * @param request   client request.
+     * @param callback  connector callback.
+     * @return future of the hedged exchange.
+     */
+    Future<?> apply(final Connector connector, final ClientRequest request, final AsyncConnectorCallback callback) {
+        final Map<String, Object> properties = request.getConfiguration().getProperties();
+        budget.deposit(PropertiesHelper.getValue(properties, ClientProperties.HEDGING_BUDGET, HedgingFeature.DEFAULT_BUDGET));
+
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(getDelay(properties));
+        final double percentile = PropertiesHelper.getValue(properties, ClientProperties.HEDGING_PERCENTILE, 0d);
+        if (percentile > 0 && percentile < 100) {
+            final long percentileNanos = latencies.getPercentile(percentile);
+            if (percentileNanos > 0) {
+                delayNanos = percentileNanos;
+            }
+        }
+
+        final HedgedExchange exchange = new HedgedExchange(connector, request, callback);
+        exchange.start(delayNanos);
+        return exchange;
+    }
+
+    private static int getDelay(final Map<String, Object> properties) {
+        return PropertiesHelper.getValue(properties, ClientProperties.HEDGING_DELAY, 0);
+    }
+
+    /**
+     * A single request exchange consisting of the primary and (optionally) the hedged request.
+     */
+    private final class HedgedExchange extends AbstractFuture<ClientResponse> {
+
+        private final Connector connector;
+        private final ClientRequest request;
+        private final AsyncConnectorCallback callback;
+        private final long start = System.nanoTime();
+
+        private final Future<?>[] attempts = new Future<?>[2];
+        private ScheduledFuture<?> hedgeTask;
+        private int launched;
+        private int failed;
+        private boolean finished;
+        private int winner = -1;
+
+        HedgedExchange(final Connector connector, final ClientRequest request, final AsyncConnectorCallback callback) {
+            this.connector = connector;
+            this.request = request;
+            this.callback = callback;
+        }
+
+        void start(final long delayNanos) {
+            synchronized (this) {
+                launched = 1;
+            }
+            final Future<?> primary = connector.apply(request, new AttemptCallback(0));
+            synchronized (this) {
+                attempts[0] = primary;
+                if (finished) {
+                    return;
+                }
+                hedgeTask = SCHEDULER.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        hedge();
+                    }
+                }, delayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                if (finished || !budget.tryWithdraw()) {
+                    return;
+                }
+                launched = 2;
+            }
+            hedgedRequests.incrementAndGet();
+            // the hedged request must not share the (mutable) request context with the primary request
+            final Future<?> hedged = connector.apply(new ClientRequest(request), new AttemptCallback(1));
+            final boolean cancel;
+            synchronized (this) {
+                attempts[1] = hedged;
+                cancel = finished && winner != 1;
+            }
+            if (cancel && hedged != null) {
+                hedged.cancel(true);
+            }
+        }
+
+        private void onResponse(final int attempt, final ClientResponse response) {
+            synchronized (this) {
+                if (finished) {
+                    // late losing response
+                    closeQuietly(response);
+                    return;
+                }
+                finished = true;
+                winner = attempt;
+            }
+            cancelOthers(attempt);
+            latencies.record(System.nanoTime() - start);
+            set(response);
+            callback.response(response);
+        }
+
+        private void onFailure(final Throwable failure) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                failed++;
+                if (failed < launched) {
+                    // the other request may still succeed
+                    return;
+                }
+                finished = true;
+            }
+            cancelOthers(-1);
+            setException(failure);
+            callback.failure(failure);
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            synchronized (this) {
+                if (finished) {
+                    return false;
+                }
+                finished = true;
+            }
+            super.cancel(mayInterruptIfRunning);
+            cancelOthers(-1);
+            callback.failure(new CancellationException());
+            return true;
+        }
+
+        private void cancelOthers(final int attempt) {
+            final ScheduledFuture<?> task;
+            final Future<?>[] others = new Future<?>[2];
+            synchronized (this) {
+                task = hedgeTask;
+                for (int i = 0; i < attempts.length; i++) {
+                    if (i != attempt) {
+                        others[i] = attempts[i];
+                    }
+                }
+            }
+            if (task != null) {
+                task.cancel(false);
+            }
+            for (Future<?> other : others) {
+                if (other != null) {
+                    other.cancel(true);
+                }
+            }
+        }
+
+        private final class AttemptCallback implements AsyncConnectorCallback {
+
+            private final int attempt;
+
+            AttemptCallback(final int attempt) {
+                this.attempt = attempt;
+            }
+
+            @Override
+            public void response(final ClientResponse response) {
+                onResponse(attempt, response);
+            }
+
+            @Override
+            public void failure(final Throwable failure) {
+                onFailure(failure);
+            }
+        }
+    }
+
+    private static void closeQuietly(final ClientResponse response) {
+        final InputStream entityStream = response.getEntityStream();
+        if (entityStream != null) {
+            try {
+                entityStream.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Lock-free hedging budget. Each hedging-eligible request deposits a fraction of a token given by
+     * the budget ratio, each hedged request withdraws a whole token.
+     */
+    private static final class Budget {
+
+        private static final long TOKEN = 1000;
+        private static final long MAX_BALANCE = 10 * TOKEN;
+
+        private final AtomicLong balance = new AtomicLong();
+
+        void deposit(final double ratio) {
+            final long amount = (long) (ratio * TOKEN);
+            if (amount <= 0) {
+                return;
+            }
+            long current;
+            do {
+                current = balance.get();
+                if (current >= MAX_BALANCE) {
+                    return;
+                }
+            } while (!balance.compareAndSet(current, Math.min(MAX_BALANCE, current + amount)));
+        }
+
+        boolean tryWithdraw() {
+            long current;
+            do {
+                current = balance.get();
+                if (current < TOKEN) {
+                    return false;
+                }
+            } while (!balance.compareAndSet(current, current - TOKEN));
+            return true;
+        }
+    }
+
+    /**
+     * Lock-free tracker of the recently observed response latencies.
+     */
+    private static final class LatencyTracker {
+
+        private static final int SAMPLES = 512;
+        private static final int MIN_SAMPLES = 64;
+        private static final int RECOMPUTE_INTERVAL = 64;
+
+        private final AtomicLongArray samples = new AtomicLongArray(SAMPLES);
+        private final AtomicLong count = new AtomicLong();
+
+        private volatile double cachedPercentile;
+        private volatile long cachedValue = -1;
+
+        void record(final long latencyNanos) {
+            final long index = count.getAndIncrement();
+            samples.set((int) (index % SAMPLES), latencyNanos);
+            if ((index + 1) % RECOMPUTE_INTERVAL == 0) {
+                cachedValue = -1;
+            }
+        }
+
+        /**
+         * Get the latency percentile.
+         *
+         * @param percentile requested percentile.
+         * @return latency percentile in nanoseconds or {@code -1} if not enough samples have been observed yet.
+         */
+        long getPercentile(final double percentile) {
+            final long total = count.get();
+            if (total < MIN_SAMPLES) {
+                return -1;
+            }
+            final long cached = cachedValue;
+            if (cached >= 0 && cachedPercentile == percentile) {
+                return cached;
+            }
+
+            final int size = (int) Math.min(total, SAMPLES);
+            final long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            final int index = Math.max(0, (int) Math.ceil(percentile / 100 * size) - 1);
+            final long value = sorted[index];
+
+            cachedPercentile = percentile;
+            cachedValue = value;
+            return value;
+        }
+    }
+}
@@ -44,16 +44,29 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.ws.rs.client.ClientException;
+import javax.ws.rs.client.Configuration;
 import javax.ws.rs.core.MultivaluedMap;
 
 import javax.net.ssl.HttpsURLConnection;
@@ -69,7 +82,8 @@ import org.glassfish.jersey.message.internal.Statuses;
 
 import com.google.common.base.Predicates;
 import com.google.common.collect.Maps;
-import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Default client transport connector using {@link HttpURLConnection}.
@@ -77,8 +91,34 @@ import com.google.common.util.concurrent.MoreExecutors;
  * @author Marek Potociar (marek.potociar at oracle.com)
  */
 public class HttpUrlConnector extends RequestWriter implements Connector {
+    /**
+     * {@code HttpURLConnection.setFixedLengthStreamingMode(long)} method or {@code null} if not available.
+     */
+    private static final Method SET_FIXED_LENGTH_STREAMING_MODE_LONG;
+
+    static {
+        Method method = null;
+        try {
+            method = HttpURLConnection.class.getMethod("setFixedLengthStreamingMode", long.class);
+        } catch (NoSuchMethodException e) {
+            // JDK 6 - only the int variant is available
+        }
+        SET_FIXED_LENGTH_STREAMING_MODE_LONG = method;
+    }
+
+    /**
+     * Default size of the I/O thread pool used to execute asynchronous requests.
+     */
+    public static final int DEFAULT_ASYNC_THREADPOOL_SIZE = 20;
+
+    private static final String NAME = "HttpUrlConnection " + System.getProperty("java.version");
+
     private final ConnectionFactory connectionFactory;
 
+    private final ConcurrentMap<String, HostQueue> hostQueues = new ConcurrentHashMap<String, HostQueue>();
+    private final ExecutorService ioExecutor;
+    private final int maxConnectionsPerHost;
+
     /**
      * A factory for {@link HttpURLConnection} instances.
      * <p>
@@ -111,7 +151,7 @@ public class HttpUrlConnector extends RequestWriter implements Connector {
      * Create default {@link HttpURLConnection}-based Jersey client {@link Connector connector}.
      */
     public HttpUrlConnector() {
-        connectionFactory = null;
+        this(null, null);
     }
 
     /**
@@ -120,7 +160,44 @@ public class HttpUrlConnector extends RequestWriter implements Connector {
      * @param connectionFactory {@link HttpURLConnection} instance factory.
      */
     public HttpUrlConnector(ConnectionFactory connectionFactory) {
+        this(null, connectionFactory);
+    }
+
+    /**
+     * Create default {@link HttpURLConnection}-based Jersey client {@link Connector connector}.
+     * <p>
+     * The size of the asynchronous I/O thread pool ({@link ClientProperties#ASYNC_THREADPOOL_SIZE}) and
+     * the per-host limit of concurrently executed asynchronous requests
+     * ({@link ClientProperties#ASYNC_MAX_CONNECTIONS_PER_HOST}) are read from the supplied configuration.
+     * Later changes of these properties do not affect the created connector.
+     * </p>
+     *
+     * @param configuration client configuration, may be {@code null}.
+     */
+    public HttpUrlConnector(Configuration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * Create default {@link HttpURLConnection}-based Jersey client {@link Connector connector}.
+     *
+     * @param configuration     client configuration, may be {@code null}.
+     * @param connectionFactory {@link HttpURLConnection} instance factory.
+     * @see #HttpUrlConnector(javax.ws.rs.client.Configuration)
+     */
+    public HttpUrlConnector(Configuration configuration, ConnectionFactory connectionFactory) {
         this.connectionFactory = connectionFactory;
+
+        final Map<String, Object> properties = configuration == null
+                ? Collections.<String, Object>emptyMap() : configuration.getProperties();
+        final int poolSize = PropertiesHelper.getValue(properties,
+                ClientProperties.ASYNC_THREADPOOL_SIZE, DEFAULT_ASYNC_THREADPOOL_SIZE);
+        this.maxConnectionsPerHost = PropertiesHelper.getValue(properties,
+                ClientProperties.ASYNC_MAX_CONNECTIONS_PER_HOST, 0);
+        // threads of the fixed pool are started only once the first asynchronous request is submitted
+        this.ioExecutor = Executors.newFixedThreadPool(poolSize > 0 ? poolSize : DEFAULT_ASYNC_THREADPOOL_SIZE,
+                new ThreadFactoryBuilder().setNameFormat("jersey-client-http-url-connector-%d")
+                        .setDaemon(true).build());
     }
 
     private static InputStream getInputStream(final HttpURLConnection uc) throws IOException {
@@ -195,34 +272,196 @@ public class HttpUrlConnector extends RequestWriter implements Connector {
     @Override
     public ClientResponse apply(ClientRequest request) {
         try {
-            return _apply(request);
+            return _apply(request, null);
         } catch (IOException ex) {
             throw new ClientException(ex);
         }
     }
 
+    /**
+     * Asynchronously process the client request.
+     * <p>
+     * The request is executed on a dedicated, bounded pool of I/O threads owned by the connector
+     * (see {@link ClientProperties#ASYNC_THREADPOOL_SIZE}). The number of concurrently executed requests
+     * per host may be further limited (see {@link ClientProperties#ASYNC_MAX_CONNECTIONS_PER_HOST}), requests
+     * exceeding the limit are queued. The pool size and the per-host limit are read from the configuration
+     * supplied when the connector is created.
+     * </p>
+     * <p>
+     * Cancelling the returned future before the response is received removes a queued request or
+     * {@link HttpURLConnection#disconnect() disconnects} the connection of a running request, and the
+     * callback is notified about the failure.
+     * </p>
+     *
+     * @param request  Jersey client request to be sent.
+     * @param callback Jersey asynchronous connector callback.
+     * @return asynchronously executed request handle.
+     */
     @Override
     public Future<?> apply(final ClientRequest request, final AsyncConnectorCallback callback) {
-        return MoreExecutors.sameThreadExecutor().submit(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    callback.response(_apply(request));
-                } catch (IOException ex) {
-                    callback.failure(new ClientException(ex));
-                } catch (Throwable t) {
-                    callback.failure(t);
-                }
+        final AsyncRequest asyncRequest = new AsyncRequest(request, callback);
+        try {
+            final URL url = request.getUri().toURL();
+            asyncRequest.host = getHostQueue(url);
+        } catch (IOException ex) {
+            asyncRequest.fail(new ClientException(ex));
+            return asyncRequest;
+        }
+        asyncRequest.host.submit(asyncRequest);
+        return asyncRequest;
+    }
+
+    private HostQueue getHostQueue(final URL url) {
+        final int port = (url.getPort() == -1) ? url.getDefaultPort() : url.getPort();
+        final String key = url.getProtocol() + "://" + url.getHost() + ":" + port;
+        HostQueue host = hostQueues.get(key);
+        if (host == null) {
+            final HostQueue newHost = new HostQueue(ioExecutor, maxConnectionsPerHost);
+            host = hostQueues.putIfAbsent(key, newHost);
+            if (host == null) {
+                host = newHost;
             }
-        });
+        }
+        return host;
     }
 
     @Override
     public void close() {
-        // do nothing
+        ioExecutor.shutdownNow();
+    }
+
+    /**
+     * Queue of asynchronous requests to a single host, limiting the number of concurrently executed requests.
+     */
+    private static class HostQueue {
+        private final Executor executor;
+        private final int limit;
+        private final Queue<AsyncRequest> pending = new LinkedList<AsyncRequest>();
+        private int active;
+
+        HostQueue(final Executor executor, final int limit) {
+            this.executor = executor;
+            this.limit = limit;
+        }
+
+        void submit(final AsyncRequest request) {
+            synchronized (this) {
+                if (limit > 0 && active >= limit) {
+                    pending.add(request);
+                    return;
+                }
+                active++;
+            }
+            execute(request);
+        }
+
+        boolean remove(final AsyncRequest request) {
+            synchronized (this) {
+                return pending.remove(request);
+            }
+        }
+
+        void release() {
+            final AsyncRequest next;
+            synchronized (this) {
+                next = pending.poll();
+                if (next == null) {
+                    active--;
+                    return;
+                }
+            }
+            execute(next);
+        }
+
+        private void execute(final AsyncRequest request) {
+            try {
+                executor.execute(request);
+            } catch (RejectedExecutionException ex) {
+                // connector closed
+                request.fail(new ClientException(ex));
+                release();
+            }
+        }
+    }
+
+    /**
+     * Asynchronously executed request and its cancellable handle.
+     */
+    private class AsyncRequest extends AbstractFuture<ClientResponse> implements Runnable {
+        private final ClientRequest request;
+        private final AsyncConnectorCallback callback;
+        private volatile HostQueue host;
+        private volatile HttpURLConnection connection;
+
+        AsyncRequest(final ClientRequest request, final AsyncConnectorCallback callback) {
+            this.request = request;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (isDone()) {
+                    // cancelled while waiting for execution
+                    return;
+                }
+                final ClientResponse response = _apply(request, this);
+                if (set(response)) {
+                    callback.response(response);
+                } else {
+                    // cancelled concurrently - release the connection
+                    response.close();
+                }
+            } catch (IOException ex) {
+                fail(new ClientException(ex));
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                connection = null;
+                host.release();
+            }
+        }
+
+        /**
+         * Register the connection used to execute the request.
+         *
+         * @param uc connection used to execute the request.
+         * @throws IOException in case the request has already been cancelled.
+         */
+        void connection(final HttpURLConnection uc) throws IOException {
+            connection = uc;
+            if (isCancelled()) {
+                uc.disconnect();
+                throw new IOException("The request has been cancelled.");
+            }
+        }
+
+        void fail(final Throwable failure) {
+            if (setException(failure)) {
+                callback.failure(failure);
+            }
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            if (!super.cancel(mayInterruptIfRunning)) {
+                return false;
+            }
+
+            final HostQueue currentHost = host;
+            if (currentHost != null) {
+                currentHost.remove(this);
+            }
+            final HttpURLConnection uc = connection;
+            if (uc != null) {
+                uc.disconnect();
+            }
+            callback.failure(new CancellationException());
+            return true;
+        }
     }
 
-    private ClientResponse _apply(final ClientRequest request) throws IOException {
+    private ClientResponse _apply(final ClientRequest request, final AsyncRequest asyncRequest) throws IOException {
         final Map<String, Object> configurationProperties = request.getConfiguration().getProperties();
 
         final HttpURLConnection uc;
@@ -233,6 +472,9 @@ public class HttpUrlConnector extends RequestWriter implements Connector {
         } else {
             uc = this.connectionFactory.getConnection(endpointUrl);
         }
+        if (asyncRequest != null) {
+            asyncRequest.connection(uc);
+        }
         uc.setDoInput(true);
 
         final String httpMethod = request.getMethod();
@@ -255,16 +497,24 @@ public class HttpUrlConnector extends RequestWriter implements Connector {
         if (uc instanceof HttpsURLConnection) {
             HttpsURLConnection suc = (HttpsURLConnection) uc;
             SslConfig sslConfig = PropertiesHelper.getValue(configurationProperties, ClientProperties.SSL_CONFIG, SslConfig.class);
-            if (sslConfig.isHostnameVerifierSet()) {
-                suc.setHostnameVerifier(sslConfig.getHostnameVerifier());
+            if (sslConfig != null) {
+                if (sslConfig.isHostnameVerifierSet()) {
+                    suc.setHostnameVerifier(sslConfig.getHostnameVerifier());
+                }
+                // the same factory instance must be used so that the pooled keep-alive connections are reused
+                suc.setSSLSocketFactory(sslConfig.getSocketFactory());
             }
-            suc.setSSLSocketFactory(sslConfig.getSSLContext().getSocketFactory());
         }
 
         final Object entity = request.getEntity();
         if (entity != null) {
             uc.setDoOutput(true);
 
+            final boolean streaming = PropertiesHelper.getValue(configurationProperties,
+                    ClientProperties.HTTP_URL_CONNECTION_STREAMING, false);
+            final Integer chunkSize = PropertiesHelper.getValue(configurationProperties,
+                    ClientProperties.CHUNKED_ENCODING_SIZE, Integer.class);
+
             if (httpMethod.equalsIgnoreCase("GET")) {
                 final Logger logger = Logger.getLogger(HttpUrlConnector.class.getName());
                 if (logger.isLoggable(Level.INFO)) {
@@ -275,23 +525,12 @@ public class HttpUrlConnector extends RequestWriter implements Connector {
             writeRequestEntity(request, new RequestEntityWriterListener() {
                 @Override
                 public void onRequestEntitySize(long size) {
-                    if (size != -1 && size < Integer.MAX_VALUE) {
-                        // HttpURLConnection uses the int type for content length
-
-                        // this just does not work for several consecutive requests.
-                        // another day wasted on HttpUrlConnection bug :/
-                        // uc.setFixedLengthStreamingMode((int)size);
-                    } else {
-                        // TODO (copied from Jersey 1.x) it appears HttpURLConnection has some bugs in
-                        // chunked encoding
-                        // uc.setChunkedStreamingMode(0);
-
-                        // TODO deal with chunked encoding
-//                        Integer chunkedEncodingSize = (Integer)request.getProperties().get(
-//                                ClientConfig.PROPERTY_CHUNKED_ENCODING_SIZE);
-//                        if (chunkedEncodingSize != null) {
-//                            uc.setChunkedStreamingMode(chunkedEncodingSize);
-//                        }
+                    if (size != -1) {
+                        if (streaming) {
+                            setFixedLengthStreamingMode(uc, size);
+                        }
+                    } else if (streaming || chunkSize != null) {
+                        uc.setChunkedStreamingMode(chunkSize != null ? chunkSize : 0);
                     }
                 }
 
@@ -323,6 +562,33 @@ public class HttpUrlConnector extends RequestWriter implements Connector {
         return responseContext;
     }
 
+    /**
+     * Set the fixed-length streaming mode, using the {@code long} variant of the method where available
+     * (JDK 7 and later).
+     */
+    private static void setFixedLengthStreamingMode(final HttpURLConnection uc, final long size) {
+        if (SET_FIXED_LENGTH_STREAMING_MODE_LONG != null) {
+            try {
+                SET_FIXED_LENGTH_STREAMING_MODE_LONG.invoke(uc, size);
+                return;
+            } catch (IllegalAccessException e) {
+                // fall through
+            } catch (InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+            }
+        }
+
+        if (size <= Integer.MAX_VALUE) {
+            uc.setFixedLengthStreamingMode((int) size);
+        } else {
+            // HttpURLConnection uses the int type for content length on older JDKs
+            uc.setChunkedStreamingMode(0);
+        }
+    }
+
     private void writeOutBoundHeaders(MultivaluedMap<String, String> headers, HttpURLConnection uc) {
         for (Map.Entry<String, List<String>> header : headers.entrySet()) {
             List<String> headerValues = header.getValue();
@@ -368,6 +634,6 @@ public class HttpUrlConnector extends RequestWriter implements Connector {
 
     @Override
     public String getName() {
-        return "HttpUrlConnection " + System.getProperty("java.version");
+        return NAME;
     }
 }
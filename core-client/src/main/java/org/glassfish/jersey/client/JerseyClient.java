@@ -164,6 +164,17 @@ public class JerseyClient implements javax.ws.rs.client.Client {
         return new JerseyWebTarget(link, this);
     }
 
+    /**
+     * Create a new invoker of a batch of independent invocations with bounded parallelism.
+     *
+     * @return new batch invoker.
+     * @see BatchInvoker
+     */
+    public BatchInvoker batch() {
+        checkNotClosed();
+        return new BatchInvoker();
+    }
+
     @Override
     public JerseyInvocation.Builder invocation(Link link) throws NullPointerException, IllegalArgumentException {
         checkNotClosed();
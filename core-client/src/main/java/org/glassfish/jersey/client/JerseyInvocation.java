@@ -74,6 +74,7 @@ import org.glassfish.jersey.internal.util.Producer;
 import org.glassfish.jersey.internal.util.ReflectionHelper;
 import org.glassfish.jersey.process.internal.RequestScope;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
 /**
@@ -642,13 +643,26 @@ public class JerseyInvocation implements javax.ws.rs.client.Invocation {
             public void failed(ClientException error) {
                 responseFuture.setException(error);
             }
-        });
+        }, responseFuture);
 
         return responseFuture;
     }
 
     @Override
     public <T> Future<T> submit(final Class<T> responseType) {
+        return submitListenable(responseType);
+    }
+
+    /**
+     * Submit the request for an asynchronous invocation and receive a listenable future
+     * response of the specified type back.
+     *
+     * @param <T>          response type.
+     * @param responseType Java type the response should be converted into.
+     * @return listenable future response object of the specified type.
+     * @see #submit(Class)
+     */
+    <T> ListenableFuture<T> submitListenable(final Class<T> responseType) {
         final SettableFuture<T> responseFuture = SettableFuture.create();
         configuration().getRuntime().submit(requestContext, new ResponseCallback() {
 
@@ -669,7 +683,7 @@ public class JerseyInvocation implements javax.ws.rs.client.Invocation {
                     responseFuture.setException(error);
                 }
             }
-        });
+        }, responseFuture);
 
         return responseFuture;
     }
@@ -697,6 +711,19 @@ public class JerseyInvocation implements javax.ws.rs.client.Invocation {
 
     @Override
     public <T> Future<T> submit(final GenericType<T> responseType) {
+        return submitListenable(responseType);
+    }
+
+    /**
+     * Submit the request for an asynchronous invocation and receive a listenable future
+     * response of the specified generic type back.
+     *
+     * @param <T>          generic response type.
+     * @param responseType type literal representing a generic Java type the response should be converted into.
+     * @return listenable future response object of the specified generic type.
+     * @see #submit(GenericType)
+     */
+    <T> ListenableFuture<T> submitListenable(final GenericType<T> responseType) {
         final SettableFuture<T> responseFuture = SettableFuture.create();
         configuration().getRuntime().submit(requestContext, new ResponseCallback() {
 
@@ -717,7 +744,7 @@ public class JerseyInvocation implements javax.ws.rs.client.Invocation {
                     responseFuture.setException(error);
                 }
             }
-        });
+        }, responseFuture);
 
         return responseFuture;
     }
@@ -782,7 +809,7 @@ public class JerseyInvocation implements javax.ws.rs.client.Invocation {
                     }
                 }
             };
-            configuration().getRuntime().submit(requestContext, responseCallback);
+            configuration().getRuntime().submit(requestContext, responseCallback, responseFuture);
         } catch (Throwable error) {
             ClientException ce;
             if (error instanceof ClientException) {
@@ -0,0 +1,346 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.client.Configuration;
+
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+
+/**
+ * Client-side load balancer distributing requests across a set of equivalent endpoints.
+ * <p>
+ * The balancer is stored in the client configuration by the {@link LoadBalancingFeature} and applied by
+ * the {@link ClientRuntime client runtime} which sends each request through a {@link #getConnector(Connector)
+ * balancing connector}. The balancing connector selects an endpoint, rewrites the scheme and authority of the
+ * request URI to point to the endpoint and passes the request on to the underlying transport connector, so that
+ * the connections to each endpoint are reused by the transport as usual.
+ * </p>
+ * <p>
+ * All endpoint state is kept in lock-free counters. An endpoint is ejected from the selection after
+ * the configured number of consecutive failures. Once the ejection time elapses, a single probe request is sent
+ * to the endpoint; a successful response brings the endpoint back into the selection, another failure ejects
+ * it again.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+final class LoadBalancer {
+
+    /**
+     * Name of the (internal) configuration property holding the load balancer.
+     */
+    static final String PROPERTY = LoadBalancer.class.getName();
+
+    private static final long NOT_EJECTED = Long.MIN_VALUE;
+
+    private final Endpoint[] endpoints;
+    private final LoadBalancingFeature.Strategy strategy;
+    private final int failureThreshold;
+    private final long ejectionTimeNanos;
+
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private final Random random = new Random();
+
+    private volatile BalancingConnector cachedConnector;
+
+    /**
+     * Create new load balancer.
+     *
+     * @param endpoints        endpoint URIs.
+     * @param strategy         endpoint selection strategy.
+     * @param failureThreshold number of consecutive failures that cause an endpoint ejection.
+     * @param ejectionTime     endpoint ejection time in milliseconds.
+     */
+    LoadBalancer(final List<URI> endpoints, final LoadBalancingFeature.Strategy strategy,
+                 final int failureThreshold, final long ejectionTime) {
+        this.endpoints = new Endpoint[endpoints.size()];
+        for (int i = 0; i < this.endpoints.length; i++) {
+            this.endpoints[i] = new Endpoint(endpoints.get(i));
+        }
+        this.strategy = strategy;
+        this.failureThreshold = failureThreshold;
+        this.ejectionTimeNanos = TimeUnit.MILLISECONDS.toNanos(ejectionTime);
+    }
+
+    /**
+     * Get the load balancer configured in the client configuration.
+     *
+     * @param configuration client configuration.
+     * @return configured load balancer or {@code null} if load balancing is not enabled.
+     */
+    static LoadBalancer get(final Configuration configuration) {
+        final Object balancer = configuration.getProperty(PROPERTY);
+        return balancer instanceof LoadBalancer ? (LoadBalancer) balancer : null;
+    }
+
+    /**
+     * Get a connector balancing the requests across the endpoints using the supplied transport connector.
+     *
+     * @param connector underlying transport connector.
+     * @return balancing connector.
+     */
+    Connector getConnector(final Connector connector) {
+        BalancingConnector balancing = cachedConnector;
+        if (balancing == null || balancing.delegate != connector) {
+            balancing = new BalancingConnector(connector);
+            cachedConnector = balancing;
+        }
+        return balancing;
+    }
+
+    /**
+     * Select an endpoint for the next request.
+     *
+     * @return selected endpoint.
+     */
+    Endpoint select() {
+        final long now = System.nanoTime();
+        Endpoint selected = null;
+        if (strategy == LoadBalancingFeature.Strategy.POWER_OF_TWO_CHOICES && endpoints.length > 1) {
+            final int first = random.nextInt(endpoints.length);
+            final int second = (first + 1 + random.nextInt(endpoints.length - 1)) % endpoints.length;
+            selected = lessLoaded(endpoints[first], endpoints[second], now);
+        }
+        if (selected == null) {
+            selected = selectLeastOutstanding(now);
+        }
+        selected.onSelected(now);
+        return selected;
+    }
+
+    private Endpoint lessLoaded(final Endpoint first, final Endpoint second, final long now) {
+        final boolean firstAvailable = first.isAvailable(now);
+        final boolean secondAvailable = second.isAvailable(now);
+        if (firstAvailable && secondAvailable) {
+            return first.outstanding.get() <= second.outstanding.get() ? first : second;
+        }
+        return firstAvailable ? first : (secondAvailable ? second : null);
+    }
+
+    private Endpoint selectLeastOutstanding(final long now) {
+        final int start = (nextIndex.getAndIncrement() & Integer.MAX_VALUE) % endpoints.length;
+        Endpoint best = null;
+        Endpoint earliestProbe = null;
+        for (int i = 0; i < endpoints.length; i++) {
+            final Endpoint endpoint = endpoints[(start + i) % endpoints.length];
+            if (endpoint.isAvailable(now)) {
+                if (best == null || endpoint.outstanding.get() < best.outstanding.get()) {
+                    best = endpoint;
+                }
+            } else if (earliestProbe == null || endpoint.ejectedUntil.get() - earliestProbe.ejectedUntil.get() < 0) {
+                earliestProbe = endpoint;
+            }
+        }
+        // all endpoints ejected - fail open to the endpoint that is due to be probed first
+        return best != null ? best : earliestProbe;
+    }
+
+    /**
+     * State of a single endpoint.
+     */
+    final class Endpoint {
+
+        private final String schemeAndAuthority;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicLong ejectedUntil = new AtomicLong(NOT_EJECTED);
+
+        private Endpoint(final URI uri) {
+            this.schemeAndAuthority = uri.getScheme() + "://" + uri.getRawAuthority();
+        }
+
+        boolean isAvailable(final long now) {
+            final long until = ejectedUntil.get();
+            return until == NOT_EJECTED || now - until >= 0;
+        }
+
+        void onSelected(final long now) {
+            final long until = ejectedUntil.get();
+            if (until != NOT_EJECTED && now - until >= 0) {
+                // probe request - keep the endpoint out of the selection until the probe completes
+                ejectedUntil.compareAndSet(until, now + ejectionTimeNanos);
+            }
+        }
+
+        /**
+         * Rewrite the scheme and authority of the request URI to point to the endpoint.
+         *
+         * @param uri request URI.
+         * @return request URI rewritten to the endpoint.
+         */
+        URI resolve(final URI uri) {
+            final StringBuilder sb = new StringBuilder(schemeAndAuthority);
+            if (uri.getRawPath() != null) {
+                sb.append(uri.getRawPath());
+            }
+            if (uri.getRawQuery() != null) {
+                sb.append('?').append(uri.getRawQuery());
+            }
+            if (uri.getRawFragment() != null) {
+                sb.append('#').append(uri.getRawFragment());
+            }
+            return URI.create(sb.toString());
+        }
+
+        void onSuccess() {
+            if (consecutiveFailures.get() != 0) {
+                consecutiveFailures.set(0);
+            }
+            if (ejectedUntil.get() != NOT_EJECTED) {
+                ejectedUntil.set(NOT_EJECTED);
+            }
+        }
+
+        void onFailure() {
+            if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                ejectedUntil.set(System.nanoTime() + ejectionTimeNanos);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return schemeAndAuthority;
+        }
+    }
+
+    private static boolean isFailure(final ClientResponse response) {
+        final int status = response.getStatus();
+        // the endpoint is unavailable or overloaded
+        return status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Connector sending each request to a selected endpoint using the underlying transport connector.
+     */
+    private final class BalancingConnector implements Connector {
+
+        private final Connector delegate;
+
+        BalancingConnector(final Connector delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ClientResponse apply(final ClientRequest request) {
+            final Endpoint endpoint = select();
+            request.setUri(endpoint.resolve(request.getUri()));
+
+            endpoint.outstanding.incrementAndGet();
+            try {
+                final ClientResponse response = delegate.apply(request);
+                if (isFailure(response)) {
+                    endpoint.onFailure();
+                } else {
+                    endpoint.onSuccess();
+                }
+                return response;
+            } catch (RuntimeException e) {
+                endpoint.onFailure();
+                throw e;
+            } finally {
+                endpoint.outstanding.decrementAndGet();
+            }
+        }
+
+        @Override
+        public Future<?> apply(final ClientRequest request, final AsyncConnectorCallback callback) {
+            final Endpoint endpoint = select();
+            request.setUri(endpoint.resolve(request.getUri()));
+
+            final AtomicInteger completed = new AtomicInteger();
+            endpoint.outstanding.incrementAndGet();
+            try {
+                return delegate.apply(request, new AsyncConnectorCallback() {
+
+                    @Override
+                    public void response(final ClientResponse response) {
+                        if (completed.getAndIncrement() == 0) {
+                            endpoint.outstanding.decrementAndGet();
+                            if (isFailure(response)) {
+                                endpoint.onFailure();
+                            } else {
+                                endpoint.onSuccess();
+                            }
+                        }
+                        callback.response(response);
+                    }
+
+                    @Override
+                    public void failure(final Throwable failure) {
+                        if (completed.getAndIncrement() == 0) {
+                            endpoint.outstanding.decrementAndGet();
+                            if (!(failure instanceof CancellationException)) {
+                                endpoint.onFailure();
+                            }
+                        }
+                        callback.failure(failure);
+                    }
+                });
+            } catch (RuntimeException e) {
+                if (completed.getAndIncrement() == 0) {
+                    endpoint.outstanding.decrementAndGet();
+                    endpoint.onFailure();
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() {
+            // the underlying connector is closed by the client runtime
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+    }
+}
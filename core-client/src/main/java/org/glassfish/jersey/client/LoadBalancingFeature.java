@@ -0,0 +1,142 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.core.Configurable;
+import javax.ws.rs.core.Feature;
+
+/**
+ * Feature that enables client-side load balancing of requests across a set of equivalent endpoints.
+ * <p>
+ * For each request an endpoint is selected using the configured {@link Strategy strategy} and the scheme
+ * and authority (host and port) of the request URI are replaced with the ones of the selected endpoint;
+ * the request path and query are preserved. Typically the feature is enabled on a web target created for
+ * one of the endpoints:
+ * </p>
+ * <pre>
+ * WebTarget target = client.target(endpoints.get(0));
+ * target.configuration().register(new LoadBalancingFeature(endpoints));
+ * </pre>
+ * <p>
+ * An endpoint is temporarily ejected from the selection after a given number of consecutive failures
+ * (I/O errors or {@code 502}, {@code 503}, {@code 504} responses) and re-probed with a single request once
+ * the ejection time elapses.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+public class LoadBalancingFeature implements Feature {
+
+    /**
+     * Endpoint selection strategy.
+     */
+    public static enum Strategy {
+
+        /**
+         * Select the endpoint with the least number of outstanding requests.
+         */
+        LEAST_OUTSTANDING_REQUESTS,
+        /**
+         * Select two endpoints at random and use the one with less outstanding requests.
+         */
+        POWER_OF_TWO_CHOICES
+    }
+
+    /**
+     * Default number of consecutive failures that cause an endpoint ejection.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    /**
+     * Default endpoint ejection time in milliseconds.
+     */
+    public static final long DEFAULT_EJECTION_TIME = 10000;
+
+    private final LoadBalancer balancer;
+
+    /**
+     * Create a new load balancing feature using the {@link Strategy#POWER_OF_TWO_CHOICES power of two choices}
+     * strategy and the default ejection settings.
+     *
+     * @param endpoints endpoint URIs.
+     */
+    public LoadBalancingFeature(final List<URI> endpoints) {
+        this(endpoints, Strategy.POWER_OF_TWO_CHOICES, DEFAULT_FAILURE_THRESHOLD, DEFAULT_EJECTION_TIME);
+    }
+
+    /**
+     * Create a new load balancing feature.
+     *
+     * @param endpoints        endpoint URIs.
+     * @param strategy         endpoint selection strategy.
+     * @param failureThreshold number of consecutive failures that cause an endpoint ejection.
+     * @param ejectionTime     endpoint ejection time in milliseconds.
+     */
+    public LoadBalancingFeature(final List<URI> endpoints, final Strategy strategy,
+                                final int failureThreshold, final long ejectionTime) {
+        if (endpoints == null || endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint must be specified.");
+        }
+        for (URI endpoint : endpoints) {
+            if (endpoint.getScheme() == null || endpoint.getRawAuthority() == null) {
+                throw new IllegalArgumentException(String.format("Endpoint URI [%s] is not absolute.", endpoint));
+            }
+        }
+        if (strategy == null) {
+            throw new NullPointerException("Load balancing strategy must not be 'null'.");
+        }
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive.");
+        }
+        if (ejectionTime < 0) {
+            throw new IllegalArgumentException("Ejection time must not be negative.");
+        }
+        this.balancer = new LoadBalancer(new ArrayList<URI>(endpoints), strategy, failureThreshold, ejectionTime);
+    }
+
+    @Override
+    public boolean configure(final Configurable configuration) {
+        configuration.setProperty(LoadBalancer.PROPERTY, balancer);
+        return true;
+    }
+}
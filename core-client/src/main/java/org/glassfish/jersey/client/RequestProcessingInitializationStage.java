@@ -43,6 +43,8 @@ import javax.inject.Inject;
 import javax.inject.Provider;
 
 import org.glassfish.jersey.internal.util.collection.Ref;
+import org.glassfish.jersey.internal.util.collection.Value;
+import org.glassfish.jersey.internal.util.collection.Values;
 import org.glassfish.jersey.message.MessageBodyWorkers;
 
 import com.google.common.base.Function;
@@ -56,7 +58,7 @@ import com.google.common.base.Function;
  */
 public class RequestProcessingInitializationStage implements Function<ClientRequest, ClientRequest> {
     private final Provider<Ref<ClientRequest>> requestRefProvider;
-    private final Provider<MessageBodyWorkers> workersProvider;
+    private final Value<MessageBodyWorkers> workers;
 
     /**
      * Create new {@link org.glassfish.jersey.message.MessageBodyWorkers} initialization function
@@ -68,16 +70,22 @@ public class RequestProcessingInitializationStage implements Function<ClientRequ
     @Inject
     public RequestProcessingInitializationStage(
             Provider<Ref<ClientRequest>> requestRefProvider,
-            Provider<MessageBodyWorkers> workersProvider) {
+            final Provider<MessageBodyWorkers> workersProvider) {
         this.requestRefProvider = requestRefProvider;
-        this.workersProvider = workersProvider;
+        // message body workers are a singleton - no need to look them up for every request
+        this.workers = Values.lazy(new Value<MessageBodyWorkers>() {
+            @Override
+            public MessageBodyWorkers get() {
+                return workersProvider.get();
+            }
+        });
     }
 
 
     @Override
     public ClientRequest apply(ClientRequest requestContext) {
         requestRefProvider.get().set(requestContext);
-        requestContext.setWorkers(workersProvider.get());
+        requestContext.setWorkers(workers.get());
 
         return requestContext;
     }
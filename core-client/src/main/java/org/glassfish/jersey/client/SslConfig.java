@@ -44,6 +44,8 @@ import java.security.NoSuchAlgorithmException;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
 
 /**
  * SSL configuration for HTTPS connections.
@@ -51,14 +53,29 @@ import javax.net.ssl.SSLContext;
  * An instance of this class may be added as a property of the {@link ClientConfig}
  * using {@link ClientProperties#SSL_CONFIG}.
  * </p>
+ * <p>
+ * The {@link #getSocketFactory() SSL socket factory} is created only once per SSL configuration instance
+ * so that the connections (as well as the TLS sessions) can be reused across the requests. For the same
+ * reason a single SSL configuration instance should be shared by all the clients connecting to the same servers.
+ * </p>
  *
  * @author Pavel Bucek (pavel.bucek at oracle.com)
  * @author Marek Potociar (marek.potociar at oracle.com)
  */
 public class SslConfig {
 
+    /**
+     * Value of the session cache size or timeout indicating that the default setting of the
+     * {@link SSLContext SSL context} should be kept.
+     */
+    public static final int DEFAULT = -1;
+
     private final HostnameVerifier hostnameVerifier;
     private final SSLContext sslContext;
+    private final int sessionCacheSize;
+    private final int sessionTimeout;
+
+    private volatile SSLSocketFactory socketFactory;
 
     /**
      * Create SSL configuration with no {@link HostnameVerifier}
@@ -90,11 +107,30 @@ public class SslConfig {
      * @param context  the SSL context. Must not be {@code null}.
      */
     public SslConfig(HostnameVerifier verifier, SSLContext context) {
+        this(verifier, context, DEFAULT, DEFAULT);
+    }
+
+    /**
+     * Create SSL configuration with a {@link HostnameVerifier}, a {@link SSLContext} and client-side
+     * TLS session cache settings.
+     *
+     * @param verifier         the hostname verifier.
+     * @param context          the SSL context. Must not be {@code null}.
+     * @param sessionCacheSize maximal number of cached client TLS sessions ({@code 0} means no limit),
+     *                         or {@link #DEFAULT} to keep the setting of the SSL context.
+     * @param sessionTimeout   timeout of the cached client TLS sessions in seconds ({@code 0} means no limit),
+     *                         or {@link #DEFAULT} to keep the setting of the SSL context.
+     */
+    public SslConfig(HostnameVerifier verifier, SSLContext context, int sessionCacheSize, int sessionTimeout) {
         if (context == null)
             throw new IllegalArgumentException("SSLContext must not be null.");
+        if (sessionCacheSize < DEFAULT || sessionTimeout < DEFAULT)
+            throw new IllegalArgumentException("Session cache size and timeout must not be negative.");
 
         this.hostnameVerifier = verifier;
         this.sslContext = context;
+        this.sessionCacheSize = sessionCacheSize;
+        this.sessionTimeout = sessionTimeout;
     }
 
     /**
@@ -104,11 +140,7 @@ public class SslConfig {
      * @param context the SSL context. Must not be {@code null}.
      */
     public SslConfig(SSLContext context) {
-        if (context == null)
-            throw new IllegalArgumentException("SSLContext must not be null.");
-
-        this.hostnameVerifier = null;
-        this.sslContext = context;
+        this(null, context);
     }
 
     /**
@@ -137,4 +169,53 @@ public class SslConfig {
     public SSLContext getSSLContext() {
         return sslContext;
     }
+
+    /**
+     * Get the maximal number of cached client TLS sessions.
+     *
+     * @return session cache size or {@link #DEFAULT} if the setting of the SSL context is used.
+     */
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    /**
+     * Get the timeout of the cached client TLS sessions in seconds.
+     *
+     * @return session timeout or {@link #DEFAULT} if the setting of the SSL context is used.
+     */
+    public int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    /**
+     * Get the {@link SSLSocketFactory SSL socket factory} of the configured {@link #getSSLContext() SSL context}.
+     * <p>
+     * The factory is created (and the session cache settings are applied to the SSL context) only once, upon
+     * the first invocation of this method. Subsequent invocations return the same factory instance.
+     * </p>
+     *
+     * @return the SSL socket factory.
+     */
+    public SSLSocketFactory getSocketFactory() {
+        SSLSocketFactory factory = socketFactory;
+        if (factory == null) {
+            synchronized (this) {
+                factory = socketFactory;
+                if (factory == null) {
+                    final SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+                    if (sessionContext != null) {
+                        if (sessionCacheSize != DEFAULT) {
+                            sessionContext.setSessionCacheSize(sessionCacheSize);
+                        }
+                        if (sessionTimeout != DEFAULT) {
+                            sessionContext.setSessionTimeout(sessionTimeout);
+                        }
+                    }
+                    socketFactory = factory = sslContext.getSocketFactory();
+                }
+            }
+        }
+        return factory;
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client.filter;
+
+import javax.ws.rs.core.Configurable;
+import javax.ws.rs.core.Feature;
+
+/**
+ * Feature that enables the in-memory client-side {@link HttpCacheFilter HTTP response cache}.
+ * <p>
+ * Each feature instance owns a single cache; the cache statistics (hit ratio, saved bytes) are available
+ * via the {@link #getCache() cache filter}.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+public class HttpCacheFeature implements Feature {
+
+    private final HttpCacheFilter cache;
+
+    /**
+     * Create a new instance of the feature with the {@link HttpCacheFilter#DEFAULT_MAX_SIZE default cache size}.
+     */
+    public HttpCacheFeature() {
+        this(HttpCacheFilter.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create a new instance of the feature.
+     *
+     * @param maxSize maximal size of the cached entities in bytes.
+     */
+    public HttpCacheFeature(final long maxSize) {
+        this.cache = new HttpCacheFilter(maxSize);
+    }
+
+    @Override
+    public boolean configure(final Configurable configuration) {
+        configuration.register(cache);
+        return true;
+    }
+
+    /**
+     * Get the HTTP cache filter registered by the feature.
+     *
+     * @return HTTP cache filter.
+     */
+    public HttpCacheFilter getCache() {
+        return cache;
+    }
+}
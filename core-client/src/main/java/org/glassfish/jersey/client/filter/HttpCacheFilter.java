@@ -0,0 +1,611 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.internal.util.collection.StringKeyIgnoreCaseMultivaluedMap;
+import org.glassfish.jersey.message.internal.HttpDateFormat;
+
+/**
+ * Client filter providing a private, in-memory HTTP response cache.
+ * <p>
+ * Successful responses to {@code GET} requests are cached according to their {@code Cache-Control}
+ * ({@code no-store}, {@code no-cache}, {@code max-age}) and {@code Expires} headers. Fresh responses
+ * are served directly from the cache by {@link ClientRequestContext#abortWith(Response) aborting}
+ * the request. Stale responses carrying an {@code ETag} or a {@code Last-Modified} header are revalidated
+ * using a conditional request ({@code If-None-Match}, {@code If-Modified-Since}); a {@code 304 Not Modified}
+ * response is then replaced with the cached response. Concurrent cache misses for the same URI are collapsed
+ * so that only a single request is sent to the server while the other requests wait for its response.
+ * If the request sent to the server fails, the waiting requests are released immediately and sent to the server.
+ * A successful response to an unsafe request invalidates the cached response for the request URI.
+ * </p>
+ * <p>
+ * The cache is bounded by the total size of the cached entities and evicts the least recently used
+ * responses first. Responses with an entity larger than 1/8 of the cache size are not cached.
+ * </p>
+ *
+ * @author agent (agent at local)
+ * @see HttpCacheFeature
+ */
+public final class HttpCacheFilter implements ClientRequestFilter, ClientResponseFilter {
+
+    /**
+     * Default maximal size of the cached entities in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 10 * 1024 * 1024;
+
+    /**
+     * Maximal time a collapsed request waits for the response of the request sent to the server.
+     */
+    private static final long COLLAPSED_REQUEST_TIMEOUT = 5000;
+
+    private static final String AGE = "Age";
+    private static final String CACHE_KEY_PROPERTY = HttpCacheFilter.class.getName() + ".key";
+    private static final String CACHED_RESPONSE_PROPERTY = HttpCacheFilter.class.getName() + ".cached";
+    private static final String REVALIDATED_ENTRY_PROPERTY = HttpCacheFilter.class.getName() + ".revalidated";
+    private static final String LEADER_PROPERTY = HttpCacheFilter.class.getName() + ".leader";
+
+    private final Store store;
+    private final ConcurrentMap<String, CountDownLatch> inFlight = new ConcurrentHashMap<String, CountDownLatch>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * Create new HTTP cache filter with the {@link #DEFAULT_MAX_SIZE default cache size}.
+     */
+    public HttpCacheFilter() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create new HTTP cache filter.
+     *
+     * @param maxSize maximal size of the cached entities in bytes.
+     */
+    public HttpCacheFilter(final long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive.");
+        }
+        this.store = new Store(maxSize);
+    }
+
+    @Override
+    public void filter(final ClientRequestContext request) throws IOException {
+        if (!HttpMethod.GET.equals(request.getMethod())) {
+            return;
+        }
+        final Directives directives = Directives.parse(getHeader(request.getHeaders(), HttpHeaders.CACHE_CONTROL));
+        if (directives.noStore) {
+            return;
+        }
+
+        final String key = request.getUri().toString();
+        request.setProperty(CACHE_KEY_PROPERTY, key);
+
+        CacheEntry entry = store.get(key, request.getHeaders());
+        if (entry == null || !entry.isFresh()) {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final CountDownLatch leader = inFlight.putIfAbsent(key, latch);
+            if (leader == null) {
+                request.setProperty(LEADER_PROPERTY, latch);
+                if (request instanceof ClientRequest) {
+                    // the response filter is not invoked if the request fails
+                    ((ClientRequest) request).addFailureCallback(new Runnable() {
+                        @Override
+                        public void run() {
+                            releaseLeader(key, latch);
+                        }
+                    });
+                }
+            } else {
+                awaitLeader(key, leader);
+                entry = store.get(key, request.getHeaders());
+            }
+        }
+
+        if (entry == null) {
+            return;
+        }
+        if (entry.isFresh() && !directives.noCache) {
+            hits.incrementAndGet();
+            bytesSaved.addAndGet(entry.entity.length);
+            request.setProperty(CACHED_RESPONSE_PROPERTY, Boolean.TRUE);
+            request.abortWith(entry.toResponse());
+            return;
+        }
+
+        final MultivaluedMap<String, Object> headers = request.getHeaders();
+        if (headers.containsKey(HttpHeaders.IF_NONE_MATCH) || headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)) {
+            // conditional request issued by the application
+            return;
+        }
+        if (entry.etag != null) {
+            headers.putSingle(HttpHeaders.IF_NONE_MATCH, entry.etag);
+        }
+        if (entry.lastModified != null) {
+            headers.putSingle(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+        }
+        if (entry.etag != null || entry.lastModified != null) {
+            request.setProperty(REVALIDATED_ENTRY_PROPERTY, entry);
+        }
+    }
+
+    @Override
+    public void filter(final ClientRequestContext request, final ClientResponseContext response) throws IOException {
+        if (!HttpMethod.GET.equals(request.getMethod()) && !HttpMethod.HEAD.equals(request.getMethod())
+                && !HttpMethod.OPTIONS.equals(request.getMethod())) {
+            if (response.getStatus() < 400) {
+                store.remove(request.getUri().toString());
+            }
+            return;
+        }
+
+        final String key = (String) request.getProperty(CACHE_KEY_PROPERTY);
+        if (key == null || request.getProperty(CACHED_RESPONSE_PROPERTY) != null) {
+            return;
+        }
+
+        final CountDownLatch leader = (CountDownLatch) request.getProperty(LEADER_PROPERTY);
+        try {
+            final CacheEntry revalidated = (CacheEntry) request.getProperty(REVALIDATED_ENTRY_PROPERTY);
+            if (revalidated != null && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+                final CacheEntry updated = revalidated.update(response.getHeaders());
+                if (updated != null) {
+                    store.put(key, updated);
+                } else {
+                    store.remove(key);
+                }
+                hits.incrementAndGet();
+                bytesSaved.addAndGet(revalidated.entity.length);
+
+                final CacheEntry served = updated != null ? updated : revalidated;
+                response.setStatus(served.status);
+                response.getHeaders().clear();
+                for (Map.Entry<String, List<String>> header : served.headers.entrySet()) {
+                    response.getHeaders().put(header.getKey(), new ArrayList<String>(header.getValue()));
+                }
+                response.setEntityStream(new ByteArrayInputStream(served.entity));
+                return;
+            }
+
+            misses.incrementAndGet();
+            if (response.getStatus() == Response.Status.OK.getStatusCode()) {
+                cache(key, request, response);
+            } else if (revalidated != null) {
+                store.remove(key);
+            }
+        } finally {
+            if (leader != null) {
+                releaseLeader(key, leader);
+            }
+        }
+    }
+
+    private void cache(final String key, final ClientRequestContext request, final ClientResponseContext response)
+            throws IOException {
+        final Map<String, String> vary = new HashMap<String, String>();
+        final String varyHeader = getHeader(response.getHeaders(), HttpHeaders.VARY);
+        if (varyHeader != null) {
+            for (String name : varyHeader.split(",")) {
+                name = name.trim();
+                if (name.equals("*")) {
+                    store.remove(key);
+                    return;
+                }
+                if (name.length() > 0) {
+                    vary.put(name, getHeader(request.getHeaders(), name));
+                }
+            }
+        }
+
+        final MultivaluedMap<String, String> headers = new StringKeyIgnoreCaseMultivaluedMap<String>();
+        for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            headers.put(header.getKey(), new ArrayList<String>(header.getValue()));
+        }
+        if (!CacheEntry.isCacheable(headers)) {
+            store.remove(key);
+            return;
+        }
+
+        final byte[] entity = response.hasEntity() ? readEntity(response) : new byte[0];
+        if (entity == null) {
+            store.remove(key);
+            return;
+        }
+        store.put(key, CacheEntry.create(response.getStatus(), headers, entity, vary));
+    }
+
+    /**
+     * Buffer the response entity unless it exceeds the maximal cache entry size.
+     *
+     * @return buffered entity, {@code null} if the entity is too large to be cached.
+     */
+    private byte[] readEntity(final ClientResponseContext response) throws IOException {
+        final InputStream in = response.getEntityStream();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (out.size() > store.maxEntrySize) {
+                // too large - pass the rest of the entity stream through
+                response.setEntityStream(new SequenceInputStream(new ByteArrayInputStream(out.toByteArray()), in));
+                return null;
+            }
+        }
+        in.close();
+
+        final byte[] entity = out.toByteArray();
+        response.setEntityStream(new ByteArrayInputStream(entity));
+        return entity;
+    }
+
+    private void awaitLeader(final String key, final CountDownLatch leader) {
+        try {
+            if (!leader.await(COLLAPSED_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                // the leading request takes too long; release the other waiting requests
+                releaseLeader(key, leader);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void releaseLeader(final String key, final CountDownLatch leader) {
+        inFlight.remove(key, leader);
+        leader.countDown();
+    }
+
+    /**
+     * Get the number of requests served from the cache, including successfully revalidated responses.
+     *
+     * @return number of cache hits.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of cacheable requests that had to be served by the server.
+     *
+     * @return number of cache misses.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Get the ratio of the cache hits to all cacheable requests.
+     *
+     * @return cache hit ratio in the range {@code [0, 1]}.
+     */
+    public double getHitRatio() {
+        final long hitCount = hits.get();
+        final long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Get the total number of entity bytes served from the cache instead of being transferred from the server.
+     *
+     * @return number of saved entity bytes.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * Get the current size of the cached entities in bytes.
+     *
+     * @return current cache size.
+     */
+    public long getSize() {
+        return store.getSize();
+    }
+
+    /**
+     * Remove all cached responses.
+     */
+    public void clear() {
+        store.clear();
+    }
+
+    private static String getHeader(final MultivaluedMap<String, ?> headers, final String name) {
+        final List<?> values = headers.get(name);
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        if (values.size() == 1) {
+            return String.valueOf(values.get(0));
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (Object value : values) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(value);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parsed {@code Cache-Control} directives relevant for a private client cache.
+     */
+    private static final class Directives {
+
+        private static final Directives EMPTY = new Directives();
+
+        private boolean noStore;
+        private boolean noCache;
+        private long maxAge = -1;
+
+        static Directives parse(final String cacheControl) {
+            if (cacheControl == null) {
+                return EMPTY;
+            }
+            final Directives directives = new Directives();
+            for (String directive : cacheControl.split(",")) {
+                directive = directive.trim().toLowerCase(Locale.ENGLISH);
+                if (directive.equals("no-store")) {
+                    directives.noStore = true;
+                } else if (directive.startsWith("no-cache")) {
+                    directives.noCache = true;
+                } else if (directive.startsWith("max-age=")) {
+                    directives.maxAge = parseSeconds(directive.substring("max-age=".length()));
+                }
+            }
+            return directives;
+        }
+    }
+
+    private static long parseSeconds(String value) {
+        value = value.trim();
+        if (value.startsWith("\"") && value.endsWith("\"") && value.length() > 1) {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            return Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long parseDate(final String date, final long defaultValue) {
+        if (date == null) {
+            return defaultValue;
+        }
+        try {
+            return HttpDateFormat.readDate(date).getTime();
+        } catch (ParseException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Immutable cached response.
+     */
+    private static final class CacheEntry {
+
+        private final int status;
+        private final MultivaluedMap<String, String> headers;
+        private final byte[] entity;
+        private final Map<String, String> vary;
+        private final long expires;
+        private final String etag;
+        private final String lastModified;
+
+        private CacheEntry(final int status, final MultivaluedMap<String, String> headers, final byte[] entity,
+                           final Map<String, String> vary, final long expires) {
+            this.status = status;
+            this.headers = headers;
+            this.entity = entity;
+            this.vary = vary;
+            this.expires = expires;
+            this.etag = headers.getFirst(HttpHeaders.ETAG);
+            this.lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        }
+
+        static boolean isCacheable(final MultivaluedMap<String, String> headers) {
+            if (Directives.parse(getHeader(headers, HttpHeaders.CACHE_CONTROL)).noStore) {
+                return false;
+            }
+            return getFreshnessLifetime(headers) > 0
+                    || headers.containsKey(HttpHeaders.ETAG)
+                    || headers.containsKey(HttpHeaders.LAST_MODIFIED);
+        }
+
+        static CacheEntry create(final int status, final MultivaluedMap<String, String> headers, final byte[] entity,
+                                 final Map<String, String> vary) {
+            return new CacheEntry(status, headers, entity, vary, System.currentTimeMillis() + getFreshnessLifetime(headers));
+        }
+
+        /**
+         * Get the freshness lifetime of the response in milliseconds, reduced by the current age of the response.
+         */
+        private static long getFreshnessLifetime(final MultivaluedMap<String, String> headers) {
+            final Directives directives = Directives.parse(getHeader(headers, HttpHeaders.CACHE_CONTROL));
+            if (directives.noCache) {
+                return 0;
+            }
+
+            final long lifetime;
+            if (directives.maxAge >= 0) {
+                lifetime = TimeUnit.SECONDS.toMillis(directives.maxAge);
+            } else if (headers.containsKey(HttpHeaders.EXPIRES)) {
+                final long date = parseDate(headers.getFirst(HttpHeaders.DATE), System.currentTimeMillis());
+                // an invalid Expires value means the response has already expired
+                lifetime = parseDate(headers.getFirst(HttpHeaders.EXPIRES), date) - date;
+            } else {
+                return 0;
+            }
+
+            final String age = headers.getFirst(AGE);
+            return lifetime - (age == null ? 0 : TimeUnit.SECONDS.toMillis(parseSeconds(age)));
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() < expires;
+        }
+
+        boolean matches(final MultivaluedMap<String, Object> requestHeaders) {
+            for (Map.Entry<String, String> header : vary.entrySet()) {
+                final String value = getHeader(requestHeaders, header.getKey());
+                if (value == null ? header.getValue() != null : !value.equals(header.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Create an updated entry using the headers of a {@code 304 Not Modified} response.
+         *
+         * @return updated entry or {@code null} if the response must not be cached anymore.
+         */
+        CacheEntry update(final MultivaluedMap<String, String> notModifiedHeaders) {
+            final MultivaluedMap<String, String> updated = new StringKeyIgnoreCaseMultivaluedMap<String>();
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                updated.put(header.getKey(), new ArrayList<String>(header.getValue()));
+            }
+            for (Map.Entry<String, List<String>> header : notModifiedHeaders.entrySet()) {
+                final String name = header.getKey();
+                if (!name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH) && !name.equalsIgnoreCase("Transfer-Encoding")) {
+                    updated.put(name, new ArrayList<String>(header.getValue()));
+                }
+            }
+            return isCacheable(updated) ? create(status, updated, entity, vary) : null;
+        }
+
+        Response toResponse() {
+            final Response.ResponseBuilder builder = Response.status(status).entity(entity);
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                for (String value : header.getValue()) {
+                    builder.header(header.getKey(), value);
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Least recently used cache store bounded by the total size of the cached entities.
+     */
+    private static final class Store {
+
+        private final long maxSize;
+        private final long maxEntrySize;
+        private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+        private long size;
+
+        Store(final long maxSize) {
+            this.maxSize = maxSize;
+            this.maxEntrySize = Math.max(1, maxSize / 8);
+        }
+
+        synchronized CacheEntry get(final String key, final MultivaluedMap<String, Object> requestHeaders) {
+            final CacheEntry entry = entries.get(key);
+            return entry == null || !entry.matches(requestHeaders) ? null : entry;
+        }
+
+        synchronized void put(final String key, final CacheEntry entry) {
+            final CacheEntry previous = entries.put(key, entry);
+            if (previous != null) {
+                size -= previous.entity.length;
+            }
+            size += entry.entity.length;
+
+            final Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                final CacheEntry eldest = iterator.next();
+                if (eldest == entry) {
+                    break;
+                }
+                iterator.remove();
+                size -= eldest.entity.length;
+            }
+        }
+
+        synchronized void remove(final String key) {
+            final CacheEntry removed = entries.remove(key);
+            if (removed != null) {
+                size -= removed.entity.length;
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            size = 0;
+        }
+
+        synchronized long getSize() {
+            return size;
+        }
+    }
+}
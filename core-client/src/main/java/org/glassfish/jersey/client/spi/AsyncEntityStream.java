@@ -0,0 +1,99 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client.spi;
+
+/**
+ * Response entity input stream that is able to push the response entity data to a receiver
+ * as they arrive, instead of being read by a blocking consumer.
+ * <p>
+ * {@link Connector Connectors} receiving the response entity asynchronously (in body parts delivered by
+ * I/O callbacks) may implement this interface on the response entity input streams they provide. Consumers
+ * such as {@link org.glassfish.jersey.client.ChunkedInput} are then able to process the response entity
+ * directly on the connector I/O callbacks without dedicating a thread to each response entity stream.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+public interface AsyncEntityStream {
+
+    /**
+     * Receiver of the response entity data.
+     * <p>
+     * The receiver methods are invoked serially, typically by a connector I/O thread. Since the connector does
+     * not receive more data while the receiver is processing the data pushed to it, the receiver provides
+     * a natural back-pressure; for the same reason the receiver methods must not block.
+     * </p>
+     */
+    public static interface Receiver {
+
+        /**
+         * Invoked when a new part of the response entity data has been received.
+         *
+         * @param data   data buffer. The receiver must not retain the buffer after the method returns.
+         * @param offset offset of the received data in the buffer.
+         * @param length length of the received data.
+         */
+        public void onData(byte[] data, int offset, int length);
+
+        /**
+         * Invoked once all the response entity data have been received.
+         */
+        public void onComplete();
+
+        /**
+         * Invoked if the response entity data could not be received.
+         *
+         * @param failure failure cause.
+         */
+        public void onError(Throwable failure);
+    }
+
+    /**
+     * Switch the stream into the push mode. Any data already buffered by the stream are pushed to the receiver
+     * first, followed by the data received subsequently. Once switched into the push mode, the stream must not
+     * be read from any more; {@link java.io.InputStream#close() closing} the stream stops the data delivery.
+     *
+     * @param receiver response entity data receiver.
+     * @return {@code true} if the stream has been switched into the push mode, {@code false} if the push
+     *         mode is not available (e.g. because some data have already been read from the stream), in which
+     *         case the stream remains in the blocking mode.
+     */
+    public boolean push(Receiver receiver);
+}
@@ -0,0 +1,140 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link ChunkedInput} chunk parser test.
+ *
+ * @author agent (agent at local)
+ */
+public class ChunkedInputTest {
+
+    /**
+     * Input stream returning at most the specified number of bytes per read, so that the chunk
+     * boundaries span multiple reads.
+     */
+    private static class TrickleInputStream extends InputStream {
+        private final InputStream in;
+        private final int maxRead;
+
+        TrickleInputStream(final String data, final int maxRead) {
+            this.in = new ByteArrayInputStream(data.getBytes());
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return in.read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return in.read(b, off, Math.min(len, maxRead));
+        }
+    }
+
+    private static List<String> parse(final ChunkParser parser, final InputStream in) throws IOException {
+        final List<String> chunks = new ArrayList<String>();
+        byte[] chunk;
+        while ((chunk = parser.readChunk(in)) != null) {
+            chunks.add(new String(chunk));
+        }
+        return chunks;
+    }
+
+    @Test
+    public void testCrLfBoundary() throws IOException {
+        for (int maxRead = 1; maxRead < 10; maxRead++) {
+            assertEquals(Arrays.asList("one", "two", "three"),
+                    parse(ChunkedInput.createParser("\r\n"), new TrickleInputStream("one\r\ntwo\r\nthree\r\n", maxRead)));
+        }
+    }
+
+    @Test
+    public void testEmptyChunksSkipped() throws IOException {
+        assertEquals(Arrays.asList("a", "b"),
+                parse(ChunkedInput.createParser("\n\n"), new TrickleInputStream("\n\na\n\n\n\nb\n\n", 3)));
+    }
+
+    @Test
+    public void testTrailingDataWithoutBoundary() throws IOException {
+        assertEquals(Arrays.asList("first", "last"),
+                parse(ChunkedInput.createParser("|"), new TrickleInputStream("first|last", 2)));
+    }
+
+    @Test
+    public void testLongBoundaryWithPartialMatches() throws IOException {
+        final String data = "--BOUN-D--BOUNDARY--x--BOUNDARY----BOUNDAR--BOUNDARY--";
+        for (int maxRead = 1; maxRead < 20; maxRead++) {
+            assertEquals(Arrays.asList("--BOUN-D", "x", "--BOUNDAR"),
+                    parse(ChunkedInput.createParser("--BOUNDARY--"), new TrickleInputStream(data, maxRead)));
+        }
+    }
+
+    @Test
+    public void testChunkLargerThanBlock() throws IOException {
+        final char[] large = new char[100000];
+        Arrays.fill(large, 'x');
+        final String chunk = new String(large);
+
+        assertEquals(Arrays.asList(chunk, "small"),
+                parse(ChunkedInput.createParser("\r\n"), new TrickleInputStream(chunk + "\r\nsmall\r\n", 5000)));
+    }
+
+    @Test
+    public void testEndOfStream() throws IOException {
+        final ChunkParser parser = ChunkedInput.createParser("\r\n");
+        final InputStream in = new ByteArrayInputStream(new byte[0]);
+
+        assertNull(parser.readChunk(in));
+        assertNull(parser.readChunk(in));
+    }
+}
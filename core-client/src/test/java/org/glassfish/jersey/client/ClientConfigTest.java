@@ -39,12 +39,18 @@
  */
 package org.glassfish.jersey.client;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.Configuration;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Feature;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.Provider;
 
 import org.junit.After;
@@ -58,6 +64,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -247,4 +254,96 @@ public class ClientConfigTest {
         assertEquals(1, instance.getProperties().size());
         assertEquals("value", instance.getProperty("name"));
     }
+
+    public static class TestFilter implements ClientRequestFilter {
+
+        @Override
+        public void filter(ClientRequestContext requestContext) throws IOException {
+            // do nothing
+        }
+    }
+
+    public static class ConfigurationEchoFilter implements ClientRequestFilter {
+
+        @Context
+        private Configuration configuration;
+
+        @Override
+        public void filter(ClientRequestContext requestContext) throws IOException {
+            requestContext.abortWith(Response.ok().header("name", configuration.getProperty("name")).build());
+        }
+    }
+
+    @Test
+    public void testRuntimeSharedAcrossPropertyChanges() {
+        final JerseyClient client = new JerseyClient();
+        try {
+            final ClientConfig config = client.configuration();
+            final ClientRuntime runtime = config.getRuntime();
+            assertSame(runtime, config.snapshot().getRuntime());
+
+            final ClientConfig snapshot = config.snapshot().setProperty("name", "value");
+            assertSame(runtime, snapshot.getRuntime());
+            assertSame(runtime, snapshot.snapshot().setProperty("other", "value").getRuntime());
+            assertSame(runtime, config.snapshot().setProperty("name", "other").getRuntime());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testInjectedConfigurationReflectsDerivedTargetProperties() {
+        final JerseyClient client = new JerseyClient();
+        client.configuration().register(ConfigurationEchoFilter.class).setProperty("name", "client");
+        try {
+            final JerseyWebTarget target = client.target("http://localhost:8080/test");
+            assertEquals("client", target.request().get().getHeaderString("name"));
+
+            final JerseyWebTarget derived = target.path("derived");
+            derived.configuration().setProperty("name", "derived");
+            assertEquals("derived", derived.request().get().getHeaderString("name"));
+
+            // the original target is not affected
+            assertEquals("client", target.request().get().getHeaderString("name"));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testRuntimeCachedPerProviderSet() {
+        final JerseyClient client = new JerseyClient();
+        try {
+            final ClientConfig config = client.configuration();
+            final ClientRuntime runtime = config.getRuntime();
+
+            final ClientRuntime filterRuntime = config.snapshot().register(TestFilter.class).getRuntime();
+            assertNotSame(runtime, filterRuntime);
+            assertSame(filterRuntime, config.snapshot().register(TestFilter.class).getRuntime());
+            assertSame(filterRuntime, config.snapshot().register(TestFilter.class).setProperty("name", "value").getRuntime());
+            assertSame(runtime, config.getRuntime());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testRuntimeCacheBounded() {
+        final JerseyClient client = new JerseyClient();
+        try {
+            final ClientConfig config = client.configuration();
+            final ClientConfig first = config.snapshot().register(new TestFilter());
+            final ClientRuntime firstRuntime = first.getRuntime();
+
+            for (int i = 0; i < 20; i++) {
+                config.snapshot().register(new TestFilter()).getRuntime();
+            }
+
+            // the least recently used runtime has been evicted, but remains in use by the configuration holding it
+            assertSame(firstRuntime, first.getRuntime());
+            assertNotSame(firstRuntime, first.snapshot().setProperty("name", "value").getRuntime());
+        } finally {
+            client.close();
+        }
+    }
 }
@@ -0,0 +1,313 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.client.filter;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.ClientException;
+import javax.ws.rs.client.ClientFactory;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+
+import com.google.common.util.concurrent.Futures;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Client-side HTTP cache filter test.
+ *
+ * @author agent (agent at local)
+ */
+public class HttpCacheFilterTest {
+
+    private WebTarget target(final HttpCacheFeature feature, final TestConnector connector) {
+        return ClientFactory.newClient(new ClientConfig().register(feature).connector(connector))
+                .target("http://localhost/resource");
+    }
+
+    @Test
+    public void testFreshResponseServedFromCache() {
+        final HttpCacheFeature feature = new HttpCacheFeature();
+        final TestConnector connector = new TestConnector("max-age=60", null);
+        final WebTarget target = target(feature, connector);
+
+        assertEquals("entity-1", target.request().get(String.class));
+        assertEquals("entity-1", target.request().get(String.class));
+
+        assertEquals(1, connector.calls.get());
+        assertEquals(1, feature.getCache().getHitCount());
+        assertEquals(1, feature.getCache().getMissCount());
+        assertEquals(0.5, feature.getCache().getHitRatio(), 0.0001);
+        assertEquals("entity-1".length(), feature.getCache().getBytesSaved());
+    }
+
+    @Test
+    public void testNoStoreResponseNotCached() {
+        final HttpCacheFeature feature = new HttpCacheFeature();
+        final TestConnector connector = new TestConnector("no-store", "\"v1\"");
+        final WebTarget target = target(feature, connector);
+
+        assertEquals("entity-1", target.request().get(String.class));
+        assertEquals("entity-2", target.request().get(String.class));
+
+        assertEquals(2, connector.calls.get());
+        assertEquals(0, feature.getCache().getSize());
+    }
+
+    @Test
+    public void testRevalidation() {
+        final HttpCacheFeature feature = new HttpCacheFeature();
+        final TestConnector connector = new TestConnector("no-cache", "\"v1\"");
+        final WebTarget target = target(feature, connector);
+
+        assertEquals("entity-1", target.request().get(String.class));
+        final Response response = target.request().get();
+
+        assertEquals(200, response.getStatus());
+        assertEquals("entity-1", response.readEntity(String.class));
+        assertEquals(2, connector.calls.get());
+        assertEquals(1, connector.notModified.get());
+        assertEquals(1, feature.getCache().getHitCount());
+    }
+
+    @Test
+    public void testUnsafeRequestInvalidatesCachedResponse() {
+        final HttpCacheFeature feature = new HttpCacheFeature();
+        final TestConnector connector = new TestConnector("max-age=60", null);
+        final WebTarget target = target(feature, connector);
+
+        assertEquals("entity-1", target.request().get(String.class));
+        target.request().post(Entity.entity("update", MediaType.TEXT_PLAIN_TYPE));
+        assertEquals("entity-3", target.request().get(String.class));
+
+        assertEquals(3, connector.calls.get());
+    }
+
+    @Test
+    public void testLargeEntityNotCached() {
+        final HttpCacheFeature feature = new HttpCacheFeature(16);
+        final TestConnector connector = new TestConnector("max-age=60", null);
+        final WebTarget target = target(feature, connector);
+
+        assertEquals("entity-1", target.request().get(String.class));
+        assertEquals("entity-2", target.request().get(String.class));
+
+        assertEquals(0, feature.getCache().getSize());
+    }
+
+    @Test
+    public void testConcurrentMissesCollapsed() throws Exception {
+        final HttpCacheFeature feature = new HttpCacheFeature();
+        final TestConnector connector = new TestConnector("max-age=60", null);
+        connector.delay = 300;
+        final WebTarget target = target(feature, connector);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        start.await();
+                        return target.request().get(String.class);
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("entity-1", result.get());
+            }
+            assertEquals(1, connector.calls.get());
+            assertEquals(4, feature.getCache().getHitCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedLeaderReleasesCollapsedRequests() throws Exception {
+        final HttpCacheFeature feature = new HttpCacheFeature();
+        final TestConnector connector = new TestConnector("max-age=60", null);
+        connector.failures.set(1);
+        connector.delay = 300;
+        final WebTarget target = target(feature, connector);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> leader = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return target.request().get(String.class);
+                }
+            });
+            Thread.sleep(100);
+
+            // collapsed with the failing leader, released as soon as the leader fails
+            final long start = System.currentTimeMillis();
+            assertEquals("entity-2", target.request().get(String.class));
+            assertTrue(System.currentTimeMillis() - start < 2000);
+
+            try {
+                leader.get();
+                fail("The leading request must fail.");
+            } catch (ExecutionException expected) {
+                // ok
+            }
+            assertEquals(2, connector.calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedAsyncLeaderReleasesLatch() throws Exception {
+        final HttpCacheFeature feature = new HttpCacheFeature();
+        final TestConnector connector = new TestConnector("max-age=60", null);
+        connector.failures.set(1);
+        final WebTarget target = target(feature, connector);
+
+        try {
+            target.request().async().get(String.class).get(5, TimeUnit.SECONDS);
+            fail("The request must fail.");
+        } catch (ExecutionException expected) {
+            // ok
+        }
+
+        final long start = System.currentTimeMillis();
+        assertEquals("entity-2", target.request().async().get(String.class).get(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+
+    private static class TestConnector implements Connector {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger notModified = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final String cacheControl;
+        private final String etag;
+        private volatile long delay;
+
+        TestConnector(final String cacheControl, final String etag) {
+            this.cacheControl = cacheControl;
+            this.etag = etag;
+        }
+
+        @Override
+        public ClientResponse apply(final ClientRequest requestContext) {
+            final int call = calls.incrementAndGet();
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failures.getAndDecrement() > 0) {
+                throw new ClientException("Connection refused.");
+            }
+
+            if (etag != null && etag.equals(requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH))) {
+                notModified.incrementAndGet();
+                final ClientResponse response = new ClientResponse(Response.Status.NOT_MODIFIED, requestContext);
+                response.header(HttpHeaders.ETAG, etag);
+                return response;
+            }
+
+            final ClientResponse response = new ClientResponse(Response.Status.OK, requestContext);
+            response.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+            response.header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN);
+            if (etag != null) {
+                response.header(HttpHeaders.ETAG, etag);
+            }
+            if (!HttpMethod.POST.equals(requestContext.getMethod())) {
+                response.setEntityStream(new ByteArrayInputStream(("entity-" + call).getBytes()));
+            }
+            return response;
+        }
+
+        @Override
+        public Future<?> apply(final ClientRequest request, final AsyncConnectorCallback callback) {
+            try {
+                final ClientResponse response = apply(request);
+                callback.response(response);
+                return Futures.immediateFuture(response);
+            } catch (ClientException ex) {
+                callback.failure(ex);
+                return Futures.immediateFailedFuture(ex);
+            }
+        }
+
+        @Override
+        public void close() {
+            // do nothing
+        }
+
+        @Override
+        public String getName() {
+            return null;
+        }
+    }
+}
@@ -145,7 +145,21 @@ public class InboundMessageContext {
      * Create new inbound message context.
      */
     public InboundMessageContext() {
-        this.headers = HeadersFactory.createInbound();
+        this(HeadersFactory.createInbound());
+    }
+
+    /**
+     * Create new inbound message context backed by the supplied headers container.
+     *
+     * The supplied container is used directly, i.e. it is not copied. This allows
+     * containers to expose the headers of the underlying I/O request as a lazy view
+     * instead of copying each header name and value into a new map. The supplied map
+     * must be mutable and must compare header names in a case-insensitive way.
+     *
+     * @param headers message headers container.
+     */
+    protected InboundMessageContext(MultivaluedMap<String, String> headers) {
+        this.headers = headers;
         this.entityContent = new EntityContent(EMPTY);
     }
 
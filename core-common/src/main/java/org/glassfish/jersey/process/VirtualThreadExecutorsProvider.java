@@ -0,0 +1,158 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.process;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+import org.glassfish.jersey.internal.LocalizationMessages;
+import org.glassfish.jersey.spi.RequestExecutorsProvider;
+
+/**
+ * {@link RequestExecutorsProvider Request executors provider} that runs each submitted task
+ * on a new virtual thread, if virtual threads are supported by the Java runtime.
+ * <p>
+ * Virtual thread support is detected at runtime via reflection, the class itself does not
+ * require a Java runtime with virtual thread support. If virtual threads are not supported,
+ * the provider does not supply any executor and the default requesting executor of the run-time
+ * is used instead.
+ * </p>
+ * <p>
+ * The executors created by this class do not pool threads, each task is executed on a dedicated
+ * virtual thread which is discarded once the task completes. Any thread-local state (e.g. the
+ * {@link org.glassfish.jersey.process.internal.RequestScope request scope} instance) is therefore
+ * visible only to the task that has set it and is never leaked to other tasks.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+public class VirtualThreadExecutorsProvider implements RequestExecutorsProvider {
+
+    private static final Logger LOGGER = Logger.getLogger(VirtualThreadExecutorsProvider.class.getName());
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+    private static final boolean SUPPORTED;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        boolean supported = false;
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+            // virtual threads may be present but disabled (preview feature on older runtimes)
+            ofVirtual.invoke(null);
+            supported = true;
+        } catch (ClassNotFoundException e) {
+            // not supported
+        } catch (NoSuchMethodException e) {
+            // not supported
+        } catch (IllegalAccessException e) {
+            // not supported
+        } catch (InvocationTargetException e) {
+            // not supported (e.g. UnsupportedOperationException - preview features not enabled)
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+        SUPPORTED = supported;
+    }
+
+    /**
+     * Name prefix of virtual threads created by executors returned from {@link #getRequestingExecutor()}.
+     */
+    private static final String DEFAULT_NAME_PREFIX = "jersey-virtual-thread-executor-";
+
+    /**
+     * Check whether virtual threads are supported by the current Java runtime.
+     *
+     * @return {@code true} if virtual threads are supported, {@code false} otherwise.
+     */
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * Create a new executor service that runs each submitted task on a new virtual thread.
+     * <p>
+     * The created virtual threads are named using the supplied prefix followed by a sequence number.
+     * </p>
+     *
+     * @param namePrefix name prefix of the created virtual threads.
+     * @return new virtual thread per task executor service, or {@code null} if virtual threads
+     *         are not {@link #isSupported() supported} by the current Java runtime.
+     */
+    public static ExecutorService newExecutorService(final String namePrefix) {
+        if (!SUPPORTED) {
+            LOGGER.warning(LocalizationMessages.VIRTUAL_THREADS_NOT_SUPPORTED());
+            return null;
+        }
+
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, namePrefix, 0L);
+            final ThreadFactory threadFactory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public ExecutorService getRequestingExecutor() {
+        return newExecutorService(DEFAULT_NAME_PREFIX);
+    }
+}
@@ -42,7 +42,19 @@ package org.glassfish.jersey.server;
 import java.io.IOException;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -50,13 +62,54 @@ import org.glassfish.jersey.server.internal.LocalizationMessages;
 
 /**
  * Used for broadcasting response chunks to multiple {@link ChunkedOutput} instances.
+ * <p>
+ * By default, the chunks are written to the registered chunked outputs sequentially by the thread
+ * {@link #broadcast(Object) broadcasting} the chunk. If the broadcaster is created with a writer pool
+ * (see {@link #Broadcaster(ExecutorService, int, OverflowPolicy)}), the chunks are written to the registered chunked
+ * outputs in parallel by the threads of the writer pool. Each chunked output then has a bounded queue of chunks pending
+ * to be written, so that the broadcast does not wait for the slowest chunked output and a slow chunked output
+ * cannot accumulate the broadcast chunks without limit. Once the queue of a chunked output is full, further chunks
+ * are handled according to the {@link OverflowPolicy overflow policy} of the broadcaster.
+ * </p>
+ * <p>
+ * The broadcaster can also keep the most recently broadcast chunks in a bounded replay buffer (see
+ * {@link #enableReplay(int, long, TimeUnit)}) and replay the chunks missed by a reconnecting client to its new
+ * chunked output (see {@link #add(ChunkedOutput, String)}).
+ * </p>
  *
  * @param <T> broadcast type.
  *
  * @author Pavel Bucek (pavel.bucek at oracle.com)
  * @author Martin Matula (martin.matula at oracle.com)
  */
-public class Broadcaster<T> implements BroadcasterListener<T> {
+public class Broadcaster<T> implements BroadcasterOverflowListener<T> {
+
+    /**
+     * Policy applied when a broadcast chunk cannot be queued for a chunked output because the queue of chunks pending
+     * to be written to the chunked output is full.
+     */
+    public static enum OverflowPolicy {
+        /**
+         * The chunk is dropped for the lagging chunked output and the broadcaster listeners are
+         * {@link BroadcasterOverflowListener#onLag(ChunkedOutput, int) notified}.
+         */
+        DROP,
+        /**
+         * The lagging chunked output is removed from the broadcaster and closed and the broadcaster listeners are
+         * {@link BroadcasterOverflowListener#onEvict(ChunkedOutput) notified}.
+         */
+        EVICT
+    }
+
+    /**
+     * Maximum number of chunks written to a single chunked output in a single writer pool task. Limits the time
+     * a single chunked output may occupy a thread of the writer pool.
+     */
+    private static final int WRITE_BATCH_SIZE = 16;
+    /**
+     * Marks the request to close the chunked output in the queue of pending chunks.
+     */
+    private static final Object CLOSE = new Object();
 
     private final ConcurrentSkipListSet<BroadcasterListener<T>> listeners =
             new ConcurrentSkipListSet<BroadcasterListener<T>> (new Comparator<BroadcasterListener<T>>() {
@@ -74,6 +127,20 @@ public class Broadcaster<T> implements BroadcasterListener<T> {
         }
     });
 
+    private final ExecutorService writerPool;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final ConcurrentMap<ChunkedOutput<T>, OutputWriter> writers =
+            new ConcurrentHashMap<ChunkedOutput<T>, OutputWriter>();
+
+    private volatile ReplayBuffer replayBuffer;
+    /**
+     * Guards the replay buffer. Broadcasting threads hold the read lock while adding a chunk to the buffer and writing
+     * it to the chunked outputs, a new chunked output is registered with the write lock held, so that no chunk is
+     * missed or written to it twice.
+     */
+    private final ReadWriteLock replayLock = new ReentrantReadWriteLock();
+
     /**
      * Creates a new instance.
      * If this constructor is called by a subclass, it assumes the the reason for the subclass to exist is to implement
@@ -95,11 +162,70 @@ public class Broadcaster<T> implements BroadcasterListener<T> {
      * @see #Broadcaster()
      */
     protected Broadcaster(final Class<? extends Broadcaster> subclass) {
+        this(subclass, null, 0, null);
+    }
+
+    /**
+     * Creates a new instance writing the broadcast chunks to the registered chunked outputs in parallel using
+     * the supplied writer pool.
+     * If this constructor is called by a subclass, it assumes the the reason for the subclass to exist is to implement
+     * the {@link BroadcasterListener} methods, so it adds the newly created instance as the listener. To avoid this,
+     * subclasses may call {@link #Broadcaster(Class, ExecutorService, int, OverflowPolicy)} passing their class as
+     * an argument.
+     * <p>
+     * The writer pool is not shut down by the broadcaster.
+     * </p>
+     *
+     * @param writerPool     executor used to write the chunks to the chunked outputs.
+     * @param queueCapacity  maximum number of chunks pending to be written to a single chunked output.
+     * @param overflowPolicy policy applied once the queue of pending chunks of a chunked output is full.
+     * @throws IllegalArgumentException in case the writer pool or the overflow policy is {@code null}, or the queue
+     *                                  capacity is not positive.
+     */
+    public Broadcaster(final ExecutorService writerPool, final int queueCapacity, final OverflowPolicy overflowPolicy)
+            throws IllegalArgumentException {
+        this(Broadcaster.class, writerPool, queueCapacity, overflowPolicy);
+        checkWriterPool(writerPool, queueCapacity, overflowPolicy);
+    }
+
+    /**
+     * Can be used by subclasses to override the default functionality of adding self to the set of
+     * {@link BroadcasterListener listeners} when writing the broadcast chunks in parallel.
+     *
+     * @param subclass       subclass of Broadcaster that should not be registered as a listener - if creating a direct
+     *                       instance of this subclass, this constructor will not register the new instance as a listener.
+     * @param writerPool     executor used to write the chunks to the chunked outputs. If {@code null}, the chunks are
+     *                       written sequentially by the broadcasting thread and the other parameters are ignored.
+     * @param queueCapacity  maximum number of chunks pending to be written to a single chunked output.
+     * @param overflowPolicy policy applied once the queue of pending chunks of a chunked output is full.
+     * @throws IllegalArgumentException in case the writer pool is set and the overflow policy is {@code null}, or the
+     *                                  queue capacity is not positive.
+     * @see #Broadcaster(ExecutorService, int, OverflowPolicy)
+     */
+    protected Broadcaster(final Class<? extends Broadcaster> subclass,
+                          final ExecutorService writerPool,
+                          final int queueCapacity,
+                          final OverflowPolicy overflowPolicy) throws IllegalArgumentException {
+        if (writerPool != null) {
+            checkWriterPool(writerPool, queueCapacity, overflowPolicy);
+        }
+        this.writerPool = writerPool;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+
         if (subclass != getClass()) {
             listeners.add(this);
         }
     }
 
+    private static void checkWriterPool(final ExecutorService writerPool,
+                                        final int queueCapacity,
+                                        final OverflowPolicy overflowPolicy) throws IllegalArgumentException {
+        if (writerPool == null || overflowPolicy == null || queueCapacity <= 0) {
+            throw new IllegalArgumentException(LocalizationMessages.BROADCASTER_INVALID_WRITER_POOL());
+        }
+    }
+
     /**
      * Register {@link ChunkedOutput} to this {@link Broadcaster} instance.
      *
@@ -108,7 +234,104 @@ public class Broadcaster<T> implements BroadcasterListener<T> {
      * the list of registered chunked responses.
      */
     public final boolean add(final ChunkedOutput<T> chunkedOutput) {
-        return chunkedOutputs.add(chunkedOutput);
+        if (!chunkedOutputs.add(chunkedOutput)) {
+            return false;
+        }
+        // unregister the chunked output as soon as a write fails, e.g. once a keep-alive write detects a closed connection
+        chunkedOutput.addCloseCallback(new Runnable() {
+            @Override
+            public void run() {
+                unregisterClosed(chunkedOutput);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Register {@link ChunkedOutput} of a reconnecting client to this {@link Broadcaster} instance and replay
+     * the chunks broadcast after the last chunk received by the client.
+     * <p>
+     * The chunks kept in the {@link #enableReplay(int, long, TimeUnit) replay buffer} that have been broadcast after
+     * the most recent chunk with the given identifier are written to the chunked output before any chunk broadcast
+     * later. The replayed chunks are not serialized again if the chunked output uses the same serialization as
+     * the chunked outputs the chunks have been broadcast to. The chunked output should be registered before it is
+     * returned from the resource method, so that the replayed chunks are only queued by this method.
+     * </p>
+     * <p>
+     * The chunked output is registered even if the chunk with the given identifier is not found in the replay
+     * buffer. In such case it is up to the application to bring the client up to date.
+     * </p>
+     *
+     * @param chunkedOutput {@link ChunkedOutput} to register.
+     * @param lastChunkId   identifier of the last chunk received by the client (see {@link #getChunkId(Object)}),
+     *                      e.g. the value of the SSE {@code Last-Event-ID} request header. May be {@code null}.
+     * @return {@code true} if no chunks have been missed by the client or all the missed chunks have been replayed,
+     *         {@code false} if the chunk with the given identifier has not been found in the replay buffer or the replay
+     *         is not enabled.
+     */
+    public final boolean add(final ChunkedOutput<T> chunkedOutput, final String lastChunkId) {
+        final ReplayBuffer buffer = replayBuffer;
+        if (lastChunkId == null || buffer == null) {
+            add(chunkedOutput);
+            return lastChunkId == null;
+        }
+
+        replayLock.writeLock().lock();
+        try {
+            final List<ChunkedOutput.SharedChunk> missedChunks = buffer.getChunksAfter(lastChunkId);
+            if (missedChunks != null) {
+                for (ChunkedOutput.SharedChunk chunk : missedChunks) {
+                    try {
+                        chunkedOutput.write(chunk);
+                    } catch (Exception e) {
+                        fireOnException(chunkedOutput, e);
+                        break;
+                    }
+                }
+            }
+            // a chunked output closed while replaying is unregistered by the next broadcast
+            add(chunkedOutput);
+            return missedChunks != null;
+        } finally {
+            replayLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Keep the most recently broadcast chunks in a replay buffer to be able to replay them to the chunked outputs
+     * of the reconnecting clients (see {@link #add(ChunkedOutput, String)}).
+     * <p>
+     * The replay buffer keeps at most the given number of chunks. If the maximum age is positive, the chunks older
+     * than the maximum age are discarded as well. Calling this method again replaces the replay buffer with an empty one.
+     * </p>
+     *
+     * @param capacity maximum number of chunks kept in the replay buffer.
+     * @param maxAge   maximum age of the chunks kept in the replay buffer, {@code 0} for no limit.
+     * @param unit     time unit of the maximum age.
+     * @throws IllegalArgumentException in case the capacity is not positive or the maximum age is negative.
+     */
+    public final void enableReplay(final int capacity, final long maxAge, final TimeUnit unit)
+            throws IllegalArgumentException {
+        if (capacity <= 0 || maxAge < 0) {
+            throw new IllegalArgumentException(LocalizationMessages.BROADCASTER_INVALID_REPLAY_BUFFER());
+        }
+        replayBuffer = new ReplayBuffer(capacity, unit.toMillis(maxAge));
+    }
+
+    /**
+     * Get the identifier of a broadcast chunk used to find the chunks missed by a reconnecting client in the
+     * replay buffer.
+     * <p>
+     * The default implementation returns {@code null}, i.e. the chunks are not identified and the replay buffer
+     * cannot find the missed chunks. Subclasses that enable the replay should override this method.
+     * </p>
+     *
+     * @param chunk broadcast chunk.
+     * @return chunk identifier or {@code null} if the chunk does not have an identifier.
+     * @see #add(ChunkedOutput, String)
+     */
+    protected String getChunkId(final T chunk) {
+        return null;
     }
 
     /**
@@ -121,7 +344,10 @@ public class Broadcaster<T> implements BroadcasterListener<T> {
      * of registered chunked responses.
      */
     public final boolean remove(final ChunkedOutput<T> chunkedOutput) {
-        return chunkedOutputs.remove(chunkedOutput);
+        // unregister the chunked output before its writer, see getWriter(...)
+        final boolean removed = chunkedOutputs.remove(chunkedOutput);
+        writers.remove(chunkedOutput);
+        return removed;
     }
 
     /**
@@ -149,26 +375,69 @@ public class Broadcaster<T> implements BroadcasterListener<T> {
 
     /**
      * Broadcast a chunk to all registered {@link ChunkedOutput} instances.
+     * <p>
+     * The chunk is serialized only once for all the chunked outputs that use the same media type, entity
+     * annotations and writer interceptors, and the serialized bytes are written to each of them. The chunk is
+     * serialized separately for each chunked output only if the writer interceptors wrap the entity stream or
+     * modify the response headers.
+     * </p>
+     * <p>
+     * If the broadcaster writes the chunks in parallel, the method only queues the chunk for each chunked output
+     * and returns without waiting for the chunk to be written.
+     * </p>
      *
      * @param chunk chunk to be sent.
      */
     public void broadcast(final T chunk) {
+        final ChunkedOutput.SharedChunk sharedChunk = chunk == null ? null : new ChunkedOutput.SharedChunk(chunk);
+        final ReplayBuffer buffer = replayBuffer;
+        if (buffer == null || sharedChunk == null) {
+            broadcast(chunk, sharedChunk);
+            return;
+        }
+
+        replayLock.readLock().lock();
+        try {
+            buffer.add(getChunkId(chunk), sharedChunk);
+            broadcast(chunk, sharedChunk);
+        } finally {
+            replayLock.readLock().unlock();
+        }
+    }
+
+    private void broadcast(final T chunk, final ChunkedOutput.SharedChunk sharedChunk) {
         forEachChunkedResponse(new Task<ChunkedOutput<T>>() {
             @Override
             public void run(final ChunkedOutput<T> cr) throws IOException {
-                cr.write(chunk);
+                if (writerPool != null) {
+                    if (sharedChunk != null) {
+                        getWriter(cr).write(sharedChunk);
+                    }
+                } else if (sharedChunk == null) {
+                    cr.write(chunk);
+                } else {
+                    cr.write(sharedChunk);
+                }
             }
         });
     }
 
     /**
      * Close all registered {@link ChunkedOutput} instances.
+     * <p>
+     * If the broadcaster writes the chunks in parallel, the chunked outputs are closed asynchronously once all the chunks
+     * pending to be written to them have been written.
+     * </p>
      */
     public void closeAll() {
         forEachChunkedResponse(new Task<ChunkedOutput<T>>() {
             @Override
             public void run(final ChunkedOutput<T> cr) throws IOException {
-                cr.close();
+                if (writerPool != null) {
+                    getWriter(cr).close();
+                } else {
+                    cr.close();
+                }
             }
         });
     }
@@ -197,6 +466,30 @@ public class Broadcaster<T> implements BroadcasterListener<T> {
     public void onClose(final ChunkedOutput<T> chunkedOutput) {
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Can be implemented by subclasses to handle the event of a broadcast chunk being dropped for a lagging
+     * {@link ChunkedOutput}.
+     *
+     * @param chunkedOutput lagging instance.
+     * @param pendingChunks number of chunks pending to be written to the chunked output.
+     */
+    @Override
+    public void onLag(final ChunkedOutput<T> chunkedOutput, final int pendingChunks) {
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Can be implemented by subclasses to handle the event of a lagging {@link ChunkedOutput} being evicted.
+     *
+     * @param chunkedOutput evicted instance.
+     */
+    @Override
+    public void onEvict(final ChunkedOutput<T> chunkedOutput) {
+    }
+
     private static interface Task<T> {
         void run(T parameter) throws IOException;
     }
@@ -212,10 +505,45 @@ public class Broadcaster<T> implements BroadcasterListener<T> {
                 }
             }
             if (chunkedOutput.isClosed()) {
-                iterator.remove();
-                fireOnClose(chunkedOutput);
+                unregisterClosed(chunkedOutput);
+            }
+        }
+    }
+
+    /**
+     * Unregister the closed chunked output and notify the listeners, unless the chunked output has already been
+     * unregistered by another thread.
+     */
+    private void unregisterClosed(final ChunkedOutput<T> chunkedOutput) {
+        final boolean removed = chunkedOutputs.remove(chunkedOutput);
+        writers.remove(chunkedOutput);
+        if (removed) {
+            fireOnClose(chunkedOutput);
+        }
+    }
+
+    /**
+     * Get the writer of the registered chunked output, creating it if necessary.
+     * <p>
+     * The chunked outputs are always removed from the set of registered chunked outputs before their writers are
+     * removed. A writer created concurrently with the removal of its chunked output is therefore either removed
+     * by the removing thread or discarded by this method, and never stays in the map of writers.
+     * </p>
+     */
+    private OutputWriter getWriter(final ChunkedOutput<T> chunkedOutput) {
+        OutputWriter writer = writers.get(chunkedOutput);
+        if (writer == null) {
+            final OutputWriter newWriter = new OutputWriter(chunkedOutput);
+            writer = writers.putIfAbsent(chunkedOutput, newWriter);
+            if (writer == null) {
+                writer = newWriter;
+                if (!chunkedOutputs.contains(chunkedOutput)) {
+                    // the chunked output has been removed concurrently
+                    writers.remove(chunkedOutput, newWriter);
+                }
             }
         }
+        return writer;
     }
 
     private void forEachListener(final Task<BroadcasterListener<T>> t) {
@@ -247,4 +575,146 @@ public class Broadcaster<T> implements BroadcasterListener<T> {
             }
         });
     }
+
+    private void fireOnLag(final ChunkedOutput<T> chunkedOutput, final int pendingChunks) {
+        forEachListener(new Task<BroadcasterListener<T>>() {
+            @Override
+            public void run(BroadcasterListener<T> parameter) throws IOException {
+                if (parameter instanceof BroadcasterOverflowListener) {
+                    ((BroadcasterOverflowListener<T>) parameter).onLag(chunkedOutput, pendingChunks);
+                }
+            }
+        });
+    }
+
+    private void fireOnEvict(final ChunkedOutput<T> chunkedOutput) {
+        forEachListener(new Task<BroadcasterListener<T>>() {
+            @Override
+            public void run(BroadcasterListener<T> parameter) throws IOException {
+                if (parameter instanceof BroadcasterOverflowListener) {
+                    ((BroadcasterOverflowListener<T>) parameter).onEvict(chunkedOutput);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writer of the broadcast chunks to a single chunked output. The queued chunks are written serially
+     * by the tasks submitted to the writer pool, at most one task at a time.
+     */
+    private final class OutputWriter implements Runnable {
+        private final ChunkedOutput<T> chunkedOutput;
+        private final Queue<Object> queue = new ConcurrentLinkedQueue<Object>();
+        private final AtomicInteger pendingChunks = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private volatile boolean evicted = false;
+
+        OutputWriter(final ChunkedOutput<T> chunkedOutput) {
+            this.chunkedOutput = chunkedOutput;
+        }
+
+        void write(final ChunkedOutput.SharedChunk chunk) {
+            if (evicted) {
+                return;
+            }
+            if (pendingChunks.incrementAndGet() > queueCapacity) {
+                final int pending = pendingChunks.decrementAndGet();
+                if (overflowPolicy == OverflowPolicy.EVICT) {
+                    evict();
+                } else {
+                    fireOnLag(chunkedOutput, pending);
+                }
+                return;
+            }
+            queue.add(chunk);
+            schedule();
+        }
+
+        void close() {
+            queue.add(CLOSE);
+            schedule();
+        }
+
+        private void evict() {
+            synchronized (this) {
+                if (evicted) {
+                    return;
+                }
+                evicted = true;
+            }
+            queue.clear();
+            final boolean removed = chunkedOutputs.remove(chunkedOutput);
+            writers.remove(chunkedOutput);
+            if (!removed) {
+                // already closed and unregistered
+                return;
+            }
+            fireOnEvict(chunkedOutput);
+
+            // closing may block until the chunk currently being written to the lagging chunked output is written
+            try {
+                writerPool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            chunkedOutput.close();
+                        } catch (Exception e) {
+                            fireOnException(chunkedOutput, e);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                fireOnException(chunkedOutput, e);
+            }
+            fireOnClose(chunkedOutput);
+        }
+
+        private void schedule() {
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    writerPool.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    queue.clear();
+                    pendingChunks.set(0);
+                    fireOnException(chunkedOutput, e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < WRITE_BATCH_SIZE && !evicted && !chunkedOutput.isClosed(); i++) {
+                    final Object chunk = queue.poll();
+                    if (chunk == null) {
+                        break;
+                    }
+                    try {
+                        if (chunk == CLOSE) {
+                            chunkedOutput.close();
+                        } else {
+                            pendingChunks.decrementAndGet();
+                            chunkedOutput.write((ChunkedOutput.SharedChunk) chunk);
+                        }
+                    } catch (Exception e) {
+                        fireOnException(chunkedOutput, e);
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+            }
+
+            if (evicted) {
+                return;
+            }
+            if (chunkedOutput.isClosed()) {
+                queue.clear();
+                unregisterClosed(chunkedOutput);
+            } else {
+                // reschedule to write the rest of the chunks or the chunks queued after the last poll
+                schedule();
+            }
+        }
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.server;
+
+/**
+ * Extension of the {@link BroadcasterListener} that can be implemented to be notified about the chunked outputs
+ * lagging behind a {@link Broadcaster} that writes the broadcast chunks in parallel using a writer pool (see
+ * {@link Broadcaster#Broadcaster(java.util.concurrent.ExecutorService, int, Broadcaster.OverflowPolicy)}).
+ *
+ * The broadcaster notifies the registered listeners about the lagging chunked outputs only if they implement
+ * this interface.
+ *
+ * @param <T> broadcast type.
+ * @author agent (agent at local)
+ */
+public interface BroadcasterOverflowListener<T> extends BroadcasterListener<T> {
+
+    /**
+     * Called when a broadcast chunk has been dropped for the chunked output because the chunked output lags behind
+     * the broadcaster and its queue of pending chunks is full.
+     *
+     * @param chunkedOutput lagging instance.
+     * @param pendingChunks number of chunks pending to be written to the chunked output.
+     * @see Broadcaster.OverflowPolicy#DROP
+     */
+    void onLag(ChunkedOutput<T> chunkedOutput, int pendingChunks);
+
+    /**
+     * Called when the chunked output has been evicted from the broadcaster because it lags behind the broadcaster
+     * and its queue of pending chunks is full. The evicted chunked output is closed.
+     *
+     * @param chunkedOutput evicted instance.
+     * @see Broadcaster.OverflowPolicy#EVICT
+     */
+    void onEvict(ChunkedOutput<T> chunkedOutput);
+}
@@ -39,14 +39,30 @@
  */
 package org.glassfish.jersey.server;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingDeque;
 
 import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
 
+import org.glassfish.jersey.internal.util.collection.StringKeyIgnoreCaseMultivaluedMap;
+import org.glassfish.jersey.message.MessageBodyWorkers;
+import org.glassfish.jersey.message.internal.WriterInterceptorExecutor;
 import org.glassfish.jersey.server.internal.LocalizationMessages;
 
 /**
@@ -59,12 +75,18 @@ import org.glassfish.jersey.server.internal.LocalizationMessages;
  */
 // TODO:  something like prequel/sequel - usable for EventChannelWriter and XML related writers
 public class ChunkedOutput<T> extends GenericType<T> implements Closeable {
-    private final BlockingDeque<T> queue = new LinkedBlockingDeque<T>();
+    /**
+     * Queue of the chunks to be written. Contains either the chunk instances or the {@link SharedChunk shared chunks}.
+     */
+    private final BlockingDeque<Object> queue = new LinkedBlockingDeque<Object>();
 
     private volatile boolean closed = false;
     private boolean flushing = false;
     private volatile ContainerRequest requestContext;
     private volatile ContainerResponse responseContext;
+    private volatile SerializationKey serializationKey;
+    private volatile long lastWriteTime = System.currentTimeMillis();
+    private final List<Runnable> closeCallbacks = new CopyOnWriteArrayList<Runnable>();
 
     /**
      * Create new chunked response.
@@ -93,20 +115,82 @@ public class ChunkedOutput<T> extends GenericType<T> implements Closeable {
         }
 
         if (chunk != null) {
+            lastWriteTime = System.currentTimeMillis();
             queue.add(chunk);
         }
 
         flushQueue();
     }
 
+    /**
+     * Write a chunk shared with other chunked outputs, e.g. a chunk {@link Broadcaster#broadcast(Object) broadcast}
+     * to many chunked outputs.
+     *
+     * @param chunk shared chunk to be written.
+     * @throws IOException if this response is closed or when encountered any problem during serializing or writing a chunk.
+     */
+    void write(final SharedChunk chunk) throws IOException {
+        if (closed) {
+            throw new IOException(LocalizationMessages.CHUNKED_OUTPUT_CLOSED());
+        }
+
+        lastWriteTime = System.currentTimeMillis();
+        queue.add(chunk);
+
+        flushQueue();
+    }
+
+    /**
+     * Write a chunk already encoded into the bytes of the response entity, bypassing the message body writers
+     * and writer interceptors.
+     * <p>
+     * Can be used by subclasses to write data that do not depend on the chunk serialization, e.g. keep-alive
+     * data of the protocol carried by the chunked response.
+     * </p>
+     *
+     * @param bytes encoded chunk to be written. The array must not be modified afterwards.
+     * @throws IOException if this response is closed or when encountered any problem during writing the chunk.
+     */
+    protected void writeEncoded(final byte[] bytes) throws IOException {
+        if (closed) {
+            throw new IOException(LocalizationMessages.CHUNKED_OUTPUT_CLOSED());
+        }
+
+        lastWriteTime = System.currentTimeMillis();
+        queue.add(SharedChunk.encoded(bytes));
+
+        flushQueue();
+    }
+
+    /**
+     * Get the time of the last chunk write.
+     *
+     * @return time of the last chunk write (or of the creation of this chunked output if no chunk has been written yet)
+     *         in milliseconds since the epoch.
+     */
+    protected long getLastWriteTime() {
+        return lastWriteTime;
+    }
+
+    /**
+     * Add a callback invoked once the response is closed because of a failure to write a chunk, typically once
+     * the client has closed the connection.
+     *
+     * @param callback callback to be invoked.
+     */
+    void addCloseCallback(final Runnable callback) {
+        closeCallbacks.add(callback);
+    }
+
     private void flushQueue() throws IOException {
         if (requestContext == null || responseContext == null) {
             return;
         }
 
         Exception ex = null;
-        T t;
+        Object t;
         boolean shouldClose;
+        boolean failed = false;
 
         synchronized (this) {
             if (flushing) {
@@ -129,19 +213,17 @@ public class ChunkedOutput<T> extends GenericType<T> implements Closeable {
 
         try {
             while (t != null) {
-                responseContext.setEntityStream(requestContext.getWorkers().writeTo(
-                        t,
-                        t.getClass(),
-                        getType(),
-                        responseContext.getEntityAnnotations(),
-                        responseContext.getMediaType(),
-                        responseContext.getHeaders(),
-                        requestContext.getPropertiesDelegate(),
-                        responseContext.getEntityStream(),
-                        null,
-                        // TODO: (MM) should intercept only for the very first chunk!
-                        // TODO: from then on the stream is already wrapped by interceptor streams
-                        true));
+                if (t instanceof SharedChunk) {
+                    final SharedChunk sharedChunk = (SharedChunk) t;
+                    final byte[] bytes = sharedChunk.getBytes(this);
+                    if (bytes != null) {
+                        responseContext.getEntityStream().write(bytes);
+                    } else {
+                        writeChunk(sharedChunk.getChunk());
+                    }
+                } else {
+                    writeChunk(t);
+                }
                 t = queue.poll();
                 if (t == null) {
                     synchronized (this) {
@@ -168,6 +250,7 @@ public class ChunkedOutput<T> extends GenericType<T> implements Closeable {
         } catch (Exception e) {
             closed = true;
             shouldClose = true;
+            failed = true;
             // remember the exception (it will get rethrown from finally clause, once it does it's work)
             ex = e;
         } finally {
@@ -179,6 +262,11 @@ public class ChunkedOutput<T> extends GenericType<T> implements Closeable {
                     // otherwise the previously remembered exception (from catch clause) takes precedence
                     ex = ex == null ? e : ex;
                 }
+                if (failed) {
+                    for (Runnable callback : closeCallbacks) {
+                        callback.run();
+                    }
+                }
                 // rethrow remembered exception (if any)
                 if (ex instanceof IOException) {
                     //noinspection ThrowFromFinallyBlock
@@ -191,6 +279,91 @@ public class ChunkedOutput<T> extends GenericType<T> implements Closeable {
         }
     }
 
+    private void writeChunk(final Object chunk) throws IOException {
+        responseContext.setEntityStream(requestContext.getWorkers().writeTo(
+                chunk,
+                chunk.getClass(),
+                getType(),
+                responseContext.getEntityAnnotations(),
+                responseContext.getMediaType(),
+                responseContext.getHeaders(),
+                requestContext.getPropertiesDelegate(),
+                responseContext.getEntityStream(),
+                null,
+                // TODO: (MM) should intercept only for the very first chunk!
+                // TODO: from then on the stream is already wrapped by interceptor streams
+                true));
+    }
+
+    /**
+     * Serialize the chunk into a byte array the same way it would be written to this chunked output.
+     *
+     * @param chunk chunk to be serialized.
+     * @return serialized chunk or {@code null} in case the chunk cannot be serialized independently of this
+     *         chunked output because the writer interceptors wrap the entity stream or modify the response headers.
+     * @throws IOException when encountered any problem during serializing the chunk.
+     */
+    private byte[] serialize(final Object chunk) throws IOException {
+        final MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+        final MultivaluedMap<String, Object> headersCopy = new StringKeyIgnoreCaseMultivaluedMap<Object>();
+        for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+            headersCopy.put(header.getKey(), new ArrayList<Object>(header.getValue()));
+        }
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final OutputStream stream = requestContext.getWorkers().writeTo(
+                chunk,
+                chunk.getClass(),
+                getType(),
+                responseContext.getEntityAnnotations(),
+                responseContext.getMediaType(),
+                headersCopy,
+                requestContext.getPropertiesDelegate(),
+                buffer,
+                null,
+                true);
+
+        if (stream != buffer || !sameHeaders(headers, headersCopy)) {
+            return null;
+        }
+        return buffer.toByteArray();
+    }
+
+    private static boolean sameHeaders(final MultivaluedMap<String, Object> headers,
+                                       final MultivaluedMap<String, Object> other) {
+        if (headers.size() != other.size()) {
+            return false;
+        }
+        for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+            if (!header.getValue().equals(other.get(header.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the key identifying the way the chunks are serialized for this chunked output. Chunked outputs with equal
+     * serialization keys produce the same bytes for the same chunk.
+     *
+     * @return serialization key.
+     */
+    private SerializationKey getSerializationKey() {
+        SerializationKey key = serializationKey;
+        if (key == null) {
+            final MessageBodyWorkers workers = requestContext.getWorkers();
+            final Object interceptors = requestContext.getPropertiesDelegate().getProperty(WriterInterceptorExecutor.INTERCEPTORS);
+            key = new SerializationKey(
+                    workers,
+                    getType(),
+                    responseContext.getEntityAnnotations(),
+                    responseContext.getMediaType(),
+                    interceptors instanceof Collection ? interceptors : workers.getWriterInterceptors());
+            serializationKey = key;
+        }
+        return key;
+    }
+
     /**
      * Close this response - it will be finalized and underlying connections will be closed
      * or made available for another response.
@@ -241,5 +414,145 @@ public class ChunkedOutput<T> extends GenericType<T> implements Closeable {
         this.requestContext = requestContext;
         this.responseContext = responseContext;
         flushQueue();
+        onConnected();
+    }
+
+    /**
+     * Invoked once this chunked output has been returned from the resource method and connected to the response
+     * the chunks are written to.
+     * <p>
+     * Can be overridden by subclasses to start activities that only make sense for a connected chunked output,
+     * e.g. writing keep-alive data. The default implementation does nothing.
+     * </p>
+     */
+    protected void onConnected() {
+    }
+
+    /**
+     * A chunk written to multiple chunked outputs. The chunk is serialized only once for all the chunked outputs
+     * with the same {@link SerializationKey serialization key}, the serialized bytes are then written to each
+     * of the chunked outputs directly.
+     */
+    static final class SharedChunk {
+        /**
+         * Marks the chunk as not serializable independently of the chunked outputs with a given serialization key.
+         */
+        private static final byte[] NOT_SHAREABLE = new byte[0];
+
+        private final Object chunk;
+        private final byte[] encoded;
+        private final ConcurrentMap<SerializationKey, byte[]> serialized =
+                new ConcurrentHashMap<SerializationKey, byte[]>(4, 0.75f, 1);
+
+        /**
+         * Create new shared chunk.
+         *
+         * @param chunk chunk instance. Must not be {@code null}.
+         */
+        SharedChunk(final Object chunk) {
+            this(chunk, null);
+        }
+
+        private SharedChunk(final Object chunk, final byte[] encoded) {
+            this.chunk = chunk;
+            this.encoded = encoded;
+        }
+
+        /**
+         * Create new shared chunk already encoded into the bytes written to all the chunked outputs.
+         *
+         * @param encoded encoded chunk.
+         * @return new shared chunk.
+         */
+        static SharedChunk encoded(final byte[] encoded) {
+            return new SharedChunk(null, encoded);
+        }
+
+        /**
+         * Get the chunk instance.
+         *
+         * @return chunk instance.
+         */
+        Object getChunk() {
+            return chunk;
+        }
+
+        /**
+         * Get the chunk serialized for the chunked output.
+         *
+         * @param output chunked output the chunk is being written to.
+         * @return serialized chunk or {@code null} if the chunk has to be written to the chunked output directly.
+         * @throws IOException when encountered any problem during serializing the chunk.
+         */
+        byte[] getBytes(final ChunkedOutput<?> output) throws IOException {
+            if (encoded != null) {
+                return encoded;
+            }
+            final SerializationKey key = output.getSerializationKey();
+            byte[] bytes = serialized.get(key);
+            if (bytes == null) {
+                bytes = output.serialize(chunk);
+                if (bytes == null) {
+                    bytes = NOT_SHAREABLE;
+                }
+                final byte[] previous = serialized.putIfAbsent(key, bytes);
+                if (previous != null) {
+                    bytes = previous;
+                }
+            }
+            return bytes == NOT_SHAREABLE ? null : bytes;
+        }
+    }
+
+    /**
+     * Everything the serialized bytes of a chunk depend on, apart from the chunk itself.
+     */
+    private static final class SerializationKey {
+        private final MessageBodyWorkers workers;
+        private final Type type;
+        private final Annotation[] annotations;
+        private final MediaType mediaType;
+        private final Object interceptors;
+        private final int hashCode;
+
+        SerializationKey(final MessageBodyWorkers workers,
+                         final Type type,
+                         final Annotation[] annotations,
+                         final MediaType mediaType,
+                         final Object interceptors) {
+            this.workers = workers;
+            this.type = type;
+            this.annotations = annotations;
+            this.mediaType = mediaType;
+            this.interceptors = interceptors;
+
+            int hash = System.identityHashCode(workers);
+            hash = 31 * hash + (type == null ? 0 : type.hashCode());
+            hash = 31 * hash + Arrays.hashCode(annotations);
+            hash = 31 * hash + (mediaType == null ? 0 : mediaType.hashCode());
+            hash = 31 * hash + interceptors.hashCode();
+            this.hashCode = hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SerializationKey)) {
+                return false;
+            }
+            final SerializationKey other = (SerializationKey) obj;
+            return workers == other.workers
+                    && (type == null ? other.type == null : type.equals(other.type))
+                    && Arrays.equals(annotations, other.annotations)
+                    && (mediaType == null ? other.mediaType == null : mediaType.equals(other.mediaType))
+                    && interceptors.equals(other.interceptors);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
     }
 }
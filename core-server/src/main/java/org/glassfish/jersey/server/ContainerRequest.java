@@ -49,6 +49,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.Cookie;
@@ -120,6 +121,8 @@ public class ContainerRequest extends InboundMessageContext
     private RequestScopedInitializer requestScopedInitializer;
     // Request-scoped response writer of the invoking container
     private ContainerResponseWriter responseWriter;
+    // Executor for blocking resource method invocations, if the request is processed on a container I/O thread
+    private ExecutorService blockingExecutor;
 
 
     /**
@@ -149,6 +152,42 @@ public class ContainerRequest extends InboundMessageContext
         this.propertiesDelegate = propertiesDelegate;
     }
 
+    /**
+     * Create new Jersey container request context backed by a container-provided
+     * request headers view.
+     *
+     * The supplied headers container is used as is, without copying. Containers may
+     * use this constructor to expose the request headers of the underlying I/O layer
+     * lazily. The supplied map must be mutable and its header name look-up must be
+     * case-insensitive.
+     *
+     * @param baseUri            base application URI.
+     * @param requestUri         request URI.
+     * @param httpMethod         request HTTP method name.
+     * @param securityContext    security context of the current request. Must not be {@code null}.
+     *                           The {@link SecurityContext#getUserPrincipal()} must return
+     *                           {@code null} if the current request has not been authenticated
+     *                           by the container.
+     * @param propertiesDelegate custom {@link PropertiesDelegate properties delegate}
+     *                           to be used by the context.
+     * @param headers            request headers container.
+     */
+    public ContainerRequest(
+            URI baseUri,
+            URI requestUri,
+            String httpMethod,
+            SecurityContext securityContext,
+            PropertiesDelegate propertiesDelegate,
+            MultivaluedMap<String, String> headers) {
+
+        super(headers);
+        this.baseUri = baseUri == null ? DEFAULT_BASE_URI : normalizeBaseUri(baseUri);
+        this.requestUri = requestUri.normalize();
+        this.httpMethod = httpMethod;
+        this.securityContext = securityContext;
+        this.propertiesDelegate = propertiesDelegate;
+    }
+
     /**
      * Get a custom container extensions initializer for the current request.
      *
@@ -192,6 +231,38 @@ public class ContainerRequest extends InboundMessageContext
         this.responseWriter = responseWriter;
     }
 
+    /**
+     * Get the container-provided executor service used to invoke blocking resource
+     * methods.
+     *
+     * @return blocking resource method invocation executor, or {@code null} if the request
+     *         is processed on a thread that may block.
+     * @see #setBlockingExecutor(java.util.concurrent.ExecutorService)
+     */
+    public ExecutorService getBlockingExecutor() {
+        return blockingExecutor;
+    }
+
+    /**
+     * Set the container-provided executor service used to invoke blocking resource
+     * methods.
+     * <p>
+     * Containers that process the request on an I/O thread which must not block
+     * (e.g. a selector thread) should set the executor before passing the request to the
+     * {@link ApplicationHandler}. The request is then routed on the I/O thread and,
+     * unless the matched resource method has been declared {@link NonBlocking non-blocking},
+     * the request is suspended and the resource method is invoked using the supplied
+     * executor. The executor is also used for {@link ManagedAsync managed asynchronous}
+     * resource method invocations. By default the executor is not set and the resource
+     * methods are invoked on the container thread.
+     * </p>
+     *
+     * @param blockingExecutor blocking resource method invocation executor.
+     */
+    public void setBlockingExecutor(ExecutorService blockingExecutor) {
+        this.blockingExecutor = blockingExecutor;
+    }
+
     /**
      * Read entity from a context entity input stream.
      *
@@ -0,0 +1,142 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded ring buffer of the most recently broadcast chunks used by the {@link Broadcaster} to replay the chunks
+ * missed by a reconnecting client.
+ * <p>
+ * The buffer keeps at most the configured number of chunks. If the maximum age is set, the chunks older than
+ * the maximum age are discarded as well. The chunks are kept as {@link ChunkedOutput.SharedChunk shared chunks},
+ * so that the replayed chunks are not serialized again for the chunked outputs that use the same serialization
+ * as the chunked outputs the chunks have been broadcast to.
+ * </p>
+ * <p>
+ * Instances of this class are thread safe.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+final class ReplayBuffer {
+
+    private final Entry[] entries;
+    private final long maxAge;
+    // guarded by this
+    private int head;
+    private int size;
+
+    /**
+     * Create new replay buffer.
+     *
+     * @param capacity maximum number of chunks kept in the buffer.
+     * @param maxAge   maximum age of the chunks kept in the buffer in milliseconds, {@code 0} for no limit.
+     */
+    ReplayBuffer(final int capacity, final long maxAge) {
+        this.entries = new Entry[capacity];
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Add a broadcast chunk to the buffer, discarding the oldest chunk if the buffer is full.
+     *
+     * @param id    chunk identifier, may be {@code null}.
+     * @param chunk broadcast chunk.
+     */
+    synchronized void add(final String id, final ChunkedOutput.SharedChunk chunk) {
+        final long now = System.currentTimeMillis();
+        discardExpired(now);
+
+        if (size == entries.length) {
+            entries[head] = null;
+            head = (head + 1) % entries.length;
+            size--;
+        }
+        entries[(head + size) % entries.length] = new Entry(id, chunk, now);
+        size++;
+    }
+
+    /**
+     * Get the chunks added to the buffer after the most recent chunk with the given identifier.
+     *
+     * @param id chunk identifier.
+     * @return chunks added after the chunk with the given identifier, in the order in which they have been added, or
+     *         {@code null} if the buffer does not contain a chunk with the given identifier.
+     */
+    synchronized List<ChunkedOutput.SharedChunk> getChunksAfter(final String id) {
+        discardExpired(System.currentTimeMillis());
+
+        for (int i = size - 1; i >= 0; i--) {
+            if (id.equals(entries[(head + i) % entries.length].id)) {
+                final List<ChunkedOutput.SharedChunk> chunks = new ArrayList<ChunkedOutput.SharedChunk>(size - i - 1);
+                for (int j = i + 1; j < size; j++) {
+                    chunks.add(entries[(head + j) % entries.length].chunk);
+                }
+                return chunks;
+            }
+        }
+        return null;
+    }
+
+    private void discardExpired(final long now) {
+        if (maxAge <= 0) {
+            return;
+        }
+        while (size > 0 && now - entries[head].timestamp > maxAge) {
+            entries[head] = null;
+            head = (head + 1) % entries.length;
+            size--;
+        }
+    }
+
+    private static final class Entry {
+        private final String id;
+        private final ChunkedOutput.SharedChunk chunk;
+        private final long timestamp;
+
+        Entry(final String id, final ChunkedOutput.SharedChunk chunk, final long timestamp) {
+            this.id = id;
+            this.chunk = chunk;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -44,6 +44,7 @@ import java.util.concurrent.Executors;
 
 import javax.inject.Inject;
 
+import org.glassfish.jersey.process.VirtualThreadExecutorsProvider;
 import org.glassfish.jersey.process.internal.ExecutorsFactory;
 import org.glassfish.jersey.spi.RequestExecutorsProvider;
 import org.glassfish.jersey.spi.ResponseExecutorsProvider;
@@ -57,7 +58,8 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
  * {@link org.glassfish.jersey.process.internal.ExecutorsFactory Executors factory} used on the server side.
  *
  * The class returns the {@link java.util.concurrent.ExecutorService requesting executor} based on the request
- * data.
+ * data. If the {@link ServerProperties#VIRTUAL_THREAD_EXECUTION virtual thread execution} is enabled
+ * and supported, the default requesting executor runs each task on a new virtual thread.
  *
  * @author Miroslav Fuksa (miroslav.fuksa at oracle.com)
  */
@@ -74,10 +76,20 @@ class ServerExecutorsFactory extends ExecutorsFactory<ContainerRequest> {
     @Inject
     public ServerExecutorsFactory(ServiceLocator locator) {
         super(locator);
+        final ResourceConfig config = locator.getService(ResourceConfig.class);
+        final boolean virtualThreads = config != null && config.isProperty(ServerProperties.VIRTUAL_THREAD_EXECUTION);
+
         this.requestingExecutor = getInitialRequestingExecutor(new RequestExecutorsProvider() {
 
             @Override
             public ExecutorService getRequestingExecutor() {
+                if (virtualThreads) {
+                    final ExecutorService executor =
+                            VirtualThreadExecutorsProvider.newExecutorService("jersey-server-managed-async-executor-");
+                    if (executor != null) {
+                        return executor;
+                    }
+                }
                 return Executors.newCachedThreadPool(
                         new ThreadFactoryBuilder().setNameFormat("jersey-server-managed-async-executor-%d").build());
             }
@@ -93,7 +105,8 @@ class ServerExecutorsFactory extends ExecutorsFactory<ContainerRequest> {
 
     @Override
     public ExecutorService getRequestingExecutor(ContainerRequest request) {
-        return requestingExecutor;
+        final ExecutorService blockingExecutor = request.getBlockingExecutor();
+        return blockingExecutor != null ? blockingExecutor : requestingExecutor;
     }
 
     @Override
@@ -236,6 +236,33 @@ public final class ServerProperties {
     @SuppressWarnings("HtmlTagCanBeJavadocTag")
     public static final String FEATURE_DISABLE_WADL = "jersey.config.server.wadl.disableWadl";
 
+    /**
+     * If set to {@code true} and virtual threads are supported by the Java runtime, requests are
+     * processed on virtual threads.
+     * <p>
+     * When enabled, the default executor used to run {@link org.glassfish.jersey.server.ManagedAsync managed
+     * asynchronous} resource method invocations starts a new virtual thread for each invocation instead of
+     * using a cached thread pool. Containers that support this property (e.g. Grizzly 2 HTTP or JDK HTTP
+     * server containers) also dispatch each incoming request to a new virtual thread. Custom registered
+     * {@link org.glassfish.jersey.spi.RequestExecutorsProvider request executors providers} take precedence
+     * over this property.
+     * </p>
+     * <p>
+     * If virtual threads are not supported by the Java runtime, a warning is logged and the property
+     * is ignored.
+     * </p>
+     * <p>
+     * The default value is {@code false}.
+     * </p>
+     * <p>
+     * The name of the configuration property is <code>{@value}</code>.
+     * </p>
+     *
+     * @see org.glassfish.jersey.process.VirtualThreadExecutorsProvider
+     */
+    @SuppressWarnings("HtmlTagCanBeJavadocTag")
+    public static final String VIRTUAL_THREAD_EXECUTION = "jersey.config.server.virtualThreadExecution";
+
     private ServerProperties() {
         // prevents instantiation
     }
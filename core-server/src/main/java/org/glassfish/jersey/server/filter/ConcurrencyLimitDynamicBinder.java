@@ -0,0 +1,204 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.server.filter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.ws.rs.BindingPriority;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.glassfish.jersey.server.CloseableService;
+
+import deprecated.javax.ws.rs.DynamicBinder;
+
+/**
+ * A {@link DynamicBinder} limiting the number of concurrently processed requests of each
+ * resource method and sub-resource method.
+ * <p>
+ * Each resource method is guarded by its own {@link ConcurrencyLimiter adaptive concurrency limiter}.
+ * A request that would exceed the current limit of the matched method is not queued; it is rejected
+ * immediately with a 503 (Service Unavailable) response containing a {@code Retry-After} header.
+ * This prevents a single slow resource method from occupying all the container threads.
+ * </p>
+ * <p>
+ * The current limits and statistics of all the guarded methods are available via {@link #getLimiters()}.
+ * To access them, register an instance of the binder, e.g.:
+ * </p>
+ * <pre>
+ * final ConcurrencyLimitDynamicBinder limits = new ConcurrencyLimitDynamicBinder();
+ * resourceConfig.addSingletons(limits);
+ * ...
+ * limits.getLimiters().get(method).getShedCount();
+ * </pre>
+ *
+ * @author agent (agent at local)
+ */
+public class ConcurrencyLimitDynamicBinder implements DynamicBinder<ContainerRequestFilter> {
+
+    /**
+     * Default initial limit of concurrently processed requests per resource method.
+     */
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    /**
+     * Default minimal limit of concurrently processed requests per resource method.
+     */
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    /**
+     * Default maximal limit of concurrently processed requests per resource method.
+     */
+    public static final int DEFAULT_MAX_LIMIT = 1000;
+    /**
+     * Default value of the {@code Retry-After} header (in seconds) sent with rejected requests.
+     */
+    public static final int DEFAULT_RETRY_AFTER = 1;
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int retryAfter;
+
+    private final ConcurrentMap<Method, ConcurrencyLimiter> limiters = new ConcurrentHashMap<Method, ConcurrencyLimiter>();
+
+    @Inject
+    private Provider<CloseableService> closeableServiceProvider;
+
+    /**
+     * Create new concurrency limiting binder with the default limits.
+     */
+    public ConcurrencyLimitDynamicBinder() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_RETRY_AFTER);
+    }
+
+    /**
+     * Create new concurrency limiting binder.
+     *
+     * @param initialLimit initial limit of concurrently processed requests per resource method.
+     * @param minLimit     minimal limit of concurrently processed requests per resource method.
+     * @param maxLimit     maximal limit of concurrently processed requests per resource method.
+     * @param retryAfter   value of the {@code Retry-After} header (in seconds) sent with rejected requests.
+     */
+    public ConcurrencyLimitDynamicBinder(final int initialLimit, final int minLimit, final int maxLimit, final int retryAfter) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit.");
+        }
+        if (retryAfter < 0) {
+            throw new IllegalArgumentException("Retry-After value must not be negative.");
+        }
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public ContainerRequestFilter getBoundProvider(final ResourceInfo resourceInfo) {
+        final Method method = resourceInfo.getResourceMethod();
+
+        ConcurrencyLimiter limiter = limiters.get(method);
+        if (limiter == null) {
+            final ConcurrencyLimiter newLimiter = new ConcurrencyLimiter(initialLimit, minLimit, maxLimit);
+            limiter = limiters.putIfAbsent(method, newLimiter);
+            if (limiter == null) {
+                limiter = newLimiter;
+            }
+        }
+
+        return new ConcurrencyLimitRequestFilter(limiter);
+    }
+
+    /**
+     * Get the concurrency limiters of all the guarded resource methods.
+     *
+     * @return unmodifiable view of the concurrency limiters keyed by the resource methods.
+     */
+    public Map<Method, ConcurrencyLimiter> getLimiters() {
+        return Collections.unmodifiableMap(limiters);
+    }
+
+    @BindingPriority(BindingPriority.AUTHORIZATION) // shed the load before any expensive filtering is done
+    private class ConcurrencyLimitRequestFilter implements ContainerRequestFilter {
+        private final ConcurrencyLimiter limiter;
+
+        ConcurrencyLimitRequestFilter(final ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void filter(final ContainerRequestContext requestContext) throws IOException {
+            if (!limiter.tryAcquire()) {
+                requestContext.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, retryAfter).build());
+                return;
+            }
+
+            final long start = System.nanoTime();
+            try {
+                // the permit is released once the request processing is finished, including the failure cases
+                closeableServiceProvider.get().add(new Closeable() {
+                    private final AtomicBoolean released = new AtomicBoolean();
+
+                    @Override
+                    public void close() {
+                        if (released.compareAndSet(false, true)) {
+                            limiter.release(System.nanoTime() - start);
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                limiter.release(System.nanoTime() - start);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.server.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive limit of concurrently processed requests of a single resource method.
+ * <p>
+ * The limit is adjusted using an additive-increase/multiplicative-decrease (AIMD) algorithm
+ * driven by the observed request processing latency. The lowest observed latency is used as
+ * an estimate of the latency of the method when not under load. As long as the observed
+ * latency stays within a tolerance of the estimate and the limit is being utilized, the limit
+ * grows by roughly one for each limit's worth of completed requests. Once the latency exceeds
+ * the tolerance, the limit is reduced by a constant factor (at most once per observed latency
+ * period). The no-load latency estimate slowly decays so that it follows lasting changes
+ * in the method behavior.
+ * </p>
+ * <p>
+ * The in-flight request counter and all the statistics are updated without locking.
+ * </p>
+ *
+ * @author agent (agent at local)
+ * @see ConcurrencyLimitDynamicBinder
+ */
+public final class ConcurrencyLimiter {
+
+    /**
+     * Factor of the no-load latency estimate above which a latency sample signals congestion.
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+    /**
+     * Factor applied to the limit on congestion.
+     */
+    private static final double DECREASE_FACTOR = 0.9;
+    /**
+     * Number of latency samples after which the no-load latency estimate is decayed.
+     */
+    private static final int DECAY_INTERVAL = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits;
+    private final AtomicLong shedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+
+    private final AtomicLong noLoadLatency = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong windowMinLatency = new AtomicLong(Long.MAX_VALUE);
+    // no decrease has happened yet - allow the first one immediately
+    private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime() - TimeUnit.HOURS.toNanos(1));
+
+    /**
+     * Create new concurrency limiter.
+     *
+     * @param initialLimit initial limit.
+     * @param minLimit     minimal limit.
+     * @param maxLimit     maximal limit.
+     */
+    ConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(initialLimit));
+    }
+
+    /**
+     * Try to acquire a permit to process a request.
+     *
+     * @return {@code true} if the permit has been acquired, {@code false} if the request should be shed.
+     */
+    boolean tryAcquire() {
+        final int limit = getLimit();
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= limit) {
+                shedCount.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release a permit previously {@link #tryAcquire() acquired} and update the limit
+     * using the observed request processing latency.
+     *
+     * @param latencyNanos request processing latency in nanoseconds.
+     */
+    void release(final long latencyNanos) {
+        final int utilized = inFlight.getAndDecrement();
+        final long samples = completedCount.incrementAndGet();
+
+        updateNoLoadLatency(latencyNanos, samples);
+
+        final long noLoad = noLoadLatency.get();
+        if (latencyNanos > noLoad * LATENCY_TOLERANCE) {
+            final long now = System.nanoTime();
+            final long last = lastDecrease.get();
+            // decrease at most once per latency period - the requests in flight have seen the same congestion
+            if (now - last > latencyNanos && lastDecrease.compareAndSet(last, now)) {
+                updateLimit(false);
+            }
+        } else if (utilized * 2 >= getLimit()) {
+            // grow only if the current limit is actually being utilized
+            updateLimit(true);
+        }
+    }
+
+    private void updateNoLoadLatency(final long latencyNanos, final long samples) {
+        setIfLower(noLoadLatency, latencyNanos);
+        setIfLower(windowMinLatency, latencyNanos);
+
+        if (samples % DECAY_INTERVAL == 0) {
+            // let the estimate follow lasting latency changes, at most by 10% per interval
+            final long windowMin = windowMinLatency.getAndSet(Long.MAX_VALUE);
+            final long current = noLoadLatency.get();
+            if (current != Long.MAX_VALUE && windowMin > current) {
+                noLoadLatency.compareAndSet(current, Math.min(windowMin, current + current / 10));
+            }
+        }
+    }
+
+    private static void setIfLower(final AtomicLong value, final long candidate) {
+        long current;
+        while (candidate < (current = value.get())) {
+            if (value.compareAndSet(current, candidate)) {
+                return;
+            }
+        }
+    }
+
+    private void updateLimit(final boolean increase) {
+        while (true) {
+            final long currentBits = limitBits.get();
+            final double current = Double.longBitsToDouble(currentBits);
+            final double updated = increase
+                    ? Math.min(maxLimit, current + 1.0 / current)
+                    : Math.max(minLimit, current * DECREASE_FACTOR);
+            if (updated == current || limitBits.compareAndSet(currentBits, Double.doubleToLongBits(updated))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the current limit of concurrently processed requests.
+     *
+     * @return current limit.
+     */
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    /**
+     * Get the number of requests currently being processed.
+     *
+     * @return number of requests in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Get the total number of requests rejected because the limit has been reached.
+     *
+     * @return number of shed requests.
+     */
+    public long getShedCount() {
+        return shedCount.get();
+    }
+
+    /**
+     * Get the total number of completed requests admitted by the limiter.
+     *
+     * @return number of completed requests.
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Get the current estimate of the request processing latency when not under load.
+     *
+     * @param unit time unit of the returned value.
+     * @return no-load latency estimate or {@code -1} if no request has completed yet.
+     */
+    public long getNoLoadLatency(final TimeUnit unit) {
+        final long latency = noLoadLatency.get();
+        return latency == Long.MAX_VALUE ? -1 : unit.convert(latency, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimiter{limit=" + getLimit() + ", inFlight=" + getInFlight()
+                + ", shed=" + getShedCount() + ", completed=" + getCompletedCount() + '}';
+    }
+}
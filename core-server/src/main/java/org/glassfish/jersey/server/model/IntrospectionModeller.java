@@ -67,6 +67,7 @@ import javax.ws.rs.core.MediaType;
 import org.glassfish.jersey.internal.util.ReflectionHelper;
 import org.glassfish.jersey.internal.util.Tokenizer;
 import org.glassfish.jersey.server.ManagedAsync;
+import org.glassfish.jersey.server.NonBlocking;
 import org.glassfish.jersey.server.internal.LocalizationMessages;
 
 /**
@@ -309,6 +310,10 @@ final class IntrospectionModeller {
             resourceMethodBuilder.managedAsync();
         }
 
+        if (am.isAnnotationPresent(NonBlocking.class)) {
+            resourceMethodBuilder.nonBlocking();
+        }
+
         for (Annotation[] annotations : am.getParameterAnnotations()) {
             for (Annotation annotation : annotations) {
                 if (annotation.annotationType() == Suspended.class) {
@@ -161,6 +161,8 @@ public class ResourceMethod implements ResourceModelComponent, Routed, Producing
         private boolean suspended;
         private long suspendTimeout;
         private TimeUnit suspendTimeoutUnit;
+        // Execution
+        private boolean nonBlocking;
         // Invocable
         private Class<?> handlerClass;
         private Object handlerInstance;
@@ -359,6 +361,22 @@ public class ResourceMethod implements ResourceModelComponent, Routed, Producing
             return this;
         }
 
+        /**
+         * Mark the component as non-blocking.
+         * <p/>
+         * Containers that process requests on their I/O threads may invoke a component
+         * marked as non-blocking directly on the I/O thread instead of handing
+         * the invocation off to a worker thread.
+         *
+         * @return updated builder object.
+         * @see org.glassfish.jersey.server.NonBlocking
+         */
+        public Builder nonBlocking() {
+            nonBlocking = true;
+
+            return this;
+        }
+
         /**
          * If set to {@code true}, the parameter values will not be automatically
          * decoded.
@@ -445,6 +463,7 @@ public class ResourceMethod implements ResourceModelComponent, Routed, Producing
                     suspended,
                     suspendTimeout,
                     suspendTimeoutUnit,
+                    nonBlocking,
                     invocable,
                     nameBindings);
 
@@ -482,6 +501,8 @@ public class ResourceMethod implements ResourceModelComponent, Routed, Producing
     private final boolean suspended;
     private final long suspendTimeout;
     private final TimeUnit suspendTimeoutUnit;
+    // Execution
+    private final boolean nonBlocking;
     // Invocable
     private final Invocable invocable;
     // NameBound
@@ -494,6 +515,7 @@ public class ResourceMethod implements ResourceModelComponent, Routed, Producing
                            boolean managedAsync, final boolean suspended,
                            final long suspendTimeout,
                            final TimeUnit suspendTimeoutUnit,
+                           final boolean nonBlocking,
                            final Invocable invocable,
                            final Collection<Class<? extends Annotation>> nameBindings
     ) {
@@ -511,6 +533,7 @@ public class ResourceMethod implements ResourceModelComponent, Routed, Producing
         this.suspended = suspended;
         this.suspendTimeout = suspendTimeout;
         this.suspendTimeoutUnit = suspendTimeoutUnit;
+        this.nonBlocking = nonBlocking;
 
         this.nameBindings = Collections.unmodifiableCollection(Lists.newArrayList(nameBindings));
     }
@@ -599,6 +622,17 @@ public class ResourceMethod implements ResourceModelComponent, Routed, Producing
         return managedAsync;
     }
 
+    /**
+     * Check if the resource method has been declared as non-blocking.
+     *
+     * @return {@code true} if the method may be invoked directly on a container I/O thread,
+     *         {@code false} otherwise.
+     * @see org.glassfish.jersey.server.NonBlocking
+     */
+    public boolean isNonBlockingDeclared() {
+        return nonBlocking;
+    }
+
     // ResourceModelComponent
     @Override
     public List<? extends ResourceModelComponent> getComponents() {
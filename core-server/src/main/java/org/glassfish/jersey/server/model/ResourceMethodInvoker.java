@@ -278,11 +278,15 @@ public class ResourceMethodInvoker implements Endpoint, ResourceInfo {
         requestContext.setProperty(ReaderInterceptorExecutor.INTERCEPTORS, getReaderInterceptors());
         requestContext.setProperty(WriterInterceptorExecutor.INTERCEPTORS, getWriterInterceptors());
 
-        if (method.isSuspendDeclared() || method.isManagedAsyncDeclared()) {
+        // invocations of blocking methods are handed off from the container I/O thread, if necessary
+        final boolean dispatch = method.isManagedAsyncDeclared()
+                || (!method.isNonBlockingDeclared() && requestContext.getBlockingExecutor() != null);
+
+        if (method.isSuspendDeclared() || dispatch) {
             asyncContextProvider.get().suspend();
         }
 
-        if (method.isManagedAsyncDeclared()) {
+        if (dispatch) {
             asyncContextProvider.get().invokeManaged(new Producer<Response>() {
                 @Override
                 public Response call() {
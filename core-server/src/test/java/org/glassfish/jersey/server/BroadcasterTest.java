@@ -0,0 +1,267 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.server;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link Broadcaster} writing the broadcast chunks in parallel.
+ *
+ * @author agent (agent at local)
+ */
+public class BroadcasterTest {
+
+    private static final int CHUNK_COUNT = 10;
+
+    /**
+     * Chunked output recording the written chunks, optionally blocking the writes until released.
+     */
+    private static class TestOutput extends ChunkedOutput<String> {
+        private final List<Object> chunks = new CopyOnWriteArrayList<Object>();
+        private final CountDownLatch written = new CountDownLatch(CHUNK_COUNT);
+        private final CountDownLatch release;
+
+        TestOutput(final boolean slow) {
+            super(String.class);
+            this.release = new CountDownLatch(slow ? 1 : 0);
+        }
+
+        @Override
+        void write(final SharedChunk chunk) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            chunks.add(chunk.getChunk());
+            written.countDown();
+        }
+    }
+
+    private static class TestListener implements BroadcasterOverflowListener<String> {
+        private final List<ChunkedOutput<String>> evicted = new CopyOnWriteArrayList<ChunkedOutput<String>>();
+        private final List<ChunkedOutput<String>> closed = new CopyOnWriteArrayList<ChunkedOutput<String>>();
+        private final AtomicInteger lags = new AtomicInteger();
+
+        @Override
+        public void onException(ChunkedOutput<String> chunkedOutput, Exception exception) {
+        }
+
+        @Override
+        public void onClose(ChunkedOutput<String> chunkedOutput) {
+            closed.add(chunkedOutput);
+        }
+
+        @Override
+        public void onLag(ChunkedOutput<String> chunkedOutput, int pendingChunks) {
+            lags.incrementAndGet();
+        }
+
+        @Override
+        public void onEvict(ChunkedOutput<String> chunkedOutput) {
+            evicted.add(chunkedOutput);
+        }
+    }
+
+    private ExecutorService writerPool;
+
+    @Before
+    public void setUp() {
+        writerPool = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        writerPool.shutdownNow();
+    }
+
+    @Test
+    public void testEvictSlowOutput() throws Exception {
+        final Broadcaster<String> broadcaster = new Broadcaster<String>(writerPool, 2, Broadcaster.OverflowPolicy.EVICT);
+        final TestListener listener = new TestListener();
+        broadcaster.addBroadcasterListener(listener);
+
+        final TestOutput fast = new TestOutput(false);
+        final TestOutput slow = new TestOutput(true);
+        broadcaster.add(fast);
+        broadcaster.add(slow);
+
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            broadcaster.broadcast("chunk-" + i);
+        }
+
+        // the slow output does not block the broadcast to the fast output
+        assertTrue(fast.written.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            assertEquals("chunk-" + i, fast.chunks.get(i));
+        }
+
+        assertEquals(1, listener.evicted.size());
+        assertEquals(slow, listener.evicted.get(0));
+        assertTrue(listener.closed.contains(slow));
+        assertEquals(0, listener.lags.get());
+        assertFalse(broadcaster.remove(slow));
+        assertTrue(broadcaster.remove(fast));
+
+        slow.release.countDown();
+    }
+
+    @Test
+    public void testDropForSlowOutput() throws Exception {
+        final Broadcaster<String> broadcaster = new Broadcaster<String>(writerPool, 2, Broadcaster.OverflowPolicy.DROP);
+        final TestListener listener = new TestListener();
+        broadcaster.addBroadcasterListener(listener);
+
+        final TestOutput fast = new TestOutput(false);
+        final TestOutput slow = new TestOutput(true);
+        broadcaster.add(fast);
+        broadcaster.add(slow);
+
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            broadcaster.broadcast("chunk-" + i);
+        }
+
+        assertTrue(fast.written.await(5, TimeUnit.SECONDS));
+        assertEquals(CHUNK_COUNT, fast.chunks.size());
+
+        // at most one chunk being written and two chunks queued for the slow output, the rest has been dropped
+        final int lags = listener.lags.get();
+        assertTrue(lags >= CHUNK_COUNT - 3);
+        assertTrue(listener.evicted.isEmpty());
+
+        slow.release.countDown();
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (slow.chunks.size() < CHUNK_COUNT - lags && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(CHUNK_COUNT - lags, slow.chunks.size());
+        assertEquals("chunk-0", slow.chunks.get(0));
+        assertFalse(slow.isClosed());
+    }
+
+    @Test
+    public void testEvictNotifiesPlainListener() throws Exception {
+        final Broadcaster<String> broadcaster = new Broadcaster<String>(writerPool, 2, Broadcaster.OverflowPolicy.EVICT);
+        final List<ChunkedOutput<String>> closed = new CopyOnWriteArrayList<ChunkedOutput<String>>();
+        // listener not implementing the overflow listener extension is only notified about the closed output
+        broadcaster.addBroadcasterListener(new BroadcasterListener<String>() {
+            @Override
+            public void onException(ChunkedOutput<String> chunkedOutput, Exception exception) {
+            }
+
+            @Override
+            public void onClose(ChunkedOutput<String> chunkedOutput) {
+                closed.add(chunkedOutput);
+            }
+        });
+
+        final TestOutput slow = new TestOutput(true);
+        broadcaster.add(slow);
+
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            broadcaster.broadcast("chunk-" + i);
+        }
+
+        assertEquals(Arrays.<ChunkedOutput<String>>asList(slow), closed);
+        assertFalse(broadcaster.remove(slow));
+
+        slow.release.countDown();
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        final Broadcaster<String> broadcaster = new IdentifyingBroadcaster();
+        broadcaster.enableReplay(5, 0, TimeUnit.SECONDS);
+
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            broadcaster.broadcast("chunk-" + i);
+        }
+
+        final TestOutput output = new TestOutput(false);
+        assertTrue(broadcaster.add(output, "chunk-7"));
+        broadcaster.broadcast("chunk-10");
+        assertEquals(Arrays.<Object>asList("chunk-8", "chunk-9", "chunk-10"), output.chunks);
+
+        // the chunk is no longer in the buffer, the output is registered without replaying
+        final TestOutput lagging = new TestOutput(false);
+        assertFalse(broadcaster.add(lagging, "chunk-2"));
+        broadcaster.broadcast("chunk-11");
+        assertEquals(Arrays.<Object>asList("chunk-11"), lagging.chunks);
+    }
+
+    @Test
+    public void testReplayExpired() throws Exception {
+        final Broadcaster<String> broadcaster = new IdentifyingBroadcaster();
+        broadcaster.enableReplay(5, 50, TimeUnit.MILLISECONDS);
+
+        broadcaster.broadcast("chunk-0");
+        broadcaster.broadcast("chunk-1");
+        Thread.sleep(100);
+
+        final TestOutput output = new TestOutput(false);
+        assertFalse(broadcaster.add(output, "chunk-0"));
+        assertTrue(output.chunks.isEmpty());
+    }
+
+    /**
+     * Broadcaster using the chunks as their identifiers.
+     */
+    private static class IdentifyingBroadcaster extends Broadcaster<String> {
+
+        @Override
+        protected String getChunkId(final String chunk) {
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2011-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.server;
+
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModelIssue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Tests hand-off of blocking resource method invocations to a
+ * {@link ContainerRequest#setBlockingExecutor(java.util.concurrent.ExecutorService) container blocking executor}.
+ *
+ * @author agent (agent at local)
+ */
+public class NonBlockingInvocationTest {
+
+    private static final String BASE_URI = "http://localhost:8080/base/";
+    private static final String BLOCKING_THREAD_PREFIX = "blocking-executor-";
+
+    @Path("/")
+    public static class Resource1 {
+
+        @GET
+        @Path("non-blocking")
+        @NonBlocking
+        public String nonBlocking() {
+            return Thread.currentThread().getName();
+        }
+
+        @GET
+        @Path("blocking")
+        public String blocking() {
+            return Thread.currentThread().getName();
+        }
+    }
+
+    private ExecutorService blockingExecutor;
+
+    @Before
+    public void setUp() {
+        blockingExecutor = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat(BLOCKING_THREAD_PREFIX + "%d").build());
+    }
+
+    @After
+    public void tearDown() {
+        blockingExecutor.shutdownNow();
+    }
+
+    private String invoke(final String path, final boolean setExecutor) throws ExecutionException, InterruptedException {
+        final ApplicationHandler application = new ApplicationHandler(new ResourceConfig(Resource1.class));
+        final ContainerRequest request = RequestContextBuilder.from(BASE_URI, BASE_URI + path, "GET").build();
+        if (setExecutor) {
+            request.setBlockingExecutor(blockingExecutor);
+        }
+        return (String) application.apply(request).get().getEntity();
+    }
+
+    @Test
+    public void testModel() {
+        final Resource resource = Resource.from(Resource1.class, new LinkedList<ResourceModelIssue>());
+        assertEquals(2, resource.getSubResourceMethods().size());
+        for (ResourceMethod method : resource.getSubResourceMethods()) {
+            assertEquals(method.getPath(), method.getPath().contains("non-blocking"), method.isNonBlockingDeclared());
+        }
+    }
+
+    @Test
+    public void testNonBlockingInvokedOnContainerThread() throws Exception {
+        assertFalse(invoke("non-blocking", true).startsWith(BLOCKING_THREAD_PREFIX));
+    }
+
+    @Test
+    public void testBlockingHandedOff() throws Exception {
+        assertTrue(invoke("blocking", true).startsWith(BLOCKING_THREAD_PREFIX));
+    }
+
+    @Test
+    public void testNoHandOffWithoutExecutor() throws Exception {
+        assertFalse(invoke("blocking", false).startsWith(BLOCKING_THREAD_PREFIX));
+    }
+}
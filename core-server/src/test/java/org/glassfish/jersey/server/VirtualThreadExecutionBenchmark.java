@@ -0,0 +1,125 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2011-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+
+import org.glassfish.jersey.process.VirtualThreadExecutorsProvider;
+
+/**
+ * Simple throughput benchmark comparing {@link ManagedAsync managed asynchronous} processing of blocking
+ * resource methods on virtual threads and on the default cached thread pool.
+ * <p>
+ * The benchmark is not executed as part of the test suite. Run the {@link #main(String[])} method
+ * on a Java runtime with virtual thread support to get the results.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+public class VirtualThreadExecutionBenchmark {
+
+    private static final String BASE_URI = "http://localhost:8080/base/";
+    private static final int WARM_UP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int CONCURRENT_REQUESTS = 10000;
+    private static final long BLOCKING_MILLIS = 20;
+
+    @Path("blocking")
+    public static class BlockingResource {
+
+        @GET
+        @ManagedAsync
+        public String get() throws InterruptedException {
+            // simulates a blocking call (e.g. JDBC or a downstream HTTP request)
+            Thread.sleep(BLOCKING_MILLIS);
+            return "done";
+        }
+    }
+
+    private static double measure(final boolean virtualThreads) throws Exception {
+        final ApplicationHandler application = new ApplicationHandler(new ResourceConfig(BlockingResource.class)
+                .setProperty(ServerProperties.VIRTUAL_THREAD_EXECUTION, virtualThreads));
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            runRound(application);
+        }
+
+        long totalNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            totalNanos += runRound(application);
+        }
+        return (double) CONCURRENT_REQUESTS * MEASURED_ROUNDS / totalNanos * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static long runRound(final ApplicationHandler application) throws Exception {
+        final List<Future<ContainerResponse>> responses = new ArrayList<Future<ContainerResponse>>(CONCURRENT_REQUESTS);
+        final long start = System.nanoTime();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            responses.add(application.apply(RequestContextBuilder.from(BASE_URI, BASE_URI + "blocking", "GET").build()));
+        }
+        for (Future<ContainerResponse> response : responses) {
+            if (response.get().getStatus() != 200) {
+                throw new IllegalStateException("Unexpected response status: " + response.get().getStatus());
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args command line arguments (ignored).
+     * @throws Exception in case of a benchmark failure.
+     */
+    public static void main(final String[] args) throws Exception {
+        System.out.printf("Cached thread pool: %.0f requests/s%n", measure(false));
+        if (VirtualThreadExecutorsProvider.isSupported()) {
+            System.out.printf("Virtual threads:    %.0f requests/s%n", measure(true));
+        } else {
+            System.out.println("Virtual threads are not supported by the Java runtime.");
+        }
+    }
+}
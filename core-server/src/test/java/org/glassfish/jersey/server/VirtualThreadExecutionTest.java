@@ -0,0 +1,116 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2011-2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.UriInfo;
+
+import org.glassfish.jersey.process.VirtualThreadExecutorsProvider;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link ManagedAsync managed asynchronous} resource method invocations with the
+ * {@link ServerProperties#VIRTUAL_THREAD_EXECUTION virtual thread execution} enabled.
+ *
+ * @author agent (agent at local)
+ */
+public class VirtualThreadExecutionTest {
+
+    private static final String BASE_URI = "http://localhost:8080/base/";
+
+    @Path("managed")
+    public static class Resource1 {
+
+        @Context
+        private UriInfo uriInfo;
+
+        @GET
+        @ManagedAsync
+        public String get() throws Exception {
+            // request scoped proxy must be resolvable on the executor thread
+            return isVirtual(Thread.currentThread()) + ":" + uriInfo.getPath();
+        }
+    }
+
+    private static boolean isVirtual(final Thread thread) throws Exception {
+        if (!VirtualThreadExecutorsProvider.isSupported()) {
+            return false;
+        }
+        final Method isVirtual = Thread.class.getMethod("isVirtual");
+        return (Boolean) isVirtual.invoke(thread);
+    }
+
+    private String invoke(final boolean virtualThreads) throws Exception {
+        final ResourceConfig resourceConfig = new ResourceConfig(Resource1.class)
+                .setProperty(ServerProperties.VIRTUAL_THREAD_EXECUTION, virtualThreads);
+        final ApplicationHandler application = new ApplicationHandler(resourceConfig);
+        final ContainerResponse response =
+                application.apply(RequestContextBuilder.from(BASE_URI, BASE_URI + "managed", "GET").build()).get();
+
+        assertEquals(200, response.getStatus());
+        return (String) response.getEntity();
+    }
+
+    @Test
+    public void testVirtualThreadExecution() throws Exception {
+        assertEquals(VirtualThreadExecutorsProvider.isSupported() + ":managed", invoke(true));
+    }
+
+    @Test
+    public void testPlatformThreadExecution() throws Exception {
+        assertEquals("false:managed", invoke(false));
+    }
+
+    @Test
+    public void testProviderFallback() {
+        final ExecutorService executor = new VirtualThreadExecutorsProvider().getRequestingExecutor();
+        assertEquals(VirtualThreadExecutorsProvider.isSupported(), executor != null);
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.server.filter;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.RequestContextBuilder;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link ConcurrencyLimitDynamicBinder} and {@link ConcurrencyLimiter}.
+ *
+ * @author agent (agent at local)
+ */
+public class ConcurrencyLimitDynamicBinderTest {
+
+    private static volatile CountDownLatch entered;
+    private static volatile CountDownLatch proceed;
+
+    @Path("/resource")
+    public static class Resource {
+
+        @GET
+        @Path("slow")
+        public String slow() throws InterruptedException {
+            entered.countDown();
+            assertTrue(proceed.await(10, TimeUnit.SECONDS));
+            return "slow";
+        }
+
+        @GET
+        @Path("fast")
+        public String fast() {
+            return "fast";
+        }
+    }
+
+    @Test
+    public void testExcessRequestsShed() throws Exception {
+        final ConcurrencyLimitDynamicBinder binder = new ConcurrencyLimitDynamicBinder(1, 1, 1, 7);
+        final ApplicationHandler handler = new ApplicationHandler(new ResourceConfig(Resource.class).addSingletons(binder));
+
+        entered = new CountDownLatch(1);
+        proceed = new CountDownLatch(1);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<ContainerResponse> first = executor.submit(new Callable<ContainerResponse>() {
+                @Override
+                public ContainerResponse call() throws Exception {
+                    return handler.apply(RequestContextBuilder.from("", "/resource/slow", "GET").build()).get();
+                }
+            });
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+            // limit of the slow method reached
+            ContainerResponse response = handler.apply(RequestContextBuilder.from("", "/resource/slow", "GET").build()).get();
+            assertEquals(Response.Status.SERVICE_UNAVAILABLE, response.getStatusInfo());
+            assertEquals("7", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+
+            // other methods are not affected
+            response = handler.apply(RequestContextBuilder.from("", "/resource/fast", "GET").build()).get();
+            assertEquals("fast", response.getEntity());
+
+            proceed.countDown();
+            assertEquals("slow", first.get().getEntity());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final Method slow = Resource.class.getMethod("slow");
+        final ConcurrencyLimiter limiter = binder.getLimiters().get(slow);
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, limiter.getShedCount());
+        assertEquals(1, limiter.getCompletedCount());
+
+        final ConcurrencyLimiter fastLimiter = binder.getLimiters().get(Resource.class.getMethod("fast"));
+        assertEquals(0, fastLimiter.getInFlight());
+        assertEquals(0, fastLimiter.getShedCount());
+    }
+
+    @Test
+    public void testAdditiveIncrease() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 3);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            assertTrue(limiter.tryAcquire());
+            limiter.release(1000);
+            limiter.release(1000);
+        }
+
+        // grows while utilized, bounded by the max limit
+        assertEquals(3, limiter.getLimit());
+        assertEquals(1000, limiter.getNoLoadLatency(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testMultiplicativeDecrease() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 5, 10);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(1000);
+        assertEquals(10, limiter.getLimit());
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    public void testShedWhenLimitReached() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getShedCount());
+    }
+}
@@ -50,6 +50,7 @@ import java.security.Principal;
 import java.security.PrivateKey;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Collections;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientFactory;
@@ -73,6 +74,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -225,6 +227,39 @@ public class MainTest {
         // assertTrue(msg.contains("SSLHandshakeException"));
     }
 
+    /**
+     * Test to see that the TLS session is reused across requests sent by multiple clients
+     * sharing the same SSL configuration instead of performing a full handshake per request.
+     */
+    @Test
+    public void testSSLSessionReused() throws Exception {
+        final TrustManager mytm[] = new TrustManager[]{new MyX509TrustManager("./truststore_client", "asdfgh".toCharArray())};
+        final KeyManager mykm[] = new KeyManager[]{new MyX509KeyManager("./keystore_client", "asdfgh".toCharArray())};
+
+        final SSLContext context = SSLContext.getInstance("SSL");
+        context.init(mykm, mytm, null);
+        final SslConfig sslConfig = new SslConfig(null, context, 16, 300);
+
+        for (int i = 0; i < 2; i++) {
+            Client client = ClientFactory.newClient();
+            client.configuration().setProperty(ClientProperties.SSL_CONFIG, sslConfig);
+            client.configuration().register(new HttpBasicAuthFilter("user", "password"));
+
+            WebTarget target = client.target(Server.BASE_URI);
+            for (int j = 0; j < 3; j++) {
+                final Response response = target.path("/").request().get(Response.class);
+                assertEquals(200, response.getStatus());
+                response.readEntity(String.class);
+            }
+        }
+
+        assertSame(sslConfig.getSocketFactory(), sslConfig.getSocketFactory());
+        assertEquals(16, context.getClientSessionContext().getSessionCacheSize());
+        assertEquals(300, context.getClientSessionContext().getSessionTimeout());
+        // all the requests have been served within a single (resumed) TLS session
+        assertEquals(1, Collections.list(context.getClientSessionContext().getIds()).size());
+    }
+
 }
 
 /**
@@ -46,11 +46,15 @@ import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.CookieParam;
@@ -63,8 +67,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.client.AsyncInvoker;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Cookie;
 import javax.ws.rs.core.Form;
@@ -73,15 +79,36 @@ import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
 
 /**
  * Factory for client-side representation of a resource.
  * See the <a href="package-summary.html">package overview</a>
  * for an example on how to use this class.
+ * <p>
+ * Each resource interface method is introspected just once per proxy, the resulting invocation plan
+ * is cached by the proxy and reused by all subsequent invocations of the method. The sub-resource proxies
+ * returned by the sub-resource locators share the plan cache of the locator, so the sub-resource methods
+ * are introspected just once per root proxy as well. The plans are not shared among the proxies created
+ * by {@link #newResource(Class, WebTarget) newResource}, so that no global state keeps the resource interfaces
+ * (and their class loaders) reachable once the proxies are discarded.
+ * </p>
+ * <p>
+ * Resource methods returning {@link Future Future&lt;T&gt;} or declaring an (unannotated)
+ * {@link InvocationCallback InvocationCallback&lt;T&gt;} parameter are invoked asynchronously
+ * using the {@link AsyncInvoker asynchronous invoker} of the client. A method with a callback parameter
+ * may either return the response future or be declared as {@code void}.
+ * </p>
  *
  * @author Martin Matula (martin.matula at oracle.com)
  */
 public final class WebResourceFactory implements InvocationHandler {
+
+    private final Class<?> resourceInterface;
+    /**
+     * Invocation plans of the resource interface methods invoked on the proxy.
+     */
+    private final ConcurrentMap<Method, MethodPlan> plans;
     private final WebTarget target;
     private final MultivaluedMap<String, Object> headers;
     private final List<Cookie> cookies;
@@ -90,6 +117,178 @@ public final class WebResourceFactory implements InvocationHandler {
     private static final MultivaluedMap<String, Object> EMPTY_HEADERS = new MultivaluedHashMap<String, Object>();
     private static final Form EMPTY_FORM = new Form();
 
+    /**
+     * Kind of a resource method parameter.
+     */
+    private static enum ParamKind {
+        ENTITY, CALLBACK, PATH, QUERY, HEADER, COOKIE, MATRIX, FORM, IGNORED
+    }
+
+    /**
+     * Immutable binding of a resource method parameter.
+     */
+    private static final class ParamPlan {
+
+        private final ParamKind kind;
+        private final String name;
+        private final String defaultValue;
+        private final Type entityType;
+
+        private ParamPlan(final ParamKind kind, final String name, final String defaultValue, final Type entityType) {
+            this.kind = kind;
+            this.name = name;
+            this.defaultValue = defaultValue;
+            this.entityType = entityType;
+        }
+
+        private static ParamPlan of(final Annotation[] annotations, final Type type) {
+            if (annotations.length == 0) {
+                if (InvocationCallback.class == getRawType(type)) {
+                    return new ParamPlan(ParamKind.CALLBACK, null, null, null);
+                }
+                return new ParamPlan(ParamKind.ENTITY, null, null,
+                        type instanceof ParameterizedType ? type : null);
+            }
+
+            final Map<Class<? extends Annotation>, Annotation> anns =
+                    new HashMap<Class<? extends Annotation>, Annotation>();
+            for (Annotation ann : annotations) {
+                anns.put(ann.annotationType(), ann);
+            }
+            final DefaultValue defaultValue = (DefaultValue) anns.get(DefaultValue.class);
+            final String defaultString = defaultValue == null ? null : defaultValue.value();
+
+            Annotation ann;
+            if ((ann = anns.get(PathParam.class)) != null) {
+                return new ParamPlan(ParamKind.PATH, ((PathParam) ann).value(), defaultString, null);
+            } else if ((ann = anns.get(QueryParam.class)) != null) {
+                return new ParamPlan(ParamKind.QUERY, ((QueryParam) ann).value(), defaultString, null);
+            } else if ((ann = anns.get(HeaderParam.class)) != null) {
+                return new ParamPlan(ParamKind.HEADER, ((HeaderParam) ann).value(), defaultString, null);
+            } else if ((ann = anns.get(CookieParam.class)) != null) {
+                return new ParamPlan(ParamKind.COOKIE, ((CookieParam) ann).value(), defaultString, null);
+            } else if ((ann = anns.get(MatrixParam.class)) != null) {
+                return new ParamPlan(ParamKind.MATRIX, ((MatrixParam) ann).value(), defaultString, null);
+            } else if ((ann = anns.get(FormParam.class)) != null) {
+                return new ParamPlan(ParamKind.FORM, ((FormParam) ann).value(), defaultString, null);
+            }
+            return new ParamPlan(ParamKind.IGNORED, null, null, null);
+        }
+    }
+
+    /**
+     * Immutable invocation plan of a resource interface method.
+     */
+    private static final class MethodPlan {
+
+        /**
+         * HTTP method name, {@code null} for sub-resource locators.
+         */
+        private final String httpMethod;
+        private final String path;
+        private final Class<?> returnType;
+        /**
+         * Invocation plans of the sub-resource interface methods shared by all the sub-resource proxies
+         * returned by the sub-resource locator, {@code null} for resource methods.
+         */
+        private final ConcurrentMap<Method, MethodPlan> subResourcePlans;
+        private final String[] accepts;
+        private final String consumes;
+        private final GenericType<?> responseType;
+        private final ParamPlan[] params;
+        /**
+         * {@code true} if the method returns a response future.
+         */
+        private final boolean returnsFuture;
+        /**
+         * Index of the invocation callback parameter, {@code -1} if there is none.
+         */
+        private final int callbackIndex;
+
+        @SuppressWarnings("unchecked")
+        private MethodPlan(final Class<?> resourceInterface, final Method method) {
+            String httpMethod = getHttpMethodName(method);
+            if (httpMethod == null) {
+                for (Annotation ann : method.getAnnotations()) {
+                    httpMethod = getHttpMethodName(ann.annotationType());
+                    if (httpMethod != null) {
+                        break;
+                    }
+                }
+            }
+            this.httpMethod = httpMethod;
+
+            final Path p = method.getAnnotation(Path.class);
+            this.path = p == null ? null : p.value();
+            this.returnType = method.getReturnType();
+
+            if (httpMethod == null) {
+                if (path == null) {
+                    // no path annotation on the method -> fail
+                    throw new UnsupportedOperationException("Not a resource method.");
+                } else if (!returnType.isInterface()) {
+                    // the method is a subresource locator, but returns class,
+                    // not interface - can't help here
+                    throw new UnsupportedOperationException("Return type not an interface");
+                }
+                this.subResourcePlans = new ConcurrentHashMap<Method, MethodPlan>();
+            } else {
+                this.subResourcePlans = null;
+            }
+
+            // accepted media types
+            Produces produces = method.getAnnotation(Produces.class);
+            if (produces == null) {
+                produces = resourceInterface.getAnnotation(Produces.class);
+            }
+            this.accepts = produces == null ? null : produces.value();
+
+            // content type of the entity, if any
+            Consumes consumes = method.getAnnotation(Consumes.class);
+            if (consumes == null) {
+                consumes = resourceInterface.getAnnotation(Consumes.class);
+            }
+            // TODO: should consider q/qs instead of picking the first one
+            this.consumes = consumes != null && consumes.value().length > 0 ? consumes.value()[0] : null;
+
+            this.returnsFuture = httpMethod != null && returnType == Future.class;
+            if (httpMethod == null) {
+                this.responseType = null;
+            } else if (returnsFuture) {
+                this.responseType = new GenericType(getFutureResultType(method.getGenericReturnType()));
+            } else {
+                this.responseType = new GenericType(method.getGenericReturnType());
+            }
+
+            final Annotation[][] paramAnns = method.getParameterAnnotations();
+            final Type[] paramTypes = method.getGenericParameterTypes();
+            this.params = new ParamPlan[paramAnns.length];
+            int callbackIndex = -1;
+            for (int i = 0; i < paramAnns.length; i++) {
+                params[i] = ParamPlan.of(paramAnns[i], paramTypes[i]);
+                if (params[i].kind == ParamKind.CALLBACK) {
+                    callbackIndex = i;
+                }
+            }
+            this.callbackIndex = callbackIndex;
+        }
+
+        private boolean isAsync() {
+            return returnsFuture || callbackIndex >= 0;
+        }
+
+        private static Type getFutureResultType(final Type futureType) {
+            if (futureType instanceof ParameterizedType) {
+                final Type resultType = ((ParameterizedType) futureType).getActualTypeArguments()[0];
+                if (!(resultType instanceof WildcardType)) {
+                    return resultType;
+                }
+            }
+            // raw or wildcard future
+            return Response.class;
+        }
+    }
+
     /**
      * Creates a new client-side representation of a resource described by
      * the interface passed in the first argument.
@@ -123,138 +322,145 @@ public final class WebResourceFactory implements InvocationHandler {
      * @return Instance of a class implementing the resource interface that can
      * be used for making requests to the server.
      */
-    @SuppressWarnings("unchecked")
     public static <C> C newResource(Class<C> resourceInterface, WebTarget target, boolean ignoreResourcePath,
                                     MultivaluedMap<String, Object> headers, List<Cookie> cookies, Form form) {
+        return newResource(resourceInterface, ignoreResourcePath ? target : addPathFromAnnotation(resourceInterface, target),
+                headers, cookies, form, new ConcurrentHashMap<Method, MethodPlan>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <C> C newResource(Class<C> resourceInterface, WebTarget target, MultivaluedMap<String, Object> headers,
+                                     List<Cookie> cookies, Form form, ConcurrentMap<Method, MethodPlan> plans) {
         return (C) Proxy.newProxyInstance(resourceInterface.getClassLoader(),
                 new Class[]{resourceInterface},
-                new WebResourceFactory(ignoreResourcePath ? target : addPathFromAnnotation(resourceInterface, target),
-                        headers, cookies, form));
+                new WebResourceFactory(resourceInterface, target, headers, cookies, form, plans));
     }
 
-    private WebResourceFactory(WebTarget target, MultivaluedMap<String, Object> headers, List<Cookie> cookies,
-                               Form form) {
+    private WebResourceFactory(Class<?> resourceInterface, WebTarget target, MultivaluedMap<String, Object> headers,
+                               List<Cookie> cookies, Form form, ConcurrentMap<Method, MethodPlan> plans) {
+        this.resourceInterface = resourceInterface;
+        this.plans = plans;
         this.target = target;
         this.headers = headers;
         this.cookies = cookies;
         this.form = form;
     }
 
+    private MethodPlan getPlan(final Method method) {
+        MethodPlan plan = plans.get(method);
+        if (plan == null) {
+            // concurrent computation of the same plan is harmless - the plans are equivalent
+            plan = new MethodPlan(resourceInterface, method);
+            plans.putIfAbsent(method, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Check whether the invocation plan of the resource interface method is cached.
+     *
+     * @param method resource interface method.
+     * @return {@code true} if the invocation plan of the method is cached, {@code false} otherwise.
+     */
+    boolean isPlanned(final Method method) {
+        return plans.containsKey(method);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        // get the interface describing the resource
-        Class<?> proxyIfc = proxy.getClass().getInterfaces()[0];
-
-        // response type
-        Class<?> responseType = method.getReturnType();
-
-        // determine method name
-        String httpMethod = getHttpMethodName(method);
-        if (httpMethod == null) {
-            for (Annotation ann : method.getAnnotations()) {
-                httpMethod = getHttpMethodName(ann.annotationType());
-                if (httpMethod != null) {
-                    break;
-                }
-            }
-        }
+        final MethodPlan plan = getPlan(method);
 
-        // create a new UriBuilder appending the @Path attached to the method
-        WebTarget newTarget = addPathFromAnnotation(method, target);
-
-        if (httpMethod == null) {
-            if (newTarget == target) {
-                // no path annotation on the method -> fail
-                throw new UnsupportedOperationException("Not a resource method.");
-            } else if (!responseType.isInterface()) {
-                // the method is a subresource locator, but returns class,
-                // not interface - can't help here
-                throw new UnsupportedOperationException("Return type not an interface");
-            }
-        }
+        // create a new target appending the @Path attached to the method
+        WebTarget newTarget = plan.path != null ? target.path(plan.path) : target;
 
-        // process method params (build maps of (Path|Form|Cookie|Matrix|Header..)Params
-        // and extract entity type
-        MultivaluedHashMap<String, Object> headers = new MultivaluedHashMap<String, Object>(this.headers);
-        LinkedList<Cookie> cookies = new LinkedList<Cookie>(this.cookies);
-        Form form = new Form();
-        form.asMap().putAll(this.form.asMap());
-        Annotation[][] paramAnns = method.getParameterAnnotations();
+        // bind the method arguments; the inherited header, cookie and form params are copied only if needed
+        MultivaluedMap<String, Object> headerParams = null;
+        List<Cookie> cookieParams = null;
+        Form formParams = null;
         Object entity = null;
         Type entityType = null;
-        for (int i = 0; i < paramAnns.length; i++) {
-            Map<Class, Annotation> anns = new HashMap<Class, Annotation>();
-            for (Annotation ann : paramAnns[i]) {
-                anns.put(ann.annotationType(), ann);
-            }
-            Annotation ann;
+        for (int i = 0; i < plan.params.length; i++) {
+            final ParamPlan param = plan.params[i];
             Object value = args[i];
-            if (anns.isEmpty()) {
-                entityType = method.getGenericParameterTypes()[i];
+            if (param.kind == ParamKind.ENTITY) {
+                entityType = param.entityType;
                 entity = value;
-            } else {
-                if (value == null && (ann = anns.get(DefaultValue.class)) != null) {
-                    value = ((DefaultValue) ann).value();
+                continue;
+            } else if (param.kind == ParamKind.CALLBACK) {
+                continue;
+            }
+
+            if (value == null) {
+                value = param.defaultValue;
+                if (value == null) {
+                    continue;
                 }
+            }
 
-                if (value != null) {
-                    if ((ann = anns.get(PathParam.class)) != null) {
-                        newTarget = newTarget.resolveTemplate(((PathParam) ann).value(), value);
-                    } else if ((ann = anns.get((QueryParam.class))) != null) {
-                        newTarget = newTarget.queryParam(((QueryParam) ann).value(), value);
-                    } else if ((ann = anns.get((HeaderParam.class))) != null) {
-                        headers.addAll(((HeaderParam) ann).value(), value);
-                    } else if ((ann = anns.get((CookieParam.class))) != null) {
-                        String name = ((CookieParam) ann).value();
-                        Cookie c;
-                        if (!(value instanceof Cookie)) {
-                            c = new Cookie(name, value.toString());
-                        } else {
-                            c = (Cookie) value;
-                            if (!name.equals(((Cookie) value).getName())) {
-                                // is this the right thing to do? or should I fail? or ignore the difference?
-                                c = new Cookie(name, c.getValue(), c.getPath(), c.getDomain(), c.getVersion());
-                            }
+            switch (param.kind) {
+                case PATH:
+                    newTarget = newTarget.resolveTemplate(param.name, value);
+                    break;
+                case QUERY:
+                    newTarget = newTarget.queryParam(param.name, value);
+                    break;
+                case HEADER:
+                    if (headerParams == null) {
+                        headerParams = new MultivaluedHashMap<String, Object>();
+                    }
+                    headerParams.add(param.name, value);
+                    break;
+                case COOKIE:
+                    Cookie c;
+                    if (!(value instanceof Cookie)) {
+                        c = new Cookie(param.name, value.toString());
+                    } else {
+                        c = (Cookie) value;
+                        if (!param.name.equals(c.getName())) {
+                            // is this the right thing to do? or should I fail? or ignore the difference?
+                            c = new Cookie(param.name, c.getValue(), c.getPath(), c.getDomain(), c.getVersion());
                         }
-                        cookies.add(c);
-                    } else if ((ann = anns.get((MatrixParam.class))) != null) {
-                        newTarget = newTarget.matrixParam(((MatrixParam) ann).value(), value);
-                    } else if ((ann = anns.get((FormParam.class))) != null) {
-                        form.param(((FormParam) ann).value(), value.toString());
                     }
-                }
+                    if (cookieParams == null) {
+                        cookieParams = new LinkedList<Cookie>();
+                    }
+                    cookieParams.add(c);
+                    break;
+                case MATRIX:
+                    newTarget = newTarget.matrixParam(param.name, value);
+                    break;
+                case FORM:
+                    if (formParams == null) {
+                        formParams = new Form();
+                    }
+                    formParams.param(param.name, value.toString());
+                    break;
+                default:
+                    // not a supported parameter annotation - ignore
+                    break;
             }
         }
 
-        if (httpMethod == null) {
+        if (plan.httpMethod == null) {
             // the method is a subresource locator
-            return WebResourceFactory.newResource(responseType, newTarget, true, headers, cookies, form);
-        }
-
-        // accepted media types
-        Produces produces = method.getAnnotation(Produces.class);
-        if (produces == null) {
-            produces = proxyIfc.getAnnotation(Produces.class);
-        }
-        String[] accepts = produces == null ? null : produces.value();
-
-        // determine content type
-        String contentType = null;
-        if (entity != null) {
-            Consumes consumes = method.getAnnotation(Consumes.class);
-            if (consumes == null) {
-                consumes = proxyIfc.getAnnotation(Consumes.class);
+            final MultivaluedHashMap<String, Object> subHeaders = new MultivaluedHashMap<String, Object>(this.headers);
+            if (headerParams != null) {
+                for (Map.Entry<String, List<Object>> header : headerParams.entrySet()) {
+                    subHeaders.addAll(header.getKey(), header.getValue());
+                }
             }
-            if (consumes != null && consumes.value().length > 0) {
-                // TODO: should consider q/qs instead of picking the first one
-                contentType = consumes.value()[0];
+            final LinkedList<Cookie> subCookies = new LinkedList<Cookie>(this.cookies);
+            if (cookieParams != null) {
+                subCookies.addAll(cookieParams);
             }
+            return WebResourceFactory.newResource(plan.returnType, newTarget, subHeaders, subCookies,
+                    mergeForms(this.form, formParams), plan.subResourcePlans);
         }
 
         Invocation.Builder b;
-        if (accepts != null) {
-            b = newTarget.request(accepts);
+        if (plan.accepts != null) {
+            b = newTarget.request(plan.accepts);
         } else {
             b = newTarget.request();
         }
@@ -263,23 +469,28 @@ public final class WebResourceFactory implements InvocationHandler {
         for (Cookie c : cookies) {
             b = b.cookie(c);
         }
-        // TODO: change this to b.headers(headers) once we switch to the latest JAX-RS API
-        for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
-            for (Object value : header.getValue()) {
-                b = b.header(header.getKey(), value);
+        if (cookieParams != null) {
+            for (Cookie c : cookieParams) {
+                b = b.cookie(c);
             }
         }
+        // TODO: change this to b.headers(headers) once we switch to the latest JAX-RS API
+        b = addHeaders(b, headers);
+        if (headerParams != null) {
+            b = addHeaders(b, headerParams);
+        }
 
-        Object result;
+        final Form form = this.form.asMap().isEmpty() && formParams == null ? null : mergeForms(this.form, formParams);
 
-        if (entity == null && !form.asMap().isEmpty()) {
+        String contentType = entity != null ? plan.consumes : null;
+        if (entity == null && form != null) {
             entity = form;
             contentType = MediaType.APPLICATION_FORM_URLENCODED;
         } else {
             if (contentType == null) {
                 contentType = MediaType.APPLICATION_OCTET_STREAM;
             }
-            if (!form.asMap().isEmpty()) {
+            if (form != null) {
                 if (entity instanceof Form) {
                     ((Form) entity).asMap().putAll(form.asMap());
                 } else {
@@ -288,19 +499,81 @@ public final class WebResourceFactory implements InvocationHandler {
             }
         }
 
-        GenericType responseGenericType = new GenericType(method.getGenericReturnType());
+        Entity<?> requestEntity = null;
         if (entity != null) {
-            if (entityType instanceof ParameterizedType) {
+            if (entityType != null) {
                 entity = new GenericEntity(entity, entityType);
             }
-            result = b.method(httpMethod, Entity.entity(entity, contentType), responseGenericType);
+            requestEntity = Entity.entity(entity, contentType);
+        }
+
+        if (plan.isAsync()) {
+            final InvocationCallback callback = plan.callbackIndex >= 0
+                    ? (InvocationCallback) args[plan.callbackIndex] : null;
+            final Future<?> future = invokeAsync(b.async(), plan, requestEntity, callback);
+            return plan.returnsFuture ? future : null;
+        }
+
+        Object result;
+        if (requestEntity != null) {
+            result = b.method(plan.httpMethod, requestEntity, plan.responseType);
         } else {
-            result = b.method(httpMethod, responseGenericType);
+            result = b.method(plan.httpMethod, plan.responseType);
         }
 
         return result;
     }
 
+    @SuppressWarnings("unchecked")
+    private static Future<?> invokeAsync(final AsyncInvoker invoker, final MethodPlan plan, final Entity<?> entity,
+                                         final InvocationCallback callback) {
+        if (callback != null) {
+            return entity != null
+                    ? invoker.method(plan.httpMethod, entity, callback)
+                    : invoker.method(plan.httpMethod, callback);
+        }
+        if (!plan.returnsFuture) {
+            // no callback supplied for a void method - fire and forget
+            return entity != null ? invoker.method(plan.httpMethod, entity) : invoker.method(plan.httpMethod);
+        }
+        return entity != null
+                ? invoker.method(plan.httpMethod, entity, plan.responseType)
+                : invoker.method(plan.httpMethod, plan.responseType);
+    }
+
+    private static Class<?> getRawType(final Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            final Type rawType = ((ParameterizedType) type).getRawType();
+            return rawType instanceof Class ? (Class<?>) rawType : null;
+        }
+        return null;
+    }
+
+    private static Invocation.Builder addHeaders(Invocation.Builder b, final MultivaluedMap<String, Object> headers) {
+        for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+            for (Object value : header.getValue()) {
+                b = b.header(header.getKey(), value);
+            }
+        }
+        return b;
+    }
+
+    private static Form mergeForms(final Form inherited, final Form params) {
+        final Form form = new Form();
+        // copy the value lists so that the inherited form is never modified
+        for (Map.Entry<String, List<String>> param : inherited.asMap().entrySet()) {
+            form.asMap().addAll(param.getKey(), param.getValue());
+        }
+        if (params != null) {
+            for (Map.Entry<String, List<String>> param : params.asMap().entrySet()) {
+                form.asMap().addAll(param.getKey(), param.getValue());
+            }
+        }
+        return form;
+    }
+
     private static WebTarget addPathFromAnnotation(AnnotatedElement ae, WebTarget target) {
         Path p = ae.getAnnotation(Path.class);
         if (p != null) {
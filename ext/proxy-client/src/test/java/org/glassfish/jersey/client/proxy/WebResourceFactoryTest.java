@@ -39,7 +39,17 @@
  */
 package org.glassfish.jersey.client.proxy;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.client.ClientException;
+import javax.ws.rs.client.InvocationCallback;
 
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.test.JerseyTest;
@@ -47,6 +57,7 @@ import org.glassfish.jersey.test.TestProperties;
 
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class WebResourceFactoryTest extends JerseyTest {
     private MyResourceIfc resource;
@@ -93,4 +104,79 @@ public class WebResourceFactoryTest extends JerseyTest {
     public void testSubResource() {
         assertEquals("Got it!", resource.getSubResource().getMyBean().name);
     }
+
+    @Test
+    public void testSubResourcePlansShared() throws Exception {
+        final MySubResourceIfc first = resource.getSubResource();
+        final MySubResourceIfc second = resource.getSubResource();
+        final Method getMyBean = MySubResourceIfc.class.getMethod("getMyBean");
+
+        assertEquals("Got it!", first.getMyBean().name);
+        // the sub-resource returned by a repeated locator call reuses the plan built for the first one
+        assertTrue(((WebResourceFactory) Proxy.getInvocationHandler(second)).isPlanned(getMyBean));
+        assertEquals("Got it!", second.getMyBean().name);
+    }
+
+    @Test
+    public void testHeaderParam() {
+        assertEquals("jiri", resource.getByHeader("jiri"));
+        assertEquals("anonymous", resource.getByHeader(null));
+    }
+
+    @Test
+    public void testRepeatedInvocations() {
+        final MyResourceIfc other = WebResourceFactory.newResource(MyResourceIfc.class, target());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("id" + i, resource.getId("id" + i));
+            assertEquals("name" + i, other.getByName("name" + i));
+        }
+    }
+
+    @Test
+    public void testAsyncFuture() throws Exception {
+        final MyResourceAsyncIfc asyncResource = WebResourceFactory.newResource(MyResourceAsyncIfc.class, target());
+        assertEquals("Got it!", asyncResource.getIt().get(10, TimeUnit.SECONDS));
+
+        MyBean bean = new MyBean();
+        bean.name = "Ahoj";
+        final Future<List<MyBean>> beans = asyncResource.postIt(Collections.singletonList(bean));
+        assertEquals("Ahoj", beans.get(10, TimeUnit.SECONDS).get(0).name);
+    }
+
+    @Test
+    public void testAsyncCallback() throws Exception {
+        final MyResourceAsyncIfc asyncResource = WebResourceFactory.newResource(MyResourceAsyncIfc.class, target());
+        final CountDownLatch latch = new CountDownLatch(2);
+        final AtomicReference<String> voidResult = new AtomicReference<String>();
+        final AtomicReference<String> futureResult = new AtomicReference<String>();
+
+        asyncResource.getIt(new TestCallback(voidResult, latch));
+        final Future<String> future = asyncResource.getId("jouda", new TestCallback(futureResult, latch));
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals("Got it!", voidResult.get());
+        assertEquals("jouda", futureResult.get());
+        assertEquals("jouda", future.get(10, TimeUnit.SECONDS));
+    }
+
+    private static class TestCallback implements InvocationCallback<String> {
+        private final AtomicReference<String> result;
+        private final CountDownLatch latch;
+
+        TestCallback(final AtomicReference<String> result, final CountDownLatch latch) {
+            this.result = result;
+            this.latch = latch;
+        }
+
+        @Override
+        public void completed(final String response) {
+            result.set(response);
+            latch.countDown();
+        }
+
+        @Override
+        public void failed(final ClientException error) {
+            latch.countDown();
+        }
+    }
 }
@@ -39,6 +39,9 @@
  */
 package org.glassfish.jersey.media.sse;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
 import org.glassfish.jersey.server.ChunkedOutput;
 
 /**
@@ -46,9 +49,81 @@ import org.glassfish.jersey.server.ChunkedOutput;
  *
  * When returned from resource method, underlying connection is kept open and application
  * is able to send events. One instance of this class corresponds with exactly one HTTP connection.
+ * <p>
+ * An event output may be created with a heartbeat interval (see {@link #EventOutput(long, TimeUnit)}). Whenever
+ * no event has been written to such event output for longer than the heartbeat interval, an empty SSE comment
+ * is written to keep the intermediaries from closing the idle connection. The heartbeats are only written once
+ * the event output has been returned from the resource method. The heartbeats of all event outputs are timed
+ * by a single shared scheduler thread and written by a shared thread pool, so that a heartbeat blocked on a slow
+ * connection does not delay the heartbeats of the other event outputs. A failure to write the heartbeat closes
+ * the event output, so that a closed connection is detected even if no events are written to it. The event output
+ * is then immediately unregistered from the {@link SseBroadcaster broadcasters}.
+ * </p>
  *
  * @author Pavel Bucek (pavel.bucek at oracle.com)
  */
 public class EventOutput extends ChunkedOutput<OutboundEvent> {
 
+    /**
+     * Encoded heartbeat - an empty SSE comment.
+     */
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes();
+
+    /**
+     * Heartbeat interval in milliseconds, {@code 0} if no heartbeats are written.
+     */
+    private final long heartbeatInterval;
+
+    /**
+     * Create new event output.
+     */
+    public EventOutput() {
+        this.heartbeatInterval = 0;
+    }
+
+    /**
+     * Create new event output writing heartbeats to the connection whenever it has been idle for longer than
+     * the heartbeat interval.
+     *
+     * @param heartbeatInterval heartbeat interval. Must be positive.
+     * @param unit              time unit of the heartbeat interval.
+     * @throws IllegalArgumentException in case the heartbeat interval is not positive.
+     */
+    public EventOutput(final long heartbeatInterval, final TimeUnit unit) throws IllegalArgumentException {
+        final long interval = unit.toMillis(heartbeatInterval);
+        if (interval <= 0) {
+            throw new IllegalArgumentException(LocalizationMessages.EVENT_OUTPUT_HEARTBEAT_INTERVAL_INVALID());
+        }
+        this.heartbeatInterval = interval;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Starts writing the heartbeats if the event output has been created with a heartbeat interval.
+     */
+    @Override
+    protected void onConnected() {
+        if (heartbeatInterval > 0) {
+            HeartbeatScheduler.schedule(this, heartbeatInterval);
+        }
+    }
+
+    /**
+     * Get the time of the last write to this event output.
+     *
+     * @return time of the last write in milliseconds since the epoch.
+     */
+    long getLastActivity() {
+        return getLastWriteTime();
+    }
+
+    /**
+     * Write the heartbeat to this event output.
+     *
+     * @throws IOException if this event output is closed or the heartbeat could not be written.
+     */
+    void writeHeartbeat() throws IOException {
+        writeEncoded(HEARTBEAT);
+    }
 }
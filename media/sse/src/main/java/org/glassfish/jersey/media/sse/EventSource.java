@@ -41,20 +41,28 @@ package org.glassfish.jersey.media.sse;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
 
+import org.glassfish.jersey.client.ChunkListener;
 import org.glassfish.jersey.client.ChunkedInput;
 
 /**
@@ -66,7 +74,23 @@ import org.glassfish.jersey.client.ChunkedInput;
  * <p>
  * Whenever a new event is received, an {@link EventSource#onEvent(InboundEvent)} method is called as well as any
  * registered {@link EventListener event listeners} are notified (see {@link EventSource#register(EventListener)}
- * and {@link EventSource#register(EventListener, String, String...)}.
+ * and {@link EventSource#register(EventListener, String, String...)}. Events that do not carry any data, such as
+ * the heartbeat comments written by an {@link EventOutput}, are not dispatched.
+ * </p>
+ * <p>
+ * The events are read by the client connector I/O callbacks if the connector supports asynchronous entity
+ * delivery, or by a shared reader thread otherwise (see {@link ChunkedInput#listen(ChunkListener)}). The listeners
+ * are notified about the events serially, in the order in which the events have been received, using an executor
+ * that may be {@link #EventSource(WebTarget, ScheduledExecutorService, boolean) shared} by many event sources.
+ * </p>
+ * <p>
+ * Once the connection to the server is lost, the event source automatically reconnects after a
+ * {@link #RECONNECT_DEFAULT reconnect delay} that may be changed by the server using the SSE {@code retry} field.
+ * The reconnect request contains the {@value SseFeature#LAST_EVENT_ID_HEADER} header with the
+ * {@link InboundEvent#getId() identifier} of the last received event. If the reconnect attempt fails, the
+ * delay is doubled with each further attempt up to {@link #RECONNECT_MAX_DEFAULT}. The event source stops
+ * reconnecting once the server responds with a status other than {@code 503 Service Unavailable} that does not
+ * contain an event stream.
  * </p>
  * <p>
  * Instances of this class are thread safe.
@@ -76,14 +100,45 @@ import org.glassfish.jersey.client.ChunkedInput;
  * @author Marek Potociar (marek.potociar at oracle.com)
  */
 public class EventSource implements EventListener {
+    /**
+     * Default reconnect delay in milliseconds used until the server specifies a different one.
+     */
+    public static final long RECONNECT_DEFAULT = 500;
+    /**
+     * Maximum reconnect delay in milliseconds the delay grows to while reconnect attempts keep failing.
+     * The reconnect delay explicitly requested by the server is never shortened.
+     */
+    public static final long RECONNECT_MAX_DEFAULT = 30000;
+
     private static final Logger LOGGER = Logger.getLogger(EventSource.class.getName());
+    /**
+     * Maximum number of events dispatched in a single task of the event source executor. Limits the time
+     * a single busy event source may occupy a thread of a shared executor.
+     */
+    private static final int DISPATCH_BATCH_SIZE = 64;
+    /**
+     * Maximum number of reconnect delay doublings.
+     */
+    private static final int MAX_BACK_OFF_SHIFT = 16;
+
+    private static enum State {
+        READY, OPEN, CLOSED
+    }
 
-    // Keeping the target is necessary for future reconnect support.
     private final WebTarget target;
+    private final ScheduledExecutorService executor;
+    private final boolean sharedExecutor;
+    private final Dispatcher dispatcher = new Dispatcher();
 
-    private ExecutorService executorService;
-    private Future<?> process;
     private final Object connectionLock = new Object();
+    // guarded by connectionLock
+    private State state = State.READY;
+    private EventInput eventInput;
+    private ScheduledFuture<?> reconnect;
+    private int failedAttempts;
+
+    private volatile String lastEventId;
+    private volatile long reconnectDelay = RECONNECT_DEFAULT;
 
     private final EventListener listenerAggregator = new EventListener() {
         /**
@@ -129,8 +184,8 @@ public class EventSource implements EventListener {
      * web target and starts processing incoming {@link InboundEvent events}.
      * </p>
      * <p>
-     * The incoming events are processed in an asynchronous task running in an internal
-     * {@link java.util.concurrent.Executors#newSingleThreadExecutor() single thread executor}.
+     * The incoming events are dispatched to the listeners by an internal
+     * {@link java.util.concurrent.Executors#newSingleThreadScheduledExecutor() single thread executor}.
      * </p>
      *
      * @param target SSE streaming web target. Must not be {@code null}.
@@ -152,14 +207,40 @@ public class EventSource implements EventListener {
      * created the event source will manually invoke its {@link #open()} method.
      * </p>
      * <p>
-     * The incoming events are processed in an asynchronous task running in an internal
-     * {@link java.util.concurrent.Executors#newSingleThreadExecutor() single thread executor}.
+     * The incoming events are dispatched to the listeners by an internal
+     * {@link java.util.concurrent.Executors#newSingleThreadScheduledExecutor() single thread executor}.
      * </p>
      *
      * @param target SSE streaming web target. Must not be {@code null}.
+     * @param open   if {@code true}, the connection is opened as part of the constructor call.
      * @throws NullPointerException in case the supplied web target is {@code null}.
      */
     public EventSource(WebTarget target, boolean open) {
+        this(target, null, open);
+    }
+
+    /**
+     * Create new SSE event source pointing at a SSE streaming {@link WebTarget web target} that uses the supplied
+     * executor to dispatch the incoming events to the listeners and to schedule the reconnect attempts.
+     * <p>
+     * The executor may be shared by any number of event sources, so that a client consuming many event streams
+     * does not need a thread per event stream. The events of each event source are still dispatched serially in
+     * the order in which they have been received. The executor is not shut down when the event source is
+     * {@link #close() closed}.
+     * </p>
+     * <p>
+     * If the supplied {@code open} flag is {@code true}, the created event source instance automatically
+     * {@link #open opens a connection} to the supplied SSE streaming web target and starts processing incoming
+     * {@link InboundEvent events}.
+     * </p>
+     *
+     * @param target   SSE streaming web target. Must not be {@code null}.
+     * @param executor executor used to dispatch the events and schedule the reconnect attempts. If {@code null},
+     *                 an internal single thread executor is used.
+     * @param open     if {@code true}, the connection is opened as part of the constructor call.
+     * @throws NullPointerException in case the supplied web target is {@code null}.
+     */
+    public EventSource(final WebTarget target, final ScheduledExecutorService executor, final boolean open) {
         if (target == null) {
             throw new NullPointerException("Web target is 'null'.");
         }
@@ -168,6 +249,19 @@ public class EventSource implements EventListener {
         target.configuration().register(InboundEventReader.class).register(EventInputReader.class);
         this.target = target;
 
+        if (executor == null) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, String.format("jersey-sse-event-source-[%s]", target.getUri().toASCIIString()));
+                }
+            });
+            this.sharedExecutor = false;
+        } else {
+            this.executor = executor;
+            this.sharedExecutor = true;
+        }
+
         if (open) {
             open();
         }
@@ -176,74 +270,199 @@ public class EventSource implements EventListener {
     /**
      * Open the connection to the supplied SSE underlying {@link WebTarget web target} and start processing incoming
      * {@link InboundEvent events}.
+     * <p>
+     * The initial connection is established in the calling thread; any failure to establish it is propagated
+     * to the caller and the event source is closed. Once the connection is established, the event source
+     * reconnects automatically whenever the connection is lost.
+     * </p>
      *
      * @throws IllegalStateException in case the event source has already been opened earlier.
      */
     public void open() throws IllegalStateException {
         synchronized (connectionLock) {
-            if (process != null) {
+            if (state != State.READY) {
                 throw new IllegalStateException(LocalizationMessages.EVENT_SOURCE_ALREADY_CONNECTED());
             }
+            state = State.OPEN;
+        }
 
-            executorService = Executors.newSingleThreadExecutor(new ThreadFactory() {
-                @Override
-                public Thread newThread(Runnable r) {
-                    return new Thread(r, String.format("jersey-sse-event-source-[%s]", target.getUri().toASCIIString()));
-                }
-            });
+        final EventInput input;
+        try {
+            input = connect();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        listen(input);
+    }
 
+    /**
+     * Check if this event source instance is open.
+     *
+     * @return {@code true} if this event source is open, {@code false} otherwise.
+     */
+    public boolean isOpen() {
+        synchronized (connectionLock) {
+            return state == State.OPEN;
+        }
+    }
 
-            final EventInput eventInput = target.request(SseFeature.SERVER_SENT_EVENTS_TYPE).get(EventInput.class);
-            eventInput.setParser(ChunkedInput.createParser("\n\n"));
+    /**
+     * Send the SSE streaming request, resuming the event stream after the last received event if any.
+     *
+     * @return event input of the established connection.
+     * @throws WebApplicationException in case the server has not responded with an event stream.
+     */
+    private EventInput connect() throws WebApplicationException {
+        final Invocation.Builder request = target.request(SseFeature.SERVER_SENT_EVENTS_TYPE);
+        final String id = lastEventId;
+        if (id != null) {
+            request.header(SseFeature.LAST_EVENT_ID_HEADER, id);
+        }
 
-            final Future<?> p = executorService.submit(new Runnable() {
-                @Override
-                public void run() {
-                    while (!eventInput.isClosed()) {
-                        synchronized (listenerAggregator) {
-                            final InboundEvent event = eventInput.read();
-                            if (event != null) {
-                                listenerAggregator.onEvent(event);
-                            }
-                        }
-                    }
-                }
-            });
+        final Response response = request.get();
+        if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL
+                || response.getStatus() == Response.Status.NO_CONTENT.getStatusCode()) {
+            response.close();
+            throw new WebApplicationException(response);
+        }
 
-            process = new Future<Object>() {
-                public boolean cancel(boolean mayInterruptIfRunning) {
-                    eventInput.close();
-                    return p.cancel(mayInterruptIfRunning);
-                }
+        final EventInput input = response.readEntity(EventInput.class);
+        input.setParser(ChunkedInput.createParser("\n\n"));
+        return input;
+    }
 
-                public boolean isCancelled() {
-                    return p.isCancelled();
-                }
+    /**
+     * Start listening for the events of the established connection.
+     *
+     * @param input event input of the established connection.
+     */
+    private void listen(final EventInput input) {
+        synchronized (connectionLock) {
+            if (state != State.OPEN) {
+                input.close();
+                return;
+            }
+            eventInput = input;
+            failedAttempts = 0;
+        }
 
-                public boolean isDone() {
-                    return p.isDone();
-                }
+        try {
+            input.listen(new EventInputListener(input));
+        } catch (IllegalStateException e) {
+            // the event source has been closed concurrently
+            LOGGER.log(Level.FINE, e.getMessage(), e);
+        }
+    }
 
-                public Object get() throws InterruptedException, ExecutionException {
-                    return p.get();
-                }
+    /**
+     * Listener of the events received over a single connection.
+     */
+    private final class EventInputListener implements ChunkListener<InboundEvent> {
+        private final EventInput input;
 
-                public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-                    return p.get(timeout, unit);
-                }
-            };
+        EventInputListener(final EventInput input) {
+            this.input = input;
+        }
+
+        @Override
+        public void onChunk(final InboundEvent event) {
+            final String id = event.getId();
+            if (id != null) {
+                lastEventId = id.isEmpty() ? null : id;
+            }
+            final long delay = event.getReconnectDelay();
+            if (delay != InboundEvent.RECONNECT_NOT_SET) {
+                reconnectDelay = delay;
+            }
+            if (event.isEmpty()) {
+                // events without data (e.g. heartbeat comments) are not dispatched
+                return;
+            }
+            dispatcher.dispatch(event);
+        }
+
+        @Override
+        public void onError(final Throwable failure) {
+            LOGGER.log(Level.FINE, failure.getMessage(), failure);
+            scheduleReconnect(input);
+        }
+
+        @Override
+        public void onComplete() {
+            scheduleReconnect(input);
         }
     }
 
     /**
-     * Check if this event source instance is open.
+     * Schedule a reconnect attempt after the connection represented by the supplied event input has been lost
+     * or after the previous reconnect attempt (represented by {@code null} event input) has failed.
      *
-     * @return {@code true} if this event source is open, {@code false} otherwise.
+     * @param lostInput event input of the lost connection or {@code null}.
      */
-    public boolean isOpen() {
+    private void scheduleReconnect(final EventInput lostInput) {
+        synchronized (connectionLock) {
+            if (state != State.OPEN || eventInput != lostInput) {
+                return;
+            }
+            eventInput = null;
+
+            long backOff = reconnectDelay;
+            if (failedAttempts > 0) {
+                backOff = Math.max(backOff, Math.min(
+                        Math.max(backOff, 1) << Math.min(failedAttempts, MAX_BACK_OFF_SHIFT), RECONNECT_MAX_DEFAULT));
+                LOGGER.fine(LocalizationMessages.EVENT_SOURCE_CONNECTION_FAILED(target.getUri().toString(), backOff));
+            }
+            try {
+                reconnect = executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        reconnect();
+                    }
+                }, backOff, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // the shared executor has been shut down
+                LOGGER.log(Level.FINE, e.getMessage(), e);
+                state = State.CLOSED;
+            }
+        }
+    }
+
+    private void reconnect() {
+        synchronized (connectionLock) {
+            if (state != State.OPEN) {
+                return;
+            }
+            reconnect = null;
+        }
+
+        final EventInput input;
+        try {
+            input = connect();
+        } catch (WebApplicationException e) {
+            final int status = e.getResponse().getStatus();
+            if (status != Response.Status.SERVICE_UNAVAILABLE.getStatusCode()) {
+                LOGGER.warning(LocalizationMessages.EVENT_SOURCE_RECONNECT_STOPPED(target.getUri().toString(), status));
+                synchronized (connectionLock) {
+                    state = State.CLOSED;
+                }
+                return;
+            }
+            reconnectFailed();
+            return;
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, e.getMessage(), e);
+            reconnectFailed();
+            return;
+        }
+        listen(input);
+    }
+
+    private void reconnectFailed() {
         synchronized (connectionLock) {
-            return process != null;
+            failedAttempts++;
         }
+        scheduleReconnect(null);
     }
 
     /**
@@ -332,7 +551,7 @@ public class EventSource implements EventListener {
      * <p>
      * The method blocks until the event processing task has completed execution after a shutdown
      * request, or until the timeout occurs, or the current thread is interrupted, whichever happens
-     * first.
+     * first. No events are dispatched to the listeners once this method returns {@code true}.
      * </p>
      * <p>
      * In case the waiting for the event processing task has been interrupted, this method restores
@@ -345,25 +564,114 @@ public class EventSource implements EventListener {
      *         before termination or the termination was interrupted.
      */
     public boolean close(long timeout, TimeUnit unit) {
+        final EventInput input;
         synchronized (connectionLock) {
-            if (process == null) {
+            if (state == State.READY) {
                 return true;
             }
+            state = State.CLOSED;
 
-            process.cancel(true);
-            executorService.shutdown();
-            try {
-                if (!executorService.awaitTermination(timeout, unit)) {
-                    LOGGER.warning(LocalizationMessages.EVENT_SOURCE_SHUTDOWN_TIMEOUT(target.getUri().toString()));
-                    return false;
-                }
-            } catch (InterruptedException e) {
-                LOGGER.fine(LocalizationMessages.EVENT_SOURCE_SHUTDOWN_INTERRUPTED(target.getUri().toString()));
-                Thread.currentThread().interrupt();
+            input = eventInput;
+            eventInput = null;
+            if (reconnect != null) {
+                reconnect.cancel(false);
+                reconnect = null;
+            }
+        }
+
+        if (input != null) {
+            input.close();
+        }
+
+        try {
+            final boolean terminated;
+            if (sharedExecutor) {
+                terminated = dispatcher.awaitIdle(timeout, unit);
+            } else {
+                executor.shutdown();
+                terminated = executor.awaitTermination(timeout, unit);
+            }
+            if (!terminated) {
+                LOGGER.warning(LocalizationMessages.EVENT_SOURCE_SHUTDOWN_TIMEOUT(target.getUri().toString()));
                 return false;
             }
+        } catch (InterruptedException e) {
+            LOGGER.fine(LocalizationMessages.EVENT_SOURCE_SHUTDOWN_INTERRUPTED(target.getUri().toString()));
+            Thread.currentThread().interrupt();
+            return false;
         }
 
         return true;
     }
+
+    /**
+     * Serial dispatcher of the received events to the listeners. The events are dispatched in batches
+     * by the tasks submitted to the (possibly shared) event source executor, at most one task at a time.
+     */
+    private final class Dispatcher implements Runnable {
+        private final Queue<InboundEvent> events = new ConcurrentLinkedQueue<InboundEvent>();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private final ReentrantLock dispatchLock = new ReentrantLock();
+
+        void dispatch(final InboundEvent event) {
+            events.add(event);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!events.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // the event source has been closed or the shared executor has been shut down
+                    events.clear();
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            dispatchLock.lock();
+            try {
+                for (int i = 0; i < DISPATCH_BATCH_SIZE; i++) {
+                    final InboundEvent event = events.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    if (!isOpen()) {
+                        events.clear();
+                        break;
+                    }
+                    try {
+                        listenerAggregator.onEvent(event);
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.WARNING,
+                                LocalizationMessages.EVENT_SOURCE_LISTENER_FAILED(target.getUri().toString()), e);
+                    }
+                }
+            } finally {
+                dispatchLock.unlock();
+                scheduled.set(false);
+            }
+            // reschedule to dispatch the rest of the events or the events added after the last poll
+            schedule();
+        }
+
+        /**
+         * Wait for the currently dispatched event, if any, to be processed by the listeners.
+         *
+         * @param timeout the maximum time to wait.
+         * @param unit    the time unit of the timeout argument.
+         * @return {@code true} if no event is being dispatched, {@code false} if the timeout elapsed.
+         * @throws InterruptedException in case the waiting has been interrupted.
+         */
+        boolean awaitIdle(final long timeout, final TimeUnit unit) throws InterruptedException {
+            if (dispatchLock.tryLock(timeout, unit)) {
+                dispatchLock.unlock();
+                return true;
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.media.sse;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shared scheduler writing the heartbeats to the idle {@link EventOutput event outputs}.
+ * <p>
+ * Each connected event output with a heartbeat interval has a single task scheduled at a time. The task is scheduled
+ * to the time the heartbeat interval elapses since the last write to the event output. If the event output
+ * has been written to in the meantime, the task is just rescheduled, otherwise the heartbeat write is handed off
+ * to the writer pool and the task is rescheduled once the heartbeat is written. The scheduler thread itself never
+ * writes to the event outputs, so a connection blocking the heartbeat write does not delay the other heartbeats.
+ * The task is not rescheduled once the event output is closed.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+final class HeartbeatScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(HeartbeatScheduler.class.getName());
+
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(new HeartbeatThreadFactory("jersey-sse-heartbeat-"));
+
+    private static final ExecutorService WRITER_POOL =
+            Executors.newCachedThreadPool(new HeartbeatThreadFactory("jersey-sse-heartbeat-writer-"));
+
+    /**
+     * Prevents instantiation.
+     */
+    private HeartbeatScheduler() {
+    }
+
+    /**
+     * Start writing the heartbeats to the connected event output.
+     *
+     * @param eventOutput event output.
+     * @param interval    heartbeat interval in milliseconds.
+     */
+    static void schedule(final EventOutput eventOutput, final long interval) {
+        new Heartbeat(eventOutput, interval).schedule(interval);
+    }
+
+    private static final class HeartbeatThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        HeartbeatThreadFactory(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static final class Heartbeat implements Runnable {
+        private final EventOutput eventOutput;
+        private final long interval;
+
+        /**
+         * Heartbeat write executed by the writer pool.
+         */
+        private final Runnable write = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    eventOutput.writeHeartbeat();
+                } catch (IOException e) {
+                    // the connection has been closed, the event output is closed as well
+                    LOGGER.log(Level.FINE, e.getMessage(), e);
+                    return;
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.FINE, e.getMessage(), e);
+                    return;
+                }
+                schedule(interval);
+            }
+        };
+
+        Heartbeat(final EventOutput eventOutput, final long interval) {
+            this.eventOutput = eventOutput;
+            this.interval = interval;
+        }
+
+        void schedule(final long delay) {
+            SCHEDULER.schedule(this, delay, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            if (eventOutput.isClosed()) {
+                return;
+            }
+
+            final long idle = System.currentTimeMillis() - eventOutput.getLastActivity();
+            if (idle < interval) {
+                schedule(interval - idle);
+                return;
+            }
+
+            try {
+                WRITER_POOL.execute(write);
+            } catch (RejectedExecutionException e) {
+                LOGGER.log(Level.FINE, e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -56,8 +56,14 @@ import org.glassfish.jersey.message.MessageBodyWorkers;
  * @author Pavel Bucek (pavel.bucek at oracle.com)
  */
 public class InboundEvent {
+    /**
+     * Value returned from {@link #getReconnectDelay()} in case the event does not specify a reconnect delay.
+     */
+    public static final long RECONNECT_NOT_SET = -1;
+
     private final String name;
     private final String id;
+    private final long reconnectDelay;
     private final byte[] data;
 
     private final MessageBodyWorkers messageBodyWorkers;
@@ -71,6 +77,7 @@ public class InboundEvent {
     static class Builder {
         private String name;
         private String id;
+        private long reconnectDelay = RECONNECT_NOT_SET;
         private ByteArrayOutputStream dataStream;
 
         private final MessageBodyWorkers workers;
@@ -111,6 +118,16 @@ public class InboundEvent {
             return this;
         }
 
+        /**
+         * Set the reconnect delay requested by the event source.
+         *
+         * @param milliseconds reconnect delay in milliseconds.
+         */
+        public Builder reconnectDelay(long milliseconds) {
+            this.reconnectDelay = milliseconds;
+            return this;
+        }
+
         /**
          * Add more incoming event data.
          *
@@ -133,6 +150,7 @@ public class InboundEvent {
             return new InboundEvent(
                     name,
                     id,
+                    reconnectDelay,
                     dataStream.toByteArray(),
                     workers,
                     annotations,
@@ -143,6 +161,7 @@ public class InboundEvent {
 
     private InboundEvent(String name,
                         String id,
+                        long reconnectDelay,
                         byte[] data,
                         MessageBodyWorkers messageBodyWorkers,
                         Annotation[] annotations,
@@ -150,6 +169,7 @@ public class InboundEvent {
                         MultivaluedMap<String, String> headers) {
         this.name = name;
         this.id = id;
+        this.reconnectDelay = reconnectDelay;
         this.data = data;
         this.messageBodyWorkers = messageBodyWorkers;
         this.annotations = annotations;
@@ -175,6 +195,29 @@ public class InboundEvent {
         return name;
     }
 
+    /**
+     * Get the event identifier.
+     * <p>
+     * The identifier of the last received event is sent to the server in the {@value SseFeature#LAST_EVENT_ID_HEADER}
+     * header when an {@link EventSource} reconnects to the server.
+     * </p>
+     *
+     * @return event identifier or {@code null} if it is not present.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Get the reconnect delay requested by the server in the {@code retry} field of the event.
+     *
+     * @return reconnect delay in milliseconds or {@link #RECONNECT_NOT_SET} if the event does not
+     *         specify the reconnect delay.
+     */
+    public long getReconnectDelay() {
+        return reconnectDelay;
+    }
+
     /**
      * Get event data.
      *
@@ -40,12 +40,11 @@
 
 package org.glassfish.jersey.media.sse;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 
 import javax.ws.rs.ConstrainedTo;
 import javax.ws.rs.WebApplicationException;
@@ -67,16 +66,12 @@ import org.glassfish.jersey.message.MessageBodyWorkers;
 // TODO: make package-private once common config support is fully implemented & replace registration with SseFeature.
 public class InboundEventReader implements MessageBodyReader<InboundEvent> {
     private static final byte[] EOL_DATA = new byte[]{'\n'};
+    private static final byte[] EMPTY_DATA = new byte[0];
+    private static final int INITIAL_BUFFER_SIZE = 256;
 
     @Inject
     private Provider<MessageBodyWorkers> messageBodyWorkers;
 
-    private static enum State {
-        NEW_LINE,
-        COMMENT,
-        FIELD,
-    }
-
     @Override
     public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
         return InboundEvent.class.equals(type) && mediaType.equals(SseFeature.SERVER_SENT_EVENTS_TYPE);
@@ -95,86 +90,96 @@ public class InboundEventReader implements MessageBodyReader<InboundEvent> {
          * http://dev.w3.org/html5/eventsource/
          * last editors draft from 13 March 2012
          */
-        final ByteArrayOutputStream tokenData = new ByteArrayOutputStream();
-        InboundEvent.Builder eventBuilder = new InboundEvent.Builder(messageBodyWorkers.get(), annotations, mediaType, headers);
-
-        int b = -1;
-        State currentState = State.NEW_LINE;
-        loop:
-        do {
-            switch (currentState) {
-                case NEW_LINE:
-                    b = entityStream.read();
-                    if (b == '\n' || b == -1) {
-                        break loop;
-                    }
+        final InboundEvent.Builder eventBuilder =
+                new InboundEvent.Builder(messageBodyWorkers.get(), annotations, mediaType, headers);
+
+        // the event data are read in blocks and then scanned in memory instead of reading the stream byte by byte
+        final byte[] data = readEvent(entityStream);
+        int lineStart = 0;
+        while (lineStart < data.length) {
+            int lineEnd = indexOf(data, '\n', lineStart, data.length);
+            if (lineEnd < 0) {
+                lineEnd = data.length;
+            }
+            if (lineEnd == lineStart) {
+                // empty line - end of the event
+                break;
+            }
 
-                    if (b == ':') {
-                        currentState = State.COMMENT;
-                    } else {
-                        tokenData.write(b);
-                        currentState = State.FIELD;
-                    }
-                    break;
-                case COMMENT:
-                    // skipping comment data
-                    b = readLineUntil(entityStream, '\n', null);
-                    currentState = State.NEW_LINE;
-                    break;
-                case FIELD:
-                    // read field name
-                    b = readLineUntil(entityStream, ':', tokenData);
-                    final String fieldName = tokenData.toString();
-                    tokenData.reset();
-
-                    if (b == ':') {
-                        // read field value
-                        b = entityStream.read();
-                        if (b == ' ') {
-                            // first space in value has to be skipped
-                            b = entityStream.read();
-                        }
-
-                        if (b != '\n' && b != -1) {
-                            tokenData.write(b);
-                            b = readLineUntil(entityStream, '\n', tokenData);
-                        }
+            if (data[lineStart] != ':') {
+                // field line (lines starting with ':' are comments and are skipped)
+                final int colon = indexOf(data, ':', lineStart, lineEnd);
+                final String fieldName;
+                final byte[] fieldValue;
+                if (colon < 0) {
+                    fieldName = new String(data, lineStart, lineEnd - lineStart);
+                    fieldValue = EMPTY_DATA;
+                } else {
+                    fieldName = new String(data, lineStart, colon - lineStart);
+                    int valueStart = colon + 1;
+                    if (valueStart < lineEnd && data[valueStart] == ' ') {
+                        // first space in value has to be skipped
+                        valueStart++;
                     }
-
-                    processField(eventBuilder, fieldName, tokenData.toByteArray());
-                    tokenData.reset();
-
-                    currentState = State.NEW_LINE;
-                    break;
+                    fieldValue = Arrays.copyOfRange(data, valueStart, lineEnd);
+                }
+                processField(eventBuilder, fieldName, fieldValue);
             }
-        } while (b != -1);
+
+            lineStart = lineEnd + 1;
+        }
 
         return eventBuilder.build();
     }
 
     /**
-     * Read input stream until a delimiter or {@code EOL ('\n')} or {@code EOF} is reached
-     * and write the read data to the supplied output stream if not {@code null}, or discard
-     * the data if the output stream is {@code null}.
+     * Read the data of a single event from the input stream.
+     * <p>
+     * The stream is read in blocks until the empty line terminating the event is read or the end of the stream
+     * is reached, so that reading a single event from a live event stream does not wait for the stream to be closed.
+     * The data read past the terminating empty line within the last block are discarded.
+     * </p>
      *
-     * @param in        input stream to be read.
-     * @param delimiter delimiter to break the read (apart from {@code EOL ('\n')} or {@code EOF}).
-     * @param out       output stream to write the read data to. May be {@code null}, in which case the
-     *                  read data are silently discarded.
-     * @return value of the last byte read.
-     * @throws IOException in case the reading or writing of the data failed.
+     * @param in input stream to be read.
+     * @return event data up to (but not including) the terminating empty line.
+     * @throws IOException in case the reading of the data failed.
      */
-    private int readLineUntil(InputStream in, int delimiter, OutputStream out) throws IOException {
-        int b;
-        while ((b = in.read()) != -1) {
-            if (b == delimiter || b == '\n') {
-                break;
-            } else if (out != null) {
-                out.write(b);
+    private static byte[] readEvent(final InputStream in) throws IOException {
+        byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        int length = 0;
+        int scanned = 0;
+        while (true) {
+            for (int i = scanned; i < length; i++) {
+                if (buffer[i] == '\n' && (i == 0 || buffer[i - 1] == '\n')) {
+                    // empty line - end of the event
+                    return Arrays.copyOf(buffer, i);
+                }
+            }
+            scanned = length;
+
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
             }
+            final int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                return Arrays.copyOf(buffer, length);
+            }
+            length += read;
         }
+    }
 
-        return b;
+    /**
+     * Find the first occurrence of a byte within the specified range of the data.
+     *
+     * @return index of the byte or {@code -1} if not found.
+     */
+    private static int indexOf(final byte[] data, final char b, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     private void processField(InboundEvent.Builder inboundEventBuilder, String name, byte[] value) {
@@ -194,9 +199,24 @@ public class InboundEventReader implements MessageBodyReader<InboundEvent> {
             }
             inboundEventBuilder.id(s);
         } else if ("retry".equals(name)) {
-            // TODO SSE retry support
+            // the field is ignored unless the value consists of ASCII digits only
+            if (value.length > 0 && value.length < 19 && isDigits(value)) {
+                inboundEventBuilder.reconnectDelay(Long.parseLong(new String(value)));
+            }
         } else {
             // TODO support extensions, ignore for now
         }
     }
+
+    /**
+     * Check that the field value consists of ASCII digits only.
+     */
+    private static boolean isDigits(final byte[] value) {
+        for (byte b : value) {
+            if (b < '0' || b > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -54,6 +54,7 @@ public final class OutboundEvent {
         private String name;
         private String comment;
         private String id;
+        private long reconnectDelay = InboundEvent.RECONNECT_NOT_SET;
         private Class type;
         private Object data;
         private MediaType mediaType = MediaType.TEXT_PLAIN_TYPE;
@@ -82,6 +83,23 @@ public final class OutboundEvent {
             return this;
         }
 
+        /**
+         * Set the delay the client should wait before reconnecting once the connection is lost.
+         *
+         * Will be send as field name "retry".
+         *
+         * @param milliseconds reconnect delay in milliseconds.
+         * @return updated builder instance.
+         */
+        public Builder reconnectDelay(long milliseconds) {
+            if (milliseconds < 0) {
+                throw new IllegalArgumentException();
+            }
+
+            this.reconnectDelay = milliseconds;
+            return this;
+        }
+
         /**
          * Set {@link MediaType} of event data.
          *
@@ -146,13 +164,14 @@ public final class OutboundEvent {
                 }
             }
 
-            return new OutboundEvent(name, id, type, mediaType, data, comment);
+            return new OutboundEvent(name, id, reconnectDelay, type, mediaType, data, comment);
         }
     }
 
     private final String name;
     private final String comment;
     private final String id;
+    private final long reconnectDelay;
     private final Class type;
     private final MediaType mediaType;
     private final Object data;
@@ -162,15 +181,17 @@ public final class OutboundEvent {
      *
      * @param name event name (field name "event").
      * @param id event id.
+     * @param reconnectDelay reconnect delay in milliseconds.
      * @param type java type of events data.
      * @param mediaType {@link MediaType} of events data.
      * @param data events data.
      * @param comment comment.
      */
-    OutboundEvent(String name, String id, Class type, MediaType mediaType, Object data, String comment) {
+    OutboundEvent(String name, String id, long reconnectDelay, Class type, MediaType mediaType, Object data, String comment) {
         this.name = name;
         this.comment = comment;
         this.id = id;
+        this.reconnectDelay = reconnectDelay;
         this.type = type;
         this.mediaType = mediaType;
         this.data = data;
@@ -194,6 +215,15 @@ public final class OutboundEvent {
         return id;
     }
 
+    /**
+     * Get reconnect delay.
+     *
+     * @return reconnect delay in milliseconds or {@link InboundEvent#RECONNECT_NOT_SET} if not set.
+     */
+    public long getReconnectDelay() {
+        return reconnectDelay;
+    }
+
     /**
      * Get data type.
      *
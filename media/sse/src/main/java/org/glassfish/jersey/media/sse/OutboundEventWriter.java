@@ -93,6 +93,10 @@ public class OutboundEventWriter implements MessageBodyWriter<OutboundEvent> {
             entityStream.write(String.format(": %s\n", outboundEvent.getComment()).getBytes());
         }
 
+        if (outboundEvent.getReconnectDelay() != InboundEvent.RECONNECT_NOT_SET) {
+            entityStream.write(String.format("retry: %d\n", outboundEvent.getReconnectDelay()).getBytes());
+        }
+
         if (outboundEvent.getType() != null) {
             final MediaType eventMediaType =
                     outboundEvent.getMediaType() == null ? MediaType.TEXT_PLAIN_TYPE : outboundEvent.getMediaType();
@@ -39,6 +39,8 @@
  */
 package org.glassfish.jersey.media.sse;
 
+import java.util.concurrent.ExecutorService;
+
 import org.glassfish.jersey.server.Broadcaster;
 
 /**
@@ -74,6 +76,46 @@ public class SseBroadcaster extends Broadcaster<OutboundEvent> {
         super(subclass);
     }
 
+    /**
+     * Creates a new instance writing the broadcast events to the registered event outputs in parallel using
+     * the supplied writer pool.
+     *
+     * @param writerPool     executor used to write the events to the event outputs.
+     * @param queueCapacity  maximum number of events pending to be written to a single event output.
+     * @param overflowPolicy policy applied once the queue of pending events of an event output is full.
+     * @throws IllegalArgumentException in case the writer pool or the overflow policy is {@code null}, or the queue
+     *                                  capacity is not positive.
+     * @see Broadcaster#Broadcaster(ExecutorService, int, OverflowPolicy)
+     */
+    public SseBroadcaster(final ExecutorService writerPool, final int queueCapacity, final OverflowPolicy overflowPolicy)
+            throws IllegalArgumentException {
+        this(SseBroadcaster.class, writerPool, queueCapacity, overflowPolicy);
+        if (writerPool == null) {
+            throw new IllegalArgumentException("Writer pool is 'null'.");
+        }
+    }
+
+    /**
+     * Can be used by subclasses to override the default functionality of adding self to the set of
+     * {@link org.glassfish.jersey.server.BroadcasterListener listeners} when writing the broadcast events in parallel.
+     *
+     * @param subclass       subclass of SseBroadcaster that should not be registered as a listener - if creating a direct
+     *                       instance of this subclass, this constructor will not register the new instance as a listener.
+     * @param writerPool     executor used to write the events to the event outputs. If {@code null}, the events are
+     *                       written sequentially by the broadcasting thread and the other parameters are ignored.
+     * @param queueCapacity  maximum number of events pending to be written to a single event output.
+     * @param overflowPolicy policy applied once the queue of pending events of an event output is full.
+     * @throws IllegalArgumentException in case the writer pool is set and the overflow policy is {@code null}, or the
+     *                                  queue capacity is not positive.
+     * @see #SseBroadcaster(ExecutorService, int, OverflowPolicy)
+     */
+    protected SseBroadcaster(final Class<? extends SseBroadcaster> subclass,
+                             final ExecutorService writerPool,
+                             final int queueCapacity,
+                             final OverflowPolicy overflowPolicy) throws IllegalArgumentException {
+        super(subclass, writerPool, queueCapacity, overflowPolicy);
+    }
+
     /**
      * Register {@link EventOutput} to current {@link SseBroadcaster} instance.
      *
@@ -83,4 +125,35 @@ public class SseBroadcaster extends Broadcaster<OutboundEvent> {
     public void add(final EventOutput eventOutput) {
         super.add(eventOutput);
     }
+
+    /**
+     * Register {@link EventOutput} of a reconnecting client to current {@link SseBroadcaster} instance and replay
+     * the events the client has missed.
+     * <p>
+     * The events broadcast after the event with the given identifier are replayed from the replay buffer (see
+     * {@link #enableReplay(int, long, java.util.concurrent.TimeUnit)}) before any event broadcast later.
+     * </p>
+     *
+     * @param eventOutput {@link EventOutput} to register.
+     * @param lastEventId identifier of the last event received by the client, i.e. the value of the
+     *                    {@value SseFeature#LAST_EVENT_ID_HEADER} request header. May be {@code null}.
+     * @return {@code true} if no events have been missed by the client or all the missed events have been replayed,
+     *         {@code false} if the event with the given identifier has not been found in the replay buffer or the replay
+     *         is not enabled.
+     * @see #add(org.glassfish.jersey.server.ChunkedOutput, String)
+     */
+    public boolean add(final EventOutput eventOutput, final String lastEventId) {
+        return super.add(eventOutput, lastEventId);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The chunk identifier of an {@link OutboundEvent} is the {@link OutboundEvent#getId() event identifier}.
+     * </p>
+     */
+    @Override
+    protected String getChunkId(final OutboundEvent event) {
+        return event.getId();
+    }
 }
@@ -57,6 +57,11 @@ public class SseFeature implements Feature {
      * Server sent events media type.
      */
     public static final MediaType SERVER_SENT_EVENTS_TYPE = MediaType.valueOf(SERVER_SENT_EVENTS);
+    /**
+     * Name of the HTTP request header used by a reconnecting {@link EventSource} to send the identifier
+     * of the last received event to the server ("{@value}").
+     */
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
 
     @Override
     public boolean configure(Configurable configurable) {
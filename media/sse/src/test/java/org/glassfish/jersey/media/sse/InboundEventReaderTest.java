@@ -0,0 +1,141 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.media.sse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+
+import javax.inject.Provider;
+
+import org.glassfish.jersey.message.MessageBodyWorkers;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link InboundEventReader}.
+ *
+ * @author agent (agent at local)
+ */
+public class InboundEventReaderTest {
+
+    /**
+     * Live event stream providing the given data and failing any attempt to read past them.
+     */
+    private static class LiveInputStream extends InputStream {
+        private final byte[] data;
+        private int position;
+
+        LiveInputStream(final String data) {
+            this.data = data.getBytes();
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0];
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (position == data.length) {
+                throw new IOException("Read blocked on the live event stream.");
+            }
+            final int count = Math.min(len, data.length - position);
+            System.arraycopy(data, position, b, off, count);
+            position += count;
+            return count;
+        }
+    }
+
+    private InboundEventReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        reader = new InboundEventReader();
+        final Field workers = InboundEventReader.class.getDeclaredField("messageBodyWorkers");
+        workers.setAccessible(true);
+        workers.set(reader, new Provider<MessageBodyWorkers>() {
+            @Override
+            public MessageBodyWorkers get() {
+                return null;
+            }
+        });
+    }
+
+    private InboundEvent read(final InputStream in) throws IOException {
+        return reader.readFrom(InboundEvent.class, InboundEvent.class, new Annotation[0],
+                SseFeature.SERVER_SENT_EVENTS_TYPE, new MultivaluedHashMap<String, String>(), in);
+    }
+
+    @Test
+    public void testReadStopsAtEmptyLine() throws IOException {
+        // the first event is read from a live stream without waiting for more data
+        final InboundEvent event = read(new LiveInputStream("event: first\nid: 1\n: comment\ndata: a\n\nevent: second\n"));
+
+        assertEquals("first", event.getName());
+        assertEquals("1", event.getId());
+        assertFalse(event.isEmpty());
+    }
+
+    @Test
+    public void testReadEventLargerThanBuffer() throws IOException {
+        final StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            data.append("data: line").append(i).append('\n');
+        }
+        final InboundEvent event = read(new LiveInputStream("event: large\n" + data + "\n"));
+
+        assertEquals("large", event.getName());
+        assertFalse(event.isEmpty());
+    }
+
+    @Test
+    public void testLeadingEmptyLine() throws IOException {
+        assertTrue(read(new LiveInputStream("\ndata: a\n\n")).isEmpty());
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.tests.e2e.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Application;
+
+import org.glassfish.jersey.client.BatchFuture;
+import org.glassfish.jersey.client.BatchResult;
+import org.glassfish.jersey.client.JerseyClient;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the {@link org.glassfish.jersey.client.BatchInvoker batch invocation API}.
+ *
+ * @author agent (agent at local)
+ */
+public class BatchInvokerTest extends JerseyTest {
+
+    private static final AtomicInteger concurrent = new AtomicInteger();
+    private static final AtomicInteger maxConcurrent = new AtomicInteger();
+    private static volatile CountDownLatch release = new CountDownLatch(1);
+
+    @Path("/batch")
+    public static class BatchResource {
+
+        @GET
+        @Path("item/{id}")
+        public String item(@PathParam("id") String id) throws InterruptedException {
+            final int current = concurrent.incrementAndGet();
+            try {
+                int max;
+                while (current > (max = maxConcurrent.get())) {
+                    if (maxConcurrent.compareAndSet(max, current)) {
+                        break;
+                    }
+                }
+                Thread.sleep(50);
+                return id;
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        }
+
+        @GET
+        @Path("slow")
+        public String slow() throws InterruptedException {
+            Thread.sleep(500);
+            return "slow";
+        }
+
+        @GET
+        @Path("blocked")
+        public String blocked() throws InterruptedException {
+            release.await(10, TimeUnit.SECONDS);
+            return "blocked";
+        }
+
+        @GET
+        @Path("fast")
+        public String fast() {
+            return "fast";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(BatchResource.class);
+    }
+
+    private JerseyClient jerseyClient() {
+        return (JerseyClient) client();
+    }
+
+    private Invocation get(final String path) {
+        return target("batch").path(path).request().buildGet();
+    }
+
+    @Test
+    public void testCollectAll() throws Exception {
+        maxConcurrent.set(0);
+        final List<Invocation> invocations = new ArrayList<Invocation>();
+        for (int i = 0; i < 20; i++) {
+            invocations.add(get("item/" + i));
+        }
+
+        final List<BatchResult<String>> results = jerseyClient().batch()
+                .maxParallelism(4)
+                .invoke(invocations, String.class)
+                .get(30, TimeUnit.SECONDS);
+
+        assertEquals(20, results.size());
+        for (int i = 0; i < 20; i++) {
+            assertTrue(results.get(i).isSuccess());
+            assertEquals(i, results.get(i).getIndex());
+            assertEquals(String.valueOf(i), results.get(i).getValue());
+        }
+        assertTrue("Max concurrency exceeded: " + maxConcurrent.get(), maxConcurrent.get() <= 4);
+    }
+
+    @Test
+    public void testCompletionOrder() throws Exception {
+        final BatchFuture<String> batch = jerseyClient().batch()
+                .maxParallelism(2)
+                .invoke(Arrays.asList(get("slow"), get("fast")), String.class);
+
+        final BatchResult<String> first = batch.next(10, TimeUnit.SECONDS);
+        assertEquals(1, first.getIndex());
+        assertEquals("fast", first.getValue());
+
+        final BatchResult<String> second = batch.next(10, TimeUnit.SECONDS);
+        assertEquals(0, second.getIndex());
+        assertEquals("slow", second.getValue());
+
+        assertNull(batch.next());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        release = new CountDownLatch(1);
+        try {
+            final List<BatchResult<String>> results = jerseyClient().batch()
+                    .timeout(300, TimeUnit.MILLISECONDS)
+                    .invoke(Arrays.asList(get("blocked"), get("fast")), String.class)
+                    .get(10, TimeUnit.SECONDS);
+
+            assertFalse(results.get(0).isSuccess());
+            assertTrue(results.get(0).getFailure() instanceof TimeoutException);
+            assertTrue(results.get(1).isSuccess());
+            assertEquals("fast", results.get(1).getValue());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testFailFast() throws Exception {
+        final List<Invocation> invocations = new ArrayList<Invocation>();
+        invocations.add(get("missing"));
+        for (int i = 0; i < 10; i++) {
+            invocations.add(get("item/" + i));
+        }
+
+        final BatchFuture<String> batch = jerseyClient().batch()
+                .maxParallelism(1)
+                .failFast(true)
+                .invoke(invocations, String.class);
+
+        try {
+            batch.get(10, TimeUnit.SECONDS);
+            fail("ExecutionException expected.");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof NotFoundException);
+        }
+
+        // all the invocations are accounted for, the pending ones have been cancelled
+        int count = 0;
+        while (batch.next(10, TimeUnit.SECONDS) != null) {
+            count++;
+        }
+        assertEquals(11, count);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.tests.e2e.client;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.GenericType;
+
+import org.glassfish.jersey.client.ChunkListener;
+import org.glassfish.jersey.client.ChunkedInput;
+import org.glassfish.jersey.server.ChunkedOutput;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link ChunkedInput} consumption by a {@link ChunkListener} for connectors not supporting
+ * asynchronous entity delivery.
+ *
+ * @author agent (agent at local)
+ */
+public class ChunkListenerTest extends JerseyTest {
+
+    @Path("/chunks")
+    public static class ChunkedResource {
+
+        @GET
+        public ChunkedOutput<String> get() {
+            final ChunkedOutput<String> output = new ChunkedOutput<String>(String.class);
+
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 5; i++) {
+                            // chunks are delimited by the default client chunk parser boundary
+                            output.write("chunk-" + i + "\r\n");
+                        }
+                        output.close();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            }.start();
+
+            return output;
+        }
+    }
+
+    private static class TestListener implements ChunkListener<String> {
+        private final List<String> chunks = new CopyOnWriteArrayList<String>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Throwable failure;
+        private volatile String threadName;
+
+        @Override
+        public void onChunk(String chunk) {
+            threadName = Thread.currentThread().getName();
+            chunks.add(chunk);
+        }
+
+        @Override
+        public void onError(Throwable failure) {
+            this.failure = failure;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(ChunkedResource.class);
+    }
+
+    @Test
+    public void testListener() throws Exception {
+        final ChunkedInput<String> input = target("chunks").request().get(new GenericType<ChunkedInput<String>>() {
+        });
+        final TestListener listener = new TestListener();
+        input.listen(listener);
+
+        assertTrue(listener.done.await(10, TimeUnit.SECONDS));
+        assertNull(listener.failure);
+        assertEquals(5, listener.chunks.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("chunk-" + i, listener.chunks.get(i));
+        }
+        assertTrue(input.isClosed());
+        // the default connector does not support asynchronous entity delivery
+        assertTrue(listener.threadName.startsWith("jersey-chunked-input"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadWhileListening() throws Exception {
+        final ChunkedInput<String> input = target("chunks").request().get(new GenericType<ChunkedInput<String>>() {
+        });
+        input.listen(new TestListener());
+        input.read();
+    }
+}
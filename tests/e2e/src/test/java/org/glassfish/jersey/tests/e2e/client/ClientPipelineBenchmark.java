@@ -0,0 +1,145 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.tests.e2e.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientFactory;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.client.WebTarget;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.inmemory.internal.InMemoryConnector;
+
+/**
+ * Simple benchmark measuring the client-side request and response processing overhead.
+ * <p>
+ * The requests are sent using the in-memory connector, so that the measured time is dominated by
+ * the client (and server) runtime processing rather than by the network transport. The benchmark
+ * is not executed as part of the test suite. Run the {@link #main(String[])} method to get the results.
+ * </p>
+ *
+ * @author agent (agent at local)
+ */
+public class ClientPipelineBenchmark {
+
+    private static final URI BASE_URI = URI.create("http://localhost:8080/base/");
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int REQUESTS_PER_ROUND = 20000;
+
+    @Path("pipeline")
+    public static class PipelineResource {
+
+        @GET
+        public String get() {
+            return "pipeline";
+        }
+    }
+
+    public static class NoOpRequestFilter implements ClientRequestFilter {
+
+        @Override
+        public void filter(final ClientRequestContext requestContext) throws IOException {
+            // do nothing
+        }
+    }
+
+    public static class NoOpResponseFilter implements ClientResponseFilter {
+
+        @Override
+        public void filter(final ClientRequestContext requestContext, final ClientResponseContext responseContext)
+                throws IOException {
+            // do nothing
+        }
+    }
+
+    private static double measure(final ClientConfig config) {
+        final ApplicationHandler application = new ApplicationHandler(new ResourceConfig(PipelineResource.class));
+        final Client client = ClientFactory.newClient(config.connector(new InMemoryConnector(BASE_URI, application)));
+        try {
+            final WebTarget target = client.target(BASE_URI).path("pipeline");
+            for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                runRound(target);
+            }
+
+            long totalNanos = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                totalNanos += runRound(target);
+            }
+            return (double) totalNanos / (REQUESTS_PER_ROUND * MEASURED_ROUNDS) / TimeUnit.MICROSECONDS.toNanos(1);
+        } finally {
+            client.close();
+        }
+    }
+
+    private static long runRound(final WebTarget target) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS_PER_ROUND; i++) {
+            if (target.request().get().getStatus() != 200) {
+                throw new IllegalStateException("Unexpected response status.");
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args command line arguments (ignored).
+     */
+    public static void main(final String[] args) {
+        System.out.printf("No filters:       %.2f us/request%n", measure(new ClientConfig()));
+        System.out.printf("3+3 filters:      %.2f us/request%n", measure(new ClientConfig()
+                .register(new NoOpRequestFilter()).register(new NoOpRequestFilter())
+                .register(new NoOpRequestFilter()).register(new NoOpResponseFilter())
+                .register(new NoOpResponseFilter()).register(new NoOpResponseFilter())));
+    }
+}
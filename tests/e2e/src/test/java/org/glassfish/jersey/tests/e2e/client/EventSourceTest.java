@@ -0,0 +1,176 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.tests.e2e.client;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.media.sse.EventListener;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.EventSource;
+import org.glassfish.jersey.media.sse.InboundEvent;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+import org.glassfish.jersey.media.sse.OutboundEventWriter;
+import org.glassfish.jersey.media.sse.SseFeature;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link EventSource} sharing an executor and reconnecting to the event stream.
+ *
+ * @author agent (agent at local)
+ */
+public class EventSourceTest extends JerseyTest {
+
+    private static final int EVENT_COUNT = 6;
+    private static final int EVENTS_PER_CONNECTION = 2;
+
+    @Path("/events")
+    public static class EventsResource {
+
+        @GET
+        @Produces(SseFeature.SERVER_SENT_EVENTS)
+        public EventOutput get(@HeaderParam(SseFeature.LAST_EVENT_ID_HEADER) @DefaultValue("-1") final int lastEventId) {
+            if (lastEventId + 1 >= EVENT_COUNT) {
+                // all the events have been sent, the client should stop reconnecting
+                throw new WebApplicationException(Response.Status.NO_CONTENT);
+            }
+
+            final EventOutput output = new EventOutput();
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        // only a part of the events is sent over a single connection
+                        final int end = Math.min(lastEventId + 1 + EVENTS_PER_CONNECTION, EVENT_COUNT);
+                        for (int i = lastEventId + 1; i < end; i++) {
+                            output.write(new OutboundEvent.Builder()
+                                    .id(String.valueOf(i))
+                                    .reconnectDelay(100)
+                                    .data(String.class, "message " + i)
+                                    .build());
+                        }
+                        output.close();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            }.start();
+
+            return output;
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(EventsResource.class, OutboundEventWriter.class);
+    }
+
+    @Test
+    public void testSharedExecutorReconnect() throws Exception {
+        final int sourceCount = 10;
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        final EventSource[] sources = new EventSource[sourceCount];
+        final List<List<String>> received = new CopyOnWriteArrayList<List<String>>();
+        final CountDownLatch latch = new CountDownLatch(sourceCount * EVENT_COUNT);
+
+        try {
+            for (int i = 0; i < sourceCount; i++) {
+                final List<String> messages = new CopyOnWriteArrayList<String>();
+                received.add(messages);
+                sources[i] = new EventSource(target("events"), executor, false);
+                sources[i].register(new EventListener() {
+                    @Override
+                    public void onEvent(InboundEvent inboundEvent) {
+                        try {
+                            messages.add(inboundEvent.getData());
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                        }
+                        latch.countDown();
+                    }
+                });
+                sources[i].open();
+            }
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            for (List<String> messages : received) {
+                assertEquals(EVENT_COUNT, messages.size());
+                for (int i = 0; i < EVENT_COUNT; i++) {
+                    assertEquals("message " + i, messages.get(i));
+                }
+            }
+
+            // the server responds with "204 No Content" once all the events have been sent
+            for (EventSource source : sources) {
+                final long deadline = System.currentTimeMillis() + 5000;
+                while (source.isOpen() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(50);
+                }
+                assertFalse(source.isOpen());
+            }
+        } finally {
+            for (EventSource source : sources) {
+                if (source != null) {
+                    assertTrue(source.close(5, TimeUnit.SECONDS));
+                }
+            }
+            executor.shutdown();
+        }
+    }
+}
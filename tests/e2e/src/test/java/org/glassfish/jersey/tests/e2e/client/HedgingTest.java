@@ -0,0 +1,156 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.tests.e2e.client;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Application;
+
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.HedgingFeature;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the {@link HedgingFeature hedged client requests}.
+ *
+ * @author agent (agent at local)
+ */
+public class HedgingTest extends JerseyTest {
+
+    private static final AtomicInteger calls = new AtomicInteger();
+
+    @Path("/hedging")
+    public static class HedgingResource {
+
+        @GET
+        public String get() throws InterruptedException {
+            return firstSlow();
+        }
+
+        @POST
+        public String post(String entity) throws InterruptedException {
+            return firstSlow();
+        }
+
+        @DELETE
+        public String delete() throws InterruptedException {
+            return firstSlow();
+        }
+
+        private String firstSlow() throws InterruptedException {
+            if (calls.incrementAndGet() == 1) {
+                Thread.sleep(1000);
+                return "slow";
+            }
+            return "fast";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(HedgingResource.class);
+    }
+
+    @Before
+    public void resetCalls() {
+        calls.set(0);
+    }
+
+    private WebTarget hedgingTarget(final double budget) {
+        final WebTarget target = target("hedging");
+        target.configuration().register(new HedgingFeature(100, 0, budget));
+        return target;
+    }
+
+    @Test
+    public void testHedgedRequestWins() throws Exception {
+        final Future<String> future = hedgingTarget(1.0).request().async().get(String.class);
+
+        assertEquals("fast", future.get(800, TimeUnit.MILLISECONDS));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testNoHedgingWithoutBudget() throws Exception {
+        final Future<String> future = hedgingTarget(0).request().async().get(String.class);
+
+        assertEquals("slow", future.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testRequestWithEntityNotHedged() throws Exception {
+        final Future<String> future = hedgingTarget(1.0).request().async().post(Entity.text("entity"), String.class);
+
+        assertEquals("slow", future.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testDeleteNotHedgedByDefault() throws Exception {
+        final Future<String> future = hedgingTarget(1.0).request().async().delete(String.class);
+
+        assertEquals("slow", future.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testDeleteHedgedIfEnabled() throws Exception {
+        final WebTarget target = hedgingTarget(1.0);
+        target.configuration().setProperty(ClientProperties.HEDGING_DELETE, true);
+        final Future<String> future = target.request().async().delete(String.class);
+
+        assertEquals("fast", future.get(800, TimeUnit.MILLISECONDS));
+        assertEquals(2, calls.get());
+    }
+}
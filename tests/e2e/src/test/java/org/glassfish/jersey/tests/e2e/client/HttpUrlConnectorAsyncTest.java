@@ -0,0 +1,185 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.tests.e2e.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientFactory;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.HttpUrlConnector;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests asynchronous request execution in the {@link org.glassfish.jersey.client.HttpUrlConnector}.
+ *
+ * @author agent (agent at local)
+ */
+public class HttpUrlConnectorAsyncTest extends JerseyTest {
+
+    private static final AtomicInteger concurrent = new AtomicInteger();
+    private static final AtomicInteger maxConcurrent = new AtomicInteger();
+    private static final CountDownLatch release = new CountDownLatch(1);
+
+    @Path("/async")
+    public static class AsyncResource {
+
+        @GET
+        @Path("slow")
+        public String slow() throws InterruptedException {
+            final int current = concurrent.incrementAndGet();
+            try {
+                int max;
+                while (current > (max = maxConcurrent.get())) {
+                    if (maxConcurrent.compareAndSet(max, current)) {
+                        break;
+                    }
+                }
+                Thread.sleep(100);
+                return "slow";
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        }
+
+        @GET
+        @Path("blocked")
+        public String blocked() throws InterruptedException {
+            release.await(10, TimeUnit.SECONDS);
+            return "blocked";
+        }
+
+        @GET
+        @Path("fast")
+        public String fast() {
+            return "fast";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(AsyncResource.class);
+    }
+
+    @Override
+    protected void configureClient(final ClientConfig clientConfig) {
+        clientConfig.setProperty(ClientProperties.ASYNC_THREADPOOL_SIZE, 4);
+        clientConfig.setProperty(ClientProperties.ASYNC_MAX_CONNECTIONS_PER_HOST, 1);
+    }
+
+    @Test
+    public void testPerHostLimit() throws Exception {
+        final List<Future<Response>> futures = new ArrayList<Future<Response>>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(target("async/slow").request().async().get());
+        }
+        for (Future<Response> future : futures) {
+            final Response response = future.get(10, TimeUnit.SECONDS);
+            assertEquals(200, response.getStatus());
+            assertEquals("slow", response.readEntity(String.class));
+        }
+
+        assertEquals(1, maxConcurrent.get());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final Future<Response> blocked = target("async/blocked").request().async().get();
+        // queued behind the blocked request due to the per-host limit
+        final Future<Response> queued = target("async/fast").request().async().get();
+
+        assertTrue(queued.cancel(true));
+        assertTrue(blocked.cancel(true));
+        release.countDown();
+
+        for (Future<Response> future : Arrays.asList(blocked, queued)) {
+            assertTrue(future.isCancelled());
+            try {
+                future.get();
+                fail("CancellationException expected.");
+            } catch (CancellationException expected) {
+                // ok
+            }
+        }
+
+        // the connector is still operational
+        assertEquals("fast", target("async/fast").request().async().get(String.class).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testClosedConnectorRejectsAsyncRequests() throws Exception {
+        final ClientConfig config = new ClientConfig().setProperty(ClientProperties.ASYNC_THREADPOOL_SIZE, 1);
+        final HttpUrlConnector connector = new HttpUrlConnector(config);
+        final Client client = ClientFactory.newClient(config.connector(connector));
+
+        assertEquals("fast", client.target(getBaseUri()).path("async/fast").request().async().get(String.class)
+                .get(10, TimeUnit.SECONDS));
+
+        // the I/O thread pool is shut down by the connector
+        connector.close();
+        try {
+            client.target(getBaseUri()).path("async/fast").request().async().get(String.class)
+                    .get(10, TimeUnit.SECONDS);
+            fail("ExecutionException expected.");
+        } catch (ExecutionException expected) {
+            // ok
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.tests.e2e.client;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests request entity streaming modes of the {@link org.glassfish.jersey.client.HttpUrlConnector}
+ * including consecutive requests sent over the same persistent connection.
+ *
+ * @author agent (agent at local)
+ */
+public class HttpUrlConnectorStreamingTest extends JerseyTest {
+
+    private static final int ENTITY_SIZE = 64 * 1024;
+    private static final int REQUEST_COUNT = 20;
+
+    @Path("/streaming")
+    public static class StreamingResource {
+
+        @POST
+        public String post(@HeaderParam(HttpHeaders.CONTENT_LENGTH) final String contentLength,
+                           @HeaderParam("Transfer-Encoding") final String transferEncoding,
+                           final byte[] entity) {
+            return entity.length + ":" + contentLength + ":" + transferEncoding;
+        }
+
+        @GET
+        public String get() {
+            return "get";
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(StreamingResource.class);
+    }
+
+    @Override
+    protected void configureClient(final ClientConfig clientConfig) {
+        clientConfig.setProperty(ClientProperties.HTTP_URL_CONNECTION_STREAMING, true);
+        clientConfig.setProperty(ClientProperties.CHUNKED_ENCODING_SIZE, 1024);
+    }
+
+    private static byte[] entity() {
+        final byte[] entity = new byte[ENTITY_SIZE];
+        Arrays.fill(entity, (byte) 'a');
+        return entity;
+    }
+
+    private String postFixedLength() {
+        final Response response = target("streaming").request()
+                .post(Entity.entity(entity(), MediaType.APPLICATION_OCTET_STREAM_TYPE));
+        assertEquals(200, response.getStatus());
+        return response.readEntity(String.class);
+    }
+
+    private String postChunked() {
+        // size of a (non byte array) stream entity is not known before serialization
+        final InputStream stream = new BufferedInputStream(new ByteArrayInputStream(entity()));
+        final Response response = target("streaming").request()
+                .post(Entity.entity(stream, MediaType.APPLICATION_OCTET_STREAM_TYPE));
+        assertEquals(200, response.getStatus());
+        return response.readEntity(String.class);
+    }
+
+    @Test
+    public void testFixedLengthStreaming() {
+        assertEquals(ENTITY_SIZE + ":" + ENTITY_SIZE + ":null", postFixedLength());
+    }
+
+    @Test
+    public void testChunkedStreaming() {
+        assertEquals(ENTITY_SIZE + ":null:chunked", postChunked());
+    }
+
+    @Test
+    public void testConsecutiveFixedLengthRequests() {
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            assertEquals("Request #" + i, ENTITY_SIZE + ":" + ENTITY_SIZE + ":null", postFixedLength());
+        }
+    }
+
+    @Test
+    public void testConsecutiveChunkedRequests() {
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            assertEquals("Request #" + i, ENTITY_SIZE + ":null:chunked", postChunked());
+        }
+    }
+
+    @Test
+    public void testConsecutiveMixedRequests() {
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            assertEquals("Request #" + i, ENTITY_SIZE + ":" + ENTITY_SIZE + ":null", postFixedLength());
+            assertEquals("Request #" + i, "get", target("streaming").request().get(String.class));
+            assertEquals("Request #" + i, ENTITY_SIZE + ":null:chunked", postChunked());
+        }
+    }
+}
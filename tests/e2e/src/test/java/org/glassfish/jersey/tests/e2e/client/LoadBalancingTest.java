@@ -0,0 +1,131 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.tests.e2e.client;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.client.ClientException;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.UriBuilder;
+
+import org.glassfish.jersey.client.LoadBalancingFeature;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link LoadBalancingFeature client-side load balancing}.
+ *
+ * @author agent (agent at local)
+ */
+public class LoadBalancingTest extends JerseyTest {
+
+    @Path("/balanced")
+    public static class BalancedResource {
+
+        @GET
+        public String get(@Context HttpHeaders headers, @QueryParam("q") String query) {
+            return headers.getRequestHeaders().getFirst(HttpHeaders.HOST) + ":" + query;
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(BalancedResource.class);
+    }
+
+    private URI endpoint(final String host) {
+        return UriBuilder.fromUri(getBaseUri()).host(host).build();
+    }
+
+    @Test
+    public void testRequestsDistributedAcrossEndpoints() {
+        final WebTarget target = target("balanced");
+        target.configuration().register(new LoadBalancingFeature(
+                Arrays.asList(endpoint("localhost"), endpoint("127.0.0.1")),
+                LoadBalancingFeature.Strategy.LEAST_OUTSTANDING_REQUESTS,
+                LoadBalancingFeature.DEFAULT_FAILURE_THRESHOLD,
+                LoadBalancingFeature.DEFAULT_EJECTION_TIME));
+
+        final Set<String> hosts = new HashSet<String>();
+        for (int i = 0; i < 10; i++) {
+            final String response = target.queryParam("q", "value").request().get(String.class);
+            assertTrue(response.endsWith(":value"));
+            hosts.add(response.substring(0, response.indexOf(':')));
+        }
+
+        assertEquals(new HashSet<String>(Arrays.asList("localhost", "127.0.0.1")), hosts);
+    }
+
+    @Test
+    public void testFailingEndpointEjected() {
+        final WebTarget target = target("balanced");
+        // nothing is expected to listen on port 1
+        final URI deadEndpoint = UriBuilder.fromUri(getBaseUri()).port(1).build();
+        target.configuration().register(new LoadBalancingFeature(
+                Arrays.asList(deadEndpoint, getBaseUri()),
+                LoadBalancingFeature.Strategy.LEAST_OUTSTANDING_REQUESTS,
+                1,
+                60000));
+
+        int failures = 0;
+        for (int i = 0; i < 10; i++) {
+            try {
+                target.queryParam("q", "value").request().get(String.class);
+            } catch (ClientException expected) {
+                failures++;
+            }
+        }
+
+        assertEquals(1, failures);
+    }
+}
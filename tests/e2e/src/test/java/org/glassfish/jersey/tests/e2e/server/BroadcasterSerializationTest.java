@@ -0,0 +1,164 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.tests.e2e.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import org.glassfish.jersey.server.Broadcaster;
+import org.glassfish.jersey.server.ChunkedOutput;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that a {@link Broadcaster#broadcast(Object) broadcast} chunk is serialized only once.
+ *
+ * @author agent (agent at local)
+ */
+public class BroadcasterSerializationTest extends JerseyTest {
+
+    private static final Broadcaster<Message> broadcaster = new Broadcaster<Message>();
+    private static final AtomicInteger serializations = new AtomicInteger();
+
+    public static class Message {
+        private final String text;
+
+        public Message(String text) {
+            this.text = text;
+        }
+    }
+
+    @Produces(MediaType.TEXT_PLAIN)
+    public static class MessageWriter implements MessageBodyWriter<Message> {
+
+        @Override
+        public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return type == Message.class;
+        }
+
+        @Override
+        public long getSize(Message message, Class<?> type, Type genericType, Annotation[] annotations,
+                            MediaType mediaType) {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(Message message, Class<?> type, Type genericType, Annotation[] annotations,
+                            MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+                throws IOException, WebApplicationException {
+            serializations.incrementAndGet();
+            entityStream.write(message.text.getBytes());
+        }
+    }
+
+    @Path("/messages")
+    public static class MessageResource {
+
+        @GET
+        @Produces(MediaType.TEXT_PLAIN)
+        public ChunkedOutput<Message> get() throws IOException {
+            final ChunkedOutput<Message> output = new ChunkedOutput<Message>(Message.class);
+
+            // write something to ensure the client does not get blocked on waiting for the first byte
+            output.write(new Message("first"));
+
+            broadcaster.add(output);
+            return output;
+        }
+
+        @POST
+        public String post(String text) {
+            broadcaster.broadcast(new Message(text));
+            return text;
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(MessageResource.class, MessageWriter.class);
+    }
+
+    @Test
+    public void testSerializedOnce() throws IOException {
+        final InputStream[] streams = new InputStream[4];
+        for (int i = 0; i < streams.length; i++) {
+            streams[i] = target("messages").request().get(InputStream.class);
+        }
+        checkStream("first", streams);
+
+        serializations.set(0);
+        target("messages").request().post(Entity.text("broadcast"));
+        checkStream("broadcast", streams);
+        assertEquals(1, serializations.get());
+
+        broadcaster.closeAll();
+    }
+
+    private void checkStream(String golden, InputStream... inputStreams) throws IOException {
+        byte[] bytes = golden.getBytes();
+        for (InputStream is : inputStreams) {
+            byte[] entity = new byte[bytes.length];
+            int bytesRead = 0;
+            int read;
+            while (bytesRead < entity.length && (read = is.read(entity, bytesRead, entity.length - bytesRead)) != -1) {
+                bytesRead += read;
+            }
+            assertEquals(golden, new String(entity));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2012 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.jersey.tests.e2e.server;
+
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Application;
+
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+import org.glassfish.jersey.media.sse.OutboundEventWriter;
+import org.glassfish.jersey.media.sse.SseBroadcaster;
+import org.glassfish.jersey.media.sse.SseFeature;
+import org.glassfish.jersey.server.ChunkedOutput;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the heartbeats written to an idle {@link EventOutput}.
+ *
+ * @author agent (agent at local)
+ */
+public class EventOutputHeartbeatTest extends JerseyTest {
+
+    @Path("/heartbeat")
+    public static class HeartbeatResource {
+
+        @GET
+        @Produces(SseFeature.SERVER_SENT_EVENTS)
+        public EventOutput get() throws Exception {
+            final EventOutput output = new EventOutput(100, TimeUnit.MILLISECONDS);
+            output.write(new OutboundEvent.Builder().data(String.class, "event").build());
+            return output;
+        }
+    }
+
+    private static final CountDownLatch BROADCASTER_CLOSED = new CountDownLatch(1);
+    private static volatile EventOutput broadcastOutput;
+
+    private static final SseBroadcaster BROADCASTER = new SseBroadcaster() {
+        @Override
+        public void onClose(final ChunkedOutput<OutboundEvent> chunkedOutput) {
+            BROADCASTER_CLOSED.countDown();
+        }
+    };
+
+    @Path("/broadcast")
+    public static class BroadcastResource {
+
+        @GET
+        @Produces(SseFeature.SERVER_SENT_EVENTS)
+        public EventOutput get() throws Exception {
+            final EventOutput output = new EventOutput(50, TimeUnit.MILLISECONDS);
+            output.write(new OutboundEvent.Builder().data(String.class, "event").build());
+            broadcastOutput = output;
+            BROADCASTER.add(output);
+            return output;
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        return new ResourceConfig(HeartbeatResource.class, BroadcastResource.class, OutboundEventWriter.class);
+    }
+
+    @Test
+    public void testHeartbeat() throws Exception {
+        final InputStream stream = target("heartbeat").request().get(InputStream.class);
+        try {
+            assertEquals("data: event\n\n", read(stream, "data: event\n\n".length()));
+            // the connection is idle after the first event, heartbeats follow
+            assertEquals(":\n\n:\n\n", read(stream, 6));
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void testBroadcasterPrunesDeadConnection() throws Exception {
+        final InputStream stream = target("broadcast").request().get(InputStream.class);
+        assertEquals("data: event\n\n", read(stream, "data: event\n\n".length()));
+        stream.close();
+
+        // no event is broadcast, the failed heartbeat write unregisters the event output of the closed connection
+        assertTrue(BROADCASTER_CLOSED.await(10, TimeUnit.SECONDS));
+        assertTrue(broadcastOutput.isClosed());
+        assertFalse(BROADCASTER.remove(broadcastOutput));
+    }
+
+    private static String read(final InputStream stream, final int length) throws Exception {
+        final byte[] data = new byte[length];
+        int read = 0;
+        while (read < length) {
+            final int count = stream.read(data, read, length - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        return new String(data, 0, read);
+    }
+}